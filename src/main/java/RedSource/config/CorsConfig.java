@@ -1,5 +1,6 @@
 package RedSource.config;
 
+import RedSource.entities.response.KeysetPage;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -30,6 +31,7 @@ public class CorsConfig {
         
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
+        config.addExposedHeader(KeysetPage.NEXT_CURSOR_HEADER);
         config.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -48,6 +50,7 @@ public class CorsConfig {
         
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(List.of(KeysetPage.NEXT_CURSOR_HEADER));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
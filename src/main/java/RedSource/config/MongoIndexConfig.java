@@ -6,6 +6,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -48,4 +51,29 @@ public class MongoIndexConfig {
             }
         };
     }
-} 
\ No newline at end of file
+
+    /**
+     * Documents written before optimistic locking was introduced have no version
+     * field. Give them version 0 so version-checked saves treat them as existing.
+     */
+    @Bean
+    public ApplicationRunner backfillDocumentVersions() {
+        return args -> {
+            String[] versionedCollections = {"blood_inventory", "hospital_requests", "deliveries", "users_bloodbank"};
+            for (String collection : versionedCollections) {
+                try {
+                    long updated = mongoTemplate.updateMulti(
+                            new Query(Criteria.where("version").exists(false)),
+                            new Update().set("version", 0L),
+                            collection).getModifiedCount();
+                    if (updated > 0) {
+                        logger.info("Initialized version field on " + updated + " documents in " + collection);
+                    }
+                } catch (Exception e) {
+                    logger.warning("Could not initialize version field in " + collection + ": " + e.getMessage());
+                    return; // database unavailable, retry on next startup
+                }
+            }
+        };
+    }
+}
@@ -7,9 +7,13 @@ import RedSource.repositories.BloodBankUserRepository;
 import RedSource.repositories.HospitalRepository;
 import RedSource.repositories.UserRepository;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.services.BloodBankLocationService;
 import RedSource.services.FileStorageService;
+import RedSource.services.InventoryHeatmapService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -46,6 +50,12 @@ public class AdminController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private InventoryHeatmapService inventoryHeatmapService;
+
+    @Autowired
+    private BloodBankLocationService bloodBankLocationService;
+
     /**
      * Register a new Hospital user
      */
@@ -334,6 +344,7 @@ public class AdminController {
                 BloodBankUser bloodBankUser = bloodBankUserBuilder.build();
 
                 savedBloodBank = bloodBankUserRepository.save(bloodBankUser);
+                bloodBankLocationService.invalidate();
             } catch (org.springframework.dao.DuplicateKeyException e) {
                 // If registration fails, clean up uploaded files
                 if (photoUrl != null) {
@@ -564,6 +575,7 @@ public class AdminController {
 
             bloodBank.setUpdatedAt(new Date());
             BloodBankUser updatedBloodBank = bloodBankUserRepository.save(bloodBank);
+            bloodBankLocationService.invalidate();
             logger.info("PUT /api/admin/bloodbanks/{} - Blood bank updated successfully: {} | Hours: {}", 
                     id, updatedBloodBank.getBloodBankName(), updatedBloodBank.getOperatingHours());
 
@@ -623,6 +635,41 @@ public class AdminController {
         }
     }
     
+    /**
+     * Get network-wide inventory heatmap (units per blood type per bank and per region).
+     * Supports If-None-Match so dashboards can poll cheaply.
+     */
+    @GetMapping("/inventory-heatmap")
+    public ResponseEntity<?> getInventoryHeatmap(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.debug("GET /api/admin/inventory-heatmap - Retrieving inventory heatmap");
+        try {
+            if (inventoryHeatmapService.isNotModified(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(inventoryHeatmapService.currentETag()).build();
+            }
+
+            Map<String, Object> heatmap = inventoryHeatmapService.getHeatmap();
+            String eTag = inventoryHeatmapService.eTagFor((Long) heatmap.get("version"));
+            logger.info("GET /api/admin/inventory-heatmap - Successfully retrieved inventory heatmap (version {})", heatmap.get("version"));
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            "Inventory heatmap retrieved successfully",
+                            heatmap
+                    ));
+        } catch (Exception e) {
+            logger.error("GET /api/admin/inventory-heatmap - Failed to retrieve inventory heatmap: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ResponseUtils.buildErrorResponse(
+                            HttpStatus.INTERNAL_SERVER_ERROR,
+                            "Failed to retrieve inventory heatmap: " + e.getMessage()
+                    )
+            );
+        }
+    }
+
     /**
      * Construct operating hours string in the format expected by frontend filtering
      * e.g., "Mon-Fri 09:00 - 17:00" or "Mon,Wed,Fri 08:00 - 18:00"
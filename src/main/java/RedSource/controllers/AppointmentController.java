@@ -1,19 +1,31 @@
 package RedSource.controllers;
 
 import RedSource.entities.Appointment;
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.DTO.BulkStatusUpdateRequest;
+import RedSource.entities.DTO.SlotCapacityRequest;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.entities.response.KeysetPage;
+import RedSource.exceptions.SlotUnavailableException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.services.AppointmentService;
+import RedSource.services.AppointmentSlotService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 @PreAuthorize("hasRole('DONOR') or hasRole('BLOODBANK') or hasRole('HOSPITAL') or hasRole('ADMIN')")
 @RestController
 @RequestMapping("/api/appointment")
@@ -26,14 +38,19 @@ public class AppointmentController {
     public static final String APPOINTMENT = "Appointment";
 
     private final AppointmentService appointmentService;
+    private final AppointmentSlotService appointmentSlotService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String userId) {
         log.debug("GET /api/appointment - Retrieving all appointments");
         try {
-            var appointments = appointmentService.getAll();
+            KeysetPage<Appointment> page = appointmentService.getPage(cursor, limit, status, userId);
+            var appointments = page.getItems();
             log.info("GET /api/appointment - Successfully retrieved {} appointments", appointments.size());
-            return ResponseEntity.ok(
+            return ResponseEntity.ok().headers(page.headers()).body(
                     ResponseUtils.buildSuccessResponse(
                             HttpStatus.OK,
                             MessageUtils.retrieveSuccess(APPOINTMENTS),
@@ -159,6 +176,8 @@ public class AppointmentController {
                             savedAppointment
                     )
             );
+        } catch (SlotUnavailableException | IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error saving appointment: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
@@ -197,6 +216,8 @@ public class AppointmentController {
                             updatedAppointment
                     )
             );
+        } catch (SlotUnavailableException | VersionConflictException | IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             String message = e.getMessage().toLowerCase();
             HttpStatus status = (message.contains("not found") || message.contains("does not exist")) 
@@ -208,6 +229,25 @@ public class AppointmentController {
         }
     }
 
+    // Move several appointments to one status; the body lists the outcome per ID
+    @PreAuthorize("hasRole('BLOODBANK') or hasRole('ADMIN')")
+    @PutMapping("/bulk/status")
+    public ResponseEntity<?> bulkUpdateStatus(@Valid @RequestBody BulkStatusUpdateRequest request,
+                                              BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        BulkStatusUpdate<Appointment> bulkUpdate = appointmentService.bulkUpdateStatus(request.getIds(), request.getStatus());
+        log.info("PUT /api/appointment/bulk/status - Updated {} of {} appointments",
+                bulkUpdate.count(BulkStatusResult.UPDATED), bulkUpdate.getResults().size());
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Updated " + bulkUpdate.count(BulkStatusResult.UPDATED) + " appointments",
+                        bulkUpdate.getResults()));
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<?> updateStatus(@PathVariable String id, @RequestBody java.util.Map<String, String> statusUpdate) {
         try {
@@ -269,6 +309,72 @@ public class AppointmentController {
         }
     }
 
+    // Run the missed-appointment sweep now instead of waiting for the hourly job
+    @PreAuthorize("hasRole('BLOODBANK') or hasRole('ADMIN')")
+    @PostMapping("/mark-missed")
+    public ResponseEntity<?> markMissedAppointments() {
+        long missed = appointmentService.sweepMissedAppointments();
+        log.info("POST /api/appointment/mark-missed - Marked {} appointments as missed", missed);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Marked " + missed + " appointments as missed",
+                        Map.of("missed", missed)
+                )
+        );
+    }
+
+    // Slots of a blood bank that can still be booked between two days
+    @GetMapping("/slots")
+    public ResponseEntity<?> getOpenSlots(@RequestParam String bloodBankId,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        var slots = appointmentSlotService.getOpenSlots(bloodBankId, from, to);
+        log.info("GET /api/appointment/slots - {} open slots for blood bank {} from {} to {}", slots.size(), bloodBankId, from, to);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess("Appointment slots"),
+                        slots
+                )
+        );
+    }
+
+    // Set the booking capacity of a blood bank's slots over a range of days
+    @PreAuthorize("hasRole('BLOODBANK') or hasRole('ADMIN')")
+    @PutMapping("/slots/capacity")
+    public ResponseEntity<?> setSlotCapacity(@Valid @RequestBody SlotCapacityRequest request, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        int slots = appointmentSlotService.setCapacity(request.getBloodBankId(), request.getFrom(), request.getTo(),
+                request.getCapacity());
+        log.info("PUT /api/appointment/slots/capacity - Set capacity of {} slots to {}", slots, request.getCapacity());
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Updated capacity of " + slots + " slots",
+                        Map.of("slots", slots, "capacity", request.getCapacity())
+                )
+        );
+    }
+
+    // One-off materialization of donor eligibility from existing appointments
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/eligibility/backfill")
+    public ResponseEntity<?> backfillEligibility() {
+        Map<String, Object> result = appointmentService.backfillEligibility();
+        log.info("POST /api/appointment/eligibility/backfill - {}", result);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Donor eligibility backfilled",
+                        result
+                )
+        );
+    }
+
     @PostMapping("/{id}/mark-missed")
     public ResponseEntity<?> markAsMissed(@PathVariable String id) {
         try {
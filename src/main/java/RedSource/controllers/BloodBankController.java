@@ -3,6 +3,7 @@ package RedSource.controllers;
 import RedSource.entities.BloodBankUser;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.services.BloodBankService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -136,6 +137,8 @@ public class BloodBankController {
                             HttpStatus.OK,
                             MessageUtils.updateSuccess(BLOOD_BANK),
                             updatedBloodBank));
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String message = e.getMessage().toLowerCase();
             HttpStatus status = (message.contains("not found") || message.contains("does not exist")) 
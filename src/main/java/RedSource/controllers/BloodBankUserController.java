@@ -3,6 +3,7 @@ package RedSource.controllers;
 import RedSource.entities.BloodBankUser;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.services.BloodBankUserService;
 import RedSource.services.FileStorageService;
 import jakarta.validation.Valid;
@@ -157,6 +158,8 @@ public class BloodBankUserController {
                             updatedBloodBankUser
                     )
             );
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("PUT /api/bloodbank-users/{} - Error updating blood bank user: {}", id, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
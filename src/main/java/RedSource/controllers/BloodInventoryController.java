@@ -1,9 +1,14 @@
 package RedSource.controllers;
 
 import RedSource.entities.BloodInventory;
+import RedSource.entities.LowStockThreshold;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.KeysetPage;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.services.BloodInventoryService;
+import RedSource.services.ConsumptionForecastService;
+import RedSource.services.LowStockAlertService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -22,17 +27,25 @@ public class BloodInventoryController {
 
     public static final String BLOOD_INVENTORY = "Blood Inventory";
     public static final String BLOOD_INVENTORIES = "Blood Inventories";
+    public static final String LOW_STOCK_THRESHOLD = "Low Stock Threshold";
+    public static final String LOW_STOCK_THRESHOLDS = "Low Stock Thresholds";
 
     private final BloodInventoryService bloodInventoryService;
+    private final ConsumptionForecastService consumptionForecastService;
+    private final LowStockAlertService lowStockAlertService;
 
     // Get all blood inventories
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String bloodBankId) {
         logger.debug("GET /api/blood-inventory - Retrieving all blood inventories");
         try {
-            var inventories = bloodInventoryService.getAll();
+            KeysetPage<BloodInventory> page = bloodInventoryService.getPage(cursor, limit, status, bloodBankId);
+            var inventories = page.getItems();
             logger.info("GET /api/blood-inventory - Successfully retrieved {} blood inventories", inventories.size());
-            return ResponseEntity.ok(
+            return ResponseEntity.ok().headers(page.headers()).body(
                     ResponseUtils.buildSuccessResponse(
                             HttpStatus.OK,
                             MessageUtils.retrieveSuccess(BLOOD_INVENTORIES),
@@ -65,6 +78,110 @@ public class BloodInventoryController {
         }
     }
 
+    // Get consumption forecast (days of cover, projected stock-out) for a blood bank
+    @GetMapping("/bloodbank/{bloodBankId}/forecast")
+    public ResponseEntity<?> getForecast(@PathVariable String bloodBankId,
+                                         @RequestParam(required = false) String bloodType) {
+        logger.debug("GET /api/blood-inventory/bloodbank/{}/forecast - Retrieving consumption forecast", bloodBankId);
+        try {
+            Object forecast = (bloodType != null && !bloodType.isBlank())
+                    ? consumptionForecastService.getForecast(bloodBankId, bloodType)
+                    : consumptionForecastService.getForecast(bloodBankId);
+            logger.info("GET /api/blood-inventory/bloodbank/{}/forecast - Successfully retrieved consumption forecast", bloodBankId);
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            MessageUtils.retrieveSuccess("Consumption Forecast"),
+                            forecast
+                    )
+            );
+        } catch (Exception e) {
+            logger.error("GET /api/blood-inventory/bloodbank/{}/forecast - Error retrieving consumption forecast: {}", bloodBankId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // Get low-stock thresholds configured for a blood bank
+    @GetMapping("/bloodbank/{bloodBankId}/thresholds")
+    public ResponseEntity<?> getThresholds(@PathVariable String bloodBankId) {
+        logger.debug("GET /api/blood-inventory/bloodbank/{}/thresholds - Retrieving low-stock thresholds", bloodBankId);
+        try {
+            var thresholds = lowStockAlertService.getThresholds(bloodBankId);
+            logger.info("GET /api/blood-inventory/bloodbank/{}/thresholds - Successfully retrieved {} thresholds", bloodBankId, thresholds.size());
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            MessageUtils.retrieveSuccess(LOW_STOCK_THRESHOLDS),
+                            thresholds
+                    )
+            );
+        } catch (Exception e) {
+            logger.error("GET /api/blood-inventory/bloodbank/{}/thresholds - Error retrieving thresholds: {}", bloodBankId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // Create or replace the low-stock threshold for one blood type
+    @PutMapping("/bloodbank/{bloodBankId}/thresholds")
+    public ResponseEntity<?> setThreshold(@PathVariable String bloodBankId, @RequestBody LowStockThreshold threshold) {
+        logger.debug("PUT /api/blood-inventory/bloodbank/{}/thresholds - Setting low-stock threshold for {}", bloodBankId, threshold.getBloodType());
+        try {
+            LowStockThreshold saved = lowStockAlertService.setThreshold(
+                    bloodBankId, threshold.getBloodType(), threshold.getLowUnits(), threshold.getRestoreUnits());
+            logger.info("PUT /api/blood-inventory/bloodbank/{}/thresholds - Successfully set threshold for {}", bloodBankId, saved.getBloodType());
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            MessageUtils.updateSuccess(LOW_STOCK_THRESHOLD),
+                            saved
+                    )
+            );
+        } catch (Exception e) {
+            logger.error("PUT /api/blood-inventory/bloodbank/{}/thresholds - Error setting threshold: {}", bloodBankId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // Remove the low-stock threshold for one blood type
+    @DeleteMapping("/bloodbank/{bloodBankId}/thresholds")
+    public ResponseEntity<?> removeThreshold(@PathVariable String bloodBankId, @RequestParam String bloodType) {
+        logger.debug("DELETE /api/blood-inventory/bloodbank/{}/thresholds - Removing low-stock threshold for {}", bloodBankId, bloodType);
+        try {
+            lowStockAlertService.removeThreshold(bloodBankId, bloodType);
+            logger.info("DELETE /api/blood-inventory/bloodbank/{}/thresholds - Successfully removed threshold for {}", bloodBankId, bloodType);
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            MessageUtils.deleteSuccess(LOW_STOCK_THRESHOLD)
+                    )
+            );
+        } catch (Exception e) {
+            logger.error("DELETE /api/blood-inventory/bloodbank/{}/thresholds - Error removing threshold: {}", bloodBankId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // Get recent low-stock alerts for a blood bank, newest first
+    @GetMapping("/bloodbank/{bloodBankId}/alerts")
+    public ResponseEntity<?> getAlerts(@PathVariable String bloodBankId,
+                                       @RequestParam(required = false) Integer limit) {
+        logger.debug("GET /api/blood-inventory/bloodbank/{}/alerts - Retrieving low-stock alerts", bloodBankId);
+        try {
+            var alerts = lowStockAlertService.getAlerts(bloodBankId, limit);
+            logger.info("GET /api/blood-inventory/bloodbank/{}/alerts - Successfully retrieved {} alerts", bloodBankId, alerts.size());
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            MessageUtils.retrieveSuccess("Low Stock Alerts"),
+                            alerts
+                    )
+            );
+        } catch (Exception e) {
+            logger.error("GET /api/blood-inventory/bloodbank/{}/alerts - Error retrieving alerts: {}", bloodBankId, e.getMessage(), e);
+            throw e;
+        }
+    }
+
     // Get blood inventory by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getById(@PathVariable String id) {
@@ -153,6 +270,8 @@ public class BloodInventoryController {
                             updatedBloodInventory
                     )
             );
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String message = e.getMessage().toLowerCase();
             HttpStatus status = (message.contains("not found") || message.contains("does not exist")) 
@@ -1,24 +1,38 @@
 package RedSource.controllers;
 
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.DTO.BulkStatusUpdateRequest;
+import RedSource.entities.DTO.DeliveryDraft;
+import RedSource.entities.DTO.DeliveryRunRequest;
 import RedSource.entities.Delivery;
-import RedSource.entities.HospitalRequest;
+import RedSource.entities.TrackingEvent;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.security.UserDetailsImpl;
+import RedSource.services.DeliveryLinkService;
+import RedSource.services.DeliveryRunPlanner;
+import RedSource.services.DeliveryEtaService;
 import RedSource.services.DeliveryService;
-import RedSource.services.HospitalRequestService;
+import RedSource.services.DeliveryStatusService;
+import RedSource.services.DeliveryTrackingService;
+import RedSource.services.StatusEventBus;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.entities.response.KeysetPage;
 
 @PreAuthorize("hasRole('ADMIN') or hasRole('BLOODBANK') or hasRole('HOSPITAL')")
 @RestController
@@ -28,15 +42,24 @@ import RedSource.entities.utils.ResponseUtils;
 public class DeliveryController {
 
     private final DeliveryService deliveryService;
-    private final HospitalRequestService hospitalRequestService;
+    private final DeliveryLinkService deliveryLinkService;
+    private final DeliveryTrackingService deliveryTrackingService;
+    private final StatusEventBus statusEventBus;
+    private final DeliveryRunPlanner deliveryRunPlanner;
+    private final DeliveryStatusService deliveryStatusService;
+    private final DeliveryEtaService deliveryEtaService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String bloodBankId) {
         log.debug("GET /api/deliveries - Retrieving all deliveries");
         try {
-            List<Delivery> deliveries = deliveryService.getAll();
+            KeysetPage<Delivery> page = deliveryService.getPage(cursor, limit, status, bloodBankId);
+            List<Delivery> deliveries = page.getItems();
             log.info("GET /api/deliveries - Successfully retrieved {} deliveries", deliveries.size());
-            return ResponseEntity.ok(deliveries);
+            return ResponseEntity.ok().headers(page.headers()).body(deliveries);
         } catch (ServiceException e) {
             log.error("GET /api/deliveries - Error retrieving deliveries: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
@@ -95,6 +118,37 @@ public class DeliveryController {
         }
     }
 
+    // Create a delivery for a hospital request; details default to those of the request
+    @PostMapping("/draft")
+    public ResponseEntity<?> create(@Valid @RequestBody DeliveryDraft draft, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(
+                            HttpStatus.BAD_REQUEST,
+                            MessageUtils.validationErrors(bindingResult)
+                    )
+            );
+        }
+        log.debug("POST /api/deliveries/draft - Creating delivery for request {}", draft.getRequestId());
+        try {
+            Delivery savedDelivery = deliveryService.create(draft);
+            log.info("POST /api/deliveries/draft - Successfully created delivery (ID: {})", savedDelivery.getId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedDelivery);
+        } catch (ServiceException e) {
+            String message = e.getMessage().toLowerCase();
+            if (message.contains("not found") || message.contains("does not exist")) {
+                log.warn("POST /api/deliveries/draft - Delivery creation failed (not found): {}", e.getMessage());
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        ResponseUtils.buildErrorResponse(HttpStatus.NOT_FOUND, e.getMessage())
+                );
+            }
+            log.error("POST /api/deliveries/draft - Error creating delivery: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage())
+            );
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> update(@PathVariable String id, @RequestBody Delivery delivery) {
         log.debug("PUT /api/deliveries/{} - Updating delivery", id);
@@ -180,6 +234,30 @@ public class DeliveryController {
         }
     }
 
+    // Move several deliveries to one status; the body lists the outcome per ID
+    @PutMapping("/bulk/status")
+    public ResponseEntity<?> bulkUpdateDeliveryStatus(@Valid @RequestBody BulkStatusUpdateRequest request,
+                                                      BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        log.debug("PUT /api/deliveries/bulk/status - Updating {} deliveries to {}", request.getIds().size(), request.getStatus());
+        BulkStatusUpdate<DeliveryStatusService.Transition> bulkUpdate =
+                deliveryStatusService.bulkTransition(request.getIds(), request.getStatus(), request.getNote());
+        for (DeliveryStatusService.Transition transition : bulkUpdate.getUpdated()) {
+            statusEventBus.publishDeliveryStatus(transition.delivery());
+            statusEventBus.publishRequestStatus(transition.request());
+        }
+        log.info("PUT /api/deliveries/bulk/status - Updated {} of {} deliveries",
+                bulkUpdate.count(BulkStatusResult.UPDATED), bulkUpdate.getResults().size());
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Updated " + bulkUpdate.count(BulkStatusResult.UPDATED) + " deliveries",
+                        bulkUpdate.getResults()));
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<?> updateDeliveryStatus(@PathVariable String id,
             @RequestBody Map<String, String> statusUpdate) {
@@ -192,43 +270,18 @@ public class DeliveryController {
                         ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, "Status is required"));
             }
 
-            Delivery delivery = deliveryService.getById(id);
-            if (delivery == null) {
-                log.warn("PUT /api/deliveries/{}/status - Delivery not found", id);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
-                        ResponseUtils.buildErrorResponse(HttpStatus.NOT_FOUND, "Delivery not found")
-                );
-            }
-
-            // Update status and timestamp
-            delivery.setStatus(newStatus);
-            delivery.setUpdatedAt(new Date());
-
-            // If marking as complete, also update delivered date/time and sync hospital
-            // request
-            if ("COMPLETE".equalsIgnoreCase(newStatus)) {
-                delivery.setDeliveredDate(new Date());
-                delivery.setDeliveredTime(new SimpleDateFormat("HH:mm:ss").format(new Date()));
-
-                // Update the associated hospital request status to FULFILLED
-                if (delivery.getRequestId() != null && !delivery.getRequestId().isEmpty()
-                        && !"N/A".equals(delivery.getRequestId())) {
-                    try {
-                        HospitalRequest request = hospitalRequestService.getById(delivery.getRequestId());
-                        if (request != null) {
-                            request.setStatus("FULFILLED");
-                            request.setUpdatedAt(new Date());
-                            hospitalRequestService.update(delivery.getRequestId(), request);
-                            log.info("Updated hospital request {} status to FULFILLED", delivery.getRequestId());
-                        }
-                    } catch (Exception e) {
-                        log.warn("Could not update hospital request status: {}", e.getMessage());
-                    }
-                }
+            // Delivery, linked request and inventory change together or not at all
+            DeliveryStatusService.Transition transition = deliveryStatusService.transition(id, newStatus);
+            Delivery updatedDelivery = transition.delivery();
+            try {
+                updatedDelivery = deliveryTrackingService.appendStatus(id, updatedDelivery.getStatus(), statusUpdate.get("note"));
+            } catch (Exception e) {
+                log.warn("Could not record tracking event for delivery {}: {}", id, e.getMessage());
             }
 
-            Delivery updatedDelivery = deliveryService.update(id, delivery);
-            log.info("PUT /api/deliveries/{}/status - Successfully updated delivery status to {}", id, newStatus);
+            statusEventBus.publishDeliveryStatus(updatedDelivery);
+            statusEventBus.publishRequestStatus(transition.request());
+            log.info("PUT /api/deliveries/{}/status - Successfully updated delivery status to {}", id, updatedDelivery.getStatus());
 
             return ResponseEntity.ok(
                     ResponseUtils.buildSuccessResponse(
@@ -254,9 +307,10 @@ public class DeliveryController {
     @GetMapping("/search")
     public ResponseEntity<?> searchDeliveries(
             @RequestParam(required = false) String searchTerm,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<Delivery> deliveries = deliveryService.searchDeliveries(searchTerm, status);
+            List<Delivery> deliveries = deliveryService.searchDeliveries(searchTerm, status, limit);
             return ResponseEntity.ok(deliveries);
         } catch (ServiceException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
@@ -265,43 +319,85 @@ public class DeliveryController {
         }
     }
 
+    @GetMapping("/{id}/tracking")
+    public ResponseEntity<?> getTrackingHistory(@PathVariable String id) {
+        List<TrackingEvent> history = deliveryTrackingService.getHistory(id);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess("Tracking History"),
+                        history));
+    }
+
+    @PostMapping("/{id}/tracking")
+    public ResponseEntity<?> addTrackingEvent(@PathVariable String id, @RequestBody TrackingEvent event) {
+        Delivery delivery = deliveryTrackingService.append(id, event);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.saveSuccess("Tracking Event"),
+                        delivery));
+    }
+
+    // Preview how a blood bank's pending deliveries would be consolidated into runs
+    @PostMapping("/runs/plan")
+    public ResponseEntity<?> planRuns(@Valid @RequestBody DeliveryRunRequest request, BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        DeliveryRunPlanner.Plan plan = deliveryRunPlanner.plan(request);
+        log.info("POST /api/deliveries/runs/plan - Planned {} deliveries into {} runs", plan.deliveries(), plan.runs().size());
+        return ResponseEntity.ok(deliveryRunPlanner.toResponse(plan));
+    }
+
+    // Plan runs and assign their drivers and vehicles to the deliveries; blood banks only their own
+    @PreAuthorize("hasRole('ADMIN') or hasRole('BLOODBANK')")
+    @PostMapping("/runs/assign")
+    public ResponseEntity<?> assignRuns(@Valid @RequestBody DeliveryRunRequest request, BindingResult bindingResult,
+                                        @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        requireBankOwner(userDetails, request.getBloodBankId());
+        try {
+            return ResponseEntity.ok(deliveryRunPlanner.apply(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, e.getMessage()));
+        }
+    }
+
+    // p50/p90 delivery time learned from completed deliveries on the lane
+    @GetMapping("/eta")
+    public ResponseEntity<?> getEta(@RequestParam String bloodBankId, @RequestParam(required = false) String hospitalId) {
+        return ResponseEntity.ok(deliveryEtaService.estimate(bloodBankId, hospitalId));
+    }
+
+    // Seed the ETA sketches from delivery history
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/eta/rebuild")
+    public ResponseEntity<?> rebuildEta() {
+        Map<String, Object> result = deliveryEtaService.rebuild();
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(HttpStatus.OK, "Delivery ETA estimates rebuilt successfully", result));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
     @PostMapping("/link-to-requests")
     public ResponseEntity<?> linkDeliveriesToRequests() {
         try {
-            List<Delivery> deliveries = deliveryService.getAll();
-            List<HospitalRequest> requests = hospitalRequestService.getAll();
-            int linkedCount = 0;
-
-            for (Delivery delivery : deliveries) {
-                if (delivery.getRequestId() == null || delivery.getRequestId().equals("N/A")
-                        || delivery.getRequestId().isEmpty()) {
-                    // Find a matching hospital request
-                    for (HospitalRequest request : requests) {
-                        // Link based on hospital name or other criteria
-                        if (request.getHospitalName() != null &&
-                                delivery.getHospitalName() != null &&
-                                request.getHospitalName().equals(delivery.getHospitalName())) {
-
-                            delivery.setRequestId(request.getId());
-                            delivery.setBloodBankName(request.getBloodBankName());
-                            delivery.setBloodBankAddress(request.getBloodBankAddress());
-                            delivery.setBloodBankPhone(request.getBloodBankPhone());
-                            delivery.setBloodBankEmail(request.getBloodBankEmail());
-                            delivery.setContactInfo(request.getContactInformation());
-
-                            deliveryService.update(delivery.getId(), delivery);
-                            linkedCount++;
-                            break; // Link to first matching request
-                        }
-                    }
-                }
-            }
+            Map<String, Object> result = deliveryLinkService.linkUnlinkedDeliveries();
 
             return ResponseEntity.ok(
                     ResponseUtils.buildSuccessResponse(
                             HttpStatus.OK,
                             "Deliveries linked to requests successfully",
-                            Map.of("linkedDeliveries", linkedCount)));
+                            result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.CONFLICT, e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                     ResponseUtils.buildErrorResponse(
@@ -310,26 +406,56 @@ public class DeliveryController {
         }
     }
 
+    @GetMapping("/link-to-requests/progress")
+    public ResponseEntity<?> getLinkProgress() {
+        return ResponseEntity.ok(deliveryLinkService.getProgress());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/backfill-owner-ids")
+    public ResponseEntity<?> backfillOwnerIds() {
+        try {
+            Map<String, Object> result = deliveryLinkService.backfillOwnerIds();
+
+            return ResponseEntity.ok(
+                    ResponseUtils.buildSuccessResponse(
+                            HttpStatus.OK,
+                            "Delivery hospital and blood bank ids backfilled successfully",
+                            result));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.CONFLICT, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ResponseUtils.buildErrorResponse(
+                            HttpStatus.INTERNAL_SERVER_ERROR,
+                            "Failed to backfill delivery owner ids: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/hospital/{hospitalId}")
-    public ResponseEntity<?> getDeliveriesByHospital(@PathVariable String hospitalId) {
+    public ResponseEntity<?> getDeliveriesByHospital(
+            @PathVariable String hospitalId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String status) {
         try {
-            List<Delivery> deliveries = deliveryService.getAll();
-
-            // Filter deliveries for the specific hospital
-            // This can be done by hospital name matching or by linked requests
-            List<Delivery> hospitalDeliveries = deliveries.stream()
-                    .filter(delivery -> {
-                        // For now, we'll populate some sample hospital data
-                        // In a real system, this would be linked properly through hospital requests
-                        return delivery.getHospitalName() != null;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-
-            return ResponseEntity.ok(hospitalDeliveries);
+            KeysetPage<Delivery> page = deliveryService.getPageByHospital(hospitalId, status, cursor, limit);
+            return ResponseEntity.ok().headers(page.headers()).body(page.getItems());
         } catch (ServiceException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
                     ResponseUtils.buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage())
             );
         }
     }
+
+    private static void requireBankOwner(UserDetailsImpl userDetails, String bloodBankId) {
+        if (userDetails == null) {
+            throw new AccessDeniedException("Authentication required");
+        }
+        boolean admin = userDetails.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        if (!admin && !bloodBankId.equals(userDetails.getId())) {
+            throw new AccessDeniedException("Not allowed to assign runs of " + bloodBankId);
+        }
+    }
 }
@@ -3,6 +3,7 @@ package RedSource.controllers;
 import RedSource.entities.DonorHistory;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.KeysetPage;
 import RedSource.services.DonorHistoryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -28,12 +29,15 @@ public class DonorHistoryController {
     private final DonorHistoryService donorHistoryService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String donorId) {
         logger.debug("GET /api/donor-history - Retrieving all donor histories");
         try {
-            var histories = donorHistoryService.getAll();
+            KeysetPage<DonorHistory> page = donorHistoryService.getPage(cursor, limit, donorId);
+            var histories = page.getItems();
             logger.info("GET /api/donor-history - Successfully retrieved {} donor histories", histories.size());
-            return ResponseEntity.ok(
+            return ResponseEntity.ok().headers(page.headers()).body(
                     ResponseUtils.buildSuccessResponse(
                             HttpStatus.OK,
                             MessageUtils.retrieveSuccess(DONOR_HISTORIES),
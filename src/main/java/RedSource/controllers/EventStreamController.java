@@ -0,0 +1,63 @@
+package RedSource.controllers;
+
+import RedSource.security.UserDetailsImpl;
+import RedSource.services.StatusEventBus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Server-Sent Events streams of delivery and hospital request status changes.
+ * Clients reconnect with the Last-Event-ID header to resume where they left off.
+ */
+@RestController
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('HOSPITAL') or hasRole('ADMIN') or hasRole('BLOODBANK')")
+@RequestMapping("/api/events")
+public class EventStreamController {
+
+    private final StatusEventBus statusEventBus;
+
+    @GetMapping(value = "/hospital/{hospitalId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHospitalEvents(@PathVariable String hospitalId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        requireOwner(userDetails, "ROLE_HOSPITAL", hospitalId);
+        return statusEventBus.subscribe(StatusEventBus.hospitalTopic(hospitalId), lastEventId);
+    }
+
+    @GetMapping(value = "/bloodbank/{bloodBankId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBloodBankEvents(@PathVariable String bloodBankId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal UserDetailsImpl userDetails) {
+        requireOwner(userDetails, "ROLE_BLOODBANK", bloodBankId);
+        return statusEventBus.subscribe(StatusEventBus.bloodBankTopic(bloodBankId), lastEventId);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats() {
+        return ResponseEntity.ok(statusEventBus.getStats());
+    }
+
+    // Admins may follow any topic; hospitals and blood banks only their own
+    private static void requireOwner(UserDetailsImpl userDetails, String ownerRole, String ownerId) {
+        if (userDetails == null) {
+            throw new AccessDeniedException("Authentication required");
+        }
+        boolean admin = userDetails.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        boolean owner = userDetails.getAuthorities().stream().anyMatch(a -> ownerRole.equals(a.getAuthority()))
+                && ownerId.equals(userDetails.getId());
+        if (!admin && !owner) {
+            throw new AccessDeniedException("Not allowed to follow events of " + ownerId);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import RedSource.entities.Fulfillment;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
 import RedSource.services.FulfillmentService;
+import RedSource.services.FulfillmentStatsService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -24,6 +25,7 @@ public class FulfillmentController {
     public static final String FULFILLMENTS = "Fulfillments";
 
     private final FulfillmentService fulfillmentService;
+    private final FulfillmentStatsService fulfillmentStatsService;
 
     // Get all fulfillments
     @GetMapping
@@ -45,6 +47,61 @@ public class FulfillmentController {
         }
     }
 
+    // Get fulfillments of a hospital request
+    @GetMapping("/request/{hospitalRequestId}")
+    public ResponseEntity<?> getByHospitalRequestId(@PathVariable String hospitalRequestId) {
+        logger.debug("GET /api/fulfillments/request/{} - Retrieving fulfillments for request", hospitalRequestId);
+        var fulfillments = fulfillmentService.getByHospitalRequestId(hospitalRequestId);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess(FULFILLMENTS),
+                        fulfillments
+                )
+        );
+    }
+
+    // Get fulfillments of a blood bank, newest first
+    @GetMapping("/bloodbank/{bloodBankId}")
+    public ResponseEntity<?> getByBloodBankId(@PathVariable String bloodBankId) {
+        logger.debug("GET /api/fulfillments/bloodbank/{} - Retrieving fulfillments for blood bank", bloodBankId);
+        var fulfillments = fulfillmentService.getByBloodBankId(bloodBankId);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess(FULFILLMENTS),
+                        fulfillments
+                )
+        );
+    }
+
+    // Units fulfilled per blood bank per day; all banks when bloodBankId is omitted
+    @GetMapping("/stats/daily")
+    public ResponseEntity<?> getDailyStats(@RequestParam(required = false) String bloodBankId,
+                                           @RequestParam(required = false) Integer days) {
+        logger.debug("GET /api/fulfillments/stats/daily - bloodBankId={}, days={}", bloodBankId, days);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess("Fulfillment stats"),
+                        fulfillmentStatsService.getDailyUnits(bloodBankId, days)
+                )
+        );
+    }
+
+    // Fill rate per hospital; all hospitals when hospitalId is omitted
+    @GetMapping("/stats/fill-rate")
+    public ResponseEntity<?> getFillRates(@RequestParam(required = false) String hospitalId) {
+        logger.debug("GET /api/fulfillments/stats/fill-rate - hospitalId={}", hospitalId);
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        MessageUtils.retrieveSuccess("Fulfillment stats"),
+                        fulfillmentStatsService.getFillRates(hospitalId)
+                )
+        );
+    }
+
     // Get fulfillment by ID
     @GetMapping("/{id}")
     public ResponseEntity<?> getById(@PathVariable String id) {
@@ -1,16 +1,30 @@
 package RedSource.controllers;
 
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.DTO.BulkStatusUpdateRequest;
+import RedSource.entities.DTO.HospitalRequestListingDTO;
 import RedSource.entities.HospitalRequest;
+import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.entities.response.KeysetPage;
 import RedSource.exceptions.ServiceException;
 import RedSource.services.HospitalRequestService;
+import RedSource.services.RequestEventService;
+import RedSource.services.RequestRoutingService;
+import RedSource.services.RequestTriageService;
+import RedSource.services.SplitFulfillmentService;
+import RedSource.services.StatusEventBus;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,14 +38,23 @@ public class HospitalRequestController {
     private static final Logger log = LoggerFactory.getLogger(HospitalRequestController.class);
 
     private final HospitalRequestService hospitalRequestService;
+    private final RequestRoutingService requestRoutingService;
+    private final SplitFulfillmentService splitFulfillmentService;
+    private final StatusEventBus statusEventBus;
+    private final RequestTriageService requestTriageService;
+    private final RequestEventService requestEventService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String hospitalId) {
         log.debug("GET /api/hospital-requests - Retrieving all hospital requests");
         try {
-            List<HospitalRequest> requests = hospitalRequestService.getAll();
+            KeysetPage<HospitalRequest> page = hospitalRequestService.getPage(cursor, limit, status, hospitalId);
+            List<HospitalRequest> requests = page.getItems();
             log.info("GET /api/hospital-requests - Successfully retrieved {} hospital requests", requests.size());
-            return ResponseEntity.ok(requests);
+            return ResponseEntity.ok().headers(page.headers()).body(requests);
         } catch (ServiceException e) {
             log.error("GET /api/hospital-requests - Error retrieving hospital requests: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
@@ -145,6 +168,65 @@ public class HospitalRequestController {
         }
     }
 
+    // Rank blood banks for a prospective request (hospitalId + bloodItems) by fill rate and distance
+    @PostMapping("/route")
+    public ResponseEntity<?> route(@RequestBody HospitalRequest request,
+                                   @RequestParam(required = false) Integer limit) {
+        log.debug("POST /api/hospital-requests/route - Routing request for hospital {}", request.getHospitalId());
+        List<Map<String, Object>> ranked = requestRoutingService.rank(request.getHospitalId(), request.getBloodItems(), limit);
+        log.info("POST /api/hospital-requests/route - Ranked {} blood banks", ranked.size());
+        return ResponseEntity.ok(ranked);
+    }
+
+    // Rank blood banks for an existing request
+    @GetMapping("/{id}/route")
+    public ResponseEntity<?> routeExisting(@PathVariable String id,
+                                           @RequestParam(required = false) Integer limit) {
+        log.debug("GET /api/hospital-requests/{}/route - Routing hospital request", id);
+        HospitalRequest request = hospitalRequestService.getById(id);
+        if (request == null) {
+            log.warn("GET /api/hospital-requests/{}/route - Hospital request not found", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.NOT_FOUND, "Hospital request not found")
+            );
+        }
+        List<Map<String, Object>> ranked = requestRoutingService.rank(request.getHospitalId(), request.getBloodItems(), limit);
+        log.info("GET /api/hospital-requests/{}/route - Ranked {} blood banks", id, ranked.size());
+        return ResponseEntity.ok(ranked);
+    }
+
+    // Preview how a request would be split across several blood banks
+    @GetMapping("/{id}/split-plan")
+    public ResponseEntity<?> getSplitPlan(@PathVariable String id) {
+        log.debug("GET /api/hospital-requests/{}/split-plan - Planning split fulfillment", id);
+        HospitalRequest request = hospitalRequestService.getById(id);
+        if (request == null) {
+            log.warn("GET /api/hospital-requests/{}/split-plan - Hospital request not found", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.NOT_FOUND, "Hospital request not found")
+            );
+        }
+        Map<String, Object> plan = splitFulfillmentService.toResponse(splitFulfillmentService.plan(request));
+        log.info("GET /api/hospital-requests/{}/split-plan - Planned {} legs", id, ((List<?>) plan.get("legs")).size());
+        return ResponseEntity.ok(plan);
+    }
+
+    // Split a request into one delivery per blood bank leg
+    @PostMapping("/{id}/split")
+    public ResponseEntity<?> split(@PathVariable String id) {
+        log.debug("POST /api/hospital-requests/{}/split - Splitting hospital request", id);
+        try {
+            Map<String, Object> result = splitFulfillmentService.split(id);
+            log.info("POST /api/hospital-requests/{}/split - Created {} deliveries", id, ((List<?>) result.get("deliveries")).size());
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (ServiceException e) {
+            String message = e.getMessage().toLowerCase();
+            HttpStatus status = message.contains("not found") ? HttpStatus.NOT_FOUND : HttpStatus.INTERNAL_SERVER_ERROR;
+            log.error("POST /api/hospital-requests/{}/split - Error splitting request: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(status).body(ResponseUtils.buildErrorResponse(status, e.getMessage()));
+        }
+    }
+
     @GetMapping("/hospital/{hospitalId}")
     public ResponseEntity<?> getByHospitalId(@PathVariable String hospitalId) {
         log.debug("GET /api/hospital-requests/hospital/{} - Retrieving hospital requests by hospital ID", hospitalId);
@@ -160,6 +242,68 @@ public class HospitalRequestController {
         }
     }
 
+    @GetMapping("/hospital/{hospitalId}/listing")
+    public ResponseEntity<?> getListingByHospitalId(@PathVariable String hospitalId) {
+        log.debug("GET /api/hospital-requests/hospital/{}/listing - Retrieving request listing by hospital ID", hospitalId);
+        try {
+            List<HospitalRequestListingDTO> listing = hospitalRequestService.getListingByHospitalId(hospitalId);
+            log.info("GET /api/hospital-requests/hospital/{}/listing - Found {} requests for hospital", hospitalId, listing.size());
+            return ResponseEntity.ok(listing);
+        } catch (ServiceException e) {
+            log.error("GET /api/hospital-requests/hospital/{}/listing - Error fetching listing: {}", hospitalId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage())
+            );
+        }
+    }
+
+    // Pending requests of a blood bank in triage order, most pressing first (keyset paginated)
+    @GetMapping("/bloodbank/{bloodBankId}/triage")
+    public ResponseEntity<?> getTriageQueue(@PathVariable String bloodBankId,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
+        log.debug("GET /api/hospital-requests/bloodbank/{}/triage - Retrieving triage queue", bloodBankId);
+        KeysetPage<RequestTriageService.TriageEntry> page = requestTriageService.getQueue(bloodBankId, cursor, limit);
+        return ResponseEntity.ok().headers(page.headers()).body(page.getItems());
+    }
+
+    // Status change history of a request, oldest first
+    @GetMapping("/{id}/events")
+    public ResponseEntity<?> getEvents(@PathVariable String id) {
+        log.debug("GET /api/hospital-requests/{}/events - Retrieving status history", id);
+        return ResponseEntity.ok(requestEventService.getEvents(id));
+    }
+
+    // Time spent per status and time to fulfilment over the last days, across all blood banks
+    @GetMapping("/dwell-stats")
+    public ResponseEntity<?> getDwellStats(@RequestParam(required = false) Integer days) {
+        log.debug("GET /api/hospital-requests/dwell-stats - Retrieving dwell-time statistics");
+        return ResponseEntity.ok(requestEventService.getDwellStats(null, days));
+    }
+
+    // Time spent per status and time to fulfilment over the last days for one blood bank
+    @GetMapping("/bloodbank/{bloodBankId}/dwell-stats")
+    public ResponseEntity<?> getDwellStatsByBloodBankId(@PathVariable String bloodBankId,
+                                                        @RequestParam(required = false) Integer days) {
+        log.debug("GET /api/hospital-requests/bloodbank/{}/dwell-stats - Retrieving dwell-time statistics", bloodBankId);
+        return ResponseEntity.ok(requestEventService.getDwellStats(bloodBankId, days));
+    }
+
+    @GetMapping("/bloodbank/{bloodBankId}/listing")
+    public ResponseEntity<?> getListingByBloodBankId(@PathVariable String bloodBankId) {
+        log.debug("GET /api/hospital-requests/bloodbank/{}/listing - Retrieving request listing by blood bank ID", bloodBankId);
+        try {
+            List<HospitalRequestListingDTO> listing = hospitalRequestService.getListingByBloodBankId(bloodBankId);
+            log.info("GET /api/hospital-requests/bloodbank/{}/listing - Found {} requests for blood bank", bloodBankId, listing.size());
+            return ResponseEntity.ok(listing);
+        } catch (ServiceException e) {
+            log.error("GET /api/hospital-requests/bloodbank/{}/listing - Error fetching listing: {}", bloodBankId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage())
+            );
+        }
+    }
+
     @GetMapping("/bloodbank/{bloodBankId}")
     public ResponseEntity<?> getByBloodBankId(@PathVariable String bloodBankId) {
         log.debug("GET /api/hospital-requests/bloodbank/{} - Retrieving hospital requests by blood bank ID", bloodBankId);
@@ -186,6 +330,27 @@ public class HospitalRequestController {
         }
     }
 
+    // Move several requests to one status; the body lists the outcome per ID
+    @PreAuthorize("hasRole('BLOODBANK') or hasRole('ADMIN')")
+    @PutMapping("/bulk/status")
+    public ResponseEntity<?> bulkUpdateStatus(@Valid @RequestBody BulkStatusUpdateRequest request,
+                                              BindingResult bindingResult) {
+        if (bindingResult.hasErrors()) {
+            return ResponseEntity.badRequest().body(
+                    ResponseUtils.buildErrorResponse(HttpStatus.BAD_REQUEST, MessageUtils.validationErrors(bindingResult)));
+        }
+        log.debug("PUT /api/hospital-requests/bulk/status - Updating {} requests to {}", request.getIds().size(), request.getStatus());
+        BulkStatusUpdate<HospitalRequest> bulkUpdate = hospitalRequestService.bulkUpdateStatus(request.getIds(), request.getStatus());
+        bulkUpdate.getUpdated().forEach(statusEventBus::publishRequestStatus);
+        log.info("PUT /api/hospital-requests/bulk/status - Updated {} of {} requests",
+                bulkUpdate.count(BulkStatusResult.UPDATED), bulkUpdate.getResults().size());
+        return ResponseEntity.ok(
+                ResponseUtils.buildSuccessResponse(
+                        HttpStatus.OK,
+                        "Updated " + bulkUpdate.count(BulkStatusResult.UPDATED) + " hospital requests",
+                        bulkUpdate.getResults()));
+    }
+
     @PutMapping("/{id}/status")
     public ResponseEntity<?> updateStatus(@PathVariable String id, @RequestBody HashMap<String, String> statusUpdate) {
         try {
@@ -199,15 +364,8 @@ public class HospitalRequestController {
                 return ResponseEntity.badRequest().body(errorResponse);
             }
             
-            HospitalRequest request = hospitalRequestService.getById(id);
-            if (request == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
-                        ResponseUtils.buildErrorResponse(HttpStatus.NOT_FOUND, "Hospital request not found")
-                );
-            }
-            
-            request.setStatus(newStatus);
-            HospitalRequest updatedRequest = hospitalRequestService.update(id, request);
+            HospitalRequest updatedRequest = hospitalRequestService.updateStatus(id, newStatus);
+            statusEventBus.publishRequestStatus(updatedRequest);
             
             HashMap<String, Object> response = new HashMap<>();
             response.put("status", true);
@@ -3,6 +3,7 @@ package RedSource.controllers;
 import RedSource.entities.MedicalAssessment;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.KeysetPage;
 import RedSource.exceptions.ServiceException;
 import RedSource.services.MedicalAssessmentService;
 import jakarta.validation.Valid;
@@ -29,12 +30,16 @@ public class MedicalAssessmentController {
     private final MedicalAssessmentService medicalAssessmentService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String userId) {
         logger.debug("GET /api/medical-assessments - Retrieving all medical assessments");
         try {
-            List<MedicalAssessment> assessments = medicalAssessmentService.getAll();
+            KeysetPage<MedicalAssessment> page = medicalAssessmentService.getPage(cursor, limit, status, userId);
+            List<MedicalAssessment> assessments = page.getItems();
             logger.info("GET /api/medical-assessments - Successfully retrieved {} medical assessments", assessments.size());
-            return ResponseEntity.ok(assessments);
+            return ResponseEntity.ok().headers(page.headers()).body(assessments);
         } catch (ServiceException e) {
             logger.error("GET /api/medical-assessments - Error retrieving medical assessments: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
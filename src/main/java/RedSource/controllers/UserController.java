@@ -10,6 +10,7 @@ import RedSource.services.OTPService;
 import RedSource.services.FileStorageService;
 import RedSource.entities.DTO.auth.OTPVerificationResponse;
 import RedSource.entities.enums.UserRoleType;
+import RedSource.entities.response.KeysetPage;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -51,15 +52,19 @@ public class UserController {
 
     // Get all users
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String accountStatus,
+                                    @RequestParam(required = false) String role) {
         logger.debug("GET /api/user - Retrieving all users");
         try {
-            List<User> users = userService.getAll();
+            KeysetPage<User> page = userService.getPage(cursor, limit, accountStatus, role);
+            List<User> users = page.getItems();
             List<UserDTO> userDTOs = users.stream()
                     .map(UserDTO::new)
                     .collect(Collectors.toList());
             logger.info("GET /api/user - Successfully retrieved {} users", users.size());
-            return ResponseEntity.ok(
+            return ResponseEntity.ok().headers(page.headers()).body(
                     ResponseUtils.buildSuccessResponse(
                             HttpStatus.OK,
                             MessageUtils.retrieveSuccess(USERS),
@@ -77,7 +82,7 @@ public class UserController {
     public ResponseEntity<?> getAllByFilter(@RequestParam(required = false) String role) {
         logger.debug("GET /api/user/filter - Filtering users by role: {}", role);
         if (role == null) {
-            return getAll();
+            return getAll(null, null, null, null);
         }
         try {
             List<User> users = userService.getAllByFilter(role);
@@ -3,6 +3,7 @@ package RedSource.controllers;
 import RedSource.entities.VitalSigns;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.entities.response.KeysetPage;
 import RedSource.exceptions.ServiceException;
 import RedSource.services.VitalSignsService;
 import jakarta.validation.Valid;
@@ -29,12 +30,15 @@ public class VitalSignsController {
     private final VitalSignsService vitalSignsService;
 
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    @RequestParam(required = false) String userId) {
         logger.debug("GET /api/vital-signs - Retrieving all vital signs");
         try {
-            List<VitalSigns> vitalSigns = vitalSignsService.getAll();
+            KeysetPage<VitalSigns> page = vitalSignsService.getPage(cursor, limit, userId);
+            List<VitalSigns> vitalSigns = page.getItems();
             logger.info("GET /api/vital-signs - Successfully retrieved {} vital signs records", vitalSigns.size());
-            return ResponseEntity.ok(vitalSigns);
+            return ResponseEntity.ok().headers(page.headers()).body(vitalSigns);
         } catch (ServiceException e) {
             logger.error("GET /api/vital-signs - Error retrieving vital signs: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
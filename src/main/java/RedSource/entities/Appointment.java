@@ -8,6 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -16,6 +18,12 @@ import java.util.Date;
 import java.util.Map;
 
 @Document(collection = "appointments")
+@CompoundIndexes({
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_created_id_idx", def = "{'status': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "user_created_id_idx", def = "{'user_id': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_appointment_date_idx", def = "{'status': 1, 'appointment_date': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -99,9 +107,16 @@ public class Appointment implements Serializable {
     @Field("appointment_time")
     private String appointmentTime;
 
+    // Capacity slot held by this appointment while it is pending or scheduled
+    @Field("slot_id")
+    private String slotId;
+
     @Field("medical_history")
     private Map<String, Object> medicalHistory;
 
+    @Field("created_at")
+    private Date createdAt;
+
     // Explicit getters and setters
     public String getId() {
         return id;
@@ -0,0 +1,53 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Booking capacity of one appointment time slot at a blood bank.
+ * The id is bloodBankId|slot start as an ISO instant, so every writer
+ * addresses the same document for a slot.
+ */
+@Document(collection = "appointment_slots")
+@CompoundIndex(name = "bank_start_idx", def = "{'blood_bank_id': 1, 'slot_start': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AppointmentSlot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("slot_start")
+    private Date slotStart;
+
+    @Field("slot_end")
+    private Date slotEnd;
+
+    @Field("capacity")
+    private int capacity;
+
+    @Field("booked")
+    private int booked;
+
+    @Field("updated_at")
+    private Date updatedAt;
+}
@@ -8,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -21,7 +22,7 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
-public class BloodBankUser implements Serializable {
+public class BloodBankUser implements Serializable, VersionedDocument {
 
     private static final long serialVersionUID = 1L;
 
@@ -77,6 +78,10 @@ public class BloodBankUser implements Serializable {
     @Field("updated_at")
     private Date updatedAt;
 
+    @Version
+    @Field("version")
+    private Long version;
+
     // Explicit getters and setters
     public String getId() {
         return id;
@@ -198,6 +203,14 @@ public class BloodBankUser implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Coordinates getCoordinates() {
         return coordinates;
     }
@@ -2,6 +2,9 @@ package RedSource.entities;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -9,7 +12,12 @@ import java.util.Date;
 
 @Data
 @Document(collection = "blood_inventory")
-public class BloodInventory {
+@CompoundIndexes({
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_created_id_idx", def = "{'status': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "bank_created_id_idx", def = "{'blood_bank_id': 1, 'created_at': -1, '_id': -1}")
+})
+public class BloodInventory implements VersionedDocument {
     @Id
     private String id;
 
@@ -34,6 +42,10 @@ public class BloodInventory {
     @Field("updated_at")
     private Date updatedAt;
 
+    @Version
+    @Field("version")
+    private Long version;
+
     // Explicit getters and setters
     public String getId() {
         return id;
@@ -98,4 +110,12 @@ public class BloodInventory {
     public void setUpdatedAt(Date updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 } 
\ No newline at end of file
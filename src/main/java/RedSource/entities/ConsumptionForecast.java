@@ -0,0 +1,54 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Compact consumption state for one blood bank and blood type.
+ * Holds an exponentially weighted moving average of daily units issued plus
+ * the running total for the current (not yet folded) day.
+ */
+@Document(collection = "consumption_forecasts")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ConsumptionForecast implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id; // "<bloodBankId>:<bloodType>"
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("blood_type")
+    private String bloodType;
+
+    @Field("ewma_daily_units")
+    private double ewmaDailyUnits;
+
+    @Field("current_day")
+    private long currentDay; // epoch day of unitsToday
+
+    @Field("units_today")
+    private int unitsToday;
+
+    @Field("days_observed")
+    private int daysObserved;
+
+    @Field("updated_at")
+    private Date updatedAt;
+}
@@ -0,0 +1,35 @@
+package RedSource.entities.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk status update for one ID.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResult {
+
+    public static final String UPDATED = "UPDATED";
+    public static final String UNCHANGED = "UNCHANGED";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String INVALID_TRANSITION = "INVALID_TRANSITION";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String FAILED = "FAILED";
+
+    private String id;
+    private String outcome;
+    private String previousStatus;
+    private String status;
+    private String message;
+
+    public static BulkStatusResult updated(String id, String previousStatus, String status) {
+        return new BulkStatusResult(id, UPDATED, previousStatus, status, null);
+    }
+
+    public static BulkStatusResult rejected(String id, String outcome, String currentStatus, String message) {
+        return new BulkStatusResult(id, outcome, currentStatus, currentStatus, message);
+    }
+}
@@ -0,0 +1,27 @@
+package RedSource.entities.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Moves several requests, deliveries or appointments to one status.
+ */
+@Data
+public class BulkStatusUpdateRequest {
+
+    public static final int MAX_IDS = 500;
+
+    @NotEmpty(message = "At least one ID is required")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " IDs can be updated at once")
+    private List<String> ids;
+
+    @NotBlank(message = "Status is required")
+    private String status;
+
+    // Optional note, recorded in delivery tracking history
+    private String note;
+}
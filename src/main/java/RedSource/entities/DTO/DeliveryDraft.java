@@ -0,0 +1,53 @@
+package RedSource.entities.DTO;
+
+import RedSource.entities.BloodInventoryItem;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Input for creating a delivery. A delivery always belongs to a hospital
+ * request; hospital, blood bank and item details are taken from that request
+ * unless given here.
+ */
+@Data
+public class DeliveryDraft {
+
+    @NotBlank(message = "Request ID is required")
+    private String requestId;
+
+    // Defaults to the blood bank of the request
+    private String bloodBankId;
+
+    // Defaults to the items of the request
+    @Valid
+    private List<Item> bloodItems;
+
+    private Date scheduledDate;
+    private String estimatedTime;
+    private String priority;
+    private String driverName;
+    private String driverContact;
+    private String vehicleId;
+    private String notes;
+
+    @Data
+    public static class Item {
+        @NotBlank(message = "Blood type is required")
+        private String bloodType;
+
+        @Positive(message = "Units must be greater than zero")
+        private int units;
+    }
+
+    public List<BloodInventoryItem> toBloodItems() {
+        if (bloodItems == null) {
+            return null;
+        }
+        return bloodItems.stream().map(item -> new BloodInventoryItem(item.getBloodType(), item.getUnits())).toList();
+    }
+}
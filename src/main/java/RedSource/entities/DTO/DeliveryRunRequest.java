@@ -0,0 +1,38 @@
+package RedSource.entities.DTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Input for planning consolidated delivery runs of one blood bank. The window
+ * defaults to the current day; drivers are assigned to runs in order.
+ */
+@Data
+public class DeliveryRunRequest {
+
+    @NotBlank(message = "Blood bank ID is required")
+    private String bloodBankId;
+
+    // Scheduled date window, from inclusive and to exclusive
+    private Date from;
+    private Date to;
+
+    @Positive(message = "Max stops must be greater than zero")
+    private Integer maxStops;
+
+    @Valid
+    private List<Driver> drivers;
+
+    @Data
+    public static class Driver {
+        @NotBlank(message = "Driver name is required")
+        private String driverName;
+
+        private String vehicleId;
+    }
+}
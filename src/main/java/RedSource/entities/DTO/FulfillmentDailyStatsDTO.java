@@ -0,0 +1,17 @@
+package RedSource.entities.DTO;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Units fulfilled by one blood bank on one day (yyyy-MM-dd, UTC).
+ */
+@Data
+@NoArgsConstructor
+public class FulfillmentDailyStatsDTO {
+
+    private String bloodBankId;
+    private String day;
+    private int units;
+    private int fulfillments;
+}
@@ -0,0 +1,18 @@
+package RedSource.entities.DTO;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Share of a hospital's requested units that has been fulfilled.
+ */
+@Data
+@NoArgsConstructor
+public class FulfillmentFillRateDTO {
+
+    private String hospitalId;
+    private int requests;
+    private int requestedUnits;
+    private int fulfilledUnits;
+    private double fillRate;
+}
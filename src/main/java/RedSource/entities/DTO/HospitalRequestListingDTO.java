@@ -0,0 +1,39 @@
+package RedSource.entities.DTO;
+
+import RedSource.entities.BloodInventoryItem;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hospital request row as shown in the request lists, with the hospital and
+ * blood bank details joined in by the listing aggregation.
+ */
+@Data
+@NoArgsConstructor
+public class HospitalRequestListingDTO {
+
+    private String id;
+    private String hospitalId;
+    private String hospitalName;
+    private String hospitalAddress;
+    private String hospitalPhone;
+    private String bloodBankId;
+    private String bloodBankName;
+    private String bloodBankAddress;
+    private String bloodBankPhone;
+    private String bloodBankEmail;
+    private List<BloodInventoryItem> bloodItems;
+    private String status;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'")
+    private Date requestDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'")
+    private Date dateNeeded;
+
+    private Date createdAt;
+}
@@ -0,0 +1,30 @@
+package RedSource.entities.DTO;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Sets the capacity of every slot of a blood bank between two days, inclusive.
+ */
+@Data
+public class SlotCapacityRequest {
+
+    @NotBlank(message = "Blood bank ID is required")
+    private String bloodBankId;
+
+    @NotNull(message = "From date is required")
+    private LocalDate from;
+
+    @NotNull(message = "To date is required")
+    private LocalDate to;
+
+    @NotNull(message = "Capacity is required")
+    @Min(value = 0, message = "Capacity cannot be negative")
+    @Max(value = 1000, message = "Capacity cannot exceed 1000")
+    private Integer capacity;
+}
@@ -1,9 +1,15 @@
 package RedSource.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.io.Serializable;
 import java.util.Date;
@@ -11,7 +17,16 @@ import java.util.List;
 
 @Data
 @Document(collection = "deliveries")
-public class Delivery implements Serializable {
+@CompoundIndexes({
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_created_id_idx", def = "{'status': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "bank_created_id_idx", def = "{'blood_bank_id': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "hospital_status_scheduled_idx", def = "{'hospital_id': 1, 'status': 1, 'scheduled_date': -1, '_id': -1}"),
+    @CompoundIndex(name = "hospital_scheduled_idx", def = "{'hospital_id': 1, 'scheduled_date': -1, '_id': -1}"),
+    @CompoundIndex(name = "bank_status_scheduled_idx", def = "{'blood_bank_id': 1, 'status': 1, 'scheduled_date': 1}"),
+    @CompoundIndex(name = "blood_type_created_idx", def = "{'blood_items.bloodType': 1, 'created_at': -1}")
+})
+public class Delivery implements Serializable, VersionedDocument {
 
     private static final long serialVersionUID = 1L;
 
@@ -21,9 +36,14 @@ public class Delivery implements Serializable {
     @Field("request_id")
     private String requestId; // Links to HospitalRequest
 
+    @Field("hospital_id")
+    private String hospitalId; // Hospital of the linked request
+
+    @TextIndexed(weight = 3)
     @Field("hospital_name")
     private String hospitalName;
 
+    @TextIndexed(weight = 3)
     @Field("blood_bank_name")
     private String bloodBankName;
 
@@ -42,6 +62,7 @@ public class Delivery implements Serializable {
     @Field("blood_bank_email")
     private String bloodBankEmail;
 
+    @TextIndexed
     @Field("items_summary")
     private String itemsSummary; // A summary string of items
 
@@ -60,6 +81,7 @@ public class Delivery implements Serializable {
     @Field("priority")
     private String priority;
 
+    @TextIndexed(weight = 2)
     @Field("driver_name")
     private String driverName;
 
@@ -86,4 +108,12 @@ public class Delivery implements Serializable {
 
     @Field("updated_at")
     private Date updatedAt;
+
+    @Version
+    @Field("version")
+    private Long version;
+
+    @JsonIgnore
+    @TextScore
+    private Float score; // Relevance of a search hit, not stored
 }
@@ -0,0 +1,55 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Delivery duration sketch for one lane (blood bank to hospital), one blood
+ * bank or the whole network. Durations are counted in logarithmic buckets, so
+ * quantiles are accurate to a few percent at a fixed size; p50/p90 are kept
+ * up to date on every recorded delivery.
+ */
+@Document(collection = "delivery_lane_estimates")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DeliveryLaneEstimate implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id; // "<bloodBankId>:<hospitalId>", "<bloodBankId>:*" or "*"
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("hospital_id")
+    private String hospitalId;
+
+    @Field("bucket_counts")
+    private int[] bucketCounts;
+
+    @Field("samples")
+    private long samples;
+
+    @Field("p50_minutes")
+    private double p50Minutes;
+
+    @Field("p90_minutes")
+    private double p90Minutes;
+
+    @Field("updated_at")
+    private Date updatedAt;
+}
@@ -0,0 +1,58 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One tracking event of a delivery. Deliveries embed only their most recent
+ * events; the full history is kept here, one document per event.
+ */
+@Document(collection = "delivery_tracking_events")
+@CompoundIndex(name = "delivery_timestamp_idx", def = "{'delivery_id': 1, 'timestamp': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DeliveryTrackingEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @Field("delivery_id")
+    private String deliveryId;
+
+    @Field("timestamp")
+    private Date timestamp;
+
+    @Field("status")
+    private String status;
+
+    @Field("location")
+    private String location;
+
+    @Field("note")
+    private String note;
+
+    public TrackingEvent toTrackingEvent() {
+        TrackingEvent event = new TrackingEvent();
+        event.setTimestamp(timestamp);
+        event.setStatus(status);
+        event.setLocation(location);
+        event.setNote(note);
+        return event;
+    }
+}
@@ -8,6 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -15,6 +17,10 @@ import java.io.Serializable;
 import java.util.Date;
 
 @Document(collection = "donor_history")
+@CompoundIndexes({
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "donor_created_id_idx", def = "{'donor_id': 1, 'created_at': -1, '_id': -1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -2,6 +2,8 @@ package RedSource.entities;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -9,6 +11,11 @@ import java.util.Date;
 
 @Data
 @Document(collection = "fulfillments")
+@CompoundIndexes({
+    @CompoundIndex(name = "request_idx", def = "{'hospital_request_id': 1}"),
+    @CompoundIndex(name = "bank_date_idx", def = "{'blood_bank_id': 1, 'fulfillment_date': -1}"),
+    @CompoundIndex(name = "status_date_idx", def = "{'status': 1, 'fulfillment_date': -1}")
+})
 public class Fulfillment {
     @Id
     private String id;
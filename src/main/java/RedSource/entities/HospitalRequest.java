@@ -8,6 +8,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -16,12 +19,20 @@ import java.util.Date;
 import java.util.List;
 
 @Document(collection = "hospital_requests")
+@CompoundIndexes({
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "status_created_id_idx", def = "{'status': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "hospital_created_id_idx", def = "{'hospital_id': 1, 'created_at': -1, '_id': -1}"),
+    @CompoundIndex(name = "bank_date_needed_idx", def = "{'blood_bank_id': 1, 'date_needed': 1, '_id': 1}"),
+    @CompoundIndex(name = "bank_status_date_needed_idx", def = "{'blood_bank_id': 1, 'status': 1, 'date_needed': 1}"),
+    @CompoundIndex(name = "hospital_date_needed_idx", def = "{'hospital_id': 1, 'date_needed': 1, '_id': 1}")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
-public class HospitalRequest implements Serializable {
+public class HospitalRequest implements Serializable, VersionedDocument {
 
     private static final long serialVersionUID = 1L;
 
@@ -73,12 +84,43 @@ public class HospitalRequest implements Serializable {
     @Field("notes")
     private String notes;
 
+    // LOW, NORMAL, HIGH or CRITICAL (see RequestUrgency); absent means NORMAL
+    @Field("urgency")
+    private String urgency;
+
     @Field("created_at")
     private Date createdAt;
 
     @Field("updated_at")
     private Date updatedAt;
 
+    // When status last changed; the start of the current status' dwell time
+    @Field("status_changed_at")
+    private Date statusChangedAt;
+
+    // Aggregate progress when the request is split into deliveries from several banks
+    @Field("split_delivery_ids")
+    private List<String> splitDeliveryIds;
+
+    @Field("legs_total")
+    private Integer legsTotal;
+
+    @Field("legs_completed")
+    private Integer legsCompleted;
+
+    @Field("units_requested")
+    private Integer unitsRequested;
+
+    @Field("units_planned")
+    private Integer unitsPlanned;
+
+    @Field("units_delivered")
+    private Integer unitsDelivered;
+
+    @Version
+    @Field("version")
+    private Long version;
+
     // Explicit getters and setters
     public String getId() {
         return id;
@@ -215,4 +257,12 @@ public class HospitalRequest implements Serializable {
     public void setUpdatedAt(Date updatedAt) {
         this.updatedAt = updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
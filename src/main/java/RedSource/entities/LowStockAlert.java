@@ -0,0 +1,58 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A low-stock transition for a blood bank: LOW_STOCK when a threshold is
+ * breached and RESTORED when stock has recovered.
+ */
+@Document(collection = "low_stock_alerts")
+@CompoundIndex(name = "bank_created_idx", def = "{'blood_bank_id': 1, 'created_at': -1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LowStockAlert implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String LOW_STOCK = "LOW_STOCK";
+    public static final String RESTORED = "RESTORED";
+
+    @Id
+    private String id;
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("blood_type")
+    private String bloodType;
+
+    @Field("type")
+    private String type;
+
+    @Field("units")
+    private int units;
+
+    @Field("low_units")
+    private int lowUnits;
+
+    @Field("restore_units")
+    private int restoreUnits;
+
+    @Field("created_at")
+    private Date createdAt;
+}
@@ -0,0 +1,55 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Low-stock rule for one blood bank and blood type.
+ * An alert is raised when available units drop to lowUnits or below and is only
+ * cleared again once stock climbs back to restoreUnits, so small movements
+ * around the threshold do not produce a stream of alerts.
+ */
+@Document(collection = "low_stock_thresholds")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LowStockThreshold implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id; // "<bloodBankId>:<bloodType>"
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("blood_type")
+    private String bloodType;
+
+    @Field("low_units")
+    private Integer lowUnits;
+
+    @Field("restore_units")
+    private Integer restoreUnits;
+
+    @Field("alert_active")
+    private boolean alertActive;
+
+    @Field("last_alert_at")
+    private Date lastAlertAt;
+
+    @Field("updated_at")
+    private Date updatedAt;
+}
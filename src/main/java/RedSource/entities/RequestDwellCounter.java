@@ -0,0 +1,61 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Daily rolling counter of request status durations for one blood bank
+ * (or "*" for all banks). The metric is the status a request spent time in,
+ * or TO_FULFILLED for the time from creation to fulfilment.
+ * The id is bloodBankId|metric|day.
+ */
+@Document(collection = "request_dwell_counters")
+@CompoundIndex(name = "bank_metric_day_idx", def = "{'blood_bank_id': 1, 'metric': 1, 'day': 1}")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RequestDwellCounter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String TO_FULFILLED = "TO_FULFILLED";
+
+    @Id
+    private String id;
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("metric")
+    private String metric;
+
+    // yyyy-MM-dd (UTC)
+    @Field("day")
+    private String day;
+
+    @Field("count")
+    private long count;
+
+    @Field("total_minutes")
+    private long totalMinutes;
+
+    @Field("max_minutes")
+    private long maxMinutes;
+
+    // Ids of the last dispatch batches counted here, so a retried batch is not counted twice
+    @Field("applied_batches")
+    private List<String> appliedBatches;
+}
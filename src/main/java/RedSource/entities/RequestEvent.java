@@ -0,0 +1,72 @@
+package RedSource.entities;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * One status change of a hospital request. Events are only ever appended;
+ * fromStatus is null for the event written when the request is created.
+ */
+@Document(collection = "request_events")
+@CompoundIndexes({
+    @CompoundIndex(name = "request_created_idx", def = "{'request_id': 1, 'created_at': 1}"),
+    @CompoundIndex(name = "bank_created_idx", def = "{'blood_bank_id': 1, 'created_at': -1}")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RequestEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @Field("request_id")
+    private String requestId;
+
+    @Field("hospital_id")
+    private String hospitalId;
+
+    @Field("blood_bank_id")
+    private String bloodBankId;
+
+    @Field("from_status")
+    private String fromStatus;
+
+    @Field("to_status")
+    private String toStatus;
+
+    // Authenticated user that made the change, or "system"
+    @Field("actor")
+    private String actor;
+
+    // Where the change came from, e.g. "api" or "delivery"
+    @Field("source")
+    private String source;
+
+    // Time spent in fromStatus
+    @Field("dwell_minutes")
+    private Long dwellMinutes;
+
+    // Time since the request was created
+    @Field("age_minutes")
+    private Long ageMinutes;
+
+    @Field("created_at")
+    private Date createdAt;
+}
@@ -30,7 +30,8 @@ import java.util.Date;
 @CompoundIndexes({
     @CompoundIndex(name = "email_role_idx", def = "{'email': 1, 'role': 1}"),
     @CompoundIndex(name = "contact_role_idx", def = "{'contact_information': 1, 'role': 1}"),
-    @CompoundIndex(name = "status_created_idx", def = "{'account_status': 1, 'created_at': -1}")
+    @CompoundIndex(name = "status_created_idx", def = "{'account_status': 1, 'created_at': -1}"),
+    @CompoundIndex(name = "created_id_idx", def = "{'created_at': -1, '_id': -1}")
 })
 @Data
 @Builder
@@ -132,6 +133,20 @@ public class User implements Serializable {
     @Indexed
     private Date updatedAt;
 
+    // Donation eligibility, kept in step with the donor's appointments by DonorEligibilityService
+    @Field("last_donation_date")
+    private Date lastDonationDate;
+
+    @Field("next_eligible_date")
+    private Date nextEligibleDate;
+
+    @Field("has_active_booking")
+    private Boolean hasActiveBooking;
+
+    // Bumped on every recompute; null until the donor's eligibility has been materialized
+    @Field("eligibility_version")
+    private Long eligibilityVersion;
+
     // Explicit getters and setters
     public String getId() {
         return id;
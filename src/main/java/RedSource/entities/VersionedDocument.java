@@ -0,0 +1,15 @@
+package RedSource.entities;
+
+/**
+ * Document guarded by optimistic locking through a @Version field.
+ */
+public interface VersionedDocument {
+
+    String VERSION_FIELD = "version";
+
+    String getId();
+
+    Long getVersion();
+
+    void setVersion(Long version);
+}
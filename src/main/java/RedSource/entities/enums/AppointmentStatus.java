@@ -0,0 +1,62 @@
+package RedSource.entities.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Appointment lifecycle as stored in appointments.status. COMPLETE, MISSED and
+ * CANCELLED are final; "Completed" is read as COMPLETE.
+ */
+public enum AppointmentStatus {
+
+    PENDING("Pending"),
+    SCHEDULED("Scheduled"),
+    COMPLETE("Complete"),
+    MISSED("Missed"),
+    CANCELLED("Cancelled");
+
+    private final String value;
+
+    AppointmentStatus(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Set<AppointmentStatus> next() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(SCHEDULED, COMPLETE, MISSED, CANCELLED);
+            case SCHEDULED -> EnumSet.of(COMPLETE, MISSED, CANCELLED);
+            case COMPLETE, MISSED, CANCELLED -> EnumSet.noneOf(AppointmentStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return next().contains(target);
+    }
+
+    /**
+     * Case-insensitive lookup that also accepts "Completed" and "Canceled".
+     * Returns null for unknown values.
+     */
+    public static AppointmentStatus fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim();
+        if ("Completed".equalsIgnoreCase(normalized)) {
+            return COMPLETE;
+        }
+        if ("Canceled".equalsIgnoreCase(normalized)) {
+            return CANCELLED;
+        }
+        for (AppointmentStatus status : values()) {
+            if (status.value.equalsIgnoreCase(normalized)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+package RedSource.entities.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Delivery lifecycle. COMPLETE and CANCELLED are final; a DELAYED delivery
+ * can resume from where it was held up.
+ */
+public enum DeliveryStatus {
+
+    PENDING("PENDING"),
+    PROCESSING("PROCESSING"),
+    IN_TRANSIT("IN TRANSIT"),
+    DELAYED("DELAYED"),
+    COMPLETE("COMPLETE"),
+    CANCELLED("CANCELLED");
+
+    private final String value;
+
+    DeliveryStatus(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Set<DeliveryStatus> next() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(PROCESSING, DELAYED, CANCELLED);
+            case PROCESSING -> EnumSet.of(IN_TRANSIT, DELAYED, CANCELLED);
+            case IN_TRANSIT -> EnumSet.of(COMPLETE, DELAYED, CANCELLED);
+            case DELAYED -> EnumSet.of(PROCESSING, IN_TRANSIT, COMPLETE, CANCELLED);
+            case COMPLETE, CANCELLED -> EnumSet.noneOf(DeliveryStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(DeliveryStatus target) {
+        return next().contains(target);
+    }
+
+    /**
+     * Parse a stored or requested status; accepts "IN TRANSIT" as well as "IN_TRANSIT",
+     * in any case. Returns null for unknown values.
+     */
+    public static DeliveryStatus fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().replace('_', ' ');
+        for (DeliveryStatus status : values()) {
+            if (status.value.equalsIgnoreCase(normalized)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
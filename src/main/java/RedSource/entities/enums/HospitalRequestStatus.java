@@ -1,7 +1,41 @@
 package RedSource.entities.enums;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Hospital request lifecycle. REJECTED and FULFILLED are final.
+ */
 public enum HospitalRequestStatus {
     PENDING,
     APPROVED,
-    REJECTED
+    REJECTED,
+    FULFILLED;
+
+    public Set<HospitalRequestStatus> next() {
+        return switch (this) {
+            case PENDING -> EnumSet.of(APPROVED, REJECTED, FULFILLED);
+            case APPROVED -> EnumSet.of(REJECTED, FULFILLED);
+            case REJECTED, FULFILLED -> EnumSet.noneOf(HospitalRequestStatus.class);
+        };
+    }
+
+    public boolean canTransitionTo(HospitalRequestStatus target) {
+        return next().contains(target);
+    }
+
+    /**
+     * Case-insensitive lookup. Returns null for unknown values.
+     */
+    public static HospitalRequestStatus fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        for (HospitalRequestStatus status : values()) {
+            if (status.name().equalsIgnoreCase(value.trim())) {
+                return status;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,37 @@
+package RedSource.entities.enums;
+
+/**
+ * Urgency a hospital attaches to a request. The lead time moves the request
+ * ahead of others needed at the same time in a blood bank's triage queue.
+ */
+public enum RequestUrgency {
+
+    LOW(-24),
+    NORMAL(0),
+    HIGH(24),
+    CRITICAL(72);
+
+    private final int leadHours;
+
+    RequestUrgency(int leadHours) {
+        this.leadHours = leadHours;
+    }
+
+    public int getLeadHours() {
+        return leadHours;
+    }
+
+    /**
+     * Case-insensitive lookup; null or unknown values count as NORMAL.
+     */
+    public static RequestUrgency fromValue(String value) {
+        if (value != null) {
+            for (RequestUrgency urgency : values()) {
+                if (urgency.name().equalsIgnoreCase(value.trim())) {
+                    return urgency;
+                }
+            }
+        }
+        return NORMAL;
+    }
+}
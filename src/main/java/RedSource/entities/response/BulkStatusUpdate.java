@@ -0,0 +1,23 @@
+package RedSource.entities.response;
+
+import RedSource.entities.DTO.BulkStatusResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Per-ID results of a bulk status update, in request order, together with the
+ * documents that were changed so callers can publish or post-process them.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkStatusUpdate<T> {
+
+    private final List<BulkStatusResult> results;
+    private final List<T> updated;
+
+    public long count(String outcome) {
+        return results.stream().filter(result -> outcome.equals(result.getOutcome())).count();
+    }
+}
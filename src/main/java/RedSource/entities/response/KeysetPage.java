@@ -0,0 +1,32 @@
+package RedSource.entities.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. nextCursor is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final String nextCursor;
+    private final int limit;
+
+    /**
+     * Response headers carrying the cursor, so list endpoints keep their body shape.
+     */
+    public HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            headers.add(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,18 @@
+package RedSource.exceptions;
+
+/**
+ * Thrown when a status change is not allowed from the current status.
+ */
+public class InvalidStatusTransitionException extends RuntimeException {
+
+    private final String currentStatus;
+
+    public InvalidStatusTransitionException(String message, String currentStatus) {
+        super(message);
+        this.currentStatus = currentStatus;
+    }
+
+    public String getCurrentStatus() {
+        return currentStatus;
+    }
+}
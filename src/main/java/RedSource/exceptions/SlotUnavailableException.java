@@ -0,0 +1,20 @@
+package RedSource.exceptions;
+
+import java.util.Date;
+
+/**
+ * Thrown when an appointment slot has no capacity left.
+ */
+public class SlotUnavailableException extends RuntimeException {
+
+    private final Date slotStart;
+
+    public SlotUnavailableException(String message, Date slotStart) {
+        super(message);
+        this.slotStart = slotStart;
+    }
+
+    public Date getSlotStart() {
+        return slotStart;
+    }
+}
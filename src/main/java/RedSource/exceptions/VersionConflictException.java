@@ -0,0 +1,18 @@
+package RedSource.exceptions;
+
+/**
+ * Thrown when an update was based on a stale version of a document.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final Long currentVersion;
+
+    public VersionConflictException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -1,11 +1,15 @@
 package RedSource.exceptions.handler;
 
 import RedSource.entities.utils.ResponseUtils;
+import RedSource.exceptions.InvalidStatusTransitionException;
 import RedSource.exceptions.ResourceNotFoundException;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.SlotUnavailableException;
+import RedSource.exceptions.VersionConflictException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -16,6 +20,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.HashMap;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -56,6 +62,65 @@ public class GlobalExceptionHandler {
                 .body(ResponseUtils.buildErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage()));
     }
 
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<?> handleVersionConflictException(VersionConflictException e, HttpServletRequest request) {
+        logger.warn("Version conflict: {} - Path: {} {}", 
+                e.getMessage(), 
+                request.getMethod(), 
+                request.getRequestURI());
+        HashMap<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", false);
+        errorResponse.put("statusCode", HttpStatus.CONFLICT.value());
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("currentVersion", e.getCurrentVersion());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidStatusTransitionException.class)
+    public ResponseEntity<?> handleInvalidStatusTransitionException(InvalidStatusTransitionException e, HttpServletRequest request) {
+        logger.warn("Invalid status transition: {} - Path: {} {}", 
+                e.getMessage(), 
+                request.getMethod(), 
+                request.getRequestURI());
+        HashMap<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", false);
+        errorResponse.put("statusCode", HttpStatus.CONFLICT.value());
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("currentStatus", e.getCurrentStatus());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(SlotUnavailableException.class)
+    public ResponseEntity<?> handleSlotUnavailableException(SlotUnavailableException e, HttpServletRequest request) {
+        logger.warn("Slot unavailable: {} - Path: {} {}", 
+                e.getMessage(), 
+                request.getMethod(), 
+                request.getRequestURI());
+        HashMap<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", false);
+        errorResponse.put("statusCode", HttpStatus.CONFLICT.value());
+        errorResponse.put("message", e.getMessage());
+        errorResponse.put("slotStart", e.getSlotStart());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(errorResponse);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailureException(OptimisticLockingFailureException e, HttpServletRequest request) {
+        logger.warn("Optimistic locking failure: {} - Path: {} {}", 
+                e.getMessage(), 
+                request.getMethod(), 
+                request.getRequestURI());
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .body(ResponseUtils.buildErrorResponse(HttpStatus.CONFLICT, "The record was modified by someone else, please reload and retry"));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<?> handleBadCredentialsException(BadCredentialsException e, HttpServletRequest request) {
         logger.warn("Authentication failed - Invalid credentials - Path: {} {} - IP: {}", 
@@ -0,0 +1,13 @@
+package RedSource.repositories;
+
+import RedSource.entities.AppointmentSlot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface AppointmentSlotRepository extends MongoRepository<AppointmentSlot, String> {
+    List<AppointmentSlot> findByBloodBankIdAndSlotStartBetweenOrderBySlotStartAsc(String bloodBankId, Date from, Date to);
+}
@@ -0,0 +1,12 @@
+package RedSource.repositories;
+
+import RedSource.entities.ConsumptionForecast;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConsumptionForecastRepository extends MongoRepository<ConsumptionForecast, String> {
+    List<ConsumptionForecast> findByBloodBankId(String bloodBankId);
+}
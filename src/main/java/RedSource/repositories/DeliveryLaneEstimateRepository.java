@@ -0,0 +1,9 @@
+package RedSource.repositories;
+
+import RedSource.entities.DeliveryLaneEstimate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DeliveryLaneEstimateRepository extends MongoRepository<DeliveryLaneEstimate, String> {
+}
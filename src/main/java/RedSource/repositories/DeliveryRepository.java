@@ -1,6 +1,8 @@
 package RedSource.repositories;
 
 import RedSource.entities.Delivery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,4 +13,8 @@ public interface DeliveryRepository extends MongoRepository<Delivery, String> {
     List<Delivery> findByRequestId(String requestId);
     List<Delivery> findAllByStatus(String status);
     List<Delivery> findByRequestIdIn(List<String> requestIds);
+
+    // Full-text search over the weighted text index; sort by "score" to rank hits
+    List<Delivery> findAllBy(TextCriteria criteria, Pageable pageable);
+    List<Delivery> findAllByStatus(String status, TextCriteria criteria, Pageable pageable);
 }
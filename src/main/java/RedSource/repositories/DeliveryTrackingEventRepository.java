@@ -0,0 +1,13 @@
+package RedSource.repositories;
+
+import RedSource.entities.DeliveryTrackingEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DeliveryTrackingEventRepository extends MongoRepository<DeliveryTrackingEvent, String> {
+    List<DeliveryTrackingEvent> findByDeliveryIdOrderByTimestampAsc(String deliveryId);
+    void deleteByDeliveryId(String deliveryId);
+}
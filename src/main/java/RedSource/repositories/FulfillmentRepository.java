@@ -1,9 +1,41 @@
 package RedSource.repositories;
 
+import RedSource.entities.DTO.FulfillmentDailyStatsDTO;
 import RedSource.entities.Fulfillment;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Date;
+import java.util.List;
+
 @Repository
 public interface FulfillmentRepository extends MongoRepository<Fulfillment, String> {
-} 
\ No newline at end of file
+
+    String GROUP_BY_BANK_AND_DAY = "{ $group: {"
+            + " _id: { bank: '$blood_bank_id', day: { $dateToString: { format: '%Y-%m-%d', date: '$fulfillment_date' } } },"
+            + " units: { $sum: { $ifNull: ['$quantity', 0] } },"
+            + " fulfillments: { $sum: 1 } } }";
+
+    String PROJECT_DAILY = "{ $project: { _id: 0, bloodBankId: '$_id.bank', day: '$_id.day', units: 1, fulfillments: 1 } }";
+
+    List<Fulfillment> findByHospitalRequestId(String hospitalRequestId);
+
+    List<Fulfillment> findByBloodBankIdOrderByFulfillmentDateDesc(String bloodBankId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'blood_bank_id': ?0, 'status': 'FULFILLED', 'fulfillment_date': { $gte: ?1 } } }",
+            GROUP_BY_BANK_AND_DAY,
+            PROJECT_DAILY,
+            "{ $sort: { 'day': 1 } }"
+    })
+    List<FulfillmentDailyStatsDTO> findDailyUnitsByBloodBankId(String bloodBankId, Date from);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'status': 'FULFILLED', 'fulfillment_date': { $gte: ?0 } } }",
+            GROUP_BY_BANK_AND_DAY,
+            PROJECT_DAILY,
+            "{ $sort: { 'bloodBankId': 1, 'day': 1 } }"
+    })
+    List<FulfillmentDailyStatsDTO> findDailyUnits(Date from);
+}
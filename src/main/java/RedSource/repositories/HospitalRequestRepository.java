@@ -1,6 +1,9 @@
 package RedSource.repositories;
 
+import RedSource.entities.DTO.FulfillmentFillRateDTO;
+import RedSource.entities.DTO.HospitalRequestListingDTO;
 import RedSource.entities.HospitalRequest;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,6 +13,85 @@ import java.util.Optional;
 @Repository
 public interface HospitalRequestRepository extends MongoRepository<HospitalRequest, String> {
 
+    // Listing pipeline stages. Account ids may be stored as ObjectId or as plain strings,
+    // so the request's reference is converted when it parses as an ObjectId.
+    String LOOKUP_HOSPITAL = "{ $lookup: { from: 'users_hospital', let: { ref: '$hospital_id' }, pipeline: ["
+            + "{ $match: { $expr: { $eq: ['$_id', { $convert: { input: '$$ref', to: 'objectId', onError: '$$ref', onNull: null } }] } } },"
+            + "{ $project: { hospital_name: 1, address: 1, phone: 1 } } ], as: 'hospital' } }";
+
+    String LOOKUP_BLOOD_BANK = "{ $lookup: { from: 'users_bloodbank', let: { ref: '$blood_bank_id' }, pipeline: ["
+            + "{ $match: { $expr: { $eq: ['$_id', { $convert: { input: '$$ref', to: 'objectId', onError: '$$ref', onNull: null } }] } } },"
+            + "{ $project: { name: 1, address: 1, contact_information: 1, email: 1 } } ], as: 'bloodBank' } }";
+
+    // Joined account details win; the values denormalized on the request are the fallback
+    String PROJECT_LISTING = "{ $project: {"
+            + " hospitalId: '$hospital_id',"
+            + " hospitalName: { $ifNull: [{ $arrayElemAt: ['$hospital.hospital_name', 0] }, '$hospital_name'] },"
+            + " hospitalAddress: { $ifNull: [{ $arrayElemAt: ['$hospital.address', 0] }, '$hospital_address'] },"
+            + " hospitalPhone: { $ifNull: [{ $arrayElemAt: ['$hospital.phone', 0] }, '$contact_information'] },"
+            + " bloodBankId: '$blood_bank_id',"
+            + " bloodBankName: { $ifNull: [{ $arrayElemAt: ['$bloodBank.name', 0] }, '$blood_bank_name'] },"
+            + " bloodBankAddress: { $ifNull: [{ $arrayElemAt: ['$bloodBank.address', 0] }, '$blood_bank_address'] },"
+            + " bloodBankPhone: { $ifNull: [{ $arrayElemAt: ['$bloodBank.contact_information', 0] }, '$blood_bank_phone'] },"
+            + " bloodBankEmail: { $ifNull: [{ $arrayElemAt: ['$bloodBank.email', 0] }, '$blood_bank_email'] },"
+            + " bloodItems: { $ifNull: ['$blood_items', []] },"
+            + " status: 1,"
+            + " requestDate: '$request_date',"
+            + " dateNeeded: '$date_needed',"
+            + " createdAt: '$created_at' } }";
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'blood_bank_id': ?0 } }",
+            "{ $sort: { 'date_needed': 1, '_id': 1 } }",
+            LOOKUP_HOSPITAL,
+            LOOKUP_BLOOD_BANK,
+            PROJECT_LISTING
+    })
+    List<HospitalRequestListingDTO> findListingByBloodBankId(String bloodBankId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'hospital_id': ?0 } }",
+            "{ $sort: { 'date_needed': 1, '_id': 1 } }",
+            LOOKUP_HOSPITAL,
+            LOOKUP_BLOOD_BANK,
+            PROJECT_LISTING
+    })
+    List<HospitalRequestListingDTO> findListingByHospitalId(String hospitalId);
+
+    // Fill rate stages: requested units per request joined with the units of its
+    // fulfilled fulfillments (through the hospital_request_id index), summed per hospital
+    String FILL_RATE_REQUESTED = "{ $project: { hospital_id: 1, requested: { $sum: { $ifNull: ['$blood_items.units', []] } } } }";
+
+    String LOOKUP_FULFILLED = "{ $lookup: { from: 'fulfillments', let: { requestId: { $toString: '$_id' } }, pipeline: ["
+            + "{ $match: { $expr: { $eq: ['$hospital_request_id', '$$requestId'] }, status: 'FULFILLED' } },"
+            + "{ $group: { _id: null, units: { $sum: { $ifNull: ['$quantity', 0] } } } } ], as: 'fulfilled' } }";
+
+    String GROUP_FILL_RATE = "{ $group: { _id: '$hospital_id', requests: { $sum: 1 }, requestedUnits: { $sum: '$requested' },"
+            + " fulfilledUnits: { $sum: { $ifNull: [{ $arrayElemAt: ['$fulfilled.units', 0] }, 0] } } } }";
+
+    String PROJECT_FILL_RATE = "{ $project: { _id: 0, hospitalId: '$_id', requests: 1, requestedUnits: 1, fulfilledUnits: 1,"
+            + " fillRate: { $cond: [{ $gt: ['$requestedUnits', 0] },"
+            + " { $round: [{ $divide: [{ $min: ['$fulfilledUnits', '$requestedUnits'] }, '$requestedUnits'] }, 3] }, 0] } } }";
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'hospital_id': ?0 } }",
+            FILL_RATE_REQUESTED,
+            LOOKUP_FULFILLED,
+            GROUP_FILL_RATE,
+            PROJECT_FILL_RATE
+    })
+    List<FulfillmentFillRateDTO> findFillRateByHospitalId(String hospitalId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { 'hospital_id': { $ne: null } } }",
+            FILL_RATE_REQUESTED,
+            LOOKUP_FULFILLED,
+            GROUP_FILL_RATE,
+            PROJECT_FILL_RATE,
+            "{ $sort: { 'fillRate': 1 } }"
+    })
+    List<FulfillmentFillRateDTO> findFillRates();
+
     List<HospitalRequest> findAllByBloodBankId(String bloodBankId);
 
     List<HospitalRequest> findByBloodBankId(String bloodBankId);
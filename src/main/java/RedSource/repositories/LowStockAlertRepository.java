@@ -0,0 +1,13 @@
+package RedSource.repositories;
+
+import RedSource.entities.LowStockAlert;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LowStockAlertRepository extends MongoRepository<LowStockAlert, String> {
+    List<LowStockAlert> findByBloodBankIdOrderByCreatedAtDesc(String bloodBankId, Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package RedSource.repositories;
+
+import RedSource.entities.LowStockThreshold;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LowStockThresholdRepository extends MongoRepository<LowStockThreshold, String> {
+    List<LowStockThreshold> findByBloodBankId(String bloodBankId);
+}
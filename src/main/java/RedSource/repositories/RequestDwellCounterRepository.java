@@ -0,0 +1,12 @@
+package RedSource.repositories;
+
+import RedSource.entities.RequestDwellCounter;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RequestDwellCounterRepository extends MongoRepository<RequestDwellCounter, String> {
+    List<RequestDwellCounter> findByBloodBankIdAndDayGreaterThanEqual(String bloodBankId, String fromDay);
+}
@@ -0,0 +1,12 @@
+package RedSource.repositories;
+
+import RedSource.entities.RequestEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RequestEventRepository extends MongoRepository<RequestEvent, String> {
+    List<RequestEvent> findByRequestIdOrderByCreatedAtAsc(String requestId);
+}
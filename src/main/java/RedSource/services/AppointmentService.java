@@ -1,19 +1,37 @@
 package RedSource.services;
 
 import RedSource.entities.Appointment;
+import RedSource.entities.AppointmentSlot;
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.enums.AppointmentStatus;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.SlotUnavailableException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.AppointmentRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -22,9 +40,16 @@ public class AppointmentService {
     private static final Logger log = LoggerFactory.getLogger(AppointmentService.class);
     public static final String APPOINTMENTS = "Appointments";
     public static final String APPOINTMENT = "Appointment";
+    private static final long MISSED_GRACE_MS = 2 * 60 * 60 * 1000L;
+    // Open statuses as they occur in stored data; status matching used to be case-insensitive
+    private static final List<String> OPEN_STATUSES = List.of("Pending", "Scheduled", "PENDING", "SCHEDULED", "pending", "scheduled");
 
     private final AppointmentRepository appointmentRepository;
+    private final PaginationService paginationService;
     private final RewardPointsManagementService rewardPointsManagementService;
+    private final MongoTemplate mongoTemplate;
+    private final DonorEligibilityService donorEligibilityService;
+    private final AppointmentSlotService appointmentSlotService;
 
     // Retrieve all appointments without any filter
     public List<Appointment> getAll() {
@@ -39,6 +64,22 @@ public class AppointmentService {
         }
     }
 
+    // Retrieve one keyset page of appointments, newest first, optionally filtered by status and user
+    public KeysetPage<Appointment> getPage(String cursor, Integer limit, String status, String userId) {
+        try {
+            KeysetPage<Appointment> page = paginationService.findPage(Appointment.class,
+                    PaginationService.filter("status", status, "userId", userId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(APPOINTMENTS));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(APPOINTMENTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     // Retrieve an appointment by ID
     public Appointment getById(String id) {
         try {
@@ -88,9 +129,15 @@ public class AppointmentService {
     // Save a new appointment
     public Appointment save(Appointment appointment) {
         try {
-            Appointment savedAppointment = appointmentRepository.save(appointment);
+            appointment.setCreatedAt(new Date());
+            appointment.setSlotId(null);
+            AppointmentSlot slot = reserveSlot(appointment);
+            Appointment savedAppointment = saveHoldingSlot(appointment, slot);
+            donorEligibilityService.onSaved(savedAppointment);
             log.info(MessageUtils.saveSuccess(APPOINTMENT));
             return savedAppointment;
+        } catch (SlotUnavailableException | IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.saveError(APPOINTMENT);
             log.error(errorMessage, e);
@@ -106,10 +153,28 @@ public class AppointmentService {
                 throw new ServiceException("Appointment not found", new RuntimeException("Appointment not found"));
             }
             appointment.setId(id);
-            Appointment updatedAppointment = appointmentRepository.save(appointment);
+            appointment.setCreatedAt(existingAppointment.getCreatedAt());
+            // Book a new slot only when the bank, date or time moved; otherwise keep whatever was held
+            String previousSlotId = existingAppointment.getSlotId();
+            appointment.setSlotId(null);
+            AppointmentSlot slot = null;
+            if (holdsSlot(appointment)) {
+                if (!movesSlot(existingAppointment, appointment) || (previousSlotId != null && previousSlotId.equals(
+                        appointmentSlotService.slotIdFor(appointment.getBloodBankId(), appointment.getAppointmentDate(),
+                                appointment.getAppointmentTime())))) {
+                    appointment.setSlotId(previousSlotId);
+                } else {
+                    slot = reserveSlot(appointment);
+                }
+            }
+            Appointment updatedAppointment = replaceHoldingSlot(appointment, previousSlotId, slot);
+            if (previousSlotId != null && !previousSlotId.equals(updatedAppointment.getSlotId())) {
+                appointmentSlotService.release(previousSlotId);
+            }
+            donorEligibilityService.onUpdated(existingAppointment, updatedAppointment);
             log.info(MessageUtils.updateSuccess(APPOINTMENT));
             return updatedAppointment;
-        } catch (ServiceException e) {
+        } catch (ServiceException | SlotUnavailableException | VersionConflictException | IllegalArgumentException e) {
             throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError(APPOINTMENT);
@@ -121,20 +186,25 @@ public class AppointmentService {
     // Update appointment status and award points if completed
     public Appointment updateStatus(String id, String newStatus) {
         try {
-            Appointment appointment = getById(id);
-            if (appointment == null) {
+            // Only the status is written, so a concurrent cancel's slot release is never undone.
+            // The previous document tells which status this call actually changed.
+            Appointment updatedAppointment = mongoTemplate.findAndModify(new Query(Criteria.where("id").is(id)),
+                    new Update().set("status", newStatus), FindAndModifyOptions.options().returnNew(false), Appointment.class);
+            if (updatedAppointment == null) {
                 throw new ServiceException("Appointment not found", new RuntimeException("Appointment not found"));
             }
-            
-            String oldStatus = appointment.getStatus();
-            appointment.setStatus(newStatus);
-            Appointment updatedAppointment = appointmentRepository.save(appointment);
+            String oldStatus = updatedAppointment.getStatus();
+            updatedAppointment.setStatus(newStatus);
+            if (AppointmentStatus.fromValue(newStatus) == AppointmentStatus.CANCELLED) {
+                releaseSlotOf(id, updatedAppointment.getSlotId());
+                updatedAppointment.setSlotId(null);
+            }
             
             // If status changed to "Complete" or "Completed", award donation points
             if (("Complete".equalsIgnoreCase(newStatus) || "Completed".equalsIgnoreCase(newStatus)) 
                 && !("Complete".equalsIgnoreCase(oldStatus) || "Completed".equalsIgnoreCase(oldStatus))) {
                 
-                String donorId = appointment.getDonorId();
+                String donorId = updatedAppointment.getDonorId();
                 if (donorId != null && !donorId.isEmpty()) {
                     try {
                         // Award 100 points for completing donation
@@ -146,6 +216,8 @@ public class AppointmentService {
                     }
                 }
             }
+            // After the points award, which saves the whole donor document
+            donorEligibilityService.onStatusChanged(updatedAppointment, oldStatus);
             
             log.info(MessageUtils.updateSuccess(APPOINTMENT + " status"));
             return updatedAppointment;
@@ -158,14 +230,109 @@ public class AppointmentService {
         }
     }
 
+    /**
+     * Move several appointments to one status. Transitions are checked against
+     * AppointmentStatus and applied in one unordered bulk write, each update
+     * conditional on the status that was read. Completed appointments award
+     * donation points as in updateStatus.
+     */
+    public BulkStatusUpdate<Appointment> bulkUpdateStatus(List<String> ids, String status) {
+        AppointmentStatus target = AppointmentStatus.fromValue(status);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown appointment status: " + status);
+        }
+        try {
+            Set<String> appointmentIds = new LinkedHashSet<>(ids);
+            Query read = new Query(Criteria.where("id").in(appointmentIds));
+            read.fields().include("id", "status", "donorId", "userId", "slotId", "appointmentDate", "visitationDate", "dateToday");
+            Map<String, Appointment> stored = new HashMap<>();
+            for (Appointment appointment : mongoTemplate.find(read, Appointment.class)) {
+                stored.put(appointment.getId(), appointment);
+            }
+
+            Map<String, BulkStatusResult> results = new LinkedHashMap<>();
+            List<Appointment> pending = new ArrayList<>();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Appointment.class);
+            for (String id : appointmentIds) {
+                Appointment appointment = stored.get(id);
+                if (appointment == null) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.NOT_FOUND, null, "Appointment not found"));
+                    continue;
+                }
+                AppointmentStatus current = AppointmentStatus.fromValue(appointment.getStatus());
+                if (current == target) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.UNCHANGED, appointment.getStatus(), null));
+                    continue;
+                }
+                if (current == null || !current.canTransitionTo(target)) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.INVALID_TRANSITION, appointment.getStatus(),
+                            "Cannot change appointment status from " + appointment.getStatus() + " to " + target.getValue()));
+                    continue;
+                }
+                bulk.updateOne(new Query(Criteria.where("id").is(id).and("status").is(appointment.getStatus())),
+                        new Update().set("status", target.getValue()));
+                pending.add(appointment);
+                results.put(id, null); // keeps the request order, filled in below
+            }
+
+            List<Appointment> updated = new ArrayList<>();
+            if (!pending.isEmpty()) {
+                int modified = bulk.execute().getModifiedCount();
+                // Appointments carry no version; re-read only when some updates did not apply
+                Map<String, String> statusAfter = new HashMap<>();
+                if (modified < pending.size()) {
+                    Query reread = new Query(Criteria.where("id").in(pending.stream().map(Appointment::getId).toList()));
+                    reread.fields().include("id", "status");
+                    for (Appointment appointment : mongoTemplate.find(reread, Appointment.class)) {
+                        statusAfter.put(appointment.getId(), appointment.getStatus());
+                    }
+                }
+                for (Appointment appointment : pending) {
+                    String previousStatus = appointment.getStatus();
+                    String current = modified < pending.size() ? statusAfter.get(appointment.getId()) : target.getValue();
+                    if (!target.getValue().equals(current)) {
+                        results.put(appointment.getId(), BulkStatusResult.rejected(appointment.getId(), BulkStatusResult.CONFLICT,
+                                current, "Appointment was modified concurrently"));
+                        continue;
+                    }
+                    results.put(appointment.getId(), BulkStatusResult.updated(appointment.getId(), previousStatus, current));
+                    appointment.setStatus(current);
+                    updated.add(appointment);
+                    if (target == AppointmentStatus.CANCELLED) {
+                        releaseSlotOf(appointment.getId(), appointment.getSlotId());
+                        appointment.setSlotId(null);
+                    }
+                    if (target == AppointmentStatus.COMPLETE && appointment.getDonorId() != null && !appointment.getDonorId().isEmpty()) {
+                        try {
+                            rewardPointsManagementService.awardDonationPoints(appointment.getDonorId(), appointment.getId());
+                        } catch (Exception e) {
+                            log.error("Failed to award points to donor: " + appointment.getDonorId(), e);
+                        }
+                    }
+                    donorEligibilityService.onStatusChanged(appointment, previousStatus);
+                }
+            }
+            log.info("Bulk status update of {} appointments to {}: {} updated", appointmentIds.size(), target.getValue(), updated.size());
+            return new BulkStatusUpdate<>(new ArrayList<>(results.values()), updated);
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.updateError(APPOINTMENTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     // Delete an appointment by ID
     public void delete(String id) {
         try {
-            Appointment appointment = getById(id);
+            // findAndRemove hands the removed document, and so its slot, to exactly one caller
+            Appointment appointment = mongoTemplate.findAndRemove(new Query(Criteria.where("id").is(id)), Appointment.class);
             if (appointment == null) {
                 throw new ServiceException("Appointment not found", new RuntimeException("Appointment not found"));
             }
-            appointmentRepository.delete(appointment);
+            if (holdsSlot(appointment)) {
+                appointmentSlotService.release(appointment.getSlotId());
+            }
+            donorEligibilityService.onDeleted(appointment);
             log.info(MessageUtils.deleteSuccess(APPOINTMENT));
         } catch (ServiceException e) {
             throw e;
@@ -178,39 +345,13 @@ public class AppointmentService {
 
     /**
      * Automatically mark appointments as "Missed" if the appointment date/time has passed
-     * and the status is still "Pending" or "Scheduled"
+     * (with a 2 hour grace period) and the status is still "Pending" or "Scheduled".
      * Runs every hour
      */
     @Scheduled(fixedRate = 3600000) // Run every hour (3600000 ms = 1 hour)
     public void markMissedAppointments() {
         try {
-            Date now = new Date();
-            
-            // Find all pending/scheduled appointments
-            List<Appointment> allAppointments = appointmentRepository.findAll();
-            int missedCount = 0;
-            
-            for (Appointment appointment : allAppointments) {
-                // Check if appointment is pending/scheduled and date has passed
-                if (appointment.getAppointmentDate() != null && 
-                    ("Pending".equalsIgnoreCase(appointment.getStatus()) || 
-                     "Scheduled".equalsIgnoreCase(appointment.getStatus()))) {
-                    
-                    // Add grace period of 2 hours after appointment time
-                    Calendar cal = Calendar.getInstance();
-                    cal.setTime(appointment.getAppointmentDate());
-                    cal.add(Calendar.HOUR, 2);
-                    Date appointmentWithGrace = cal.getTime();
-                    
-                    if (now.after(appointmentWithGrace)) {
-                        appointment.setStatus("Missed");
-                        appointmentRepository.save(appointment);
-                        missedCount++;
-                        log.info("Marked appointment " + appointment.getId() + " as Missed");
-                    }
-                }
-            }
-            
+            long missedCount = sweepMissedAppointments();
             if (missedCount > 0) {
                 log.info("Marked " + missedCount + " appointments as Missed");
             }
@@ -219,6 +360,88 @@ public class AppointmentService {
         }
     }
 
+    /**
+     * Mark every overdue open appointment as Missed with one updateMany and return
+     * how many were changed. The filter is a range on the (status, appointment_date)
+     * index, so only overdue rows are read, whatever the size of the history.
+     * The affected donors are collected first so their eligibility can be refreshed.
+     */
+    public long sweepMissedAppointments() {
+        Date cutoff = new Date(System.currentTimeMillis() - MISSED_GRACE_MS);
+        Query overdue = new Query(Criteria.where("status").in(OPEN_STATUSES).and("appointmentDate").lt(cutoff));
+        List<String> userIds = mongoTemplate.findDistinct(overdue, "userId", Appointment.class, String.class);
+        long missed = mongoTemplate.updateMulti(overdue, new Update().set("status", AppointmentStatus.MISSED.getValue()),
+                Appointment.class).getModifiedCount();
+        if (missed > 0) {
+            userIds.forEach(donorEligibilityService::refresh);
+        }
+        return missed;
+    }
+
+    // Pending and scheduled appointments hold a place in their slot
+    private static boolean holdsSlot(Appointment appointment) {
+        AppointmentStatus status = AppointmentStatus.fromValue(appointment.getStatus());
+        return appointment.getStatus() == null || status == AppointmentStatus.PENDING || status == AppointmentStatus.SCHEDULED;
+    }
+
+    // Book the appointment's slot when it has a bank, date and time of day and is still open; null otherwise
+    private AppointmentSlot reserveSlot(Appointment appointment) {
+        if (appointment.getBloodBankId() == null || appointment.getAppointmentDate() == null || !holdsSlot(appointment)) {
+            return null;
+        }
+        AppointmentSlot slot = appointmentSlotService.reserve(appointment.getBloodBankId(),
+                appointment.getAppointmentDate(), appointment.getAppointmentTime());
+        if (slot != null) {
+            appointment.setSlotId(slot.getId());
+        }
+        return slot;
+    }
+
+    private static boolean movesSlot(Appointment existing, Appointment appointment) {
+        return !Objects.equals(existing.getBloodBankId(), appointment.getBloodBankId())
+                || !Objects.equals(existing.getAppointmentDate(), appointment.getAppointmentDate())
+                || !Objects.equals(existing.getAppointmentTime(), appointment.getAppointmentTime());
+    }
+
+    // Take the slot off the appointment; only the caller that removes it gives the place back
+    private void releaseSlotOf(String appointmentId, String slotId) {
+        if (slotId == null) {
+            return;
+        }
+        Query query = new Query(Criteria.where("id").is(appointmentId).and("slotId").is(slotId));
+        if (mongoTemplate.findAndModify(query, new Update().unset("slotId"), Appointment.class) != null) {
+            appointmentSlotService.release(slotId);
+        }
+    }
+
+    // Replace the appointment only while it still holds previousSlotId, giving the new slot back otherwise
+    private Appointment replaceHoldingSlot(Appointment appointment, String previousSlotId, AppointmentSlot slot) {
+        try {
+            Query query = new Query(Criteria.where("id").is(appointment.getId()).and("slotId").is(previousSlotId));
+            if (mongoTemplate.findAndReplace(query, appointment) == null) {
+                throw new VersionConflictException("Appointment was modified concurrently, please reload and retry", null);
+            }
+            return appointment;
+        } catch (RuntimeException e) {
+            if (slot != null) {
+                appointmentSlotService.release(slot.getId());
+            }
+            throw e;
+        }
+    }
+
+    // Save, giving the freshly booked slot back if the write fails
+    private Appointment saveHoldingSlot(Appointment appointment, AppointmentSlot slot) {
+        try {
+            return appointmentRepository.save(appointment);
+        } catch (RuntimeException e) {
+            if (slot != null) {
+                appointmentSlotService.release(slot.getId());
+            }
+            throw e;
+        }
+    }
+
     /**
      * Get the last completed donation date for a donor
      * @param userId The donor's user ID
@@ -226,43 +449,7 @@ public class AppointmentService {
      */
     public Date getLastCompletedDonationDate(String userId) {
         try {
-            List<Appointment> userAppointments = appointmentRepository.findByUserId(userId);
-            log.info("Found {} appointments for user {}", userAppointments.size(), userId);
-            
-            // Log all appointment details for debugging
-            for (Appointment apt : userAppointments) {
-                log.info("Appointment {}: status={}, appointmentDate={}, visitationDate={}, dateToday={}", 
-                        apt.getId(), apt.getStatus(), apt.getAppointmentDate(), 
-                        apt.getVisitationDate(), apt.getDateToday());
-            }
-            
-            // Filter for completed appointments and find the most recent one
-            Date lastDonationDate = userAppointments.stream()
-                .filter(appointment -> "Complete".equalsIgnoreCase(appointment.getStatus()) || 
-                                      "Completed".equalsIgnoreCase(appointment.getStatus()))
-                .map(appointment -> {
-                    // Try appointmentDate first, then visitationDate, then parse dateToday
-                    if (appointment.getAppointmentDate() != null) {
-                        return appointment.getAppointmentDate();
-                    } else if (appointment.getVisitationDate() != null) {
-                        return appointment.getVisitationDate();
-                    } else if (appointment.getDateToday() != null) {
-                        // Try to parse dateToday string to Date
-                        try {
-                            return new java.text.SimpleDateFormat("yyyy-MM-dd").parse(appointment.getDateToday());
-                        } catch (Exception e) {
-                            log.warn("Could not parse dateToday: {}", appointment.getDateToday());
-                            return null;
-                        }
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .max(Date::compareTo)
-                .orElse(null);
-            
-            log.info("Last donation date for user {}: {}", userId, lastDonationDate);
-            return lastDonationDate;
+            return donorEligibilityService.get(userId).lastDonationDate();
         } catch (Exception e) {
             log.error("Error getting last completed donation date for user: " + userId, e);
             return null;
@@ -280,50 +467,10 @@ public class AppointmentService {
             if (userId == null || newAppointmentDate == null) {
                 return true; // Allow if no user or date provided
             }
-
-            List<Appointment> userAppointments = appointmentRepository.findByUserId(userId);
-            
-            // Filter for Scheduled or Completed appointments
-            Date lastRelevantDate = userAppointments.stream()
-                .filter(appointment -> "Scheduled".equalsIgnoreCase(appointment.getStatus()) || 
-                                      "Complete".equalsIgnoreCase(appointment.getStatus()) || 
-                                      "Completed".equalsIgnoreCase(appointment.getStatus()))
-                .map(appointment -> {
-                    if (appointment.getAppointmentDate() != null) {
-                        return appointment.getAppointmentDate();
-                    } else if (appointment.getVisitationDate() != null) {
-                        return appointment.getVisitationDate();
-                    } else if (appointment.getDateToday() != null) {
-                        try {
-                            return new java.text.SimpleDateFormat("yyyy-MM-dd").parse(appointment.getDateToday());
-                        } catch (Exception e) {
-                            log.warn("Could not parse dateToday: {}", appointment.getDateToday());
-                            return null;
-                        }
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .max(Date::compareTo)
-                .orElse(null);
-
-            if (lastRelevantDate == null) {
-                log.info("No previous appointments found for user {}, allowing booking", userId);
-                return true; // No previous appointments, allow booking
-            }
-
-            // Calculate 3 months from last appointment
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(lastRelevantDate);
-            cal.add(Calendar.MONTH, 3);
-            Date threeMonthsLater = cal.getTime();
-
-            // Check if new appointment is at least 3 months after last appointment
-            boolean canBook = !newAppointmentDate.before(threeMonthsLater);
-            
-            log.info("Booking validation for user {}: lastAppointment={}, threeMonthsLater={}, newDate={}, canBook={}", 
-                    userId, lastRelevantDate, threeMonthsLater, newAppointmentDate, canBook);
-            
+            DonorEligibilityService.Eligibility eligibility = donorEligibilityService.get(userId);
+            boolean canBook = eligibility.canBook(newAppointmentDate);
+            log.info("Booking validation for user {}: nextEligible={}, newDate={}, canBook={}",
+                    userId, eligibility.nextEligibleDate(), newAppointmentDate, canBook);
             return canBook;
         } catch (Exception e) {
             log.error("Error validating appointment booking for user: " + userId, e);
@@ -341,45 +488,17 @@ public class AppointmentService {
             if (userId == null) {
                 return null;
             }
-
-            List<Appointment> userAppointments = appointmentRepository.findByUserId(userId);
-            
-            Date lastRelevantDate = userAppointments.stream()
-                .filter(appointment -> "Scheduled".equalsIgnoreCase(appointment.getStatus()) || 
-                                      "Complete".equalsIgnoreCase(appointment.getStatus()) || 
-                                      "Completed".equalsIgnoreCase(appointment.getStatus()))
-                .map(appointment -> {
-                    if (appointment.getAppointmentDate() != null) {
-                        return appointment.getAppointmentDate();
-                    } else if (appointment.getVisitationDate() != null) {
-                        return appointment.getVisitationDate();
-                    } else if (appointment.getDateToday() != null) {
-                        try {
-                            return new java.text.SimpleDateFormat("yyyy-MM-dd").parse(appointment.getDateToday());
-                        } catch (Exception e) {
-                            return null;
-                        }
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .max(Date::compareTo)
-                .orElse(null);
-
-            if (lastRelevantDate == null) {
-                return null; // No restrictions
-            }
-
-            // Calculate 3 months from last appointment
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(lastRelevantDate);
-            cal.add(Calendar.MONTH, 3);
-            
-            return cal.getTime();
+            return donorEligibilityService.get(userId).nextEligibleDate();
         } catch (Exception e) {
             log.error("Error getting next eligible donation date for user: " + userId, e);
             return null;
         }
     }
-}
 
+    /**
+     * Materialize eligibility for every donor from their appointment history.
+     */
+    public Map<String, Object> backfillEligibility() {
+        return donorEligibilityService.backfill();
+    }
+}
@@ -0,0 +1,301 @@
+package RedSource.services;
+
+import RedSource.entities.AppointmentSlot;
+import RedSource.exceptions.SlotUnavailableException;
+import RedSource.repositories.AppointmentSlotRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-bank appointment slot inventory.
+ * <p>
+ * Each bank's opening hours are cut into slots of appointments.slot.minutes,
+ * and each slot has one capacity document, created on first use with
+ * appointments.slot.capacity. A booking is a single findAndModify that
+ * increments booked only while booked is below capacity, so concurrent
+ * bookings contend on the one slot document and nothing else, and a slot can
+ * never be overbooked. Cancellations decrement booked again.
+ * <p>
+ * The time of day is read from appointmentTime, or from appointmentDate when
+ * that carries one. Date-only appointments, free-text times that cannot be
+ * read and times outside the slotted hours are not booked into a slot rather
+ * than being piled into the first slot of the day or rejected.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentSlotService {
+
+    private static final Logger log = LoggerFactory.getLogger(AppointmentSlotService.class);
+    private static final int MAX_RANGE_DAYS = 31;
+    private static final DateTimeFormatter SLOT_LABEL = DateTimeFormatter.ofPattern("MMMM dd, yyyy h:mm a", Locale.ENGLISH);
+    // Formats seen in the free-text appointmentTime field
+    private static final List<DateTimeFormatter> TIME_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("H:mm"),
+            caseInsensitive("h:mm a"),
+            caseInsensitive("h:mma"),
+            caseInsensitive("h a"),
+            caseInsensitive("ha"));
+
+    private final AppointmentSlotRepository appointmentSlotRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${appointments.slot.minutes:60}")
+    private int slotMinutes;
+
+    @Value("${appointments.slot.capacity:10}")
+    private int defaultCapacity;
+
+    @Value("${appointments.slot.open-hour:8}")
+    private int openHour;
+
+    @Value("${appointments.slot.close-hour:17}")
+    private int closeHour;
+
+    @Value("${appointments.slot.zone:Asia/Manila}")
+    private String zone;
+
+    public record SlotAvailability(String slotId, Date start, Date end, int capacity, int booked, int remaining) {
+    }
+
+    /**
+     * Book one place in the slot an appointment falls into. Returns null when
+     * the appointment has no slotted time of day to place it by.
+     *
+     * @throws SlotUnavailableException when the slot is full
+     */
+    public AppointmentSlot reserve(String bloodBankId, Date appointmentDate, String appointmentTime) {
+        ZonedDateTime start = slotStart(appointmentDate, appointmentTime);
+        if (start == null) {
+            log.debug("Appointment at {} {} for blood bank {} has no slotted time, not booking a slot",
+                    appointmentDate, appointmentTime, bloodBankId);
+            return null;
+        }
+        String slotId = slotId(bloodBankId, start);
+        AppointmentSlot slot = book(slotId);
+        if (slot == null) {
+            // Either the slot has no document yet or it is full; create it if missing and try once more
+            ensureSlot(bloodBankId, start);
+            slot = book(slotId);
+        }
+        if (slot == null) {
+            throw new SlotUnavailableException("The " + SLOT_LABEL.format(start)
+                    + " slot is fully booked, please choose another time", Date.from(start.toInstant()));
+        }
+        log.debug("Booked slot {} ({}/{})", slotId, slot.getBooked(), slot.getCapacity());
+        return slot;
+    }
+
+    /**
+     * Give back one place in a slot. Returns false if the slot had nothing booked.
+     */
+    public boolean release(String slotId) {
+        if (slotId == null) {
+            return false;
+        }
+        Query query = new Query(Criteria.where("id").is(slotId).and("booked").gt(0));
+        boolean released = mongoTemplate.updateFirst(query, new Update().inc("booked", -1).set("updatedAt", new Date()),
+                AppointmentSlot.class).getModifiedCount() > 0;
+        if (!released) {
+            log.warn("Slot {} had no booking to release", slotId);
+        }
+        return released;
+    }
+
+    /**
+     * Id of the slot an appointment falls into, or null when it has no slotted time of day.
+     */
+    public String slotIdFor(String bloodBankId, Date appointmentDate, String appointmentTime) {
+        ZonedDateTime start = slotStart(appointmentDate, appointmentTime);
+        return start != null ? slotId(bloodBankId, start) : null;
+    }
+
+    /**
+     * Slots of a bank between two days (inclusive) that start in the future and
+     * still have room. Slots without a document yet are reported with the
+     * default capacity.
+     */
+    public List<SlotAvailability> getOpenSlots(String bloodBankId, LocalDate from, LocalDate to) {
+        ZoneId zoneId = zoneId();
+        List<ZonedDateTime> grid = grid(bloodBankId, from, to, zoneId);
+        Map<String, AppointmentSlot> stored = new HashMap<>();
+        for (AppointmentSlot slot : appointmentSlotRepository.findByBloodBankIdAndSlotStartBetweenOrderBySlotStartAsc(
+                bloodBankId, Date.from(from.atStartOfDay(zoneId).toInstant()),
+                Date.from(to.plusDays(1).atStartOfDay(zoneId).toInstant()))) {
+            stored.put(slot.getId(), slot);
+        }
+
+        long now = System.currentTimeMillis();
+        List<SlotAvailability> open = new ArrayList<>();
+        for (ZonedDateTime start : grid) {
+            if (start.toInstant().toEpochMilli() <= now) {
+                continue;
+            }
+            String slotId = slotId(bloodBankId, start);
+            AppointmentSlot slot = stored.get(slotId);
+            int capacity = slot != null ? slot.getCapacity() : defaultCapacity;
+            int booked = slot != null ? slot.getBooked() : 0;
+            if (booked < capacity) {
+                open.add(new SlotAvailability(slotId, Date.from(start.toInstant()),
+                        Date.from(start.plusMinutes(slotMinutes).toInstant()), capacity, booked, capacity - booked));
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Set the capacity of every slot of a bank between two days (inclusive) with
+     * one unordered bulk of upserts. Lowering a capacity below what is already
+     * booked keeps the existing bookings and closes the slot to new ones.
+     */
+    public int setCapacity(String bloodBankId, LocalDate from, LocalDate to, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        List<ZonedDateTime> grid = grid(bloodBankId, from, to, zoneId());
+        if (grid.isEmpty()) {
+            return 0;
+        }
+        Date now = new Date();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AppointmentSlot.class);
+        for (ZonedDateTime start : grid) {
+            bulk.upsert(new Query(Criteria.where("id").is(slotId(bloodBankId, start))), new Update()
+                    .set("capacity", capacity)
+                    .set("updatedAt", now)
+                    .setOnInsert("bloodBankId", bloodBankId)
+                    .setOnInsert("slotStart", Date.from(start.toInstant()))
+                    .setOnInsert("slotEnd", Date.from(start.plusMinutes(slotMinutes).toInstant()))
+                    .setOnInsert("booked", 0));
+        }
+        bulk.execute();
+        log.info("Set capacity of {} slots of blood bank {} from {} to {} to {}", grid.size(), bloodBankId, from, to, capacity);
+        return grid.size();
+    }
+
+    private AppointmentSlot book(String slotId) {
+        Query query = new Query(Criteria.where("id").is(slotId)
+                .andOperator(Criteria.expr(ComparisonOperators.Lt.valueOf("booked").lessThan("capacity"))));
+        return mongoTemplate.findAndModify(query, new Update().inc("booked", 1).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true), AppointmentSlot.class);
+    }
+
+    private void ensureSlot(String bloodBankId, ZonedDateTime start) {
+        Query query = new Query(Criteria.where("id").is(slotId(bloodBankId, start)));
+        Update update = new Update()
+                .setOnInsert("bloodBankId", bloodBankId)
+                .setOnInsert("slotStart", Date.from(start.toInstant()))
+                .setOnInsert("slotEnd", Date.from(start.plusMinutes(slotMinutes).toInstant()))
+                .setOnInsert("capacity", defaultCapacity)
+                .setOnInsert("booked", 0)
+                .setOnInsert("updatedAt", new Date());
+        try {
+            mongoTemplate.upsert(query, update, AppointmentSlot.class);
+        } catch (DuplicateKeyException e) {
+            // Created concurrently by another booking
+        }
+    }
+
+    // Start of the slot containing the appointment, or null when it has no time of day within the slotted hours
+    private ZonedDateTime slotStart(Date appointmentDate, String appointmentTime) {
+        if (appointmentDate == null) {
+            throw new IllegalArgumentException("Appointment date is required");
+        }
+        ZonedDateTime at = appointmentDate.toInstant().atZone(zoneId());
+        if (appointmentTime != null && !appointmentTime.isBlank()) {
+            LocalTime time = parseTime(appointmentTime);
+            if (time == null) {
+                return null;
+            }
+            at = at.with(time);
+        } else if (isDateOnly(appointmentDate, at)) {
+            return null;
+        }
+        int minuteOfDay = at.getHour() * 60 + at.getMinute();
+        int slotMinute = minuteOfDay - minuteOfDay % slotMinutes;
+        if (slotMinute < openHour * 60 || slotMinute + slotMinutes > closeHour * 60) {
+            return null;
+        }
+        return at.truncatedTo(ChronoUnit.DAYS).plusMinutes(slotMinute);
+    }
+
+    private List<ZonedDateTime> grid(String bloodBankId, LocalDate from, LocalDate to, ZoneId zoneId) {
+        if (bloodBankId == null || bloodBankId.isBlank()) {
+            throw new IllegalArgumentException("Blood bank ID is required");
+        }
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("A from date on or before the to date is required");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("The date range cannot exceed " + MAX_RANGE_DAYS + " days");
+        }
+        List<ZonedDateTime> starts = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            ZonedDateTime midnight = day.atStartOfDay(zoneId);
+            for (int minute = openHour * 60; minute + slotMinutes <= closeHour * 60; minute += slotMinutes) {
+                starts.add(midnight.plusMinutes(minute));
+            }
+        }
+        return starts;
+    }
+
+    private ZoneId zoneId() {
+        return ZoneId.of(zone);
+    }
+
+    private static String slotId(String bloodBankId, ZonedDateTime start) {
+        if (bloodBankId == null || bloodBankId.isBlank()) {
+            throw new IllegalArgumentException("Blood bank ID is required");
+        }
+        return bloodBankId + "|" + start.toInstant();
+    }
+
+    // Reads "14:30", "2:30 PM", "2:30PM", "2 PM"; for ranges such as "9:00 AM - 10:00 AM" the start is used.
+    // Null for anything else.
+    private static LocalTime parseTime(String appointmentTime) {
+        String text = appointmentTime.split("-")[0].trim();
+        for (DateTimeFormatter format : TIME_FORMATS) {
+            try {
+                return LocalTime.parse(text, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    // Dates sent without a time arrive as midnight UTC or midnight in the bank's zone
+    private static boolean isDateOnly(Date appointmentDate, ZonedDateTime local) {
+        return LocalTime.MIDNIGHT.equals(local.toLocalTime())
+                || LocalTime.MIDNIGHT.equals(appointmentDate.toInstant().atZone(ZoneOffset.UTC).toLocalTime());
+    }
+
+    private static DateTimeFormatter caseInsensitive(String pattern) {
+        return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter(Locale.ENGLISH);
+    }
+}
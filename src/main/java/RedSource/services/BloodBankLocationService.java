@@ -0,0 +1,139 @@
+package RedSource.services;
+
+import RedSource.entities.BloodBankUser;
+import RedSource.repositories.BloodBankUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory spatial index of blood bank locations.
+ * Banks are bucketed into a fixed lat/lng grid, so a radius query only looks at
+ * the cells overlapping the search area. The index is rebuilt from
+ * users_bloodbank when it is older than REFRESH_MS.
+ */
+@Service
+@RequiredArgsConstructor
+public class BloodBankLocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BloodBankLocationService.class);
+    private static final double CELL_DEGREES = 0.25; // roughly 28 km at the equator
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final long REFRESH_MS = 5 * 60 * 1000L;
+
+    private final BloodBankUserRepository bloodBankUserRepository;
+
+    private volatile Index index;
+
+    public record BankLocation(String id, String name, String address, Double lat, Double lng) {
+        public boolean hasCoordinates() {
+            return lat != null && lng != null;
+        }
+    }
+
+    private record Index(List<BankLocation> banks, Map<Long, List<BankLocation>> cells, long loadedAt) {
+    }
+
+    public List<BankLocation> getAll() {
+        return current().banks();
+    }
+
+    /**
+     * Banks with coordinates within radiusKm of the given point.
+     */
+    public List<BankLocation> findWithin(double lat, double lng, double radiusKm) {
+        Index current = current();
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double lngSpan = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        int minRow = cell(lat - latSpan);
+        int maxRow = cell(lat + latSpan);
+        int minCol = cell(lng - lngSpan);
+        int maxCol = cell(lng + lngSpan);
+
+        List<BankLocation> result = new ArrayList<>();
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                List<BankLocation> banks = current.cells().get(cellKey(row, col));
+                if (banks == null) {
+                    continue;
+                }
+                for (BankLocation bank : banks) {
+                    if (distanceKm(lat, lng, bank.lat(), bank.lng()) <= radiusKm) {
+                        result.add(bank);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Force a reload on the next lookup, e.g. after a bank changed its address.
+     */
+    public void invalidate() {
+        index = null;
+    }
+
+    /**
+     * Great-circle distance in kilometres (haversine).
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private Index current() {
+        Index current = index;
+        if (current != null && System.currentTimeMillis() - current.loadedAt() < REFRESH_MS) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null || System.currentTimeMillis() - index.loadedAt() >= REFRESH_MS) {
+                index = load(index);
+            }
+            return index;
+        }
+    }
+
+    private Index load(Index previous) {
+        try {
+            List<BankLocation> banks = new ArrayList<>();
+            Map<Long, List<BankLocation>> cells = new HashMap<>();
+            for (BloodBankUser bank : bloodBankUserRepository.findAll()) {
+                BloodBankUser.Coordinates coordinates = bank.getCoordinates();
+                BankLocation location = new BankLocation(bank.getId(), bank.getBloodBankName(), bank.getAddress(),
+                        coordinates != null ? coordinates.getLat() : null,
+                        coordinates != null ? coordinates.getLng() : null);
+                banks.add(location);
+                if (location.hasCoordinates()) {
+                    cells.computeIfAbsent(cellKey(cell(location.lat()), cell(location.lng())), k -> new ArrayList<>()).add(location);
+                }
+            }
+            log.debug("Blood bank location index loaded with {} banks", banks.size());
+            return new Index(Collections.unmodifiableList(banks), cells, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Could not load blood bank locations: {}", e.getMessage());
+            // Keep serving the old index if there is one, and retry on the next lookup
+            return previous != null ? previous : new Index(List.of(), Map.of(), 0);
+        }
+    }
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
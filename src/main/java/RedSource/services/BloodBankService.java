@@ -3,14 +3,18 @@ package RedSource.services;
 import RedSource.entities.BloodBankUser;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.BloodBankUserRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
@@ -19,6 +23,8 @@ public class BloodBankService {
 
     private static final Logger log = LoggerFactory.getLogger(BloodBankService.class);
     private final BloodBankUserRepository bloodBankRepository;
+    private final OptimisticUpdateService optimisticUpdateService;
+    private final BloodBankLocationService bloodBankLocationService;
 
     public List<BloodBankUser> getAll() {
         try {
@@ -45,11 +51,33 @@ public class BloodBankService {
         }
     }
 
+    /**
+     * Load several blood banks with a single $in query, keyed by id.
+     * Ids that do not exist are simply absent from the map.
+     */
+    public Map<String, BloodBankUser> getByIds(Collection<String> ids) {
+        try {
+            Map<String, BloodBankUser> bloodBanks = new HashMap<>();
+            if (ids == null || ids.isEmpty()) {
+                return bloodBanks;
+            }
+            for (BloodBankUser bloodBank : bloodBankRepository.findAllById(ids)) {
+                bloodBanks.put(bloodBank.getId(), bloodBank);
+            }
+            return bloodBanks;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError("Blood Banks");
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public BloodBankUser save(BloodBankUser bloodBank) {
         try {
             bloodBank.setCreatedAt(new Date());
             bloodBank.setUpdatedAt(new Date());
             BloodBankUser savedBloodBank = bloodBankRepository.save(bloodBank);
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.saveSuccess("Blood Bank"));
             return savedBloodBank;
         } catch (Exception e) {
@@ -61,18 +89,16 @@ public class BloodBankService {
 
     public BloodBankUser update(String id, BloodBankUser bloodBank) {
         try {
-            BloodBankUser existingBloodBank = getById(id);
-            if (existingBloodBank == null) {
-                throw new ServiceException("Blood Bank not found", new RuntimeException("Blood Bank not found"));
-            }
-
             bloodBank.setId(id);
-            bloodBank.setCreatedAt(existingBloodBank.getCreatedAt());
+            bloodBank.setCreatedAt(null); // keep the stored creation date
             bloodBank.setUpdatedAt(new Date());
-            BloodBankUser updatedBloodBank = bloodBankRepository.save(bloodBank);
+            BloodBankUser updatedBloodBank = (bloodBank.getVersion() != null
+                    ? optimisticUpdateService.update(id, bloodBank, bloodBank.getVersion(), BloodBankUser.class)
+                    : optimisticUpdateService.updateLatest(id, bloodBank, BloodBankUser.class)).current();
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.updateSuccess("Blood Bank"));
             return updatedBloodBank;
-        } catch (ServiceException e) {
+        } catch (ServiceException | VersionConflictException e) {
             throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError("Blood Bank");
@@ -84,6 +110,7 @@ public class BloodBankService {
     public void delete(String id) {
         try {
             bloodBankRepository.deleteById(id);
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.deleteSuccess("Blood Bank"));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError("Blood Bank");
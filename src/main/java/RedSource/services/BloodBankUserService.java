@@ -3,6 +3,7 @@ package RedSource.services;
 import RedSource.entities.BloodBankUser;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.BloodBankUserRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -19,6 +20,8 @@ public class BloodBankUserService {
 
     private static final Logger log = LoggerFactory.getLogger(BloodBankUserService.class);
     private final BloodBankUserRepository bloodBankUserRepository;
+    private final OptimisticUpdateService optimisticUpdateService;
+    private final BloodBankLocationService bloodBankLocationService;
 
     public List<BloodBankUser> getAll() {
         try {
@@ -68,6 +71,7 @@ public class BloodBankUserService {
             bloodBankUser.setUpdatedAt(new Date());
             
             BloodBankUser savedBloodBankUser = bloodBankUserRepository.save(bloodBankUser);
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.saveSuccess("Blood Bank User"));
             return savedBloodBankUser;
         } catch (Exception e) {
@@ -77,38 +81,30 @@ public class BloodBankUserService {
         }
     }
 
+    /**
+     * Version-checked update of the editable profile fields. Null fields are left
+     * unchanged; a stale version results in a VersionConflictException (HTTP 409).
+     */
     public BloodBankUser update(String id, BloodBankUser bloodBankUser) {
         try {
-            BloodBankUser existingBloodBankUser = getById(id);
-            if (Objects.isNull(existingBloodBankUser)) {
-                throw new ServiceException("Blood Bank User not found");
-            }
-
-            // Update fields
-            if (Objects.nonNull(bloodBankUser.getBloodBankName())) {
-                existingBloodBankUser.setBloodBankName(bloodBankUser.getBloodBankName());
-            }
-            if (Objects.nonNull(bloodBankUser.getEmail())) {
-                existingBloodBankUser.setEmail(bloodBankUser.getEmail());
-            }
-            if (Objects.nonNull(bloodBankUser.getPhone())) {
-                existingBloodBankUser.setPhone(bloodBankUser.getPhone());
-            }
-            if (Objects.nonNull(bloodBankUser.getAddress())) {
-                existingBloodBankUser.setAddress(bloodBankUser.getAddress());
-            }
-            if (Objects.nonNull(bloodBankUser.getOperatingHours())) {
-                existingBloodBankUser.setOperatingHours(bloodBankUser.getOperatingHours());
-            }
-            if (Objects.nonNull(bloodBankUser.getProfilePhotoUrl())) {
-                existingBloodBankUser.setProfilePhotoUrl(bloodBankUser.getProfilePhotoUrl());
-            }
+            // Only these fields are editable through this method
+            BloodBankUser changes = new BloodBankUser();
+            changes.setBloodBankName(bloodBankUser.getBloodBankName());
+            changes.setEmail(bloodBankUser.getEmail());
+            changes.setPhone(bloodBankUser.getPhone());
+            changes.setAddress(bloodBankUser.getAddress());
+            changes.setOperatingHours(bloodBankUser.getOperatingHours());
+            changes.setProfilePhotoUrl(bloodBankUser.getProfilePhotoUrl());
+            changes.setUpdatedAt(new Date());
 
-            existingBloodBankUser.setUpdatedAt(new Date());
-            
-            BloodBankUser updatedBloodBankUser = bloodBankUserRepository.save(existingBloodBankUser);
+            BloodBankUser updatedBloodBankUser = (bloodBankUser.getVersion() != null
+                    ? optimisticUpdateService.update(id, changes, bloodBankUser.getVersion(), BloodBankUser.class)
+                    : optimisticUpdateService.updateLatest(id, changes, BloodBankUser.class)).current();
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.updateSuccess("Blood Bank User"));
             return updatedBloodBankUser;
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError("Blood Bank User");
             log.error(errorMessage, e);
@@ -144,6 +140,7 @@ public class BloodBankUserService {
             }
             
             bloodBankUserRepository.deleteById(id);
+            bloodBankLocationService.invalidate();
             log.info(MessageUtils.deleteSuccess("Blood Bank User"));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError("Blood Bank User");
@@ -1,12 +1,21 @@
 package RedSource.services;
 
 import RedSource.entities.BloodInventory;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.BloodInventoryRepository;
+import RedSource.entities.VersionedDocument;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
@@ -19,6 +28,11 @@ public class BloodInventoryService {
 
     private static final Logger log = LoggerFactory.getLogger(BloodInventoryService.class);
     private final BloodInventoryRepository bloodInventoryRepository;
+    private final PaginationService paginationService;
+    private final InventoryIndexService inventoryIndexService;
+    private final ConsumptionForecastService consumptionForecastService;
+    private final OptimisticUpdateService optimisticUpdateService;
+    private final MongoTemplate mongoTemplate;
 
     public List<BloodInventory> getAll() {
         try {
@@ -44,6 +58,22 @@ public class BloodInventoryService {
         }
     }
 
+    // Retrieve one keyset page of blood inventories, newest first, optionally filtered by status and blood bank
+    public KeysetPage<BloodInventory> getPage(String cursor, Integer limit, String status, String bloodBankId) {
+        try {
+            KeysetPage<BloodInventory> page = paginationService.findPage(BloodInventory.class,
+                    PaginationService.filter("status", status, "bloodBankId", bloodBankId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess("Blood Inventories"));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError("Blood Inventories");
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public BloodInventory getById(String id) {
         try {
             if (Objects.isNull(id)) {
@@ -62,6 +92,7 @@ public class BloodInventoryService {
             bloodInventory.setCreatedAt(new Date());
             bloodInventory.setUpdatedAt(new Date());
             BloodInventory savedBloodInventory = bloodInventoryRepository.save(bloodInventory);
+            inventoryIndexService.recordChange(null, savedBloodInventory);
             log.info(MessageUtils.saveSuccess("Blood Inventory"));
             return savedBloodInventory;
         } catch (Exception e) {
@@ -71,31 +102,41 @@ public class BloodInventoryService {
         }
     }
 
+    /**
+     * Version-checked update. Only the fields present in bloodInventory are written;
+     * a stale version results in a VersionConflictException (HTTP 409).
+     */
     public BloodInventory update(String id, BloodInventory bloodInventory) {
         try {
-            BloodInventory existingBloodInventory = getById(id);
-            if (existingBloodInventory == null) {
-                throw new ServiceException("Blood Inventory not found");
-            }
-            
-            // Auto-update status based on quantity changes
-            int oldQuantity = existingBloodInventory.getQuantity() != null ? existingBloodInventory.getQuantity() : 0;
-            int newQuantity = bloodInventory.getQuantity() != null ? bloodInventory.getQuantity() : 0;
-            
-            if (oldQuantity == 0 && newQuantity > 0) {
-                bloodInventory.setStatus("Available");
-                log.info("Inventory status automatically updated to Available (quantity changed from 0 to " + newQuantity + ")");
-            } else if (oldQuantity > 0 && newQuantity == 0) {
+            // An empty lot can never be available
+            if (bloodInventory.getQuantity() != null && bloodInventory.getQuantity() == 0) {
                 bloodInventory.setStatus("Unavailable");
-                log.info("Inventory status automatically updated to Unavailable (quantity changed from " + oldQuantity + " to 0)");
             }
-            
+
             bloodInventory.setId(id);
-            bloodInventory.setCreatedAt(existingBloodInventory.getCreatedAt());
+            bloodInventory.setCreatedAt(null); // keep the stored creation date
             bloodInventory.setUpdatedAt(new Date());
-            BloodInventory updatedBloodInventory = bloodInventoryRepository.save(bloodInventory);
+            OptimisticUpdateService.VersionedUpdate<BloodInventory> result = bloodInventory.getVersion() != null
+                    ? optimisticUpdateService.update(id, bloodInventory, bloodInventory.getVersion(), BloodInventory.class)
+                    : optimisticUpdateService.updateLatest(id, bloodInventory, BloodInventory.class);
+
+            BloodInventory existingBloodInventory = result.previous();
+            BloodInventory updatedBloodInventory = result.current();
+
+            // Auto-update status when a depleted lot is restocked
+            int oldQuantity = existingBloodInventory.getQuantity() != null ? existingBloodInventory.getQuantity() : 0;
+            int newQuantity = updatedBloodInventory.getQuantity() != null ? updatedBloodInventory.getQuantity() : 0;
+            if (oldQuantity == 0 && newQuantity > 0 && !"Available".equals(updatedBloodInventory.getStatus())) {
+                updatedBloodInventory = optimisticUpdateService.retryWithMerge(id, BloodInventory.class,
+                        current -> current.setStatus("Available")).current();
+                log.info("Inventory status automatically updated to Available (quantity changed from 0 to " + newQuantity + ")");
+            }
+
+            inventoryIndexService.recordChange(existingBloodInventory, updatedBloodInventory);
             log.info(MessageUtils.updateSuccess("Blood Inventory"));
             return updatedBloodInventory;
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError("Blood Inventory");
             log.error(errorMessage, e);
@@ -160,24 +201,32 @@ public class BloodInventoryService {
             for (BloodInventory inventory : availableInventories) {
                 if (remainingUnits <= 0) break;
                 
-                int currentQuantity = inventory.getQuantity() != null ? inventory.getQuantity() : 0;
-                int unitsToDecrease = Math.min(remainingUnits, currentQuantity);
-                
-                int newQuantity = currentQuantity - unitsToDecrease;
-                inventory.setQuantity(newQuantity);
-                
-                // Mark as Unavailable if quantity reaches 0
-                if (newQuantity == 0) {
-                    inventory.setStatus("Unavailable");
+                // Re-apply the decrement on the latest quantity if the lot changed concurrently
+                final int requested = remainingUnits;
+                int[] decreased = new int[1];
+                BloodInventory updated = optimisticUpdateService.retryWithMerge(inventory.getId(), BloodInventory.class, current -> {
+                    int currentQuantity = current.getQuantity() != null ? current.getQuantity() : 0;
+                    decreased[0] = "Available".equals(current.getStatus()) ? Math.min(requested, currentQuantity) : 0;
+                    int newQuantity = currentQuantity - decreased[0];
+                    current.setQuantity(newQuantity);
+
+                    // Mark as Unavailable if quantity reaches 0
+                    if (newQuantity == 0) {
+                        current.setStatus("Unavailable");
+                    }
+                    current.setUpdatedAt(new Date());
+                }).current();
+                int unitsToDecrease = decreased[0];
+                if ("Unavailable".equals(updated.getStatus()) && unitsToDecrease > 0) {
                     log.info("Inventory for " + bloodTypeId + " marked as Unavailable (0 units)");
                 }
-                
-                inventory.setUpdatedAt(new Date());
-                bloodInventoryRepository.save(inventory);
+                inventoryIndexService.applyDelta(bloodBankId, bloodTypeId, -unitsToDecrease);
                 
                 remainingUnits -= unitsToDecrease;
                 log.info("Decreased inventory for " + bloodTypeId + " by " + unitsToDecrease + " units (remaining: " + remainingUnits + ")");
             }
+
+            consumptionForecastService.recordIssued(bloodBankId, bloodTypeId, units - remainingUnits);
             
         } catch (Exception e) {
             log.error("Error decreasing blood inventory: " + e.getMessage(), e);
@@ -185,6 +234,51 @@ public class BloodInventoryService {
         }
     }
 
+    /**
+     * Take units of one blood type out of a bank's available lots, largest lots
+     * first, with conditional decrements so a lot never goes below zero. Returns
+     * the units actually taken.
+     * <p>
+     * Meant to run inside a transaction: the inventory index and forecast are not
+     * touched here, the caller applies the returned count once committed.
+     */
+    public int issueUnits(String bloodBankId, String bloodTypeId, int units) {
+        Query lots = new Query(Criteria.where("bloodBankId").is(bloodBankId)
+                .and("bloodTypeId").is(bloodTypeId)
+                .and("status").is("Available")
+                .and("quantity").gt(0))
+                .with(Sort.by(Sort.Direction.DESC, "quantity"));
+        lots.fields().include("id", "quantity");
+
+        int remaining = units;
+        for (BloodInventory lot : mongoTemplate.find(lots, BloodInventory.class)) {
+            if (remaining <= 0) {
+                break;
+            }
+            int take = Math.min(remaining, lot.getQuantity());
+            BloodInventory updated = mongoTemplate.findAndModify(
+                    new Query(Criteria.where("id").is(lot.getId()).and("status").is("Available").and("quantity").gte(take)),
+                    new Update().inc("quantity", -take).set("updatedAt", new Date()).inc(VersionedDocument.VERSION_FIELD, 1),
+                    FindAndModifyOptions.options().returnNew(true), BloodInventory.class);
+            if (updated == null) {
+                continue; // changed since it was read, try the next lot
+            }
+            if (updated.getQuantity() != null && updated.getQuantity() == 0) {
+                // Versioned like the decrement so an edit based on the emptied lot is refused
+                mongoTemplate.updateFirst(new Query(Criteria.where("id").is(lot.getId())
+                                .and("status").is("Available").and("quantity").is(0)),
+                        new Update().set("status", "Unavailable").inc(VersionedDocument.VERSION_FIELD, 1),
+                        BloodInventory.class);
+            }
+            remaining -= take;
+        }
+        if (remaining > 0) {
+            log.warn("Insufficient units for blood type {} at blood bank {}. Requested: {}, issued: {}",
+                    bloodTypeId, bloodBankId, units, units - remaining);
+        }
+        return units - remaining;
+    }
+
     public void delete(String id) {
         try {
             BloodInventory bloodInventory = getById(id);
@@ -192,6 +286,7 @@ public class BloodInventoryService {
                 throw new ServiceException("Blood Inventory not found");
             }
             bloodInventoryRepository.deleteById(id);
+            inventoryIndexService.recordChange(bloodInventory, null);
             log.info(MessageUtils.deleteSuccess("Blood Inventory"));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError("Blood Inventory");
@@ -0,0 +1,184 @@
+package RedSource.services;
+
+import RedSource.entities.ConsumptionForecast;
+import RedSource.entities.enums.BloodType;
+import RedSource.repositories.ConsumptionForecastRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incremental consumption forecasting per blood bank and blood type.
+ * Each issue of units updates an exponentially weighted moving average of daily
+ * consumption, so days of cover can be projected without scanning history.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConsumptionForecastService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumptionForecastService.class);
+    private static final double ALPHA = 0.3; // weight of the most recent full day
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private final ConsumptionForecastRepository consumptionForecastRepository;
+    private final InventoryIndexService inventoryIndexService;
+
+    private final Map<String, ConsumptionForecast> states = new ConcurrentHashMap<>();
+    private final Set<String> loadedBanks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Record units issued (used, delivered or redeemed) from a blood bank.
+     * Never throws; forecasting must not break the operation that issued the units.
+     */
+    public void recordIssued(String bloodBankId, String bloodType, int units) {
+        if (bloodBankId == null || bloodType == null || units <= 0) {
+            return;
+        }
+        try {
+            ConsumptionForecast state = stateFor(bloodBankId, bloodType);
+            synchronized (state) {
+                rollTo(state, today());
+                state.setUnitsToday(state.getUnitsToday() + units);
+                state.setUpdatedAt(new Date());
+                consumptionForecastRepository.save(state);
+            }
+        } catch (Exception e) {
+            log.warn("Could not record consumption for {} at blood bank {}: {}", bloodType, bloodBankId, e.getMessage());
+        }
+    }
+
+    /**
+     * Forecast for every blood type at a blood bank.
+     */
+    public List<Map<String, Object>> getForecast(String bloodBankId) {
+        loadBank(bloodBankId);
+        Set<String> bloodTypes = new LinkedHashSet<>();
+        for (BloodType type : BloodType.values()) {
+            bloodTypes.add(type.getValue());
+        }
+        states.values().stream()
+                .filter(state -> bloodBankId.equals(state.getBloodBankId()))
+                .forEach(state -> bloodTypes.add(state.getBloodType()));
+
+        List<Map<String, Object>> forecasts = new ArrayList<>();
+        for (String bloodType : bloodTypes) {
+            forecasts.add(getForecast(bloodBankId, bloodType));
+        }
+        return forecasts;
+    }
+
+    public Map<String, Object> getForecast(String bloodBankId, String bloodType) {
+        loadBank(bloodBankId);
+        ConsumptionForecast state = states.get(key(bloodBankId, bloodType));
+        double dailyUnits = 0;
+        int daysObserved = 0;
+        if (state != null) {
+            synchronized (state) {
+                dailyUnits = projectedDailyUnits(state, today());
+                daysObserved = state.getDaysObserved();
+            }
+        }
+        int availableUnits = inventoryIndexService.getUnits(bloodBankId, bloodType);
+
+        Map<String, Object> forecast = new LinkedHashMap<>();
+        forecast.put("bloodBankId", bloodBankId);
+        forecast.put("bloodType", bloodType);
+        forecast.put("availableUnits", availableUnits);
+        forecast.put("dailyConsumption", Math.round(dailyUnits * 100) / 100.0);
+        forecast.put("daysObserved", daysObserved);
+        if (dailyUnits > 0) {
+            double daysOfCover = availableUnits / dailyUnits;
+            forecast.put("daysOfCover", Math.round(daysOfCover * 10) / 10.0);
+            forecast.put("projectedStockOutDate", new Date(System.currentTimeMillis() + (long) (daysOfCover * DAY_MS)));
+        } else {
+            // No recorded consumption, stock is not projected to run out
+            forecast.put("daysOfCover", null);
+            forecast.put("projectedStockOutDate", null);
+        }
+        return forecast;
+    }
+
+    /**
+     * Fold completed days into the moving average. Days without any issue count as zero usage.
+     */
+    private static void rollTo(ConsumptionForecast state, long day) {
+        if (state.getCurrentDay() == 0) {
+            state.setCurrentDay(day);
+            return;
+        }
+        if (day <= state.getCurrentDay()) {
+            return;
+        }
+        double ewma = state.getDaysObserved() == 0
+                ? state.getUnitsToday()
+                : ALPHA * state.getUnitsToday() + (1 - ALPHA) * state.getEwmaDailyUnits();
+        long emptyDays = day - state.getCurrentDay() - 1;
+        ewma *= Math.pow(1 - ALPHA, emptyDays);
+
+        state.setEwmaDailyUnits(ewma);
+        state.setDaysObserved(state.getDaysObserved() + 1 + (int) Math.min(emptyDays, Integer.MAX_VALUE - 1));
+        state.setUnitsToday(0);
+        state.setCurrentDay(day);
+    }
+
+    /**
+     * Daily rate as of the given day without mutating the stored state.
+     * Falls back to today's partial total while there is no full day of history.
+     */
+    private static double projectedDailyUnits(ConsumptionForecast state, long day) {
+        if (state.getDaysObserved() == 0 && day <= state.getCurrentDay()) {
+            return state.getUnitsToday();
+        }
+        ConsumptionForecast copy = ConsumptionForecast.builder()
+                .ewmaDailyUnits(state.getEwmaDailyUnits())
+                .currentDay(state.getCurrentDay())
+                .unitsToday(state.getUnitsToday())
+                .daysObserved(state.getDaysObserved())
+                .build();
+        rollTo(copy, day);
+        return copy.getEwmaDailyUnits();
+    }
+
+    private ConsumptionForecast stateFor(String bloodBankId, String bloodType) {
+        loadBank(bloodBankId);
+        return states.computeIfAbsent(key(bloodBankId, bloodType), id -> ConsumptionForecast.builder()
+                .id(id)
+                .bloodBankId(bloodBankId)
+                .bloodType(bloodType)
+                .build());
+    }
+
+    private void loadBank(String bloodBankId) {
+        if (loadedBanks.contains(bloodBankId)) {
+            return;
+        }
+        synchronized (loadedBanks) {
+            if (loadedBanks.contains(bloodBankId)) {
+                return;
+            }
+            for (ConsumptionForecast state : consumptionForecastRepository.findByBloodBankId(bloodBankId)) {
+                states.putIfAbsent(state.getId(), state);
+            }
+            loadedBanks.add(bloodBankId);
+        }
+    }
+
+    private static String key(String bloodBankId, String bloodType) {
+        return bloodBankId + ":" + bloodType;
+    }
+
+    private static long today() {
+        return LocalDate.now().toEpochDay();
+    }
+}
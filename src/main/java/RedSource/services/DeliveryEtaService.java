@@ -0,0 +1,342 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.DeliveryLaneEstimate;
+import RedSource.entities.enums.DeliveryStatus;
+import RedSource.repositories.DeliveryLaneEstimateRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Delivery ETAs learned from completed deliveries.
+ * <p>
+ * Each completion adds its duration (scheduled to delivered) to a streaming
+ * quantile sketch for its lane, its blood bank and the whole network, and
+ * refreshes their p50/p90. A lookup is a map read: the lane sketch is used once
+ * it has MIN_SAMPLES, otherwise the bank's and then the network's.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryEtaService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryEtaService.class);
+    private static final String ANY = "*";
+    private static final int MIN_SAMPLES = 5;
+
+    // Bucket i holds durations in [MIN_MINUTES * GROWTH^i, MIN_MINUTES * GROWTH^(i+1))
+    private static final double MIN_MINUTES = 1;
+    private static final double GROWTH = 1.1; // at most 5% relative error
+    private static final double MAX_MINUTES = 30 * 24 * 60;
+    private static final int BUCKETS = (int) Math.ceil(Math.log(MAX_MINUTES / MIN_MINUTES) / Math.log(GROWTH)) + 1;
+
+    private final DeliveryLaneEstimateRepository laneEstimateRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final Map<String, DeliveryLaneEstimate> sketches = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    // Recording holds the read lock; rebuild takes the write lock to swap in the fresh sketches
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    // Completions that arrive while a rebuild is streaming, keyed by delivery id
+    private Map<String, Delivery> recordedDuringRebuild;
+
+    /**
+     * Learn from a completed delivery. Never throws; estimating must not break
+     * the status change that completed the delivery.
+     */
+    public void recordCompletion(Delivery delivery) {
+        Double minutes = durationMinutes(delivery);
+        if (minutes == null || delivery.getBloodBankId() == null) {
+            return;
+        }
+        try {
+            ensureLoaded();
+            rebuildLock.readLock().lock();
+            try {
+                if (recordedDuringRebuild != null) {
+                    recordedDuringRebuild.put(delivery.getId(), delivery);
+                    return;
+                }
+                String bank = delivery.getBloodBankId();
+                if (delivery.getHospitalId() != null) {
+                    record(laneKey(bank, delivery.getHospitalId()), bank, delivery.getHospitalId(), minutes);
+                }
+                record(laneKey(bank, ANY), bank, null, minutes);
+                record(ANY, null, null, minutes);
+            } finally {
+                rebuildLock.readLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("Could not record delivery duration for delivery {}: {}", delivery.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * p50/p90 delivery time for a lane, falling back to the bank and then the
+     * network while the lane has too little history.
+     */
+    public Map<String, Object> estimate(String bloodBankId, String hospitalId) {
+        ensureLoaded();
+        String scope = "lane";
+        DeliveryLaneEstimate sketch = hospitalId != null ? sketches.get(laneKey(bloodBankId, hospitalId)) : null;
+        if (sketch == null || sketch.getSamples() < MIN_SAMPLES) {
+            scope = "bloodBank";
+            sketch = sketches.get(laneKey(bloodBankId, ANY));
+        }
+        if (sketch == null || sketch.getSamples() < MIN_SAMPLES) {
+            scope = "network";
+            sketch = sketches.get(ANY);
+        }
+
+        Map<String, Object> estimate = new LinkedHashMap<>();
+        estimate.put("bloodBankId", bloodBankId);
+        estimate.put("hospitalId", hospitalId);
+        if (sketch == null || sketch.getSamples() == 0) {
+            estimate.put("scope", null);
+            estimate.put("samples", 0);
+            estimate.put("p50Minutes", null);
+            estimate.put("p90Minutes", null);
+            return estimate;
+        }
+        synchronized (sketch) {
+            estimate.put("scope", scope);
+            estimate.put("samples", sketch.getSamples());
+            estimate.put("p50Minutes", Math.round(sketch.getP50Minutes()));
+            estimate.put("p90Minutes", Math.round(sketch.getP90Minutes()));
+        }
+        return estimate;
+    }
+
+    /**
+     * Human-readable median ETA, e.g. "about 2h 15m", or null without history.
+     */
+    public String describe(String bloodBankId, String hospitalId) {
+        Object p50 = estimate(bloodBankId, hospitalId).get("p50Minutes");
+        if (!(p50 instanceof Long minutes)) {
+            return null;
+        }
+        return minutes >= 60 ? "about " + (minutes / 60) + "h " + (minutes % 60) + "m" : "about " + minutes + "m";
+    }
+
+    /**
+     * Seed the sketches from all completed deliveries. Only needed once, for
+     * history recorded before the estimator existed.
+     * <p>
+     * Completions recorded while the history is streamed are held back and
+     * folded in afterwards unless the stream already counted them. The fresh
+     * sketches are upserted by id and stale ones deleted under the write lock,
+     * so the stored sketches are never empty and no completion is lost.
+     */
+    public synchronized Map<String, Object> rebuild() {
+        rebuildLock.writeLock().lock();
+        recordedDuringRebuild = new ConcurrentHashMap<>();
+        rebuildLock.writeLock().unlock();
+
+        Map<String, DeliveryLaneEstimate> fresh = new ConcurrentHashMap<>();
+        Set<String> streamed = new HashSet<>();
+        long[] used = new long[2];
+        boolean swapped = false;
+        try {
+            Query query = new Query(Criteria.where("status").is(DeliveryStatus.COMPLETE.getValue())
+                    .and("deliveredDate").ne(null));
+            query.fields().include("id", "bloodBankId", "hospitalId", "scheduledDate", "deliveredDate");
+            try (Stream<Delivery> deliveries = mongoTemplate.stream(query, Delivery.class)) {
+                deliveries.forEach(delivery -> {
+                    used[0]++;
+                    streamed.add(delivery.getId());
+                    if (addCompletion(fresh, delivery)) {
+                        used[1]++;
+                    }
+                });
+            }
+
+            rebuildLock.writeLock().lock();
+            try {
+                for (Delivery delivery : recordedDuringRebuild.values()) {
+                    if (!streamed.contains(delivery.getId()) && addCompletion(fresh, delivery)) {
+                        used[1]++;
+                    }
+                }
+                Date now = new Date();
+                for (DeliveryLaneEstimate sketch : fresh.values()) {
+                    refreshQuantiles(sketch);
+                    sketch.setUpdatedAt(now);
+                }
+                laneEstimateRepository.saveAll(fresh.values());
+                mongoTemplate.remove(new Query(Criteria.where("id").nin(fresh.keySet())), DeliveryLaneEstimate.class);
+                sketches.clear();
+                sketches.putAll(fresh);
+                loaded = true;
+                recordedDuringRebuild = null;
+                swapped = true;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+        } finally {
+            if (!swapped) {
+                // Rebuild failed: apply the held-back completions to the live sketches
+                Map<String, Delivery> held;
+                rebuildLock.writeLock().lock();
+                held = recordedDuringRebuild;
+                recordedDuringRebuild = null;
+                rebuildLock.writeLock().unlock();
+                if (held != null) {
+                    held.values().forEach(this::recordCompletion);
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("completedDeliveries", used[0]);
+        result.put("usedDeliveries", used[1]);
+        result.put("sketches", fresh.size());
+        log.info("Rebuilt delivery ETA sketches from {} completed deliveries", used[1]);
+        return result;
+    }
+
+    /**
+     * Count the duration in memory, then in the stored sketch with $inc outside
+     * the sketch's monitor, so instances recording the same lane add up instead
+     * of overwriting each other. The stored p50/p90 are informational; they are
+     * recomputed from the counts on load.
+     */
+    private void record(String key, String bloodBankId, String hospitalId, double minutes) {
+        int bucket = bucket(minutes);
+        DeliveryLaneEstimate sketch = sketches.computeIfAbsent(key, k -> newSketch(k, bloodBankId, hospitalId));
+        Update update = new Update().inc("bucketCounts." + bucket, 1).inc("samples", 1);
+        synchronized (sketch) {
+            sketch.getBucketCounts()[bucket]++;
+            sketch.setSamples(sketch.getSamples() + 1);
+            refreshQuantiles(sketch);
+            sketch.setUpdatedAt(new Date());
+            update.set("p50Minutes", sketch.getP50Minutes())
+                    .set("p90Minutes", sketch.getP90Minutes())
+                    .set("updatedAt", sketch.getUpdatedAt());
+        }
+
+        Query query = new Query(Criteria.where("id").is(key));
+        if (mongoTemplate.updateFirst(query, update, DeliveryLaneEstimate.class).getMatchedCount() == 0) {
+            // First duration of this sketch: create the empty counts, then count it
+            mongoTemplate.upsert(query, new Update()
+                    .setOnInsert("bloodBankId", bloodBankId)
+                    .setOnInsert("hospitalId", hospitalId)
+                    .setOnInsert("bucketCounts", new int[BUCKETS])
+                    .setOnInsert("samples", 0L), DeliveryLaneEstimate.class);
+            mongoTemplate.updateFirst(query, update, DeliveryLaneEstimate.class);
+        }
+    }
+
+    private static boolean addCompletion(Map<String, DeliveryLaneEstimate> target, Delivery delivery) {
+        Double minutes = durationMinutes(delivery);
+        if (minutes == null || delivery.getBloodBankId() == null) {
+            return false;
+        }
+        String bank = delivery.getBloodBankId();
+        if (delivery.getHospitalId() != null) {
+            add(target, laneKey(bank, delivery.getHospitalId()), bank, delivery.getHospitalId(), minutes);
+        }
+        add(target, laneKey(bank, ANY), bank, null, minutes);
+        add(target, ANY, null, null, minutes);
+        return true;
+    }
+
+    private static void add(Map<String, DeliveryLaneEstimate> target, String key, String bloodBankId, String hospitalId,
+                            double minutes) {
+        DeliveryLaneEstimate sketch = target.computeIfAbsent(key, k -> newSketch(k, bloodBankId, hospitalId));
+        sketch.getBucketCounts()[bucket(minutes)]++;
+        sketch.setSamples(sketch.getSamples() + 1);
+    }
+
+    private static DeliveryLaneEstimate newSketch(String key, String bloodBankId, String hospitalId) {
+        return DeliveryLaneEstimate.builder()
+                .id(key)
+                .bloodBankId(bloodBankId)
+                .hospitalId(hospitalId)
+                .bucketCounts(new int[BUCKETS])
+                .build();
+    }
+
+    private static void refreshQuantiles(DeliveryLaneEstimate sketch) {
+        sketch.setP50Minutes(quantile(sketch, 0.5));
+        sketch.setP90Minutes(quantile(sketch, 0.9));
+    }
+
+    /**
+     * Quantile from the bucket counts, interpolated geometrically inside the bucket.
+     */
+    private static double quantile(DeliveryLaneEstimate sketch, double q) {
+        int[] counts = sketch.getBucketCounts();
+        double rank = q * sketch.getSamples();
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= rank) {
+                double fraction = (rank - seen) / counts[i];
+                return MIN_MINUTES * Math.pow(GROWTH, i + fraction);
+            }
+            seen += counts[i];
+        }
+        return MAX_MINUTES;
+    }
+
+    private static int bucket(double minutes) {
+        if (minutes <= MIN_MINUTES) {
+            return 0;
+        }
+        int index = (int) (Math.log(minutes / MIN_MINUTES) / Math.log(GROWTH));
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    private static Double durationMinutes(Delivery delivery) {
+        if (delivery.getScheduledDate() == null || delivery.getDeliveredDate() == null) {
+            return null;
+        }
+        double minutes = (delivery.getDeliveredDate().getTime() - delivery.getScheduledDate().getTime()) / 60000.0;
+        return minutes >= 0 ? minutes : null;
+    }
+
+    private static String laneKey(String bloodBankId, String hospitalId) {
+        return bloodBankId + ":" + hospitalId;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            try {
+                List<DeliveryLaneEstimate> stored = laneEstimateRepository.findAll();
+                for (DeliveryLaneEstimate sketch : stored) {
+                    if (sketch.getBucketCounts() == null || sketch.getBucketCounts().length != BUCKETS) {
+                        continue; // bucket layout changed, rebuild() restores it
+                    }
+                    refreshQuantiles(sketch);
+                    sketches.putIfAbsent(sketch.getId(), sketch);
+                }
+                loaded = true;
+            } catch (Exception e) {
+                log.warn("Could not load delivery ETA sketches: {}", e.getMessage());
+            }
+        }
+    }
+}
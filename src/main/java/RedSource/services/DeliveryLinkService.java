@@ -0,0 +1,276 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.VersionedDocument;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Links deliveries without a request to a hospital request of the same hospital.
+ * <p>
+ * This is a hash join: the smaller side (unlinked deliveries or requests) is
+ * loaded into a map keyed by hospital name, the larger side is streamed through
+ * a cursor, and the resulting updates are sent as unordered bulk writes. Each
+ * delivery is linked to the first request (in natural order) for its hospital.
+ * The same batching is used to backfill owner ids on already linked deliveries.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryLinkService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryLinkService.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Map<String, Object> progress = Map.of("running", false);
+
+    private static final class Run {
+        final long startedAt = System.currentTimeMillis();
+        final String indexedSide;
+        long scanned;
+        long linked;
+        int batches;
+        BulkOperations bulk;
+        int pending;
+
+        Run(String indexedSide) {
+            this.indexedSide = indexedSide;
+        }
+    }
+
+    /**
+     * Progress of the current run, or the result of the last one.
+     */
+    public Map<String, Object> getProgress() {
+        return progress;
+    }
+
+    public Map<String, Object> linkUnlinkedDeliveries() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("Delivery linking is already running");
+        }
+        try {
+            long unlinked = mongoTemplate.count(new Query(unlinkedCriteria()), Delivery.class);
+            long requests = mongoTemplate.estimatedCount(HospitalRequest.class);
+
+            Run run;
+            if (requests <= unlinked) {
+                run = new Run("requests");
+                joinIndexingRequests(run);
+            } else {
+                run = new Run("deliveries");
+                joinIndexingDeliveries(run);
+            }
+            flush(run);
+
+            Map<String, Object> result = snapshot(run, false);
+            progress = result;
+            log.info("Linked {} deliveries to hospital requests in {} batches ({} ms)",
+                    run.linked, run.batches, System.currentTimeMillis() - run.startedAt);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Requests are the smaller side: index them, stream unlinked deliveries
+    private void joinIndexingRequests(Run run) {
+        Map<String, HospitalRequest> requestByHospital = new HashMap<>();
+        try (Stream<HospitalRequest> requests = mongoTemplate.stream(requestQuery(), HospitalRequest.class)) {
+            requests.forEach(request -> requestByHospital.putIfAbsent(request.getHospitalName(), request));
+        }
+
+        Query deliveries = new Query(unlinkedCriteria());
+        deliveries.fields().include("id", "hospitalName");
+        try (Stream<Delivery> stream = mongoTemplate.stream(deliveries, Delivery.class)) {
+            stream.forEach(delivery -> {
+                run.scanned++;
+                HospitalRequest request = delivery.getHospitalName() != null
+                        ? requestByHospital.get(delivery.getHospitalName())
+                        : null;
+                if (request != null) {
+                    addLink(run, delivery.getId(), request);
+                }
+            });
+        }
+    }
+
+    // Unlinked deliveries are the smaller side: index them, stream requests
+    private void joinIndexingDeliveries(Run run) {
+        Map<String, List<String>> deliveryIdsByHospital = new LinkedHashMap<>();
+        Query deliveries = new Query(unlinkedCriteria().and("hospitalName").ne(null));
+        deliveries.fields().include("id", "hospitalName");
+        try (Stream<Delivery> stream = mongoTemplate.stream(deliveries, Delivery.class)) {
+            stream.forEach(delivery -> deliveryIdsByHospital
+                    .computeIfAbsent(delivery.getHospitalName(), k -> new ArrayList<>())
+                    .add(delivery.getId()));
+        }
+
+        try (Stream<HospitalRequest> requests = mongoTemplate.stream(requestQuery(), HospitalRequest.class)) {
+            requests.forEach(request -> {
+                run.scanned++;
+                // Removing the entry keeps "first request wins" semantics
+                List<String> deliveryIds = deliveryIdsByHospital.remove(request.getHospitalName());
+                if (deliveryIds != null) {
+                    for (String deliveryId : deliveryIds) {
+                        addLink(run, deliveryId, request);
+                    }
+                }
+            });
+        }
+    }
+
+    private void addLink(Run run, String deliveryId, HospitalRequest request) {
+        if (run.bulk == null) {
+            run.bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class);
+        }
+        Update update = new Update()
+                .set("requestId", request.getId())
+                .set("updatedAt", new Date())
+                .inc(VersionedDocument.VERSION_FIELD, 1);
+        setIfPresent(update, "hospitalId", request.getHospitalId());
+        setIfPresent(update, "bloodBankId", request.getBloodBankId());
+        setIfPresent(update, "bloodBankName", request.getBloodBankName());
+        setIfPresent(update, "bloodBankAddress", request.getBloodBankAddress());
+        setIfPresent(update, "bloodBankPhone", request.getBloodBankPhone());
+        setIfPresent(update, "bloodBankEmail", request.getBloodBankEmail());
+        setIfPresent(update, "contactInfo", request.getContactInformation());
+
+        // Re-check the link condition so deliveries linked meanwhile are left alone
+        run.bulk.updateOne(new Query(Criteria.where("id").is(deliveryId).andOperator(unlinkedCriteria())), update);
+        if (++run.pending >= BATCH_SIZE) {
+            flush(run);
+        }
+    }
+
+    private void flush(Run run) {
+        if (run.bulk == null || run.pending == 0) {
+            return;
+        }
+        run.linked += run.bulk.execute().getModifiedCount();
+        run.batches++;
+        run.bulk = null;
+        run.pending = 0;
+        progress = snapshot(run, true);
+        log.debug("Delivery linking: batch {} written, {} linked, {} scanned", run.batches, run.linked, run.scanned);
+    }
+
+    /**
+     * Fill hospital_id and blood_bank_id on deliveries that predate those fields,
+     * resolving them through the linked request. Deliveries are streamed and
+     * their requests fetched with one $in query per batch.
+     */
+    public Map<String, Object> backfillOwnerIds() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("Delivery linking is already running");
+        }
+        try {
+            Run run = new Run("backfill");
+            Query deliveries = new Query(new Criteria().andOperator(
+                    Criteria.where("hospitalId").exists(false),
+                    Criteria.where("requestId").nin(null, "", "N/A")));
+            deliveries.fields().include("id", "requestId", "bloodBankId");
+
+            Map<String, List<Delivery>> deliveriesByRequest = new HashMap<>();
+            try (Stream<Delivery> stream = mongoTemplate.stream(deliveries, Delivery.class)) {
+                stream.forEach(delivery -> {
+                    run.scanned++;
+                    deliveriesByRequest.computeIfAbsent(delivery.getRequestId(), k -> new ArrayList<>()).add(delivery);
+                    if (deliveriesByRequest.size() >= BATCH_SIZE) {
+                        resolveOwners(run, deliveriesByRequest);
+                    }
+                });
+            }
+            resolveOwners(run, deliveriesByRequest);
+            flush(run);
+
+            Map<String, Object> result = snapshot(run, false);
+            progress = result;
+            log.info("Backfilled hospital and blood bank ids on {} of {} deliveries", run.linked, run.scanned);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void resolveOwners(Run run, Map<String, List<Delivery>> deliveriesByRequest) {
+        if (deliveriesByRequest.isEmpty()) {
+            return;
+        }
+        Query requests = new Query(Criteria.where("id").in(deliveriesByRequest.keySet()));
+        requests.fields().include("id", "hospitalId", "bloodBankId");
+        for (HospitalRequest request : mongoTemplate.find(requests, HospitalRequest.class)) {
+            if (request.getHospitalId() == null) {
+                continue;
+            }
+            for (Delivery delivery : deliveriesByRequest.get(request.getId())) {
+                if (run.bulk == null) {
+                    run.bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class);
+                }
+                // One update per delivery so the modified count is the number of deliveries filled in
+                Update update = new Update()
+                        .set("hospitalId", request.getHospitalId())
+                        .inc(VersionedDocument.VERSION_FIELD, 1);
+                if (delivery.getBloodBankId() == null && request.getBloodBankId() != null) {
+                    // Keep a blood bank id that is already set
+                    update.set("bloodBankId", request.getBloodBankId());
+                }
+                run.bulk.updateOne(new Query(Criteria.where("id").is(delivery.getId()).and("hospitalId").exists(false)), update);
+                if (++run.pending >= BATCH_SIZE) {
+                    flush(run);
+                }
+            }
+        }
+        deliveriesByRequest.clear();
+    }
+
+    private static Query requestQuery() {
+        Query query = new Query(Criteria.where("hospitalName").ne(null));
+        query.fields().include("id", "hospitalId", "hospitalName", "bloodBankId", "bloodBankName", "bloodBankAddress",
+                "bloodBankPhone", "bloodBankEmail", "contactInformation");
+        return query;
+    }
+
+    private static Criteria unlinkedCriteria() {
+        return new Criteria().orOperator(
+                Criteria.where("requestId").is(null),
+                Criteria.where("requestId").is(""),
+                Criteria.where("requestId").is("N/A"));
+    }
+
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+
+    private static Map<String, Object> snapshot(Run run, boolean inProgress) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("running", inProgress);
+        snapshot.put("indexedSide", run.indexedSide);
+        snapshot.put("scanned", run.scanned);
+        snapshot.put("linkedDeliveries", run.linked);
+        snapshot.put("batches", run.batches);
+        snapshot.put("elapsedMs", System.currentTimeMillis() - run.startedAt);
+        return snapshot;
+    }
+}
@@ -0,0 +1,308 @@
+package RedSource.services;
+
+import RedSource.entities.DTO.DeliveryRunRequest;
+import RedSource.entities.Delivery;
+import RedSource.entities.Hospital;
+import RedSource.entities.VersionedDocument;
+import RedSource.repositories.HospitalRepository;
+import RedSource.services.BloodBankLocationService.BankLocation;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consolidates a blood bank's pending deliveries into multi-stop runs.
+ * <p>
+ * Destination hospitals are bucketed by geohash; buckets are visited in
+ * geohash order, which keeps neighbouring cells next to each other, and the
+ * stops inside a bucket are ordered nearest-neighbour from the previous stop.
+ * A run is closed when it reaches the stop limit or the next stop is more than
+ * MERGE_KM away. Planning is done in memory after one delivery query and one
+ * hospital lookup.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryRunPlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryRunPlanner.class);
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int GEOHASH_PRECISION = 5; // cells of about 5 x 5 km
+    private static final double MERGE_KM = 15;
+    private static final int DEFAULT_MAX_STOPS = 6;
+    private static final String PENDING = "PENDING";
+
+    private final MongoTemplate mongoTemplate;
+    private final HospitalRepository hospitalRepository;
+    private final BloodBankLocationService bloodBankLocationService;
+
+    /**
+     * One destination of a run; several deliveries to the same hospital share a stop.
+     */
+    public record Stop(String hospitalId, String hospitalName, Double lat, Double lng, String geohash,
+                       List<String> deliveryIds) {
+    }
+
+    public record Run(int number, String driverName, String vehicleId, List<Stop> stops, double distanceKm) {
+    }
+
+    public record Plan(String bloodBankId, Date from, Date to, List<Run> runs, List<Stop> unplanned,
+                       int deliveries, long planningMicros) {
+    }
+
+    public Plan plan(DeliveryRunRequest request) {
+        long start = System.nanoTime();
+        Date from = request.getFrom() != null ? request.getFrom() : startOfToday();
+        Date to = request.getTo() != null ? request.getTo() : new Date(from.getTime() + 24 * 60 * 60 * 1000L);
+        int maxStops = request.getMaxStops() != null ? request.getMaxStops() : DEFAULT_MAX_STOPS;
+
+        List<Delivery> deliveries = findPending(request.getBloodBankId(), from, to);
+        Map<String, Hospital> hospitals = loadHospitals(deliveries);
+
+        // Group deliveries into stops, one per hospital
+        Map<String, Stop> stopsByHospital = new LinkedHashMap<>();
+        List<Stop> unplanned = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            Hospital hospital = delivery.getHospitalId() != null ? hospitals.get(delivery.getHospitalId()) : null;
+            Hospital.Coordinates coordinates = hospital != null ? hospital.getCoordinates() : null;
+            if (coordinates == null || coordinates.getLat() == null || coordinates.getLng() == null) {
+                unplanned.add(new Stop(delivery.getHospitalId(), delivery.getHospitalName(), null, null, null,
+                        List.of(delivery.getId())));
+                continue;
+            }
+            stopsByHospital.computeIfAbsent(hospital.getId(), id -> new Stop(id, hospital.getHospitalName(),
+                    coordinates.getLat(), coordinates.getLng(),
+                    geohash(coordinates.getLat(), coordinates.getLng(), GEOHASH_PRECISION),
+                    new ArrayList<>())).deliveryIds().add(delivery.getId());
+        }
+
+        TreeMap<String, List<Stop>> buckets = new TreeMap<>();
+        for (Stop stop : stopsByHospital.values()) {
+            buckets.computeIfAbsent(stop.geohash(), k -> new ArrayList<>()).add(stop);
+        }
+
+        BankLocation bank = findBank(request.getBloodBankId());
+        double[] origin = bank != null && bank.hasCoordinates() ? new double[]{bank.lat(), bank.lng()} : null;
+
+        List<List<Stop>> routes = new ArrayList<>();
+        List<Stop> current = new ArrayList<>();
+        double[] position = origin;
+        for (List<Stop> bucket : buckets.values()) {
+            for (Stop stop : nearestNeighbourOrder(bucket, position)) {
+                if (current.size() >= maxStops
+                        || (!current.isEmpty() && distanceKm(position, stop) > MERGE_KM)) {
+                    routes.add(current);
+                    current = new ArrayList<>();
+                }
+                current.add(stop);
+                position = new double[]{stop.lat(), stop.lng()};
+            }
+        }
+        if (!current.isEmpty()) {
+            routes.add(current);
+        }
+
+        List<DeliveryRunRequest.Driver> drivers = request.getDrivers() != null ? request.getDrivers() : List.of();
+        List<Run> runs = new ArrayList<>();
+        for (int i = 0; i < routes.size(); i++) {
+            DeliveryRunRequest.Driver driver = drivers.isEmpty() ? null : drivers.get(i % drivers.size());
+            runs.add(new Run(i + 1,
+                    driver != null ? driver.getDriverName() : null,
+                    driver != null ? driver.getVehicleId() : null,
+                    routes.get(i), routeKm(origin, routes.get(i))));
+        }
+
+        long micros = (System.nanoTime() - start) / 1000;
+        log.debug("Planned {} deliveries of blood bank {} into {} runs in {} us",
+                deliveries.size(), request.getBloodBankId(), runs.size(), micros);
+        return new Plan(request.getBloodBankId(), from, to, runs, unplanned, deliveries.size(), micros);
+    }
+
+    /**
+     * Plan and assign each run's driver and vehicle to its deliveries. Only
+     * deliveries that are still pending are changed.
+     */
+    public Map<String, Object> apply(DeliveryRunRequest request) {
+        if (request.getDrivers() == null || request.getDrivers().isEmpty()) {
+            throw new IllegalArgumentException("At least one driver is required to assign runs");
+        }
+        Plan plan = plan(request);
+
+        BulkOperations bulk = null;
+        int assignments = 0;
+        Date now = new Date();
+        for (Run run : plan.runs()) {
+            for (Stop stop : run.stops()) {
+                for (String deliveryId : stop.deliveryIds()) {
+                    if (bulk == null) {
+                        bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class);
+                    }
+                    Update update = new Update()
+                            .set("driverName", run.driverName())
+                            .set("updatedAt", now)
+                            .inc(VersionedDocument.VERSION_FIELD, 1);
+                    if (run.vehicleId() != null) {
+                        update.set("vehicleId", run.vehicleId());
+                    }
+                    bulk.updateOne(new Query(Criteria.where("id").is(deliveryId).and("status").is(PENDING)), update);
+                    assignments++;
+                }
+            }
+        }
+        long assigned = bulk != null ? bulk.execute().getModifiedCount() : 0;
+        log.info("Assigned {} of {} planned deliveries of blood bank {} to {} runs",
+                assigned, assignments, request.getBloodBankId(), plan.runs().size());
+
+        Map<String, Object> result = toResponse(plan);
+        result.put("assigned", assigned);
+        return result;
+    }
+
+    public Map<String, Object> toResponse(Plan plan) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("bloodBankId", plan.bloodBankId());
+        response.put("from", plan.from());
+        response.put("to", plan.to());
+        response.put("deliveries", plan.deliveries());
+        response.put("runs", plan.runs());
+        response.put("unplanned", plan.unplanned());
+        response.put("planningMicros", plan.planningMicros());
+        return response;
+    }
+
+    /**
+     * Standard base32 geohash of a point.
+     */
+    public static String geohash(double lat, double lng, int precision) {
+        double minLat = -90, maxLat = 90, minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    private List<Delivery> findPending(String bloodBankId, Date from, Date to) {
+        Query query = new Query(Criteria.where("bloodBankId").is(bloodBankId)
+                .and("status").is(PENDING)
+                .and("scheduledDate").gte(from).lt(to));
+        query.fields().include("id", "hospitalId", "hospitalName", "scheduledDate");
+        return mongoTemplate.find(query, Delivery.class);
+    }
+
+    private Map<String, Hospital> loadHospitals(List<Delivery> deliveries) {
+        Set<String> hospitalIds = new HashSet<>();
+        for (Delivery delivery : deliveries) {
+            if (delivery.getHospitalId() != null) {
+                hospitalIds.add(delivery.getHospitalId());
+            }
+        }
+        Map<String, Hospital> hospitals = new HashMap<>();
+        if (!hospitalIds.isEmpty()) {
+            for (Hospital hospital : hospitalRepository.findAllById(hospitalIds)) {
+                hospitals.put(hospital.getId(), hospital);
+            }
+        }
+        return hospitals;
+    }
+
+    private BankLocation findBank(String bloodBankId) {
+        for (BankLocation bank : bloodBankLocationService.getAll()) {
+            if (bank.id().equals(bloodBankId)) {
+                return bank;
+            }
+        }
+        return null;
+    }
+
+    private static List<Stop> nearestNeighbourOrder(List<Stop> stops, double[] from) {
+        if (stops.size() < 2) {
+            return stops;
+        }
+        List<Stop> remaining = new ArrayList<>(stops);
+        List<Stop> ordered = new ArrayList<>(stops.size());
+        double[] position = from != null ? from : new double[]{remaining.get(0).lat(), remaining.get(0).lng()};
+        while (!remaining.isEmpty()) {
+            int nearest = 0;
+            double nearestKm = Double.MAX_VALUE;
+            for (int i = 0; i < remaining.size(); i++) {
+                double km = distanceKm(position, remaining.get(i));
+                if (km < nearestKm) {
+                    nearest = i;
+                    nearestKm = km;
+                }
+            }
+            Stop next = remaining.remove(nearest);
+            ordered.add(next);
+            position = new double[]{next.lat(), next.lng()};
+        }
+        return ordered;
+    }
+
+    private static double routeKm(double[] origin, List<Stop> stops) {
+        double km = 0;
+        double[] position = origin;
+        for (Stop stop : stops) {
+            if (position != null) {
+                km += distanceKm(position, stop);
+            }
+            position = new double[]{stop.lat(), stop.lng()};
+        }
+        return Math.round(km * 10) / 10.0;
+    }
+
+    private static double distanceKm(double[] from, Stop to) {
+        if (from == null) {
+            return 0;
+        }
+        return BloodBankLocationService.distanceKm(from[0], from[1], to.lat(), to.lng());
+    }
+
+    private static Date startOfToday() {
+        return Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -3,17 +3,35 @@ package RedSource.services;
 import RedSource.entities.Delivery;
 import RedSource.entities.HospitalRequest;
 import RedSource.entities.BloodBankUser;
+import RedSource.entities.DTO.DeliveryDraft;
+import RedSource.entities.Hospital;
+import RedSource.entities.enums.BloodType;
+import RedSource.entities.enums.DeliveryStatus;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.DeliveryRepository;
+import RedSource.repositories.HospitalRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -24,8 +42,14 @@ public class DeliveryService {
     public static final String DELIVERIES = "Deliveries";
 
     private final DeliveryRepository deliveryRepository;
+    private final PaginationService paginationService;
     private final HospitalRequestService hospitalRequestService;
     private final BloodBankService bloodBankService;
+    private final HospitalRepository hospitalRepository;
+    private final OptimisticUpdateService optimisticUpdateService;
+    private final DeliveryTrackingService deliveryTrackingService;
+    private final DeliveryEtaService deliveryEtaService;
+    private final MongoTemplate mongoTemplate;
 
     public List<Delivery> getAll() {
         try {
@@ -39,6 +63,22 @@ public class DeliveryService {
         }
     }
 
+    // Retrieve one keyset page of deliveries, newest first, optionally filtered by status and blood bank
+    public KeysetPage<Delivery> getPage(String cursor, Integer limit, String status, String bloodBankId) {
+        try {
+            KeysetPage<Delivery> page = paginationService.findPage(Delivery.class,
+                    PaginationService.filter("status", status, "bloodBankId", bloodBankId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(DELIVERIES));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(DELIVERIES);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public Delivery getById(String id) {
         try {
             if (Objects.isNull(id)) {
@@ -52,75 +92,52 @@ public class DeliveryService {
         }
     }
 
+    /**
+     * Create a delivery from a validated draft. Details missing from the draft are
+     * taken from the hospital request it belongs to.
+     */
+    public Delivery create(DeliveryDraft draft) {
+        Delivery delivery = new Delivery();
+        delivery.setRequestId(draft.getRequestId());
+        delivery.setBloodBankId(draft.getBloodBankId());
+        delivery.setBloodItems(draft.toBloodItems());
+        delivery.setScheduledDate(draft.getScheduledDate());
+        delivery.setEstimatedTime(draft.getEstimatedTime());
+        delivery.setPriority(draft.getPriority());
+        delivery.setDriverName(draft.getDriverName());
+        delivery.setDriverContact(draft.getDriverContact());
+        delivery.setVehicleId(draft.getVehicleId());
+        delivery.setNotes(draft.getNotes());
+        return save(delivery);
+    }
+
+    /**
+     * Save a new delivery. Every delivery must reference an existing hospital request;
+     * unlinked deliveries are rejected instead of being attached to an arbitrary request.
+     */
     public Delivery save(Delivery delivery) {
+        if (!isLinked(delivery.getRequestId())) {
+            throw new IllegalArgumentException("Delivery must be linked to a hospital request (requestId is required)");
+        }
         try {
+            HospitalRequest request = hospitalRequestService.getById(delivery.getRequestId());
+            if (request == null) {
+                throw new ServiceException("Hospital Request " + delivery.getRequestId() + " not found");
+            }
+            linkToRequest(delivery, request);
+
             delivery.setCreatedAt(new Date());
             delivery.setUpdatedAt(new Date());
 
-            // ENHANCED AUTO-LINKING: Link deliveries to blood bank and hospital request
-            // data
-            if (delivery.getRequestId() == null || delivery.getRequestId().isEmpty()
-                    || delivery.getRequestId().equals("N/A")) {
-
-                // Try to find a hospital request that matches this delivery context
-                try {
-                    List<HospitalRequest> requests = hospitalRequestService.getAll();
-
-                    // For now, link to the first available request (in production, this should be
-                    // based on delivery context)
-                    if (!requests.isEmpty()) {
-                        HospitalRequest request = requests.get(0); // Use first available request
-
-                        // Link to this request
-                        delivery.setRequestId(request.getId());
-                        delivery.setHospitalName(request.getHospitalName());
-
-                        // Get REAL blood bank data from BloodBankUser entity
-                        if (request.getBloodBankId() != null) {
-                            try {
-                                BloodBankUser bloodBank = bloodBankService.getById(request.getBloodBankId());
-                                if (bloodBank != null) {
-                                    delivery.setBloodBankName(bloodBank.getBloodBankName());
-                                    delivery.setBloodBankAddress(bloodBank.getAddress());
-                                    delivery.setBloodBankPhone(bloodBank.getPhone());
-                                    delivery.setBloodBankEmail(bloodBank.getEmail());
-                                    delivery.setContactInfo(bloodBank.getPhone());
-                                    log.info("Linked delivery to real blood bank: {}", bloodBank.getBloodBankName());
-                                }
-                            } catch (Exception e) {
-                                log.warn("Could not fetch blood bank details: {}", e.getMessage());
-                                // Fallback to request data
-                                delivery.setBloodBankName(request.getBloodBankName());
-                                delivery.setBloodBankAddress(request.getBloodBankAddress());
-                                delivery.setBloodBankPhone(request.getBloodBankPhone());
-                                delivery.setBloodBankEmail(request.getBloodBankEmail());
-                                delivery.setContactInfo(request.getContactInformation());
-                            }
-                        }
-
-                        // Set blood items from request
-                        if (delivery.getBloodItems() == null || delivery.getBloodItems().isEmpty()) {
-                            delivery.setBloodItems(request.getBloodItems());
-                        }
-
-                        // Create items summary from blood items
-                        if (delivery.getItemsSummary() == null || delivery.getItemsSummary().isEmpty()) {
-                            if (request.getBloodItems() != null && !request.getBloodItems().isEmpty()) {
-                                String summary = request.getBloodItems().stream()
-                                        .map(item -> item.getBloodType() + " (" + item.getUnits() + " units)")
-                                        .collect(java.util.stream.Collectors.joining(", "));
-                                delivery.setItemsSummary(summary);
-                            }
-                        }
-
-                        log.info("Auto-linked delivery to hospital request: {}", request.getId());
-                    }
-                } catch (Exception e) {
-                    log.warn("Could not auto-link delivery to hospital request: {}", e.getMessage());
-                }
-            }
+            // A new delivery always starts out PENDING; later states go through DeliveryStatusService
+            delivery.setId(null);
+            delivery.setVersion(null);
+            delivery.setStatus(DeliveryStatus.PENDING.getValue());
+            delivery.setTrackingHistory(new ArrayList<>());
+            delivery.setDeliveredDate(null);
+            delivery.setDeliveredTime(null);
 
-            // FALLBACK: If still missing critical data, populate with defaults
+            // FALLBACK: If still missing display data, populate with defaults
             if (delivery.getHospitalName() == null || delivery.getHospitalName().isEmpty()) {
                 delivery.setHospitalName("Unknown Hospital");
             }
@@ -133,13 +150,16 @@ public class DeliveryService {
             if (delivery.getItemsSummary() == null || delivery.getItemsSummary().isEmpty()) {
                 delivery.setItemsSummary("Items not specified");
             }
-            if (delivery.getStatus() == null || delivery.getStatus().isEmpty()) {
-                delivery.setStatus("PENDING");
+            if (isBlank(delivery.getEstimatedTime()) && delivery.getBloodBankId() != null) {
+                // Median of past deliveries on this lane
+                delivery.setEstimatedTime(deliveryEtaService.describe(delivery.getBloodBankId(), delivery.getHospitalId()));
             }
 
             Delivery savedDelivery = deliveryRepository.save(delivery);
             log.info(MessageUtils.saveSuccess(DELIVERY));
             return savedDelivery;
+        } catch (ServiceException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.saveError(DELIVERY);
             log.error(errorMessage, e);
@@ -147,56 +167,89 @@ public class DeliveryService {
         }
     }
 
-    public Delivery update(String id, Delivery delivery) {
-        try {
-            Delivery existingDelivery = getById(id);
-            if (existingDelivery == null) {
-                throw new ServiceException("Delivery not found");
+    /**
+     * Fill hospital, blood bank and item details the delivery does not carry yet
+     * from its hospital request. Each lookup is a single fetch by id.
+     */
+    public void linkToRequest(Delivery delivery, HospitalRequest request) {
+        delivery.setRequestId(request.getId());
+        if (isBlank(delivery.getHospitalId())) {
+            delivery.setHospitalId(request.getHospitalId());
+        }
+
+        if (isBlank(delivery.getHospitalName())) {
+            String hospitalName = request.getHospitalName();
+            if (isBlank(hospitalName) && request.getHospitalId() != null) {
+                hospitalName = hospitalRepository.findById(request.getHospitalId())
+                        .map(Hospital::getHospitalName)
+                        .orElse(null);
+            }
+            delivery.setHospitalName(hospitalName);
+        }
+
+        if (isBlank(delivery.getBloodBankId())) {
+            delivery.setBloodBankId(request.getBloodBankId());
+        }
+        if (isBlank(delivery.getBloodBankName()) && delivery.getBloodBankId() != null) {
+            BloodBankUser bloodBank = bloodBankService.getById(delivery.getBloodBankId());
+            if (bloodBank != null) {
+                delivery.setBloodBankName(bloodBank.getBloodBankName());
+                delivery.setBloodBankAddress(bloodBank.getAddress());
+                delivery.setBloodBankPhone(bloodBank.getPhone());
+                delivery.setBloodBankEmail(bloodBank.getEmail());
+                delivery.setContactInfo(bloodBank.getPhone());
+            } else if (delivery.getBloodBankId().equals(request.getBloodBankId())) {
+                delivery.setBloodBankName(request.getBloodBankName());
+                delivery.setBloodBankAddress(request.getBloodBankAddress());
+                delivery.setBloodBankPhone(request.getBloodBankPhone());
+                delivery.setBloodBankEmail(request.getBloodBankEmail());
+                delivery.setContactInfo(request.getContactInformation());
             }
+        }
+
+        if (delivery.getBloodItems() == null || delivery.getBloodItems().isEmpty()) {
+            delivery.setBloodItems(request.getBloodItems());
+        }
+        if (isBlank(delivery.getItemsSummary()) && delivery.getBloodItems() != null && !delivery.getBloodItems().isEmpty()) {
+            delivery.setItemsSummary(delivery.getBloodItems().stream()
+                    .map(item -> item.getBloodType() + " (" + item.getUnits() + " units)")
+                    .collect(java.util.stream.Collectors.joining(", ")));
+        }
+    }
 
-            // Preserve existing data and only update provided fields
+    /**
+     * Version-checked update. Fields that are null or blank in delivery keep their
+     * stored values; a stale version results in a VersionConflictException (HTTP 409).
+     */
+    public Delivery update(String id, Delivery delivery) {
+        try {
             delivery.setId(id);
-            delivery.setCreatedAt(existingDelivery.getCreatedAt());
+            delivery.setCreatedAt(null); // keep the stored creation date
             delivery.setUpdatedAt(new Date());
 
-            // Preserve critical data if not provided in update
-            if (delivery.getRequestId() == null || delivery.getRequestId().isEmpty()) {
-                delivery.setRequestId(existingDelivery.getRequestId());
-            }
-            if (delivery.getHospitalName() == null || delivery.getHospitalName().isEmpty()) {
-                delivery.setHospitalName(existingDelivery.getHospitalName());
-            }
-            if (delivery.getBloodBankName() == null || delivery.getBloodBankName().isEmpty()) {
-                delivery.setBloodBankName(existingDelivery.getBloodBankName());
-            }
-            if (delivery.getBloodBankAddress() == null || delivery.getBloodBankAddress().isEmpty()) {
-                delivery.setBloodBankAddress(existingDelivery.getBloodBankAddress());
-            }
-            if (delivery.getItemsSummary() == null || delivery.getItemsSummary().isEmpty()) {
-                delivery.setItemsSummary(existingDelivery.getItemsSummary());
-            }
-            if (delivery.getBloodItems() == null || delivery.getBloodItems().isEmpty()) {
-                delivery.setBloodItems(existingDelivery.getBloodItems());
-            }
-            if (delivery.getContactInfo() == null || delivery.getContactInfo().isEmpty()) {
-                delivery.setContactInfo(existingDelivery.getContactInfo());
-            }
-            if (delivery.getBloodBankPhone() == null || delivery.getBloodBankPhone().isEmpty()) {
-                delivery.setBloodBankPhone(existingDelivery.getBloodBankPhone());
-            }
-            if (delivery.getBloodBankEmail() == null || delivery.getBloodBankEmail().isEmpty()) {
-                delivery.setBloodBankEmail(existingDelivery.getBloodBankEmail());
-            }
-            if (delivery.getScheduledDate() == null) {
-                delivery.setScheduledDate(existingDelivery.getScheduledDate());
-            }
-            if (delivery.getEstimatedTime() == null || delivery.getEstimatedTime().isEmpty()) {
-                delivery.setEstimatedTime(existingDelivery.getEstimatedTime());
+            // Blank strings mean "not provided" for the linked request and blood bank details
+            delivery.setRequestId(blankToNull(delivery.getRequestId()));
+            delivery.setHospitalName(blankToNull(delivery.getHospitalName()));
+            delivery.setBloodBankName(blankToNull(delivery.getBloodBankName()));
+            delivery.setBloodBankAddress(blankToNull(delivery.getBloodBankAddress()));
+            delivery.setItemsSummary(blankToNull(delivery.getItemsSummary()));
+            delivery.setContactInfo(blankToNull(delivery.getContactInfo()));
+            delivery.setBloodBankPhone(blankToNull(delivery.getBloodBankPhone()));
+            delivery.setBloodBankEmail(blankToNull(delivery.getBloodBankEmail()));
+            delivery.setEstimatedTime(blankToNull(delivery.getEstimatedTime()));
+            delivery.setTrackingHistory(null); // appended through DeliveryTrackingService only
+            delivery.setStatus(null); // changed through DeliveryStatusService only
+            if (delivery.getBloodItems() != null && delivery.getBloodItems().isEmpty()) {
+                delivery.setBloodItems(null);
             }
 
-            Delivery updatedDelivery = deliveryRepository.save(delivery);
+            Delivery updatedDelivery = (delivery.getVersion() != null
+                    ? optimisticUpdateService.update(id, delivery, delivery.getVersion(), Delivery.class)
+                    : optimisticUpdateService.updateLatest(id, delivery, Delivery.class)).current();
             log.info(MessageUtils.updateSuccess(DELIVERY));
             return updatedDelivery;
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError(DELIVERY);
             log.error(errorMessage, e);
@@ -211,6 +264,7 @@ public class DeliveryService {
                 throw new ServiceException("Delivery not found");
             }
             deliveryRepository.deleteById(id);
+            deliveryTrackingService.deleteHistory(id);
             log.info(MessageUtils.deleteSuccess(DELIVERY));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError(DELIVERY);
@@ -219,6 +273,25 @@ public class DeliveryService {
         }
     }
 
+    /**
+     * One page of a hospital's deliveries, most recently scheduled first,
+     * optionally filtered by status. Served by the (hospital_id, status, scheduled_date) index.
+     */
+    public KeysetPage<Delivery> getPageByHospital(String hospitalId, String status, String cursor, Integer limit) {
+        try {
+            KeysetPage<Delivery> page = paginationService.findPage(Delivery.class,
+                    PaginationService.filter("hospitalId", hospitalId, "status", status), cursor, limit, "scheduledDate");
+            log.info(MessageUtils.retrieveSuccess(DELIVERIES));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(DELIVERIES);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public List<Delivery> findByRequestId(String requestId) {
         try {
             List<Delivery> deliveries = deliveryRepository.findByRequestId(requestId);
@@ -255,43 +328,109 @@ public class DeliveryService {
         }
     }
 
-    public List<Delivery> searchDeliveries(String searchTerm, String status) {
+    /**
+     * Search deliveries by id, hospital, blood bank, items or driver, best matches first.
+     * Names and items go through the weighted text index on the collection, an id is
+     * looked up directly, and the status filter is part of the query. $text drops
+     * the "a" of "A+" as a stop word, so a blood type is also matched on the indexed
+     * item blood types, newest first. Every lookup goes through an index.
+     */
+    public List<Delivery> searchDeliveries(String searchTerm, String status, Integer limit) {
         try {
-            List<Delivery> allDeliveries = deliveryRepository.findAll();
+            int pageSize = PaginationService.clampLimit(limit);
+            String statusFilter = null;
+            if (!isBlank(status) && !status.trim().equalsIgnoreCase("all")) {
+                DeliveryStatus known = DeliveryStatus.fromValue(status);
+                statusFilter = known != null ? known.getValue() : status.trim().toUpperCase();
+            }
 
-            // Filter by status if provided
-            if (status != null && !status.trim().isEmpty() && !status.equalsIgnoreCase("all")) {
-                allDeliveries = allDeliveries.stream()
-                        .filter(delivery -> status.equalsIgnoreCase(delivery.getStatus()))
-                        .collect(java.util.stream.Collectors.toList());
+            if (isBlank(searchTerm)) {
+                List<Delivery> deliveries = paginationService.findPage(Delivery.class,
+                        PaginationService.filter("status", statusFilter), null, pageSize).getItems();
+                log.info(MessageUtils.retrieveSuccess(DELIVERIES));
+                return deliveries;
             }
 
-            // Filter by search term if provided
-            if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-                String lowerSearchTerm = searchTerm.toLowerCase();
-                allDeliveries = allDeliveries.stream()
-                        .filter(delivery -> (delivery.getId() != null
-                                && delivery.getId().toLowerCase().contains(lowerSearchTerm)) ||
-                                (delivery.getHospitalName() != null
-                                        && delivery.getHospitalName().toLowerCase().contains(lowerSearchTerm))
-                                ||
-                                (delivery.getBloodBankName() != null
-                                        && delivery.getBloodBankName().toLowerCase().contains(lowerSearchTerm))
-                                ||
-                                (delivery.getItemsSummary() != null
-                                        && delivery.getItemsSummary().toLowerCase().contains(lowerSearchTerm))
-                                ||
-                                (delivery.getDriverName() != null
-                                        && delivery.getDriverName().toLowerCase().contains(lowerSearchTerm)))
-                        .collect(java.util.stream.Collectors.toList());
+            String term = searchTerm.trim();
+            String wantedStatus = statusFilter;
+            List<Delivery> results = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            if (ObjectId.isValid(term)) {
+                deliveryRepository.findById(term)
+                        .filter(delivery -> wantedStatus == null || hasStatus(delivery, wantedStatus))
+                        .ifPresent(results::add);
+            }
+
+            TextCriteria criteria = TextCriteria.forDefaultLanguage().matching(term);
+            Pageable page = PageRequest.of(0, pageSize, Sort.by("score"));
+            List<Delivery> hits = statusFilter == null
+                    ? deliveryRepository.findAllBy(criteria, page)
+                    : deliveryRepository.findAllByStatus(statusFilter, criteria, page);
+            results.forEach(delivery -> seen.add(delivery.getId()));
+            for (Delivery hit : hits) {
+                if (results.size() >= pageSize) {
+                    break;
+                }
+                if (seen.add(hit.getId())) {
+                    results.add(hit);
+                }
+            }
+            String bloodType = bloodTypeOf(term);
+            if (bloodType != null && results.size() < pageSize) {
+                for (Delivery match : bloodTypeMatches(bloodType, statusFilter, pageSize)) {
+                    if (results.size() >= pageSize) {
+                        break;
+                    }
+                    if (seen.add(match.getId())) {
+                        results.add(match);
+                    }
+                }
             }
 
             log.info(MessageUtils.retrieveSuccess(DELIVERIES));
-            return allDeliveries;
+            return results;
         } catch (Exception e) {
             String errorMessage = MessageUtils.retrieveError(DELIVERIES);
             log.error(errorMessage, e);
             throw new ServiceException(errorMessage, e);
         }
     }
+
+    // Served by blood_type_created_idx
+    private List<Delivery> bloodTypeMatches(String bloodType, String statusFilter, int limit) {
+        Query query = new Query(Criteria.where("bloodItems.bloodType").is(bloodType))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(limit);
+        if (statusFilter != null) {
+            query.addCriteria(Criteria.where("status").is(statusFilter));
+        }
+        return mongoTemplate.find(query, Delivery.class);
+    }
+
+    private static String bloodTypeOf(String term) {
+        String value = term.toUpperCase();
+        for (BloodType type : BloodType.values()) {
+            if (type.getValue().equals(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasStatus(Delivery delivery, String status) {
+        DeliveryStatus current = DeliveryStatus.fromValue(delivery.getStatus());
+        return status.equals(current != null ? current.getValue() : delivery.getStatus());
+    }
+
+    private static boolean isLinked(String requestId) {
+        return !isBlank(requestId) && !"N/A".equals(requestId);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
+    }
 }
@@ -0,0 +1,335 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.TrackingEvent;
+import RedSource.entities.VersionedDocument;
+import RedSource.entities.enums.DeliveryStatus;
+import RedSource.entities.enums.HospitalRequestStatus;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.exceptions.InvalidStatusTransitionException;
+import RedSource.exceptions.ServiceException;
+import com.mongodb.MongoException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies delivery status changes according to the DeliveryStatus state machine.
+ * <p>
+ * The delivery is moved with a conditional update on its current status and
+ * version. Completing a delivery also fulfils the linked hospital request (or
+ * counts the leg of a split request) and takes the delivered units out of the
+ * bank's inventory. All of these writes share one multi-document transaction,
+ * which is retried when Mongo reports a transient error such as a write conflict.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryStatusService.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String FULFILLED = "FULFILLED";
+
+    private final MongoTemplate mongoTemplate;
+    private final BloodInventoryService bloodInventoryService;
+    private final SplitFulfillmentService splitFulfillmentService;
+    private final InventoryIndexService inventoryIndexService;
+    private final ConsumptionForecastService consumptionForecastService;
+    private final DeliveryEtaService deliveryEtaService;
+    private final RequestTriageService requestTriageService;
+    private final RequestEventService requestEventService;
+    private final DeliveryTrackingService deliveryTrackingService;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Outcome of a transition; request is set when the linked request was changed,
+     * previousRequest then holds its state before the change.
+     */
+    public record Transition(Delivery delivery, String previousStatus, HospitalRequest request,
+                             HospitalRequest previousRequest, Map<String, Integer> issuedUnits) {
+    }
+
+    // Thrown inside the transaction when the delivery changed after it was read
+    private static final class ConcurrentChange extends RuntimeException {
+    }
+
+    @PostConstruct
+    void initTransactions() {
+        // Kept local to this service so it does not become the application-wide transaction manager
+        transactionTemplate = new TransactionTemplate(new MongoTransactionManager(mongoTemplate.getMongoDatabaseFactory()));
+    }
+
+    public Transition transition(String deliveryId, String requestedStatus) {
+        DeliveryStatus target = DeliveryStatus.fromValue(requestedStatus);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown delivery status: " + requestedStatus);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Transition transition = transactionTemplate.execute(tx -> apply(deliveryId, target));
+                afterCommit(transition);
+                return transition;
+            } catch (ConcurrentChange e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new InvalidStatusTransitionException(
+                            "Delivery " + deliveryId + " is being modified concurrently, please retry", null);
+                }
+                log.debug("Delivery {} changed during status update (attempt {})", deliveryId, attempt);
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+                log.debug("Transient error updating delivery {} status (attempt {}): {}", deliveryId, attempt, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Move several deliveries to one status and record a tracking event on each.
+     * <p>
+     * Transitions without side effects are applied in one unordered bulk write,
+     * each update conditional on the status and version that were read. COMPLETE
+     * also fulfils requests and issues inventory, so those deliveries go through
+     * transition() one by one to keep that work transactional.
+     */
+    public BulkStatusUpdate<Transition> bulkTransition(List<String> ids, String requestedStatus, String note) {
+        DeliveryStatus target = DeliveryStatus.fromValue(requestedStatus);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown delivery status: " + requestedStatus);
+        }
+        Set<String> deliveryIds = new LinkedHashSet<>(ids);
+        Map<String, BulkStatusResult> results = new LinkedHashMap<>();
+        List<Transition> updated = new ArrayList<>();
+
+        if (target == DeliveryStatus.COMPLETE) {
+            for (String id : deliveryIds) {
+                try {
+                    Transition transition = transition(id, requestedStatus);
+                    Delivery delivery = transition.delivery();
+                    try {
+                        delivery = deliveryTrackingService.appendStatus(id, delivery.getStatus(), note);
+                    } catch (Exception e) {
+                        log.warn("Could not record tracking event for delivery {}: {}", id, e.getMessage());
+                    }
+                    results.put(id, BulkStatusResult.updated(id, transition.previousStatus(), delivery.getStatus()));
+                    updated.add(new Transition(delivery, transition.previousStatus(), transition.request(),
+                            transition.previousRequest(), transition.issuedUnits()));
+                } catch (InvalidStatusTransitionException e) {
+                    results.put(id, BulkStatusResult.rejected(id, e.getCurrentStatus() == null
+                            ? BulkStatusResult.CONFLICT : BulkStatusResult.INVALID_TRANSITION, e.getCurrentStatus(), e.getMessage()));
+                } catch (ServiceException e) {
+                    results.put(id, BulkStatusResult.rejected(id, "Delivery not found".equals(e.getMessage())
+                            ? BulkStatusResult.NOT_FOUND : BulkStatusResult.FAILED, null, e.getMessage()));
+                } catch (RuntimeException e) {
+                    log.error("Bulk status update of delivery {} failed: {}", id, e.getMessage(), e);
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.FAILED, null, e.getMessage()));
+                }
+            }
+            return new BulkStatusUpdate<>(new ArrayList<>(results.values()), updated);
+        }
+
+        Query read = new Query(Criteria.where("id").in(deliveryIds));
+        read.fields().include("id", "status", VersionedDocument.VERSION_FIELD);
+        Map<String, Delivery> stored = new HashMap<>();
+        for (Delivery delivery : mongoTemplate.find(read, Delivery.class)) {
+            stored.put(delivery.getId(), delivery);
+        }
+
+        Date now = new Date();
+        Map<String, TrackingEvent> events = new LinkedHashMap<>();
+        List<Delivery> pending = new ArrayList<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class);
+        for (String id : deliveryIds) {
+            Delivery delivery = stored.get(id);
+            if (delivery == null) {
+                results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.NOT_FOUND, null, "Delivery not found"));
+                continue;
+            }
+            DeliveryStatus current = DeliveryStatus.fromValue(delivery.getStatus());
+            if (current == target) {
+                results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.UNCHANGED, delivery.getStatus(), null));
+                continue;
+            }
+            if (current == null || !current.canTransitionTo(target)) {
+                results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.INVALID_TRANSITION, delivery.getStatus(),
+                        "Cannot change delivery status from " + delivery.getStatus() + " to " + target.getValue()));
+                continue;
+            }
+            TrackingEvent event = new TrackingEvent();
+            event.setStatus(target.getValue());
+            event.setNote(note);
+            event.setTimestamp(now);
+            Update update = deliveryTrackingService.withEvent(new Update(), event)
+                    .set("status", target.getValue())
+                    .set("updatedAt", now)
+                    .inc(VersionedDocument.VERSION_FIELD, 1);
+            bulk.updateOne(new Query(Criteria.where("id").is(id)
+                    .and("status").is(delivery.getStatus())
+                    .and(VersionedDocument.VERSION_FIELD).is(delivery.getVersion())), update);
+            events.put(id, event);
+            pending.add(delivery);
+            results.put(id, null); // keeps the request order, filled in below
+        }
+
+        if (!pending.isEmpty()) {
+            bulk.execute();
+            // Re-read to tell applied updates from ones that lost a race
+            Map<String, Delivery> after = new HashMap<>();
+            for (Delivery delivery : mongoTemplate.find(new Query(Criteria.where("id").in(events.keySet())), Delivery.class)) {
+                after.put(delivery.getId(), delivery);
+            }
+            for (Delivery previous : pending) {
+                Delivery current = after.get(previous.getId());
+                long expectedVersion = (previous.getVersion() == null ? 0L : previous.getVersion()) + 1;
+                if (current != null && target.getValue().equals(current.getStatus())
+                        && current.getVersion() != null && current.getVersion() == expectedVersion) {
+                    results.put(previous.getId(), BulkStatusResult.updated(previous.getId(), previous.getStatus(), current.getStatus()));
+                    updated.add(new Transition(current, previous.getStatus(), null, null, Map.of()));
+                } else {
+                    events.remove(previous.getId());
+                    results.put(previous.getId(), BulkStatusResult.rejected(previous.getId(), BulkStatusResult.CONFLICT,
+                            current != null ? current.getStatus() : null, "Delivery was modified concurrently"));
+                }
+            }
+            try {
+                deliveryTrackingService.storeOverflow(events);
+            } catch (Exception e) {
+                log.warn("Could not store {} tracking events: {}", events.size(), e.getMessage());
+            }
+        }
+        log.info("Bulk status update of {} deliveries to {}: {} updated", deliveryIds.size(), target.getValue(), updated.size());
+        return new BulkStatusUpdate<>(new ArrayList<>(results.values()), updated);
+    }
+
+    private Transition apply(String deliveryId, DeliveryStatus target) {
+        Delivery delivery = mongoTemplate.findById(deliveryId, Delivery.class);
+        if (delivery == null) {
+            throw new ServiceException("Delivery not found");
+        }
+        DeliveryStatus current = DeliveryStatus.fromValue(delivery.getStatus());
+        if (current == null || !current.canTransitionTo(target)) {
+            throw new InvalidStatusTransitionException("Cannot change delivery status from "
+                    + delivery.getStatus() + " to " + target.getValue(), delivery.getStatus());
+        }
+
+        Date now = new Date();
+        Update update = new Update()
+                .set("status", target.getValue())
+                .set("updatedAt", now)
+                .inc(VersionedDocument.VERSION_FIELD, 1);
+        if (target == DeliveryStatus.COMPLETE) {
+            update.set("deliveredDate", now).set("deliveredTime", new SimpleDateFormat("HH:mm:ss").format(now));
+        }
+        Query unchanged = new Query(Criteria.where("id").is(deliveryId)
+                .and("status").is(delivery.getStatus())
+                .and(VersionedDocument.VERSION_FIELD).is(delivery.getVersion()));
+        Delivery updated = mongoTemplate.findAndModify(unchanged, update,
+                FindAndModifyOptions.options().returnNew(true), Delivery.class);
+        if (updated == null) {
+            throw new ConcurrentChange();
+        }
+
+        HospitalRequest request = null;
+        HospitalRequest previousRequest = null;
+        Map<String, Integer> issued = new LinkedHashMap<>();
+        if (target == DeliveryStatus.COMPLETE) {
+            previousRequest = linkedRequest(updated);
+            request = completeRequest(updated, previousRequest);
+            if (updated.getBloodBankId() != null && updated.getBloodItems() != null) {
+                for (BloodInventoryItem item : updated.getBloodItems()) {
+                    int units = bloodInventoryService.issueUnits(updated.getBloodBankId(), item.getBloodType(), item.getUnits());
+                    issued.merge(item.getBloodType(), units, Integer::sum);
+                }
+            }
+        }
+        return new Transition(updated, delivery.getStatus(), request, request != null ? previousRequest : null, issued);
+    }
+
+    private HospitalRequest linkedRequest(Delivery delivery) {
+        String requestId = delivery.getRequestId();
+        if (requestId == null || requestId.isEmpty() || "N/A".equals(requestId)) {
+            return null;
+        }
+        return mongoTemplate.findById(requestId, HospitalRequest.class);
+    }
+
+    /**
+     * Fulfil the linked request, or record one completed leg of a split request.
+     * A request that is already REJECTED or FULFILLED is left as it is.
+     */
+    private HospitalRequest completeRequest(Delivery delivery, HospitalRequest linked) {
+        if (linked == null) {
+            return null;
+        }
+        String requestId = linked.getId();
+        if (splitFulfillmentService.recordLegCompleted(requestId, delivery)) {
+            return mongoTemplate.findById(requestId, HospitalRequest.class);
+        }
+        HospitalRequestStatus current = HospitalRequestStatus.fromValue(linked.getStatus());
+        if (current == null || !current.canTransitionTo(HospitalRequestStatus.FULFILLED)) {
+            log.info("Hospital request {} is {}, not marking it FULFILLED", requestId, linked.getStatus());
+            return null;
+        }
+        Date now = new Date();
+        HospitalRequest request = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(requestId).and("status").is(linked.getStatus())),
+                new Update().set("status", FULFILLED).set("updatedAt", now).set("statusChangedAt", now)
+                        .inc(VersionedDocument.VERSION_FIELD, 1),
+                FindAndModifyOptions.options().returnNew(true), HospitalRequest.class);
+        if (request != null) {
+            log.info("Updated hospital request {} status to FULFILLED", requestId);
+        }
+        return request;
+    }
+
+    // In-memory state is only updated once the transaction has committed
+    private void afterCommit(Transition transition) {
+        String bloodBankId = transition.delivery().getBloodBankId();
+        transition.issuedUnits().forEach((bloodType, units) -> {
+            inventoryIndexService.applyDelta(bloodBankId, bloodType, -units);
+            consumptionForecastService.recordIssued(bloodBankId, bloodType, units);
+        });
+        if (DeliveryStatus.COMPLETE.getValue().equals(transition.delivery().getStatus())) {
+            deliveryEtaService.recordCompletion(transition.delivery());
+        }
+        requestTriageService.onRequestChanged(transition.request());
+        requestEventService.record(transition.previousRequest(), transition.request(), RequestEventService.SOURCE_DELIVERY);
+        log.info("Delivery {} status changed from {} to {}", transition.delivery().getId(),
+                transition.previousStatus(), transition.delivery().getStatus());
+    }
+
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException
+                    && mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.DeliveryTrackingEvent;
+import RedSource.entities.TrackingEvent;
+import RedSource.entities.VersionedDocument;
+import RedSource.entities.utils.MessageUtils;
+import RedSource.exceptions.ServiceException;
+import RedSource.repositories.DeliveryTrackingEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends tracking events to deliveries with a single partial update.
+ * <p>
+ * The delivery keeps only its latest events in tracking_history ($push with a
+ * negative $slice), so the document and the cost of each append stay bounded.
+ * When overflow is enabled every event is also inserted into
+ * delivery_tracking_events, which holds the complete history.
+ */
+@Service
+@RequiredArgsConstructor
+public class DeliveryTrackingService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryTrackingService.class);
+    private static final String TRACKING_EVENT = "Tracking Event";
+    private static final String TRACKING_HISTORY = "Tracking History";
+
+    private final MongoTemplate mongoTemplate;
+    private final DeliveryTrackingEventRepository trackingEventRepository;
+
+    @Value("${delivery.tracking.max-embedded-events:50}")
+    private int maxEmbeddedEvents;
+
+    @Value("${delivery.tracking.overflow-enabled:true}")
+    private boolean overflowEnabled;
+
+    /**
+     * Append an event to a delivery. The event's status is informational; the
+     * delivery status only changes through DeliveryStatusService. Returns the
+     * updated delivery, or throws when it does not exist.
+     */
+    public Delivery append(String deliveryId, TrackingEvent event) {
+        try {
+            Date now = new Date();
+            if (event.getTimestamp() == null) {
+                event.setTimestamp(now);
+            }
+
+            Update update = withEvent(new Update(), event)
+                    .set("updatedAt", now)
+                    .inc(VersionedDocument.VERSION_FIELD, 1);
+
+            Delivery delivery = mongoTemplate.findAndModify(new Query(Criteria.where("id").is(deliveryId)), update,
+                    FindAndModifyOptions.options().returnNew(true), Delivery.class);
+            if (delivery == null) {
+                throw new ServiceException("Delivery not found");
+            }
+
+            if (overflowEnabled) {
+                trackingEventRepository.insert(toStored(deliveryId, event));
+            }
+            log.info(MessageUtils.saveSuccess(TRACKING_EVENT));
+            return delivery;
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.saveError(TRACKING_EVENT);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Add the embedding of event to an update, for callers that write the
+     * delivery themselves; they then hand the event to storeOverflow.
+     */
+    public Update withEvent(Update update, TrackingEvent event) {
+        if (event.getTimestamp() == null) {
+            event.setTimestamp(new Date());
+        }
+        return update.push("trackingHistory").slice(-maxEmbeddedEvents).each(event);
+    }
+
+    /**
+     * Copy events already embedded by the caller into the overflow collection, in one insert.
+     */
+    public void storeOverflow(Map<String, TrackingEvent> eventsByDelivery) {
+        if (!overflowEnabled || eventsByDelivery.isEmpty()) {
+            return;
+        }
+        List<DeliveryTrackingEvent> stored = new ArrayList<>();
+        eventsByDelivery.forEach((deliveryId, event) -> stored.add(toStored(deliveryId, event)));
+        trackingEventRepository.insert(stored);
+    }
+
+    /**
+     * Append a status change event, e.g. after a status update.
+     */
+    public Delivery appendStatus(String deliveryId, String status, String note) {
+        TrackingEvent event = new TrackingEvent();
+        event.setStatus(status);
+        event.setNote(note);
+        return append(deliveryId, event);
+    }
+
+    /**
+     * Full tracking history of a delivery, oldest first. Events recorded before
+     * the overflow collection existed are only embedded and are merged in.
+     */
+    public List<TrackingEvent> getHistory(String deliveryId) {
+        try {
+            Query query = new Query(Criteria.where("id").is(deliveryId));
+            query.fields().include("trackingHistory");
+            Delivery delivery = mongoTemplate.findOne(query, Delivery.class);
+            if (delivery == null) {
+                throw new ServiceException("Delivery not found");
+            }
+            List<TrackingEvent> embedded = delivery.getTrackingHistory() != null
+                    ? delivery.getTrackingHistory()
+                    : List.of();
+            if (!overflowEnabled) {
+                return embedded;
+            }
+
+            List<TrackingEvent> history = new ArrayList<>();
+            List<DeliveryTrackingEvent> stored = trackingEventRepository.findByDeliveryIdOrderByTimestampAsc(deliveryId);
+            Date firstStored = stored.isEmpty() ? null : stored.get(0).getTimestamp();
+            for (TrackingEvent event : embedded) {
+                if (firstStored == null || (event.getTimestamp() != null && event.getTimestamp().before(firstStored))) {
+                    history.add(event);
+                }
+            }
+            for (DeliveryTrackingEvent event : stored) {
+                history.add(event.toTrackingEvent());
+            }
+            log.info(MessageUtils.retrieveSuccess(TRACKING_HISTORY));
+            return history;
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(TRACKING_HISTORY);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
+    public void deleteHistory(String deliveryId) {
+        trackingEventRepository.deleteByDeliveryId(deliveryId);
+    }
+
+    private static DeliveryTrackingEvent toStored(String deliveryId, TrackingEvent event) {
+        return DeliveryTrackingEvent.builder()
+                .deliveryId(deliveryId)
+                .timestamp(event.getTimestamp())
+                .status(event.getStatus())
+                .location(event.getLocation())
+                .note(event.getNote())
+                .build();
+    }
+}
@@ -0,0 +1,345 @@
+package RedSource.services;
+
+import RedSource.entities.Appointment;
+import RedSource.entities.User;
+import RedSource.entities.enums.AppointmentStatus;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Donation eligibility materialized on the donor: last donation date, next
+ * eligible date (3 months after the last scheduled or completed appointment)
+ * and whether a pending or scheduled appointment is open.
+ * <p>
+ * An appointment change that only adds to these (a booking, a completion) is
+ * applied to the donor as one atomic update: $max on the dates and
+ * has_active_booking set. A change that takes something away (a cancellation,
+ * a deletion, a moved date) can move the dates back or clear the flag, so the
+ * donor is recomputed from their appointments instead. That write is
+ * conditional on the eligibility_version read before the appointments, which
+ * every write increments, and a recompute that loses to a concurrent write
+ * starts over, so a stale result never lands after a fresh one. Donors written
+ * before this existed have no eligibility_version yet and are materialized on
+ * first read, or all at once by backfill().
+ */
+@Service
+@RequiredArgsConstructor
+public class DonorEligibilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(DonorEligibilityService.class);
+    private static final int WAITING_MONTHS = 3;
+    private static final int BATCH_SIZE = 500;
+    private static final int BACKFILL_THREADS = 4;
+    private static final int MAX_REFRESH_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    public record Eligibility(Date lastDonationDate, Date nextEligibleDate, boolean hasActiveBooking) {
+
+        public boolean canBook(Date appointmentDate) {
+            return nextEligibleDate == null || appointmentDate == null || !appointmentDate.before(nextEligibleDate);
+        }
+    }
+
+    // What one appointment in one status adds to its donor's eligibility
+    private record Contribution(Date relevant, Date donation, boolean active) {
+
+        static final Contribution NONE = new Contribution(null, null, false);
+
+        static Contribution of(Appointment appointment, String statusValue) {
+            if (appointment == null) {
+                return NONE;
+            }
+            AppointmentStatus status = AppointmentStatus.fromValue(statusValue);
+            boolean active = status == AppointmentStatus.PENDING || status == AppointmentStatus.SCHEDULED;
+            if (status != AppointmentStatus.COMPLETE && status != AppointmentStatus.SCHEDULED) {
+                return new Contribution(null, null, active);
+            }
+            Date date = donationDate(appointment);
+            return new Contribution(date, status == AppointmentStatus.COMPLETE ? date : null, active);
+        }
+
+        // Whether this keeps everything previous added, so applying it can only move the fields forward
+        boolean covers(Contribution previous) {
+            return (previous.relevant == null || previous.relevant.equals(relevant))
+                    && (previous.donation == null || previous.donation.equals(donation))
+                    && (!previous.active || active);
+        }
+    }
+
+    // Running result while a donor's appointments are folded in
+    private static final class Accumulator {
+        Date lastDonation;
+        Date lastRelevant;
+        boolean active;
+
+        void add(Appointment appointment) {
+            Contribution contribution = Contribution.of(appointment, appointment.getStatus());
+            active |= contribution.active();
+            Date date = contribution.relevant();
+            if (date != null && (lastRelevant == null || date.after(lastRelevant))) {
+                lastRelevant = date;
+            }
+            Date donation = contribution.donation();
+            if (donation != null && (lastDonation == null || donation.after(lastDonation))) {
+                lastDonation = donation;
+            }
+        }
+
+        Eligibility result() {
+            return new Eligibility(lastDonation, lastRelevant != null ? nextEligibleAfter(lastRelevant) : null, active);
+        }
+    }
+
+    /**
+     * Current eligibility of a donor, read from the materialized fields.
+     */
+    public Eligibility get(String userId) {
+        if (userId == null) {
+            return new Eligibility(null, null, false);
+        }
+        User user = readEligibility(userId);
+        if (user == null || user.getEligibilityVersion() == null) {
+            return refresh(userId);
+        }
+        return new Eligibility(user.getLastDonationDate(), user.getNextEligibleDate(),
+                Boolean.TRUE.equals(user.getHasActiveBooking()));
+    }
+
+    public void onSaved(Appointment appointment) {
+        apply(appointment != null ? appointment.getUserId() : null, Contribution.NONE,
+                Contribution.of(appointment, appointment != null ? appointment.getStatus() : null), appointment);
+    }
+
+    public void onStatusChanged(Appointment appointment, String previousStatus) {
+        apply(appointment.getUserId(), Contribution.of(appointment, previousStatus),
+                Contribution.of(appointment, appointment.getStatus()), appointment);
+    }
+
+    public void onUpdated(Appointment before, Appointment after) {
+        if (!Objects.equals(before.getUserId(), after.getUserId())) {
+            refresh(before.getUserId());
+            refresh(after.getUserId());
+            return;
+        }
+        apply(after.getUserId(), Contribution.of(before, before.getStatus()), Contribution.of(after, after.getStatus()), after);
+    }
+
+    public void onDeleted(Appointment appointment) {
+        apply(appointment.getUserId(), Contribution.of(appointment, appointment.getStatus()), Contribution.NONE, appointment);
+    }
+
+    // Apply the change as $max/$set on the donor when it only adds, recompute otherwise
+    private void apply(String userId, Contribution previous, Contribution current, Appointment appointment) {
+        if (userId == null || current.equals(previous)) {
+            return;
+        }
+        if (!current.covers(previous)) {
+            refresh(userId);
+            return;
+        }
+        Update update = new Update().inc("eligibilityVersion", 1);
+        if (current.relevant() != null) {
+            update.max("nextEligibleDate", nextEligibleAfter(current.relevant()));
+        }
+        if (current.donation() != null) {
+            update.max("lastDonationDate", current.donation());
+        }
+        if (current.active()) {
+            update.set("hasActiveBooking", true);
+        }
+        // Donors that were never materialized have nothing to add to yet
+        long matched = mongoTemplate.updateFirst(new Query(Criteria.where("id").is(userId).and("eligibilityVersion").ne(null)),
+                update, User.class).getMatchedCount();
+        if (matched == 0) {
+            refresh(userId);
+        }
+        log.debug("Applied appointment {} to donor {} eligibility", appointment.getId(), userId);
+    }
+
+    /**
+     * Recompute a donor's eligibility from their appointments and store it.
+     */
+    public Eligibility refresh(String userId) {
+        if (userId == null) {
+            return new Eligibility(null, null, false);
+        }
+        Query query = new Query(Criteria.where("userId").is(userId));
+        query.fields().include("status", "appointmentDate", "visitationDate", "dateToday");
+        for (int attempt = 1; ; attempt++) {
+            User user = readEligibility(userId);
+            if (user == null) {
+                return new Eligibility(null, null, false);
+            }
+            Accumulator accumulator = new Accumulator();
+            for (Appointment appointment : mongoTemplate.find(query, Appointment.class)) {
+                accumulator.add(appointment);
+            }
+            Eligibility eligibility = accumulator.result();
+            // Only lands if no other recompute was written since the version was read
+            long written = mongoTemplate.updateFirst(new Query(Criteria.where("id").is(userId)
+                            .and("eligibilityVersion").is(user.getEligibilityVersion())),
+                    toUpdate(eligibility), User.class).getModifiedCount();
+            if (written > 0 || attempt >= MAX_REFRESH_ATTEMPTS) {
+                if (written == 0) {
+                    log.warn("Donor {} eligibility kept changing, gave up after {} attempts", userId, attempt);
+                }
+                log.debug("Donor {} eligibility: last donation {}, next eligible {}, active booking {}", userId,
+                        eligibility.lastDonationDate(), eligibility.nextEligibleDate(), eligibility.hasActiveBooking());
+                return eligibility;
+            }
+        }
+    }
+
+    private User readEligibility(String userId) {
+        Query query = new Query(Criteria.where("id").is(userId));
+        query.fields().include("lastDonationDate", "nextEligibleDate", "hasActiveBooking", "eligibilityVersion");
+        return mongoTemplate.findOne(query, User.class);
+    }
+
+    /**
+     * One-off materialization for every donor with appointments. Appointments are
+     * streamed in user order and folded per donor; the resulting updates are
+     * written as unordered bulk batches on a small pool, in parallel with the read.
+     */
+    public Map<String, Object> backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("Eligibility backfill is already running");
+        }
+        long startedAt = System.currentTimeMillis();
+        ExecutorService writers = Executors.newFixedThreadPool(BACKFILL_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "eligibility-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            AtomicLong appointments = new AtomicLong();
+            AtomicLong donors = new AtomicLong();
+            List<Future<Integer>> batches = new ArrayList<>();
+            Map<String, Eligibility> batch = new LinkedHashMap<>();
+
+            Query query = new Query(Criteria.where("userId").ne(null)).with(Sort.by("userId"));
+            query.fields().include("userId", "status", "appointmentDate", "visitationDate", "dateToday");
+            String[] currentUser = {null};
+            Accumulator[] accumulator = {null};
+            try (Stream<Appointment> stream = mongoTemplate.stream(query, Appointment.class)) {
+                stream.forEach(appointment -> {
+                    appointments.incrementAndGet();
+                    if (!appointment.getUserId().equals(currentUser[0])) {
+                        if (currentUser[0] != null) {
+                            batch.put(currentUser[0], accumulator[0].result());
+                            donors.incrementAndGet();
+                            if (batch.size() >= BATCH_SIZE) {
+                                batches.add(submit(writers, batch));
+                                batch.clear();
+                            }
+                        }
+                        currentUser[0] = appointment.getUserId();
+                        accumulator[0] = new Accumulator();
+                    }
+                    accumulator[0].add(appointment);
+                });
+            }
+            if (currentUser[0] != null) {
+                batch.put(currentUser[0], accumulator[0].result());
+                donors.incrementAndGet();
+            }
+            if (!batch.isEmpty()) {
+                batches.add(submit(writers, batch));
+            }
+
+            long updated = 0;
+            for (Future<Integer> future : batches) {
+                updated += future.get();
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("appointments", appointments.get());
+            result.put("donors", donors.get());
+            result.put("updated", updated);
+            result.put("batches", batches.size());
+            result.put("elapsedMs", System.currentTimeMillis() - startedAt);
+            log.info("Backfilled eligibility of {} donors from {} appointments in {} batches",
+                    donors.get(), appointments.get(), batches.size());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Eligibility backfill was interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Eligibility backfill failed: " + e.getMessage(), e);
+        } finally {
+            writers.shutdown();
+            backfillRunning.set(false);
+        }
+    }
+
+    private Future<Integer> submit(ExecutorService writers, Map<String, Eligibility> batch) {
+        Map<String, Eligibility> snapshot = new LinkedHashMap<>(batch);
+        return writers.submit(() -> {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            snapshot.forEach((userId, eligibility) ->
+                    bulk.updateOne(new Query(Criteria.where("id").is(userId)), toUpdate(eligibility)));
+            return bulk.execute().getMatchedCount();
+        });
+    }
+
+    private static Update toUpdate(Eligibility eligibility) {
+        return new Update()
+                .set("lastDonationDate", eligibility.lastDonationDate())
+                .set("nextEligibleDate", eligibility.nextEligibleDate())
+                .set("hasActiveBooking", eligibility.hasActiveBooking())
+                .inc("eligibilityVersion", 1);
+    }
+
+    private static Date nextEligibleAfter(Date date) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.add(Calendar.MONTH, WAITING_MONTHS);
+        return cal.getTime();
+    }
+
+    // appointmentDate first, then visitationDate, then the yyyy-MM-dd dateToday string
+    private static Date donationDate(Appointment appointment) {
+        if (appointment.getAppointmentDate() != null) {
+            return appointment.getAppointmentDate();
+        }
+        if (appointment.getVisitationDate() != null) {
+            return appointment.getVisitationDate();
+        }
+        if (appointment.getDateToday() != null) {
+            try {
+                return Date.from(LocalDate.parse(appointment.getDateToday().trim())
+                        .atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException e) {
+                log.warn("Could not parse dateToday: {}", appointment.getDateToday());
+            }
+        }
+        return null;
+    }
+}
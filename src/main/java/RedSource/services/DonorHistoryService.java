@@ -1,6 +1,7 @@
 package RedSource.services;
 
 import RedSource.entities.DonorHistory;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
 import RedSource.repositories.DonorHistoryRepository;
@@ -22,6 +23,7 @@ public class DonorHistoryService {
     public static final String DONOR_HISTORY = "Donor History";
 
     private final DonorHistoryRepository donorHistoryRepository;
+    private final PaginationService paginationService;
 
     public List<DonorHistory> getAll() {
         try {
@@ -35,6 +37,22 @@ public class DonorHistoryService {
         }
     }
 
+    // Retrieve one keyset page of donor histories, newest first, optionally filtered by donor
+    public KeysetPage<DonorHistory> getPage(String cursor, Integer limit, String donorId) {
+        try {
+            KeysetPage<DonorHistory> page = paginationService.findPage(DonorHistory.class,
+                    PaginationService.filter("donorId", donorId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(DONOR_HISTORIES));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(DONOR_HISTORIES);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public DonorHistory getById(String id) {
         try {
             if (Objects.isNull(id)) {
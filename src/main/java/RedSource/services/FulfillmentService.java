@@ -19,6 +19,7 @@ public class FulfillmentService {
 
     private static final Logger log = LoggerFactory.getLogger(FulfillmentService.class);
     private final FulfillmentRepository fulfillmentRepository;
+    private final FulfillmentStatsService fulfillmentStatsService;
 
     public List<Fulfillment> getAll() {
         try {
@@ -45,11 +46,37 @@ public class FulfillmentService {
         }
     }
 
+    public List<Fulfillment> getByHospitalRequestId(String hospitalRequestId) {
+        try {
+            List<Fulfillment> fulfillments = fulfillmentRepository.findByHospitalRequestId(hospitalRequestId);
+            log.info(MessageUtils.retrieveSuccess("Fulfillments"));
+            return fulfillments;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError("Fulfillments");
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
+    // Newest first
+    public List<Fulfillment> getByBloodBankId(String bloodBankId) {
+        try {
+            List<Fulfillment> fulfillments = fulfillmentRepository.findByBloodBankIdOrderByFulfillmentDateDesc(bloodBankId);
+            log.info(MessageUtils.retrieveSuccess("Fulfillments"));
+            return fulfillments;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError("Fulfillments");
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public Fulfillment save(Fulfillment fulfillment) {
         try {
             fulfillment.setCreatedAt(new Date());
             fulfillment.setUpdatedAt(new Date());
             Fulfillment savedFulfillment = fulfillmentRepository.save(fulfillment);
+            fulfillmentStatsService.onFulfillmentChanged(null, savedFulfillment);
             log.info(MessageUtils.saveSuccess("Fulfillment"));
             return savedFulfillment;
         } catch (Exception e) {
@@ -69,6 +96,7 @@ public class FulfillmentService {
             fulfillment.setCreatedAt(existingFulfillment.getCreatedAt());
             fulfillment.setUpdatedAt(new Date());
             Fulfillment updatedFulfillment = fulfillmentRepository.save(fulfillment);
+            fulfillmentStatsService.onFulfillmentChanged(existingFulfillment, updatedFulfillment);
             log.info(MessageUtils.updateSuccess("Fulfillment"));
             return updatedFulfillment;
         } catch (Exception e) {
@@ -85,6 +113,7 @@ public class FulfillmentService {
                 throw new ServiceException("Fulfillment not found");
             }
             fulfillmentRepository.deleteById(id);
+            fulfillmentStatsService.onFulfillmentChanged(fulfillment, null);
             log.info(MessageUtils.deleteSuccess("Fulfillment"));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError("Fulfillment");
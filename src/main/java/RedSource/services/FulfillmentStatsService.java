@@ -0,0 +1,146 @@
+package RedSource.services;
+
+import RedSource.entities.DTO.FulfillmentDailyStatsDTO;
+import RedSource.entities.DTO.FulfillmentFillRateDTO;
+import RedSource.entities.Fulfillment;
+import RedSource.entities.HospitalRequest;
+import RedSource.repositories.FulfillmentRepository;
+import RedSource.repositories.HospitalRequestRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Fulfillment statistics computed by aggregation pipelines and cached per key.
+ * <p>
+ * Daily units are cached per blood bank and window, fill rates per hospital.
+ * A fulfillment or request write only evicts the entries of the bank and
+ * hospital it belongs to, plus the network-wide entries; everything else stays
+ * cached. Entries also expire after stats.fulfillment.ttl-ms as a safety net
+ * for writes that bypass the services.
+ */
+@Service
+@RequiredArgsConstructor
+public class FulfillmentStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(FulfillmentStatsService.class);
+    private static final String ALL = "*";
+    private static final int MAX_DAYS = 366;
+
+    private final FulfillmentRepository fulfillmentRepository;
+    private final HospitalRequestRepository hospitalRequestRepository;
+
+    @Value("${stats.fulfillment.ttl-ms:600000}")
+    private long ttlMs;
+
+    private record Cached<T>(T value, long computedAt) {
+    }
+
+    // Keyed by bloodBankId (or ALL), then by window in days
+    private final Map<String, Map<Integer, Cached<List<FulfillmentDailyStatsDTO>>>> dailyByBank = new ConcurrentHashMap<>();
+    // Keyed by hospitalId (or ALL)
+    private final Map<String, Cached<List<FulfillmentFillRateDTO>>> fillRateByHospital = new ConcurrentHashMap<>();
+    // Bumped on every eviction so a result computed across a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Units fulfilled per day over the last days, for one bank or for all banks when bloodBankId is null.
+     */
+    public List<FulfillmentDailyStatsDTO> getDailyUnits(String bloodBankId, Integer days) {
+        int window = days == null ? 30 : days;
+        if (window < 1 || window > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_DAYS);
+        }
+        String bank = bloodBankId == null || bloodBankId.isBlank() ? ALL : bloodBankId;
+        Date from = new Date(System.currentTimeMillis() - window * 24L * 60 * 60 * 1000);
+        Map<Integer, Cached<List<FulfillmentDailyStatsDTO>>> windows =
+                dailyByBank.computeIfAbsent(bank, k -> new ConcurrentHashMap<>());
+        return cached(windows, window, () -> ALL.equals(bank)
+                ? fulfillmentRepository.findDailyUnits(from)
+                : fulfillmentRepository.findDailyUnitsByBloodBankId(bank, from));
+    }
+
+    /**
+     * Fill rate of one hospital, or of every hospital (lowest first) when hospitalId is null.
+     */
+    public List<FulfillmentFillRateDTO> getFillRates(String hospitalId) {
+        String hospital = hospitalId == null || hospitalId.isBlank() ? ALL : hospitalId;
+        return cached(fillRateByHospital, hospital, () -> ALL.equals(hospital)
+                ? hospitalRequestRepository.findFillRates()
+                : hospitalRequestRepository.findFillRateByHospitalId(hospital));
+    }
+
+    /**
+     * Evict the entries touched by a fulfillment write. Either side may be null
+     * (create or delete); both are passed on update so a moved fulfillment
+     * invalidates its old and new bank and hospital.
+     */
+    public void onFulfillmentChanged(Fulfillment before, Fulfillment after) {
+        for (Fulfillment fulfillment : new Fulfillment[]{before, after}) {
+            if (fulfillment == null) {
+                continue;
+            }
+            evictBank(fulfillment.getBloodBankId());
+            if (fulfillment.getHospitalRequestId() != null) {
+                hospitalRequestRepository.findById(fulfillment.getHospitalRequestId())
+                        .map(HospitalRequest::getHospitalId)
+                        .ifPresentOrElse(this::evictHospital, () -> fillRateByHospital.remove(ALL));
+            }
+        }
+    }
+
+    /**
+     * Evict the fill rate of a hospital whose requested units may have changed.
+     */
+    public void onRequestChanged(String hospitalId) {
+        evictHospital(hospitalId);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        dailyByBank.clear();
+        fillRateByHospital.clear();
+        log.info("Fulfillment stats cache cleared");
+    }
+
+    private void evictBank(String bloodBankId) {
+        generation.incrementAndGet();
+        if (bloodBankId != null) {
+            dailyByBank.remove(bloodBankId);
+        }
+        dailyByBank.remove(ALL);
+    }
+
+    private void evictHospital(String hospitalId) {
+        generation.incrementAndGet();
+        if (hospitalId != null) {
+            fillRateByHospital.remove(hospitalId);
+        }
+        fillRateByHospital.remove(ALL);
+    }
+
+    private <K, T> T cached(Map<K, Cached<T>> cache, K key, Supplier<T> compute) {
+        long now = System.currentTimeMillis();
+        Cached<T> entry = cache.get(key);
+        if (entry != null && now - entry.computedAt() < ttlMs) {
+            return entry.value();
+        }
+        long startedAt = generation.get();
+        T value = compute.get();
+        if (generation.get() == startedAt) {
+            cache.put(key, new Cached<>(value, now));
+        } else {
+            log.debug("Fulfillment stats entry {} invalidated while computing, not cached", key);
+        }
+        return value;
+    }
+}
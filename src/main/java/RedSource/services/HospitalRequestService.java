@@ -1,21 +1,43 @@
 package RedSource.services;
 
 import RedSource.entities.BloodBankUser;
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.DTO.HospitalRequestListingDTO;
 import RedSource.entities.Hospital;
 import RedSource.entities.HospitalRequest;
+import RedSource.entities.VersionedDocument;
+import RedSource.entities.enums.HospitalRequestStatus;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
+import RedSource.exceptions.InvalidStatusTransitionException;
 import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
 import RedSource.repositories.HospitalRequestRepository;
 import RedSource.repositories.HospitalRepository;
 import RedSource.services.BloodBankService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +48,14 @@ public class HospitalRequestService {
     public static final String HOSPITAL_REQUEST = "Hospital Request";
 
     private final HospitalRequestRepository hospitalRequestRepository;
+    private final PaginationService paginationService;
     private final BloodBankService bloodBankService;
     private final HospitalRepository hospitalRepository;
+    private final OptimisticUpdateService optimisticUpdateService;
+    private final FulfillmentStatsService fulfillmentStatsService;
+    private final RequestTriageService requestTriageService;
+    private final RequestEventService requestEventService;
+    private final MongoTemplate mongoTemplate;
 
     public List<HospitalRequest> getAll() {
         try {
@@ -50,6 +78,27 @@ public class HospitalRequestService {
         }
     }
 
+    // Retrieve one keyset page of hospital requests, newest first, optionally filtered by status and hospital
+    public KeysetPage<HospitalRequest> getPage(String cursor, Integer limit, String status, String hospitalId) {
+        try {
+            KeysetPage<HospitalRequest> page = paginationService.findPage(HospitalRequest.class,
+                    PaginationService.filter("status", status, "hospitalId", hospitalId), cursor, limit);
+            for (HospitalRequest request : page.getItems()) {
+                if (request.getBloodItems() == null) {
+                    request.setBloodItems(new java.util.ArrayList<>());
+                }
+            }
+            log.info(MessageUtils.retrieveSuccess(HOSPITAL_REQUESTS));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(HOSPITAL_REQUESTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public HospitalRequest getById(String id) {
         try {
             if (Objects.isNull(id)) {
@@ -68,7 +117,11 @@ public class HospitalRequestService {
             Date now = new Date();
             request.setCreatedAt(now);
             request.setUpdatedAt(now);
+            request.setStatusChangedAt(now);
             HospitalRequest savedRequest = hospitalRequestRepository.save(request);
+            requestEventService.record(null, savedRequest, RequestEventService.SOURCE_API);
+            fulfillmentStatsService.onRequestChanged(savedRequest.getHospitalId());
+            requestTriageService.onRequestChanged(savedRequest);
             log.info(MessageUtils.saveSuccess(HOSPITAL_REQUEST));
             return savedRequest;
         } catch (Exception e) {
@@ -78,18 +131,32 @@ public class HospitalRequestService {
         }
     }
 
+    /**
+     * Version-checked update of the fields present in request.
+     * A stale version results in a VersionConflictException (HTTP 409).
+     */
     public HospitalRequest update(String id, HospitalRequest request) {
         try {
-            HospitalRequest existingRequest = getById(id);
-            if (existingRequest == null) {
-                throw new ServiceException("Hospital Request not found");
-            }
             request.setId(id);
-            request.setCreatedAt(existingRequest.getCreatedAt());
+            request.setCreatedAt(null); // keep the stored creation date
             request.setUpdatedAt(new Date());
-            HospitalRequest updatedRequest = hospitalRequestRepository.save(request);
+            if (request.getStatus() != null) {
+                HospitalRequest stored = getById(id);
+                if (stored != null && !request.getStatus().equals(stored.getStatus())) {
+                    request.setStatusChangedAt(request.getUpdatedAt());
+                }
+            }
+            OptimisticUpdateService.VersionedUpdate<HospitalRequest> result = request.getVersion() != null
+                    ? optimisticUpdateService.update(id, request, request.getVersion(), HospitalRequest.class)
+                    : optimisticUpdateService.updateLatest(id, request, HospitalRequest.class);
+            HospitalRequest updatedRequest = result.current();
+            requestEventService.record(result.previous(), updatedRequest, RequestEventService.SOURCE_API);
+            fulfillmentStatsService.onRequestChanged(updatedRequest.getHospitalId());
+            requestTriageService.onRequestChanged(updatedRequest);
             log.info(MessageUtils.updateSuccess(HOSPITAL_REQUEST));
             return updatedRequest;
+        } catch (VersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             String errorMessage = MessageUtils.updateError(HOSPITAL_REQUEST);
             log.error(errorMessage, e);
@@ -97,6 +164,129 @@ public class HospitalRequestService {
         }
     }
 
+    /**
+     * Move one request to a new status, checked against HospitalRequestStatus
+     * like the bulk update. The write is conditional on the status that was read.
+     */
+    public HospitalRequest updateStatus(String id, String status) {
+        HospitalRequestStatus target = HospitalRequestStatus.fromValue(status);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown hospital request status: " + status);
+        }
+        if (target == HospitalRequestStatus.FULFILLED) {
+            throw new IllegalArgumentException("Requests are fulfilled by completing their deliveries");
+        }
+        HospitalRequest request = getById(id);
+        if (request == null) {
+            throw new ServiceException("Hospital request not found");
+        }
+        HospitalRequestStatus current = HospitalRequestStatus.fromValue(request.getStatus());
+        if (current == null || !current.canTransitionTo(target)) {
+            throw new InvalidStatusTransitionException("Cannot change status from "
+                    + request.getStatus() + " to " + target.name(), request.getStatus());
+        }
+
+        Date now = new Date();
+        HospitalRequest updatedRequest = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(id).and("status").is(request.getStatus())),
+                new Update().set("status", target.name()).set("statusChangedAt", now).set("updatedAt", now)
+                        .inc(VersionedDocument.VERSION_FIELD, 1),
+                FindAndModifyOptions.options().returnNew(true), HospitalRequest.class);
+        if (updatedRequest == null) {
+            throw new VersionConflictException("Hospital request was modified concurrently", request.getVersion());
+        }
+        requestEventService.record(request, updatedRequest, RequestEventService.SOURCE_API);
+        fulfillmentStatsService.onRequestChanged(updatedRequest.getHospitalId());
+        requestTriageService.onRequestChanged(updatedRequest);
+        log.info(MessageUtils.updateSuccess(HOSPITAL_REQUEST));
+        return updatedRequest;
+    }
+
+    /**
+     * Move several requests to one status. Transitions are checked against
+     * HospitalRequestStatus, then applied in one unordered bulk write where every
+     * update is conditional on the status and version that were read, so a
+     * request changed in between is reported as CONFLICT instead of overwritten.
+     */
+    public BulkStatusUpdate<HospitalRequest> bulkUpdateStatus(List<String> ids, String status) {
+        HospitalRequestStatus target = HospitalRequestStatus.fromValue(status);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown hospital request status: " + status);
+        }
+        if (target == HospitalRequestStatus.FULFILLED) {
+            // Fulfilment issues inventory and closes split legs, which only delivery completion does
+            throw new IllegalArgumentException("Requests are fulfilled by completing their deliveries, not by a bulk status update");
+        }
+        try {
+            Set<String> requestIds = new LinkedHashSet<>(ids);
+            Map<String, HospitalRequest> stored = new HashMap<>();
+            for (HospitalRequest request : mongoTemplate.find(new Query(Criteria.where("id").in(requestIds)), HospitalRequest.class)) {
+                stored.put(request.getId(), request);
+            }
+
+            Map<String, BulkStatusResult> results = new LinkedHashMap<>();
+            List<HospitalRequest> pending = new ArrayList<>();
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HospitalRequest.class);
+            Date now = new Date();
+            for (String id : requestIds) {
+                HospitalRequest request = stored.get(id);
+                if (request == null) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.NOT_FOUND, null, "Hospital request not found"));
+                    continue;
+                }
+                HospitalRequestStatus current = HospitalRequestStatus.fromValue(request.getStatus());
+                if (current == target) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.UNCHANGED, request.getStatus(), null));
+                    continue;
+                }
+                if (current == null || !current.canTransitionTo(target)) {
+                    results.put(id, BulkStatusResult.rejected(id, BulkStatusResult.INVALID_TRANSITION, request.getStatus(),
+                            "Cannot change status from " + request.getStatus() + " to " + target.name()));
+                    continue;
+                }
+                bulk.updateOne(new Query(Criteria.where("id").is(id)
+                                .and("status").is(request.getStatus())
+                                .and(VersionedDocument.VERSION_FIELD).is(request.getVersion())),
+                        new Update().set("status", target.name()).set("statusChangedAt", now).set("updatedAt", now)
+                                .inc(VersionedDocument.VERSION_FIELD, 1));
+                pending.add(request);
+                results.put(id, null); // keeps the request order, filled in below
+            }
+
+            List<HospitalRequest> updated = new ArrayList<>();
+            if (!pending.isEmpty()) {
+                bulk.execute();
+                // Re-read to tell applied updates from ones that lost a race
+                Map<String, HospitalRequest> after = new HashMap<>();
+                for (HospitalRequest request : mongoTemplate.find(
+                        new Query(Criteria.where("id").in(pending.stream().map(HospitalRequest::getId).toList())),
+                        HospitalRequest.class)) {
+                    after.put(request.getId(), request);
+                }
+                for (HospitalRequest previous : pending) {
+                    HospitalRequest current = after.get(previous.getId());
+                    long expectedVersion = (previous.getVersion() == null ? 0L : previous.getVersion()) + 1;
+                    if (current != null && target.name().equals(current.getStatus())
+                            && current.getVersion() != null && current.getVersion() == expectedVersion) {
+                        results.put(previous.getId(), BulkStatusResult.updated(previous.getId(), previous.getStatus(), current.getStatus()));
+                        requestEventService.record(previous, current, RequestEventService.SOURCE_API);
+                        requestTriageService.onRequestChanged(current);
+                        updated.add(current);
+                    } else {
+                        results.put(previous.getId(), BulkStatusResult.rejected(previous.getId(), BulkStatusResult.CONFLICT,
+                                current != null ? current.getStatus() : null, "Hospital request was modified concurrently"));
+                    }
+                }
+            }
+            log.info("Bulk status update of {} hospital requests to {}: {} updated", requestIds.size(), target, updated.size());
+            return new BulkStatusUpdate<>(new ArrayList<>(results.values()), updated);
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.updateError(HOSPITAL_REQUESTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public void delete(String id) {
         try {
             HospitalRequest request = getById(id);
@@ -104,6 +294,8 @@ public class HospitalRequestService {
                 throw new ServiceException("Hospital Request not found");
             }
             hospitalRequestRepository.deleteById(id);
+            fulfillmentStatsService.onRequestChanged(request.getHospitalId());
+            requestTriageService.onRequestRemoved(id);
             log.info(MessageUtils.deleteSuccess(HOSPITAL_REQUEST));
         } catch (Exception e) {
             String errorMessage = MessageUtils.deleteError(HOSPITAL_REQUEST);
@@ -116,22 +308,21 @@ public class HospitalRequestService {
         try {
             List<HospitalRequest> requests = hospitalRequestRepository.findByHospitalId(hospitalId);
 
-            // Enrich requests with blood bank details and ensure bloodItems is initialized
+            // Load every referenced blood bank once, then enrich from memory
+            Map<String, BloodBankUser> bloodBanks = bloodBankService.getByIds(distinctIds(requests, HospitalRequest::getBloodBankId));
             for (HospitalRequest request : requests) {
                 // Ensure bloodItems is not null
                 if (request.getBloodItems() == null || request.getBloodItems().isEmpty()) {
                     request.setBloodItems(new java.util.ArrayList<>());
                 }
-                
-                if (request.getBloodBankId() != null) {
-                    BloodBankUser bloodBank = bloodBankService.getById(request.getBloodBankId());
-                    if (bloodBank != null) {
-                        request.setBloodBankName(bloodBank.getBloodBankName());
-                        request.setBloodBankAddress(bloodBank.getAddress());
-                        request.setContactInformation(bloodBank.getPhone());
-                        request.setBloodBankPhone(bloodBank.getPhone());
-                        request.setBloodBankEmail(bloodBank.getEmail());
-                    }
+
+                BloodBankUser bloodBank = bloodBanks.get(request.getBloodBankId());
+                if (bloodBank != null) {
+                    request.setBloodBankName(bloodBank.getBloodBankName());
+                    request.setBloodBankAddress(bloodBank.getAddress());
+                    request.setContactInformation(bloodBank.getPhone());
+                    request.setBloodBankPhone(bloodBank.getPhone());
+                    request.setBloodBankEmail(bloodBank.getEmail());
                 }
             }
 
@@ -148,40 +339,34 @@ public class HospitalRequestService {
         try {
             List<HospitalRequest> requests = hospitalRequestRepository.findByBloodBankId(bloodBankId);
 
-            // Enrich requests with hospital and blood bank details
+            // Load every referenced hospital and blood bank once, then enrich from memory
+            Map<String, Hospital> hospitals = loadHospitals(distinctIds(requests, HospitalRequest::getHospitalId));
+            Map<String, BloodBankUser> bloodBanks = bloodBankService.getByIds(distinctIds(requests, HospitalRequest::getBloodBankId));
             for (HospitalRequest request : requests) {
                 // Ensure bloodItems is not null
                 if (request.getBloodItems() == null || request.getBloodItems().isEmpty()) {
                     request.setBloodItems(new java.util.ArrayList<>());
                 }
-                
+
                 // Enrich with hospital details
                 if (request.getHospitalId() != null) {
-                    try {
-                        Hospital hospital = hospitalRepository.findById(request.getHospitalId()).orElse(null);
-                        if (hospital != null) {
-                            request.setHospitalName(hospital.getHospitalName());
-                            request.setHospitalAddress(hospital.getAddress());
-                            request.setContactInformation(hospital.getPhone());
-                            log.debug("Enriched request {} with hospital details - Name: {}, Address: {}, Phone: {}", 
-                                request.getId(), hospital.getHospitalName(), hospital.getAddress(), hospital.getPhone());
-                        } else {
-                            log.warn("Hospital not found for ID: {}", request.getHospitalId());
-                        }
-                    } catch (Exception e) {
-                        log.error("Error fetching hospital details for ID: {}", request.getHospitalId(), e);
+                    Hospital hospital = hospitals.get(request.getHospitalId());
+                    if (hospital != null) {
+                        request.setHospitalName(hospital.getHospitalName());
+                        request.setHospitalAddress(hospital.getAddress());
+                        request.setContactInformation(hospital.getPhone());
+                    } else {
+                        log.warn("Hospital not found for ID: {}", request.getHospitalId());
                     }
                 }
-                
+
                 // Enrich with blood bank details
-                if (request.getBloodBankId() != null) {
-                    BloodBankUser bloodBank = bloodBankService.getById(request.getBloodBankId());
-                    if (bloodBank != null) {
-                        request.setBloodBankName(bloodBank.getBloodBankName());
-                        request.setBloodBankAddress(bloodBank.getAddress());
-                        request.setBloodBankPhone(bloodBank.getPhone());
-                        request.setBloodBankEmail(bloodBank.getEmail());
-                    }
+                BloodBankUser bloodBank = bloodBanks.get(request.getBloodBankId());
+                if (bloodBank != null) {
+                    request.setBloodBankName(bloodBank.getBloodBankName());
+                    request.setBloodBankAddress(bloodBank.getAddress());
+                    request.setBloodBankPhone(bloodBank.getPhone());
+                    request.setBloodBankEmail(bloodBank.getEmail());
                 }
             }
 
@@ -193,4 +378,61 @@ public class HospitalRequestService {
             throw new ServiceException(errorMessage, e);
         }
     }
+
+    /**
+     * Listing rows for a blood bank, sorted by date needed. Hospital and blood bank
+     * details are joined server-side, so this is a single aggregation round trip.
+     */
+    public List<HospitalRequestListingDTO> getListingByBloodBankId(String bloodBankId) {
+        try {
+            List<HospitalRequestListingDTO> listing = hospitalRequestRepository.findListingByBloodBankId(bloodBankId);
+            log.info(MessageUtils.retrieveSuccess(HOSPITAL_REQUESTS));
+            return listing;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(HOSPITAL_REQUESTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Listing rows for a hospital, sorted by date needed.
+     */
+    public List<HospitalRequestListingDTO> getListingByHospitalId(String hospitalId) {
+        try {
+            List<HospitalRequestListingDTO> listing = hospitalRequestRepository.findListingByHospitalId(hospitalId);
+            log.info(MessageUtils.retrieveSuccess(HOSPITAL_REQUESTS));
+            return listing;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(HOSPITAL_REQUESTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
+    private Map<String, Hospital> loadHospitals(Set<String> hospitalIds) {
+        Map<String, Hospital> hospitals = new HashMap<>();
+        if (hospitalIds.isEmpty()) {
+            return hospitals;
+        }
+        try {
+            for (Hospital hospital : hospitalRepository.findAllById(hospitalIds)) {
+                hospitals.put(hospital.getId(), hospital);
+            }
+        } catch (Exception e) {
+            log.error("Error fetching hospital details for {} hospitals", hospitalIds.size(), e);
+        }
+        return hospitals;
+    }
+
+    private static Set<String> distinctIds(List<HospitalRequest> requests, Function<HospitalRequest, String> idOf) {
+        Set<String> ids = new HashSet<>();
+        for (HospitalRequest request : requests) {
+            String id = idOf.apply(request);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ public class HospitalService {
 
     private final HospitalRepository hospitalRepository;
     private final PasswordEncoder passwordEncoder;
+    private final RequestTriageService requestTriageService;
 
     public List<HospitalDTO> getAll() {
         return hospitalRepository.findAll()
@@ -87,6 +88,7 @@ public class HospitalService {
         }
 
         Hospital savedHospital = hospitalRepository.save(updatedHospital);
+        requestTriageService.onHospitalChanged(id, savedHospital.getUrgentNeed());
         return new HospitalDTO(savedHospital);
     }
 
@@ -0,0 +1,209 @@
+package RedSource.services;
+
+import RedSource.entities.BloodBankUser;
+import RedSource.entities.enums.BloodType;
+import RedSource.repositories.BloodBankUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Network-wide stock heatmap (units per blood type per bank and per region).
+ * The heatmap is built from the in-memory inventory index and cached until the
+ * index version changes, so polling dashboards never hit the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryHeatmapService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryHeatmapService.class);
+    private static final String UNKNOWN_REGION = "Unknown";
+    private static final long BANK_INFO_TTL_MS = 10 * 60 * 1000L;
+
+    private final InventoryIndexService inventoryIndexService;
+    private final BloodBankUserRepository bloodBankUserRepository;
+
+    private final Map<String, BloodBankUser> bankInfo = new ConcurrentHashMap<>();
+    private volatile long bankInfoLoadedAt = 0;
+
+    private volatile Map<String, Object> cachedHeatmap;
+    private volatile long cachedVersion = -1;
+
+    // The index version restarts at every boot and differs per instance, so tags carry an epoch too
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * Entity tag for the current inventory state. Matches the tag of the heatmap
+     * returned by getHeatmap() as long as inventory does not change in between.
+     */
+    public String currentETag() {
+        return eTagFor(inventoryIndexService.getVersion());
+    }
+
+    public String eTagFor(long version) {
+        return "\"inventory-" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header matches the current tag: "*", or any tag of
+     * the comma separated list, compared weakly (a W/ prefix is ignored).
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String current = currentETag();
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Map<String, Object> getHeatmap() {
+        long version = inventoryIndexService.getVersion();
+        Map<String, Object> heatmap = cachedHeatmap;
+        if (heatmap != null && cachedVersion == version) {
+            return heatmap;
+        }
+        synchronized (this) {
+            version = inventoryIndexService.getVersion();
+            if (cachedHeatmap == null || cachedVersion != version) {
+                cachedHeatmap = buildHeatmap(version, inventoryIndexService.snapshot());
+                cachedVersion = version;
+            }
+            return cachedHeatmap;
+        }
+    }
+
+    private Map<String, Object> buildHeatmap(long version, Map<String, Map<String, Integer>> snapshot) {
+        refreshBankInfo(snapshot.keySet());
+
+        List<String> bloodTypes = new ArrayList<>();
+        for (BloodType type : BloodType.values()) {
+            bloodTypes.add(type.getValue());
+        }
+
+        List<Map<String, Object>> banks = new ArrayList<>();
+        Map<String, Map<String, Integer>> unitsByRegion = new TreeMap<>();
+        Map<String, Integer> totals = emptyUnits(bloodTypes);
+
+        for (Map.Entry<String, Map<String, Integer>> entry : snapshot.entrySet()) {
+            BloodBankUser bank = bankInfo.get(entry.getKey());
+            String region = regionOf(bank);
+            Map<String, Integer> units = emptyUnits(bloodTypes);
+            entry.getValue().forEach((type, count) -> units.merge(type, count, Integer::sum));
+
+            Map<String, Integer> regionUnits = unitsByRegion.computeIfAbsent(region, k -> emptyUnits(bloodTypes));
+            units.forEach((type, count) -> {
+                regionUnits.merge(type, count, Integer::sum);
+                totals.merge(type, count, Integer::sum);
+            });
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("bloodBankId", entry.getKey());
+            row.put("bloodBankName", bank != null ? bank.getBloodBankName() : null);
+            row.put("region", region);
+            row.put("units", units);
+            row.put("total", sum(units));
+            banks.add(row);
+        }
+        banks.sort((a, b) -> String.valueOf(a.get("bloodBankName")).compareToIgnoreCase(String.valueOf(b.get("bloodBankName"))));
+
+        List<Map<String, Object>> regions = new ArrayList<>();
+        unitsByRegion.forEach((region, units) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("region", region);
+            row.put("units", units);
+            row.put("total", sum(units));
+            regions.add(row);
+        });
+
+        Map<String, Object> heatmap = new LinkedHashMap<>();
+        heatmap.put("version", version);
+        heatmap.put("generatedAt", new Date());
+        heatmap.put("bloodTypes", bloodTypes);
+        heatmap.put("banks", banks);
+        heatmap.put("regions", regions);
+        heatmap.put("totals", totals);
+        heatmap.put("totalUnits", sum(totals));
+        log.debug("Rebuilt inventory heatmap at version {} ({} banks)", version, banks.size());
+        return Collections.unmodifiableMap(heatmap);
+    }
+
+    /**
+     * Load bank names/addresses. Fetches everything when the cache is stale and
+     * otherwise only the banks that are not cached yet.
+     */
+    private void refreshBankInfo(Set<String> bankIds) {
+        try {
+            if (System.currentTimeMillis() - bankInfoLoadedAt > BANK_INFO_TTL_MS) {
+                Map<String, BloodBankUser> fresh = new ConcurrentHashMap<>();
+                for (BloodBankUser bank : bloodBankUserRepository.findAll()) {
+                    fresh.put(bank.getId(), bank);
+                }
+                bankInfo.clear();
+                bankInfo.putAll(fresh);
+                bankInfoLoadedAt = System.currentTimeMillis();
+                return;
+            }
+            Set<String> missing = new HashSet<>(bankIds);
+            missing.removeAll(bankInfo.keySet());
+            if (!missing.isEmpty()) {
+                for (BloodBankUser bank : bloodBankUserRepository.findAllById(missing)) {
+                    bankInfo.put(bank.getId(), bank);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not refresh blood bank details for heatmap: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Blood banks have no explicit region, so use the last part of the address
+     * (usually the city or province), e.g. "123 Rizal St, Cebu City" -> "Cebu City".
+     */
+    private static String regionOf(BloodBankUser bank) {
+        if (bank == null || bank.getAddress() == null || bank.getAddress().isBlank()) {
+            return UNKNOWN_REGION;
+        }
+        String[] parts = bank.getAddress().split(",");
+        for (int i = parts.length - 1; i >= 0; i--) {
+            String part = parts[i].trim();
+            if (!part.isEmpty() && !part.chars().allMatch(Character::isDigit)) {
+                return part;
+            }
+        }
+        return UNKNOWN_REGION;
+    }
+
+    private static Map<String, Integer> emptyUnits(List<String> bloodTypes) {
+        Map<String, Integer> units = new LinkedHashMap<>();
+        for (String type : bloodTypes) {
+            units.put(type, 0);
+        }
+        return units;
+    }
+
+    private static int sum(Map<String, Integer> units) {
+        return units.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
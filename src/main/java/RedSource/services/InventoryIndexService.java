@@ -0,0 +1,195 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventory;
+import RedSource.repositories.BloodInventoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of available blood units per blood bank and blood type.
+ * Loaded once from the blood_inventory collection and then kept current by
+ * BloodInventoryService, which reports every mutation as a delta.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryIndexService.class);
+    private static final String AVAILABLE = "Available";
+
+    private final BloodInventoryRepository bloodInventoryRepository;
+
+    // bloodBankId -> (bloodType -> available units)
+    private volatile ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> unitsByBank = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final List<UnitsListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean loaded = false;
+    // Guards swapping the index against concurrent deltas
+    private final Object deltaLock = new Object();
+    private List<Delta> deltasDuringRebuild;
+
+    private record Delta(String bloodBankId, String bloodType, int units) {
+    }
+
+    /**
+     * Notified synchronously with the new unit count after every change.
+     */
+    public interface UnitsListener {
+        void onUnitsChanged(String bloodBankId, String bloodType, int units);
+    }
+
+    public void addListener(UnitsListener listener) {
+        listeners.add(listener);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reload the whole index from the database. Only needed at startup or
+     * when the index could not be loaded earlier. Deltas applied while the
+     * collection is being read are replayed onto the new index before it is
+     * swapped in, so they are not lost.
+     */
+    public synchronized void rebuild() {
+        synchronized (deltaLock) {
+            deltasDuringRebuild = new ArrayList<>();
+        }
+        try {
+            List<BloodInventory> inventories = bloodInventoryRepository.findAll();
+            ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> fresh = new ConcurrentHashMap<>();
+            for (BloodInventory inventory : inventories) {
+                int units = availableUnits(inventory);
+                if (units > 0) {
+                    add(fresh, inventory.getBloodBankId(), inventory.getBloodTypeId(), units);
+                }
+            }
+            synchronized (deltaLock) {
+                for (Delta delta : deltasDuringRebuild) {
+                    add(fresh, delta.bloodBankId(), delta.bloodType(), delta.units());
+                }
+                unitsByBank = fresh;
+                deltasDuringRebuild = null;
+            }
+            loaded = true;
+            version.incrementAndGet();
+            log.info("Inventory index loaded from {} inventory records", inventories.size());
+        } catch (Exception e) {
+            synchronized (deltaLock) {
+                deltasDuringRebuild = null;
+            }
+            log.warn("Could not load inventory index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Record a change to a single inventory document. Either side may be null
+     * for inserts and deletes. When bank and type are unchanged only the net
+     * delta is applied, so listeners see a single final count per edit.
+     */
+    public void recordChange(BloodInventory before, BloodInventory after) {
+        int unitsBefore = availableUnits(before);
+        int unitsAfter = availableUnits(after);
+        if (before != null && after != null
+                && Objects.equals(before.getBloodBankId(), after.getBloodBankId())
+                && Objects.equals(before.getBloodTypeId(), after.getBloodTypeId())) {
+            applyDelta(after.getBloodBankId(), after.getBloodTypeId(), unitsAfter - unitsBefore);
+            return;
+        }
+        if (before != null) {
+            applyDelta(before.getBloodBankId(), before.getBloodTypeId(), -unitsBefore);
+        }
+        if (after != null) {
+            applyDelta(after.getBloodBankId(), after.getBloodTypeId(), unitsAfter);
+        }
+    }
+
+    public void applyDelta(String bloodBankId, String bloodType, int delta) {
+        if (delta == 0 || bloodBankId == null || bloodType == null) {
+            return;
+        }
+        int units;
+        synchronized (deltaLock) {
+            if (deltasDuringRebuild != null) {
+                deltasDuringRebuild.add(new Delta(bloodBankId, bloodType, delta));
+            }
+            units = add(unitsByBank, bloodBankId, bloodType, delta);
+        }
+        version.incrementAndGet();
+        for (UnitsListener listener : listeners) {
+            try {
+                listener.onUnitsChanged(bloodBankId, bloodType, Math.max(units, 0));
+            } catch (Exception e) {
+                log.warn("Inventory listener failed for {} at blood bank {}: {}", bloodType, bloodBankId, e.getMessage());
+            }
+        }
+    }
+
+    public int getUnits(String bloodBankId, String bloodType) {
+        ensureLoaded();
+        Map<String, AtomicInteger> byType = unitsByBank.get(bloodBankId);
+        if (byType == null) {
+            return 0;
+        }
+        AtomicInteger units = byType.get(bloodType);
+        return units != null ? Math.max(units.get(), 0) : 0;
+    }
+
+    /**
+     * Copy of the index as bloodBankId -> (bloodType -> units).
+     */
+    public Map<String, Map<String, Integer>> snapshot() {
+        ensureLoaded();
+        Map<String, Map<String, Integer>> copy = new HashMap<>();
+        unitsByBank.forEach((bankId, byType) -> {
+            Map<String, Integer> units = new HashMap<>();
+            byType.forEach((type, count) -> units.put(type, Math.max(count.get(), 0)));
+            copy.put(bankId, units);
+        });
+        return copy;
+    }
+
+    /**
+     * Monotonic counter bumped on every change; cheap to compare for cache validation.
+     */
+    public long getVersion() {
+        ensureLoaded();
+        return version.get();
+    }
+
+    public static int availableUnits(BloodInventory inventory) {
+        if (inventory == null || !AVAILABLE.equals(inventory.getStatus())) {
+            return 0;
+        }
+        return Objects.requireNonNullElse(inventory.getQuantity(), 0);
+    }
+
+    private static int add(ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> index,
+                           String bloodBankId, String bloodType, int units) {
+        return index.computeIfAbsent(bloodBankId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(bloodType, k -> new AtomicInteger())
+                .addAndGet(units);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package RedSource.services;
+
+import RedSource.entities.LowStockAlert;
+import RedSource.entities.LowStockThreshold;
+import RedSource.entities.utils.MessageUtils;
+import RedSource.repositories.LowStockAlertRepository;
+import RedSource.repositories.LowStockThresholdRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Low-stock alerting driven by the in-memory inventory index.
+ * Every inventory change is checked against the rule for that bank and blood
+ * type with a single map lookup. Only state transitions (LOW_STOCK / RESTORED)
+ * produce events; they are queued and written out in batches by a scheduled
+ * dispatcher, so inventory writes never wait on alert delivery. A batch that
+ * cannot be written is retried on the next runs; alerts carry their id from
+ * the start, so writing one twice replaces it instead of duplicating it.
+ */
+@Service
+@RequiredArgsConstructor
+public class LowStockAlertService {
+
+    private static final Logger log = LoggerFactory.getLogger(LowStockAlertService.class);
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int DISPATCH_BATCH = 200;
+    private static final int MAX_ALERTS = 200;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final InventoryIndexService inventoryIndexService;
+    private final LowStockThresholdRepository lowStockThresholdRepository;
+    private final LowStockAlertRepository lowStockAlertRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final Map<String, Rule> rules = new ConcurrentHashMap<>();
+    private final BlockingQueue<LowStockAlert> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Left over from a failed run; only touched by dispatch()
+    private final List<LowStockAlert> undelivered = new ArrayList<>();
+    private int attempts;
+
+    // alerting only changes under the rule's monitor
+    private static final class Rule {
+        final int lowUnits;
+        final int restoreUnits;
+        volatile boolean alerting;
+
+        Rule(int lowUnits, int restoreUnits, boolean alerting) {
+            this.lowUnits = lowUnits;
+            this.restoreUnits = restoreUnits;
+            this.alerting = alerting;
+        }
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        inventoryIndexService.addListener(this::evaluate);
+    }
+
+    /**
+     * Load the rules and check them once against current stock. The persisted
+     * alert_active flag keeps a restart from re-raising alerts already sent.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            List<LowStockThreshold> thresholds = lowStockThresholdRepository.findAll();
+            for (LowStockThreshold threshold : thresholds) {
+                rules.put(key(threshold.getBloodBankId(), threshold.getBloodType()),
+                        new Rule(threshold.getLowUnits(), threshold.getRestoreUnits(), threshold.isAlertActive()));
+            }
+            for (LowStockThreshold threshold : thresholds) {
+                evaluate(threshold.getBloodBankId(), threshold.getBloodType(),
+                        inventoryIndexService.getUnits(threshold.getBloodBankId(), threshold.getBloodType()));
+            }
+            log.info("Loaded {} low-stock thresholds", thresholds.size());
+        } catch (Exception e) {
+            log.warn("Could not load low-stock thresholds: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Called for every inventory change. Raises an alert when units fall to the
+     * low mark and clears it only once units reach the restore mark.
+     * <p>
+     * Listeners of concurrent changes can run in any order, so the count passed
+     * in may already be stale. The current count is re-read under the rule's
+     * monitor, which makes every decision against the latest stock and queues
+     * the transitions of a rule in the order they happened.
+     */
+    public void evaluate(String bloodBankId, String bloodType, int changedUnits) {
+        Rule rule = rules.get(key(bloodBankId, bloodType));
+        if (rule == null) {
+            return;
+        }
+        synchronized (rule) {
+            int units = inventoryIndexService.getUnits(bloodBankId, bloodType);
+            if (units <= rule.lowUnits && !rule.alerting) {
+                rule.alerting = true;
+                enqueue(bloodBankId, bloodType, LowStockAlert.LOW_STOCK, units, rule);
+            } else if (units >= rule.restoreUnits && rule.alerting) {
+                rule.alerting = false;
+                enqueue(bloodBankId, bloodType, LowStockAlert.RESTORED, units, rule);
+            }
+        }
+    }
+
+    public LowStockThreshold setThreshold(String bloodBankId, String bloodType, Integer lowUnits, Integer restoreUnits) {
+        if (bloodType == null || bloodType.isBlank()) {
+            throw new IllegalArgumentException("bloodType is required");
+        }
+        if (lowUnits == null || lowUnits < 0) {
+            throw new IllegalArgumentException("lowUnits must be zero or greater");
+        }
+        int restore = restoreUnits != null ? restoreUnits : lowUnits + Math.max(1, (int) Math.ceil(lowUnits * 0.2));
+        if (restore <= lowUnits) {
+            throw new IllegalArgumentException("restoreUnits must be greater than lowUnits");
+        }
+
+        String key = key(bloodBankId, bloodType);
+        Rule previous = rules.get(key);
+        boolean alerting = previous != null && previous.alerting;
+        LowStockThreshold threshold = LowStockThreshold.builder()
+                .id(key)
+                .bloodBankId(bloodBankId)
+                .bloodType(bloodType)
+                .lowUnits(lowUnits)
+                .restoreUnits(restore)
+                .alertActive(alerting)
+                .updatedAt(new Date())
+                .build();
+        LowStockThreshold saved = lowStockThresholdRepository.save(threshold);
+        rules.put(key, new Rule(lowUnits, restore, alerting));
+        evaluate(bloodBankId, bloodType, inventoryIndexService.getUnits(bloodBankId, bloodType));
+        log.info("Low-stock threshold for {} at blood bank {} set to {} (restore at {})", bloodType, bloodBankId, lowUnits, restore);
+        return saved;
+    }
+
+    public void removeThreshold(String bloodBankId, String bloodType) {
+        String key = key(bloodBankId, bloodType);
+        lowStockThresholdRepository.deleteById(key);
+        rules.remove(key);
+    }
+
+    public List<LowStockThreshold> getThresholds(String bloodBankId) {
+        return lowStockThresholdRepository.findByBloodBankId(bloodBankId);
+    }
+
+    public List<LowStockAlert> getAlerts(String bloodBankId, Integer limit) {
+        int size = limit == null ? 50 : Math.max(1, Math.min(limit, MAX_ALERTS));
+        return lowStockAlertRepository.findByBloodBankIdOrderByCreatedAtDesc(bloodBankId, PageRequest.of(0, size));
+    }
+
+    /**
+     * Write queued alerts and the matching alert_active flags, alerts left over
+     * from a failed run first.
+     */
+    @Scheduled(fixedDelay = 2000)
+    public synchronized void dispatch() {
+        List<LowStockAlert> batch = new ArrayList<>(undelivered);
+        undelivered.clear();
+        if (batch.size() < DISPATCH_BATCH) {
+            queue.drainTo(batch, DISPATCH_BATCH - batch.size());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            lowStockAlertRepository.saveAll(batch);
+
+            // Only the latest transition per rule matters for the persisted flag
+            Map<String, LowStockAlert> latest = new LinkedHashMap<>();
+            for (LowStockAlert alert : batch) {
+                latest.put(key(alert.getBloodBankId(), alert.getBloodType()), alert);
+            }
+            latest.forEach((key, alert) -> mongoTemplate.updateFirst(
+                    new Query(Criteria.where("id").is(key)),
+                    new Update()
+                            .set("alertActive", LowStockAlert.LOW_STOCK.equals(alert.getType()))
+                            .set("lastAlertAt", alert.getCreatedAt()),
+                    LowStockThreshold.class));
+            log.info("Dispatched {} low-stock alerts", batch.size());
+            attempts = 0;
+        } catch (Exception e) {
+            if (++attempts >= MAX_ATTEMPTS) {
+                log.error("Dropping {} low-stock alerts after {} failed attempts: {}", batch.size(), attempts, e.getMessage(), e);
+                attempts = 0;
+            } else {
+                undelivered.addAll(batch);
+                log.warn("Could not dispatch {} low-stock alerts, will retry: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    private void enqueue(String bloodBankId, String bloodType, String type, int units, Rule rule) {
+        LowStockAlert alert = LowStockAlert.builder()
+                .id(new ObjectId().toHexString())
+                .bloodBankId(bloodBankId)
+                .bloodType(bloodType)
+                .type(type)
+                .units(units)
+                .lowUnits(rule.lowUnits)
+                .restoreUnits(rule.restoreUnits)
+                .createdAt(new Date())
+                .build();
+        if (!queue.offer(alert)) {
+            log.warn("Low-stock alert queue is full, dropping {} alert for {} at blood bank {}", type, bloodType, bloodBankId);
+        } else if (LowStockAlert.LOW_STOCK.equals(type)) {
+            log.warn("{} Blood bank {} has {} units left", MessageUtils.inventoryLowAlert(bloodType), bloodBankId, units);
+        } else {
+            log.info("Blood inventory for type {} at blood bank {} restored to {} units", bloodType, bloodBankId, units);
+        }
+    }
+
+    private static String key(String bloodBankId, String bloodType) {
+        return bloodBankId + ":" + bloodType;
+    }
+}
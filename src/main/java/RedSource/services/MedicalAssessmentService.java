@@ -1,6 +1,7 @@
 package RedSource.services;
 
 import RedSource.entities.MedicalAssessment;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
 import RedSource.repositories.MedicalAssessmentRepository;
@@ -22,6 +23,7 @@ public class MedicalAssessmentService {
     public static final String MEDICAL_ASSESSMENT = "Medical Assessment";
 
     private final MedicalAssessmentRepository medicalAssessmentRepository;
+    private final PaginationService paginationService;
 
     public List<MedicalAssessment> getAll() {
         try {
@@ -35,6 +37,22 @@ public class MedicalAssessmentService {
         }
     }
 
+    // Retrieve one keyset page of medical assessments, newest first, optionally filtered by status and user
+    public KeysetPage<MedicalAssessment> getPage(String cursor, Integer limit, String status, String userId) {
+        try {
+            KeysetPage<MedicalAssessment> page = paginationService.findPage(MedicalAssessment.class,
+                    PaginationService.filter("status", status, "userId", userId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(MEDICAL_ASSESSMENTS));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(MEDICAL_ASSESSMENTS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public MedicalAssessment getById(String id) {
         try {
             if (Objects.isNull(id)) {
@@ -0,0 +1,133 @@
+package RedSource.services;
+
+import RedSource.entities.VersionedDocument;
+import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Consumer;
+
+/**
+ * Version-checked partial updates for documents implementing VersionedDocument.
+ * An update with an expected version only applies when the stored version still
+ * matches. Every write is a single findAndModify round trip that also returns the
+ * previous state and increments the version.
+ */
+@Service
+@RequiredArgsConstructor
+public class OptimisticUpdateService {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticUpdateService.class);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    public record VersionedUpdate<T>(T previous, T current) {
+    }
+
+    /**
+     * Apply the non-null fields of changes if the stored version equals expectedVersion.
+     * Throws VersionConflictException carrying the current version when it does not.
+     */
+    public <T extends VersionedDocument> VersionedUpdate<T> update(String id, T changes, Long expectedVersion, Class<T> type) {
+        VersionedUpdate<T> result = tryUpdate(id, changes, expectedVersion, type);
+        if (result != null) {
+            return result;
+        }
+        Long currentVersion = currentVersion(id, type);
+        throw new VersionConflictException(
+                type.getSimpleName() + " was modified by someone else (expected version " + expectedVersion
+                        + ", current version " + currentVersion + ")", currentVersion);
+    }
+
+    /**
+     * Apply the non-null fields of changes on top of whatever version is current.
+     * Used when the caller did not send a version: one findAndModify that bumps the
+     * version, so the last writer wins on fields that concurrent callers both set.
+     */
+    public <T extends VersionedDocument> VersionedUpdate<T> updateLatest(String id, T changes, Class<T> type) {
+        VersionedUpdate<T> result = write(new Query(Criteria.where("id").is(id)), changes, type);
+        if (result == null) {
+            throw new ServiceException(type.getSimpleName() + " not found");
+        }
+        return result;
+    }
+
+    /**
+     * Read the latest document, let merge apply its changes to it and write it back
+     * if nobody changed it in between. Re-reads and re-merges on conflict.
+     */
+    public <T extends VersionedDocument> VersionedUpdate<T> retryWithMerge(String id, Class<T> type, Consumer<T> merge) {
+        Long version = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            T current = mongoTemplate.findById(id, type);
+            if (current == null) {
+                throw new ServiceException(type.getSimpleName() + " not found");
+            }
+            version = current.getVersion();
+            merge.accept(current);
+            VersionedUpdate<T> result = tryUpdate(id, current, version, type);
+            if (result != null) {
+                return result;
+            }
+            log.debug("Version conflict merging {} {} (attempt {})", type.getSimpleName(), id, attempt);
+        }
+        throw conflictAfterRetries(id, type, version);
+    }
+
+    /**
+     * Single compare-and-set attempt. Returns null when the version did not match.
+     */
+    private <T extends VersionedDocument> VersionedUpdate<T> tryUpdate(String id, T changes, Long expectedVersion, Class<T> type) {
+        return write(new Query(Criteria.where("id").is(id).and(VersionedDocument.VERSION_FIELD).is(expectedVersion)), changes, type);
+    }
+
+    // Sets the fields and increments the version of the document matching query, if any
+    private <T extends VersionedDocument> VersionedUpdate<T> write(Query query, T changes, Class<T> type) {
+        Document fields = new Document();
+        mongoTemplate.getConverter().write(changes, fields);
+        fields.remove("_id");
+        fields.remove("_class");
+        fields.remove(VersionedDocument.VERSION_FIELD);
+
+        Update update = new Update();
+        fields.forEach(update::set);
+        update.inc(VersionedDocument.VERSION_FIELD, 1);
+
+        T previous = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), type);
+        if (previous == null) {
+            return null;
+        }
+
+        long nextVersion = (previous.getVersion() == null ? 0L : previous.getVersion()) + 1;
+        Document merged = new Document();
+        mongoTemplate.getConverter().write(previous, merged);
+        merged.putAll(fields);
+        merged.put(VersionedDocument.VERSION_FIELD, nextVersion);
+        return new VersionedUpdate<>(previous, mongoTemplate.getConverter().read(type, merged));
+    }
+
+    private <T extends VersionedDocument> Long currentVersion(String id, Class<T> type) {
+        Query query = new Query(Criteria.where("id").is(id));
+        query.fields().include(VersionedDocument.VERSION_FIELD);
+        T current = mongoTemplate.findOne(query, type);
+        if (current == null) {
+            throw new ServiceException(type.getSimpleName() + " not found");
+        }
+        return current.getVersion();
+    }
+
+    private <T extends VersionedDocument> VersionConflictException conflictAfterRetries(String id, Class<T> type, Long version) {
+        return new VersionConflictException(
+                type.getSimpleName() + " " + id + " is being modified concurrently, please retry", version);
+    }
+}
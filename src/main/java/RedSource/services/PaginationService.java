@@ -0,0 +1,142 @@
+package RedSource.services;
+
+import RedSource.entities.response.KeysetPage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keyset (cursor) pagination shared by the list endpoints.
+ * Pages are ordered newest first on (created_at, _id) unless another date is
+ * given; the cursor encodes the
+ * last row of the previous page, so every page is one bounded index range scan
+ * no matter how large the collection grows.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaginationService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private static final String CREATED_AT = "createdAt";
+    private static final String ID = "id";
+    private static final String NO_DATE = "-";
+
+    private final MongoTemplate mongoTemplate;
+
+    public <T> KeysetPage<T> findPage(Class<T> type, Criteria filter, String cursor, Integer limit) {
+        return findPage(type, filter, cursor, limit, CREATED_AT);
+    }
+
+    /**
+     * Same as above but ordered on another date property, newest first.
+     */
+    public <T> KeysetPage<T> findPage(Class<T> type, Criteria filter, String cursor, Integer limit, String dateProperty) {
+        int pageSize = clampLimit(limit);
+
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter != null) {
+            conditions.add(filter);
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            conditions.add(after(cursor, dateProperty));
+        }
+
+        Query query = new Query();
+        if (!conditions.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(conditions));
+        }
+        query.with(Sort.by(Sort.Order.desc(dateProperty), Sort.Order.desc(ID)));
+        query.limit(pageSize + 1);
+
+        List<T> rows = mongoTemplate.find(query, type);
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null, pageSize);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new KeysetPage<>(items, cursorOf(type, items.get(items.size() - 1), dateProperty), pageSize);
+    }
+
+    /**
+     * Requested page size bounded to 1..MAX_LIMIT, DEFAULT_LIMIT when absent.
+     */
+    public static int clampLimit(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Equality filter over the given (property, value) pairs, skipping blank values.
+     * Returns null when no value was given.
+     */
+    public static Criteria filter(String... propertyValuePairs) {
+        List<Criteria> parts = new ArrayList<>();
+        for (int i = 0; i + 1 < propertyValuePairs.length; i += 2) {
+            String value = propertyValuePairs[i + 1];
+            if (value != null && !value.isBlank()) {
+                parts.add(Criteria.where(propertyValuePairs[i]).is(value));
+            }
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return parts.size() == 1 ? parts.get(0) : new Criteria().andOperator(parts);
+    }
+
+    /**
+     * Rows strictly after the cursor in (date desc, _id desc) order.
+     * Documents without the date sort last, ordered by _id alone.
+     */
+    private static Criteria after(String cursor, String dateProperty) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int separator = decoded.indexOf('|');
+        if (separator <= 0 || separator == decoded.length() - 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String datePart = decoded.substring(0, separator);
+        String id = decoded.substring(separator + 1);
+
+        if (NO_DATE.equals(datePart)) {
+            return new Criteria().andOperator(Criteria.where(dateProperty).is(null), Criteria.where(ID).lt(id));
+        }
+        Date date;
+        try {
+            date = new Date(Long.parseLong(datePart));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new Criteria().orOperator(
+                Criteria.where(dateProperty).lt(date),
+                new Criteria().andOperator(Criteria.where(dateProperty).is(date), Criteria.where(ID).lt(id)),
+                Criteria.where(dateProperty).is(null));
+    }
+
+    private <T> String cursorOf(Class<T> type, T row, String dateProperty) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        PersistentPropertyAccessor<T> accessor = entity.getPropertyAccessor(row);
+        Object id = accessor.getProperty(entity.getRequiredIdProperty());
+        MongoPersistentProperty dateField = entity.getPersistentProperty(dateProperty);
+        Object value = dateField != null ? accessor.getProperty(dateField) : null;
+
+        String datePart = value instanceof Date date ? String.valueOf(date.getTime()) : NO_DATE;
+        String raw = datePart + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
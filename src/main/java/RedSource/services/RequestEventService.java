@@ -0,0 +1,348 @@
+package RedSource.services;
+
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.RequestDwellCounter;
+import RedSource.entities.RequestEvent;
+import RedSource.repositories.RequestDwellCounterRepository;
+import RedSource.repositories.RequestEventRepository;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Append-only log of hospital request status changes, with daily dwell-time
+ * counters maintained alongside it.
+ * <p>
+ * Changes are queued and written in batches by a scheduled dispatcher: one
+ * bulk insert for the events and one unordered bulk of $inc/$max upserts for
+ * the counters, pre-aggregated per bank, metric and day. Dashboards read the
+ * counters (at most one document per metric and day) instead of scanning the
+ * event history. Events become visible once their batch has been written.
+ * <p>
+ * A batch that fails is kept and retried on the next runs, up to MAX_ATTEMPTS.
+ * Events carry their id from the start, so a retry skips the ones already
+ * stored; counters are retried on their own and only for events written once.
+ * Every counter update of a batch is guarded by the batch id, which the counter
+ * records when the update applies, so only the counters that were not updated
+ * are retried and none is counted twice.
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestEventService.class);
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final int DISPATCH_BATCH = 500;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int APPLIED_BATCHES_KEPT = 20;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int MAX_DAYS = 366;
+    private static final String ALL_BANKS = "*";
+    private static final String FULFILLED = "FULFILLED";
+
+    public static final String SOURCE_API = "api";
+    public static final String SOURCE_DELIVERY = "delivery";
+
+    private final RequestEventRepository requestEventRepository;
+    private final RequestDwellCounterRepository requestDwellCounterRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final BlockingQueue<RequestEvent> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Left over from failed runs; only touched by dispatch()
+    private final List<RequestEvent> unwrittenEvents = new ArrayList<>();
+    private final List<CounterBatch> unwrittenCounters = new ArrayList<>();
+    private int eventAttempts;
+
+    public record DwellStat(String metric, long count, double averageMinutes, long maxMinutes) {
+    }
+
+    // Counter increments gathered from one batch of events, by counter id
+    private static final class CounterBatch {
+        final String id = new ObjectId().toHexString();
+        final Map<String, Increment> increments = new LinkedHashMap<>();
+        int attempts;
+    }
+
+    private static final class Increment {
+        final String bloodBankId;
+        final String metric;
+        final String day;
+        long count;
+        long totalMinutes;
+        long maxMinutes;
+
+        Increment(String bloodBankId, String metric, String day) {
+            this.bloodBankId = bloodBankId;
+            this.metric = metric;
+            this.day = day;
+        }
+    }
+
+    /**
+     * Queue an event if the status of current differs from previous. previous is
+     * null when the request was just created.
+     */
+    public void record(HospitalRequest previous, HospitalRequest current, String source) {
+        if (current == null || current.getStatus() == null) {
+            return;
+        }
+        String fromStatus = previous != null ? previous.getStatus() : null;
+        if (previous != null && current.getStatus().equals(fromStatus)) {
+            return;
+        }
+        Date now = new Date();
+        Long dwellMinutes = null;
+        if (previous != null) {
+            Date enteredAt = previous.getStatusChangedAt() != null ? previous.getStatusChangedAt() : previous.getCreatedAt();
+            if (enteredAt != null) {
+                dwellMinutes = Math.max(0, (now.getTime() - enteredAt.getTime()) / 60000);
+            }
+        }
+        RequestEvent event = RequestEvent.builder()
+                .id(new ObjectId().toHexString())
+                .requestId(current.getId())
+                .hospitalId(current.getHospitalId())
+                .bloodBankId(current.getBloodBankId())
+                .fromStatus(fromStatus)
+                .toStatus(current.getStatus())
+                .actor(currentActor())
+                .source(source)
+                .dwellMinutes(dwellMinutes)
+                .ageMinutes(current.getCreatedAt() != null
+                        ? Math.max(0, (now.getTime() - current.getCreatedAt().getTime()) / 60000)
+                        : null)
+                .createdAt(now)
+                .build();
+        if (!queue.offer(event)) {
+            log.warn("Request event queue is full, dropping {} -> {} event for request {}",
+                    fromStatus, current.getStatus(), current.getId());
+        }
+    }
+
+    public List<RequestEvent> getEvents(String requestId) {
+        return requestEventRepository.findByRequestIdOrderByCreatedAtAsc(requestId);
+    }
+
+    /**
+     * Dwell-time statistics over the last days, for one bank or all banks when bloodBankId is null.
+     */
+    public List<DwellStat> getDwellStats(String bloodBankId, Integer days) {
+        int window = days == null ? 30 : days;
+        if (window < 1 || window > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_DAYS);
+        }
+        String bank = bloodBankId == null || bloodBankId.isBlank() ? ALL_BANKS : bloodBankId;
+        String fromDay = LocalDate.now(ZoneOffset.UTC).minusDays(window - 1L).toString();
+
+        Map<String, long[]> totals = new TreeMap<>();
+        for (RequestDwellCounter counter : requestDwellCounterRepository.findByBloodBankIdAndDayGreaterThanEqual(bank, fromDay)) {
+            long[] total = totals.computeIfAbsent(counter.getMetric(), k -> new long[3]);
+            total[0] += counter.getCount();
+            total[1] += counter.getTotalMinutes();
+            total[2] = Math.max(total[2], counter.getMaxMinutes());
+        }
+        List<DwellStat> stats = new ArrayList<>();
+        totals.forEach((metric, total) -> stats.add(new DwellStat(metric, total[0],
+                total[0] == 0 ? 0 : Math.round(total[1] * 10.0 / total[0]) / 10.0, total[2])));
+        return stats;
+    }
+
+    /**
+     * Write queued events and fold them into the dwell counters. Events and
+     * counters left over from a failed run go first.
+     */
+    @Scheduled(fixedDelay = 2000)
+    public synchronized void dispatch() {
+        List<RequestEvent> batch = new ArrayList<>(unwrittenEvents);
+        unwrittenEvents.clear();
+        if (batch.size() < DISPATCH_BATCH) {
+            queue.drainTo(batch, DISPATCH_BATCH - batch.size());
+        }
+        if (batch.isEmpty() && unwrittenCounters.isEmpty()) {
+            return;
+        }
+
+        List<RequestEvent> written = writeEvents(batch);
+        if (unwrittenEvents.isEmpty()) {
+            eventAttempts = 0;
+        } else if (++eventAttempts >= MAX_ATTEMPTS) {
+            log.error("Dropping {} request events after {} failed attempts", unwrittenEvents.size(), eventAttempts);
+            unwrittenEvents.clear();
+            eventAttempts = 0;
+        }
+
+        CounterBatch counters = new CounterBatch();
+        for (RequestEvent event : written) {
+            String day = LocalDate.ofInstant(event.getCreatedAt().toInstant(), ZoneOffset.UTC).toString();
+            if (event.getFromStatus() != null && event.getDwellMinutes() != null) {
+                add(counters.increments, event.getBloodBankId(), event.getFromStatus(), day, event.getDwellMinutes());
+            }
+            if (FULFILLED.equals(event.getToStatus()) && event.getAgeMinutes() != null) {
+                add(counters.increments, event.getBloodBankId(), RequestDwellCounter.TO_FULFILLED, day, event.getAgeMinutes());
+            }
+        }
+        if (!counters.increments.isEmpty()) {
+            unwrittenCounters.add(counters);
+        }
+
+        for (Iterator<CounterBatch> pending = unwrittenCounters.iterator(); pending.hasNext(); ) {
+            CounterBatch counterBatch = pending.next();
+            writeCounters(counterBatch);
+            if (counterBatch.increments.isEmpty()) {
+                pending.remove();
+            } else if (++counterBatch.attempts >= MAX_ATTEMPTS) {
+                log.error("Dropping {} dwell counter updates after {} failed attempts",
+                        counterBatch.increments.size(), counterBatch.attempts);
+                pending.remove();
+            }
+        }
+        log.debug("Wrote {} request events", written.size());
+    }
+
+    @PreDestroy
+    public void flush() {
+        while (!queue.isEmpty() || !unwrittenEvents.isEmpty() || !unwrittenCounters.isEmpty()) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Insert a batch unordered. Returns the events stored by this call; the ones
+     * that failed go to unwrittenEvents. A duplicate key means the event was
+     * stored by an earlier attempt whose outcome was lost, so it counts as written.
+     */
+    private List<RequestEvent> writeEvents(List<RequestEvent> batch) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RequestEvent.class);
+            bulk.insert(batch);
+            bulk.execute();
+            return batch;
+        } catch (BulkOperationException e) {
+            Set<Integer> failed = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    failed.add(error.getIndex());
+                }
+            }
+            List<RequestEvent> written = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (failed.contains(i)) {
+                    unwrittenEvents.add(batch.get(i));
+                } else {
+                    written.add(batch.get(i));
+                }
+            }
+            log.warn("Could not write {} of {} request events, will retry: {}", failed.size(), batch.size(), e.getMessage());
+            return written;
+        } catch (Exception e) {
+            unwrittenEvents.addAll(batch);
+            log.warn("Could not write {} request events, will retry: {}", batch.size(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static void add(Map<String, Increment> increments, String bloodBankId, String metric, String day, long minutes) {
+        String[] banks = bloodBankId != null ? new String[]{bloodBankId, ALL_BANKS} : new String[]{ALL_BANKS};
+        for (String bank : banks) {
+            Increment increment = increments.computeIfAbsent(counterId(bank, metric, day), k -> new Increment(bank, metric, day));
+            increment.count++;
+            increment.totalMinutes += minutes;
+            increment.maxMinutes = Math.max(increment.maxMinutes, minutes);
+        }
+    }
+
+    /**
+     * Upsert the counters of a batch unordered, each only if it does not list the
+     * batch id yet. Counters that were updated are removed from the batch; the
+     * ones left are retried. A duplicate key means the guard skipped an existing
+     * counter: it was updated by an earlier attempt unless another instance
+     * created it concurrently, which a read of the batch id tells apart.
+     */
+    private void writeCounters(CounterBatch batch) {
+        List<String> ids = new ArrayList<>(batch.increments.keySet());
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RequestDwellCounter.class);
+            for (String id : ids) {
+                Increment increment = batch.increments.get(id);
+                bulk.upsert(new Query(Criteria.where("id").is(id).and("appliedBatches").ne(batch.id)), new Update()
+                        .setOnInsert("bloodBankId", increment.bloodBankId)
+                        .setOnInsert("metric", increment.metric)
+                        .setOnInsert("day", increment.day)
+                        .inc("count", increment.count)
+                        .inc("totalMinutes", increment.totalMinutes)
+                        .max("maxMinutes", increment.maxMinutes)
+                        .push("appliedBatches").slice(-APPLIED_BATCHES_KEPT).each(batch.id));
+            }
+            bulk.execute();
+            batch.increments.clear();
+        } catch (BulkOperationException e) {
+            Set<String> failed = new HashSet<>();
+            Set<String> skipped = new HashSet<>();
+            for (BulkWriteError error : e.getErrors()) {
+                (error.getCode() == DUPLICATE_KEY ? skipped : failed).add(ids.get(error.getIndex()));
+            }
+            if (!skipped.isEmpty()) {
+                try {
+                    Query applied = new Query(Criteria.where("id").in(skipped).and("appliedBatches").is(batch.id));
+                    applied.fields().include("id");
+                    mongoTemplate.find(applied, RequestDwellCounter.class)
+                            .forEach(counter -> skipped.remove(counter.getId()));
+                } catch (Exception readError) {
+                    log.warn("Could not check skipped dwell counters, will retry them: {}", readError.getMessage());
+                }
+                failed.addAll(skipped);
+            }
+            batch.increments.keySet().retainAll(failed);
+            if (!failed.isEmpty()) {
+                log.warn("Could not write {} of {} dwell counters, will retry: {}", failed.size(), ids.size(), e.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Could not write {} dwell counters, will retry: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private static String counterId(String bloodBankId, String metric, String day) {
+        return bloodBankId + "|" + metric + "|" + day;
+    }
+
+    private static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return "system";
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,163 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.Hospital;
+import RedSource.repositories.HospitalRepository;
+import RedSource.services.BloodBankLocationService.BankLocation;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggests which blood banks should serve a hospital request.
+ * Candidates come from the bank location index (nearest first, widening the
+ * search radius until some bank can cover the whole request) and are scored
+ * in parallel against the in-memory inventory index, so no inventory query
+ * is made while routing.
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestRoutingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestRoutingService.class);
+    private static final double[] SEARCH_RADII_KM = {25, 50, 100, 200, 400};
+    private static final double FILL_WEIGHT = 0.75;
+    private static final double DISTANCE_WEIGHT = 0.25;
+    private static final double DISTANCE_HALF_SCORE_KM = 25; // distance at which the distance score halves
+    private static final int DEFAULT_LIMIT = 10;
+
+    public static final Comparator<Candidate> BY_SCORE = Comparator
+            .comparingDouble(Candidate::score).reversed()
+            .thenComparing(candidate -> candidate.distanceKm() == null ? Double.MAX_VALUE : candidate.distanceKm());
+
+    private final InventoryIndexService inventoryIndexService;
+    private final BloodBankLocationService bloodBankLocationService;
+    private final HospitalRepository hospitalRepository;
+
+    /**
+     * A candidate bank with its stock for the requested blood types.
+     */
+    public record Candidate(BankLocation bank, Double distanceKm, Map<String, Integer> available,
+                            int coveredUnits, int requestedUnits) {
+
+        public double fillRate() {
+            return requestedUnits == 0 ? 0 : (double) coveredUnits / requestedUnits;
+        }
+
+        public boolean fullyCovers() {
+            return requestedUnits > 0 && coveredUnits == requestedUnits;
+        }
+
+        public double score() {
+            double distanceScore = distanceKm == null ? 0 : 1.0 / (1.0 + distanceKm / DISTANCE_HALF_SCORE_KM);
+            return FILL_WEIGHT * fillRate() + DISTANCE_WEIGHT * distanceScore;
+        }
+    }
+
+    /**
+     * Ranked bank suggestions for the given items, best first.
+     */
+    public List<Map<String, Object>> rank(String hospitalId, List<BloodInventoryItem> bloodItems, Integer limit) {
+        long start = System.nanoTime();
+        List<Candidate> candidates = findCandidates(hospitalId, bloodItems);
+        int size = limit == null || limit <= 0 ? DEFAULT_LIMIT : limit;
+
+        List<Map<String, Object>> ranked = new ArrayList<>();
+        candidates.stream()
+                .filter(candidate -> candidate.coveredUnits() > 0)
+                .sorted(BY_SCORE)
+                .limit(size)
+                .forEach(candidate -> ranked.add(toResponse(candidate)));
+        log.debug("Routed request for hospital {} over {} candidate banks in {} us",
+                hospitalId, candidates.size(), (System.nanoTime() - start) / 1000);
+        return ranked;
+    }
+
+    /**
+     * Score every candidate bank for the requested items. Used by the ranking above
+     * and by the split-fulfillment planner.
+     */
+    public List<Candidate> findCandidates(String hospitalId, List<BloodInventoryItem> bloodItems) {
+        Map<String, Integer> requested = requestedUnits(bloodItems);
+        Hospital.Coordinates origin = hospitalCoordinates(hospitalId);
+
+        if (origin == null) {
+            // Without a location only stock can be compared
+            return score(bloodBankLocationService.getAll(), null, requested);
+        }
+        List<Candidate> candidates = List.of();
+        for (double radius : SEARCH_RADII_KM) {
+            candidates = score(bloodBankLocationService.findWithin(origin.getLat(), origin.getLng(), radius), origin, requested);
+            if (candidates.stream().anyMatch(Candidate::fullyCovers)) {
+                return candidates;
+            }
+        }
+        // Nobody nearby covers everything; consider every bank, including those without coordinates
+        return score(bloodBankLocationService.getAll(), origin, requested);
+    }
+
+    public static Map<String, Integer> requestedUnits(List<BloodInventoryItem> bloodItems) {
+        if (bloodItems == null || bloodItems.isEmpty()) {
+            throw new IllegalArgumentException("At least one blood item is required");
+        }
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (BloodInventoryItem item : bloodItems) {
+            if (item.getBloodType() == null || item.getUnits() <= 0) {
+                throw new IllegalArgumentException("Each blood item needs a blood type and a positive number of units");
+            }
+            requested.merge(item.getBloodType(), item.getUnits(), Integer::sum);
+        }
+        return requested;
+    }
+
+    private List<Candidate> score(List<BankLocation> banks, Hospital.Coordinates origin, Map<String, Integer> requested) {
+        int requestedTotal = requested.values().stream().mapToInt(Integer::intValue).sum();
+        return banks.parallelStream()
+                .map(bank -> {
+                    Map<String, Integer> available = new LinkedHashMap<>();
+                    int covered = 0;
+                    for (Map.Entry<String, Integer> entry : requested.entrySet()) {
+                        int units = inventoryIndexService.getUnits(bank.id(), entry.getKey());
+                        available.put(entry.getKey(), units);
+                        covered += Math.min(units, entry.getValue());
+                    }
+                    Double distance = origin != null && bank.hasCoordinates()
+                            ? BloodBankLocationService.distanceKm(origin.getLat(), origin.getLng(), bank.lat(), bank.lng())
+                            : null;
+                    return new Candidate(bank, distance, available, covered, requestedTotal);
+                })
+                .toList();
+    }
+
+    private Hospital.Coordinates hospitalCoordinates(String hospitalId) {
+        if (hospitalId == null) {
+            return null;
+        }
+        Hospital hospital = hospitalRepository.findById(hospitalId).orElse(null);
+        if (hospital == null || hospital.getCoordinates() == null
+                || hospital.getCoordinates().getLat() == null || hospital.getCoordinates().getLng() == null) {
+            return null;
+        }
+        return hospital.getCoordinates();
+    }
+
+    private static Map<String, Object> toResponse(Candidate candidate) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("bloodBankId", candidate.bank().id());
+        row.put("bloodBankName", candidate.bank().name());
+        row.put("bloodBankAddress", candidate.bank().address());
+        row.put("distanceKm", candidate.distanceKm() == null ? null : Math.round(candidate.distanceKm() * 10) / 10.0);
+        row.put("fillRate", Math.round(candidate.fillRate() * 1000) / 1000.0);
+        row.put("fullyCovers", candidate.fullyCovers());
+        row.put("availableUnits", candidate.available());
+        row.put("score", Math.round(candidate.score() * 1000) / 1000.0);
+        return row;
+    }
+}
@@ -0,0 +1,364 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.Hospital;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.enums.HospitalRequestStatus;
+import RedSource.entities.enums.RequestUrgency;
+import RedSource.entities.response.KeysetPage;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Triage queue of pending hospital requests per blood bank.
+ * <p>
+ * Requests are ordered by a priority deadline: the date needed, brought
+ * forward by the request's urgency lead time and by URGENT_HOSPITAL_LEAD_HOURS
+ * when the hospital is flagged as in urgent need. Because every request is
+ * shifted by a fixed amount, the order does not change as time passes and only
+ * has to be touched when a request or hospital is written.
+ * <p>
+ * Each bank's queue is loaded once through the (blood_bank_id, status,
+ * date_needed) index and then kept in an ordered skip list, so writes cost
+ * O(log n) and the next page after a cursor costs O(log n + limit). Queues are
+ * reloaded after triage.queue.reload-ms to pick up writes made outside the
+ * services that notify this one. Writes notified while a queue is loading are
+ * buffered and replayed over the loaded snapshot before it is published.
+ */
+@Service
+@RequiredArgsConstructor
+public class RequestTriageService {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestTriageService.class);
+    private static final String PENDING = HospitalRequestStatus.PENDING.name();
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final int URGENT_HOSPITAL_LEAD_HOURS = 12;
+    // Requests without a date needed are treated as needed this long after creation
+    private static final long NO_DATE_NEEDED_SLACK_MS = 7 * 24 * HOUR_MS;
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${triage.queue.reload-ms:300000}")
+    private long reloadMs;
+
+    public record TriageEntry(String requestId, String hospitalId, String hospitalName, Date dateNeeded,
+                              String urgency, boolean hospitalUrgent, int units, Date priorityDeadline,
+                              long minutesToDeadline) {
+    }
+
+    private record Entry(long priority, String requestId, String hospitalId, String hospitalName,
+                         Date dateNeeded, RequestUrgency urgency, boolean hospitalUrgent, int units) {
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::priority)
+            .thenComparing(Entry::requestId);
+
+    private static final class BankQueue {
+        final NavigableSet<Entry> ordered = new ConcurrentSkipListSet<>(ORDER);
+        final Map<String, Entry> byId = new ConcurrentHashMap<>();
+        final long loadedAt = System.currentTimeMillis();
+    }
+
+    // A request write or removal; request is null when it was removed
+    private record Change(HospitalRequest request) {
+    }
+
+    private final Map<String, BankQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> urgentHospitals = new ConcurrentHashMap<>();
+
+    // Guards changedDuringLoad and the publishing of a loaded queue against request writes
+    private final Object writeLock = new Object();
+    private final Map<String, Map<String, Change>> changedDuringLoad = new HashMap<>();
+
+    /**
+     * The next requests to work on for a bank, most pressing first.
+     */
+    public KeysetPage<TriageEntry> getQueue(String bloodBankId, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : PaginationService.clampLimit(limit);
+        BankQueue queue = queueFor(bloodBankId);
+        NavigableSet<Entry> remaining = cursor == null || cursor.isBlank()
+                ? queue.ordered
+                : queue.ordered.tailSet(decodeCursor(cursor), false);
+
+        long now = System.currentTimeMillis();
+        List<TriageEntry> items = new ArrayList<>(pageSize);
+        Entry last = null;
+        boolean more = false;
+        for (Entry entry : remaining) {
+            if (items.size() == pageSize) {
+                more = true;
+                break;
+            }
+            items.add(toTriageEntry(entry, now));
+            last = entry;
+        }
+        return new KeysetPage<>(items, more ? encodeCursor(last) : null, pageSize);
+    }
+
+    public int size(String bloodBankId) {
+        return queueFor(bloodBankId).byId.size();
+    }
+
+    /**
+     * Re-queue a request after it was written: it is dropped from whatever queue
+     * held it and added to its bank's queue again while it is still pending.
+     */
+    public void onRequestChanged(HospitalRequest request) {
+        if (request == null || request.getId() == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            recordDuringLoad(request.getId(), new Change(request));
+            remove(request.getId());
+            if (request.getBloodBankId() == null || !PENDING.equals(request.getStatus())) {
+                return;
+            }
+            BankQueue queue = queues.get(request.getBloodBankId());
+            if (queue != null) {
+                synchronized (queue) {
+                    add(queue, toEntry(request, isUrgent(request.getHospitalId())));
+                }
+            }
+        }
+    }
+
+    public void onRequestRemoved(String requestId) {
+        synchronized (writeLock) {
+            recordDuringLoad(requestId, new Change(null));
+            remove(requestId);
+        }
+    }
+
+    /**
+     * Re-key the queued requests of a hospital whose urgent flag changed.
+     */
+    public void onHospitalChanged(String hospitalId, Boolean urgentNeed) {
+        if (hospitalId == null) {
+            return;
+        }
+        boolean urgent = Boolean.TRUE.equals(urgentNeed);
+        Boolean previous = urgentHospitals.put(hospitalId, urgent);
+        if (previous != null && previous == urgent) {
+            return;
+        }
+        for (BankQueue queue : queues.values()) {
+            synchronized (queue) {
+                for (Entry entry : new ArrayList<>(queue.byId.values())) {
+                    if (hospitalId.equals(entry.hospitalId()) && entry.hospitalUrgent() != urgent) {
+                        removeEntry(queue, entry);
+                        add(queue, rekey(entry, urgent));
+                    }
+                }
+            }
+        }
+    }
+
+    private BankQueue queueFor(String bloodBankId) {
+        BankQueue queue = queues.get(bloodBankId);
+        if (queue != null && System.currentTimeMillis() - queue.loadedAt < reloadMs) {
+            return queue;
+        }
+        synchronized (this) {
+            queue = queues.get(bloodBankId);
+            if (queue == null || System.currentTimeMillis() - queue.loadedAt >= reloadMs) {
+                queue = load(bloodBankId);
+            }
+            return queue;
+        }
+    }
+
+    /**
+     * Load and publish a bank's queue. Writes notified between the query and the
+     * publish would otherwise be lost with the old queue, so they are recorded
+     * from before the query runs and replayed over the snapshot.
+     */
+    private BankQueue load(String bloodBankId) {
+        synchronized (writeLock) {
+            changedDuringLoad.put(bloodBankId, new LinkedHashMap<>());
+        }
+        try {
+            BankQueue queue = snapshot(bloodBankId);
+            synchronized (writeLock) {
+                Map<String, Change> changes = changedDuringLoad.remove(bloodBankId);
+                changes.forEach((requestId, change) -> {
+                    Entry loaded = queue.byId.get(requestId);
+                    if (loaded != null) {
+                        removeEntry(queue, loaded);
+                    }
+                    HospitalRequest request = change.request();
+                    if (request != null && bloodBankId.equals(request.getBloodBankId()) && PENDING.equals(request.getStatus())) {
+                        add(queue, toEntry(request, isUrgent(request.getHospitalId())));
+                    }
+                });
+                queues.put(bloodBankId, queue);
+                log.debug("Loaded triage queue for blood bank {} with {} pending requests ({} replayed writes)",
+                        bloodBankId, queue.byId.size(), changes.size());
+            }
+            return queue;
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                changedDuringLoad.remove(bloodBankId);
+            }
+            throw e;
+        }
+    }
+
+    private BankQueue snapshot(String bloodBankId) {
+        Query query = new Query(Criteria.where("bloodBankId").is(bloodBankId).and("status").is(PENDING))
+                .with(Sort.by(Sort.Direction.ASC, "dateNeeded"));
+        query.fields().include("id", "hospitalId", "hospitalName", "bloodBankId", "status", "dateNeeded",
+                "createdAt", "urgency", "bloodItems", "unitsRequested");
+        List<HospitalRequest> requests = mongoTemplate.find(query, HospitalRequest.class);
+
+        Set<String> hospitalIds = new HashSet<>();
+        for (HospitalRequest request : requests) {
+            if (request.getHospitalId() != null && !urgentHospitals.containsKey(request.getHospitalId())) {
+                hospitalIds.add(request.getHospitalId());
+            }
+        }
+        loadUrgentFlags(hospitalIds);
+
+        BankQueue queue = new BankQueue();
+        for (HospitalRequest request : requests) {
+            add(queue, toEntry(request, isUrgent(request.getHospitalId())));
+        }
+        return queue;
+    }
+
+    // A request may have moved between banks, so every queue being loaded sees the change
+    private void recordDuringLoad(String requestId, Change change) {
+        for (Map<String, Change> changes : changedDuringLoad.values()) {
+            changes.put(requestId, change);
+        }
+    }
+
+    private void loadUrgentFlags(Set<String> hospitalIds) {
+        if (hospitalIds.isEmpty()) {
+            return;
+        }
+        Query query = new Query(Criteria.where("id").in(hospitalIds));
+        query.fields().include("id", "urgentNeed");
+        for (Hospital hospital : mongoTemplate.find(query, Hospital.class)) {
+            urgentHospitals.put(hospital.getId(), Boolean.TRUE.equals(hospital.getUrgentNeed()));
+        }
+        // Unknown hospitals are not urgent; remember that so they are not looked up again
+        for (String hospitalId : hospitalIds) {
+            urgentHospitals.putIfAbsent(hospitalId, false);
+        }
+    }
+
+    private boolean isUrgent(String hospitalId) {
+        if (hospitalId == null) {
+            return false;
+        }
+        if (!urgentHospitals.containsKey(hospitalId)) {
+            loadUrgentFlags(Set.of(hospitalId));
+        }
+        return urgentHospitals.getOrDefault(hospitalId, false);
+    }
+
+    private void remove(String requestId) {
+        for (BankQueue queue : queues.values()) {
+            Entry entry = queue.byId.get(requestId);
+            if (entry != null) {
+                synchronized (queue) {
+                    removeEntry(queue, entry);
+                }
+            }
+        }
+    }
+
+    private static void add(BankQueue queue, Entry entry) {
+        queue.byId.put(entry.requestId(), entry);
+        queue.ordered.add(entry);
+    }
+
+    private static void removeEntry(BankQueue queue, Entry entry) {
+        if (queue.byId.remove(entry.requestId(), entry)) {
+            queue.ordered.remove(entry);
+        }
+    }
+
+    private static Entry toEntry(HospitalRequest request, boolean hospitalUrgent) {
+        Date dateNeeded = request.getDateNeeded();
+        long due = dateNeeded != null ? dateNeeded.getTime()
+                : (request.getCreatedAt() != null ? request.getCreatedAt().getTime() : System.currentTimeMillis())
+                        + NO_DATE_NEEDED_SLACK_MS;
+        RequestUrgency urgency = RequestUrgency.fromValue(request.getUrgency());
+        return new Entry(priority(due, urgency, hospitalUrgent), request.getId(), request.getHospitalId(),
+                request.getHospitalName(), dateNeeded, urgency, hospitalUrgent, units(request));
+    }
+
+    private static Entry rekey(Entry entry, boolean hospitalUrgent) {
+        long due = entry.priority() + lead(entry.urgency(), entry.hospitalUrgent());
+        return new Entry(priority(due, entry.urgency(), hospitalUrgent), entry.requestId(), entry.hospitalId(),
+                entry.hospitalName(), entry.dateNeeded(), entry.urgency(), hospitalUrgent, entry.units());
+    }
+
+    private static long priority(long due, RequestUrgency urgency, boolean hospitalUrgent) {
+        return due - lead(urgency, hospitalUrgent);
+    }
+
+    private static long lead(RequestUrgency urgency, boolean hospitalUrgent) {
+        return (urgency.getLeadHours() + (hospitalUrgent ? URGENT_HOSPITAL_LEAD_HOURS : 0)) * HOUR_MS;
+    }
+
+    private static int units(HospitalRequest request) {
+        if (request.getUnitsRequested() != null) {
+            return request.getUnitsRequested();
+        }
+        if (request.getBloodItems() == null) {
+            return 0;
+        }
+        return request.getBloodItems().stream().mapToInt(BloodInventoryItem::getUnits).sum();
+    }
+
+    private static TriageEntry toTriageEntry(Entry entry, long now) {
+        return new TriageEntry(entry.requestId(), entry.hospitalId(), entry.hospitalName(), entry.dateNeeded(),
+                entry.urgency().name(), entry.hospitalUrgent(), entry.units(), new Date(entry.priority()),
+                (entry.priority() - now) / 60000);
+    }
+
+    private static String encodeCursor(Entry entry) {
+        String raw = entry.priority() + "|" + entry.requestId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Only priority and requestId take part in the ordering, so the probe leaves the rest empty
+    private static Entry decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            if (separator <= 0 || separator == decoded.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new Entry(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1),
+                    null, null, null, RequestUrgency.NORMAL, false, 0);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
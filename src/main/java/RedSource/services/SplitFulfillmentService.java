@@ -0,0 +1,300 @@
+package RedSource.services;
+
+import RedSource.entities.BloodBankUser;
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.VersionedDocument;
+import RedSource.entities.enums.HospitalRequestStatus;
+import RedSource.exceptions.ServiceException;
+import RedSource.repositories.DeliveryRepository;
+import RedSource.services.RequestRoutingService.Candidate;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a multi-item hospital request across several blood banks.
+ * <p>
+ * Each delivery leg has a fixed dispatch cost plus a cost proportional to the
+ * distance from the hospital. Banks are picked greedily by units newly covered
+ * per unit of cost (weighted set cover), then every blood type is drawn from the
+ * chosen banks nearest first. The legs are inserted in one bulk write and the
+ * parent request tracks aggregate progress as legs are completed.
+ */
+@Service
+@RequiredArgsConstructor
+public class SplitFulfillmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(SplitFulfillmentService.class);
+    private static final double LEG_COST_KM = 20;       // dispatch overhead of one extra leg, in km
+    private static final double UNKNOWN_DISTANCE_KM = 500; // banks without coordinates are a last resort
+    private final RequestRoutingService requestRoutingService;
+    private final HospitalRequestService hospitalRequestService;
+    private final BloodBankService bloodBankService;
+    private final DeliveryRepository deliveryRepository;
+    private final MongoTemplate mongoTemplate;
+
+    public record Leg(Candidate candidate, Map<String, Integer> units) {
+        public int totalUnits() {
+            return units.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    public record Plan(List<Leg> legs, Map<String, Integer> requested, Map<String, Integer> unfilled) {
+        public int requestedUnits() {
+            return requested.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        public int plannedUnits() {
+            return legs.stream().mapToInt(Leg::totalUnits).sum();
+        }
+    }
+
+    /**
+     * Compute the split for a request without creating anything.
+     */
+    public Plan plan(HospitalRequest request) {
+        Map<String, Integer> requested = RequestRoutingService.requestedUnits(request.getBloodItems());
+        List<Candidate> candidates = new ArrayList<>(requestRoutingService.findCandidates(request.getHospitalId(), request.getBloodItems()));
+        candidates.removeIf(candidate -> candidate.coveredUnits() == 0);
+
+        Map<String, Integer> remaining = new LinkedHashMap<>(requested);
+        List<Candidate> chosen = new ArrayList<>();
+        while (remaining.values().stream().anyMatch(units -> units > 0) && !candidates.isEmpty()) {
+            Candidate best = null;
+            double bestRatio = 0;
+            for (Candidate candidate : candidates) {
+                int covers = newlyCovered(candidate, remaining);
+                double ratio = covers / cost(candidate);
+                if (covers > 0 && ratio > bestRatio) {
+                    best = candidate;
+                    bestRatio = ratio;
+                }
+            }
+            if (best == null) {
+                break;
+            }
+            candidates.remove(best);
+            chosen.add(best);
+            for (Map.Entry<String, Integer> entry : remaining.entrySet()) {
+                entry.setValue(Math.max(0, entry.getValue() - best.available().getOrDefault(entry.getKey(), 0)));
+            }
+        }
+
+        // Draw each blood type from the chosen banks, nearest first
+        chosen.sort(Comparator.comparingDouble(SplitFulfillmentService::cost));
+        Map<String, Integer> left = new LinkedHashMap<>(requested);
+        List<Leg> legs = new ArrayList<>();
+        for (Candidate candidate : chosen) {
+            Map<String, Integer> units = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : left.entrySet()) {
+                int take = Math.min(entry.getValue(), candidate.available().getOrDefault(entry.getKey(), 0));
+                if (take > 0) {
+                    units.put(entry.getKey(), take);
+                    entry.setValue(entry.getValue() - take);
+                }
+            }
+            if (!units.isEmpty()) {
+                legs.add(new Leg(candidate, units));
+            }
+        }
+        left.values().removeIf(units -> units == 0);
+        return new Plan(legs, requested, left);
+    }
+
+    /**
+     * Plan the split and create one PENDING delivery per leg. Only a PENDING or
+     * APPROVED request can be split, and only once.
+     */
+    public Map<String, Object> split(String requestId) {
+        HospitalRequest request = hospitalRequestService.getById(requestId);
+        if (request == null) {
+            throw new ServiceException("Hospital Request not found");
+        }
+        if (request.getLegsTotal() != null) {
+            throw new IllegalArgumentException("Hospital request has already been split");
+        }
+        if (!canBeFulfilled(request.getStatus())) {
+            throw new IllegalArgumentException("Hospital request is " + request.getStatus() + " and can no longer be split");
+        }
+        Plan plan = plan(request);
+        if (plan.legs().isEmpty()) {
+            throw new IllegalArgumentException("No blood bank currently has stock for this request");
+        }
+
+        // Claim the request first so two concurrent splits cannot both create legs,
+        // and only while it still has the status checked above
+        Update claim = new Update()
+                .set("legsTotal", plan.legs().size())
+                .set("legsCompleted", 0)
+                .set("unitsRequested", plan.requestedUnits())
+                .set("unitsPlanned", plan.plannedUnits())
+                .set("unitsDelivered", 0)
+                .set("updatedAt", new Date())
+                .inc(VersionedDocument.VERSION_FIELD, 1);
+        HospitalRequest claimed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(requestId).and("legsTotal").exists(false)
+                        .and("status").is(request.getStatus())),
+                claim, FindAndModifyOptions.options().returnNew(true), HospitalRequest.class);
+        if (claimed == null) {
+            throw new IllegalArgumentException("Hospital request has already been split or has changed status");
+        }
+
+        // Ids are assigned up front so legs written before a failure can be removed again
+        List<Delivery> built = buildLegs(claimed, plan);
+        List<String> builtIds = built.stream().map(Delivery::getId).collect(Collectors.toList());
+        List<Delivery> legs;
+        try {
+            legs = deliveryRepository.saveAll(built);
+        } catch (Exception e) {
+            mongoTemplate.remove(new Query(Criteria.where("id").in(builtIds)), Delivery.class);
+            mongoTemplate.updateFirst(new Query(Criteria.where("id").is(requestId)),
+                    new Update().unset("legsTotal").unset("legsCompleted").unset("unitsRequested")
+                            .unset("unitsPlanned").unset("unitsDelivered").inc(VersionedDocument.VERSION_FIELD, 1),
+                    HospitalRequest.class);
+            throw new ServiceException("Could not create delivery legs", e);
+        }
+
+        List<String> legIds = legs.stream().map(Delivery::getId).collect(Collectors.toList());
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(requestId)),
+                new Update().set("splitDeliveryIds", legIds).inc(VersionedDocument.VERSION_FIELD, 1),
+                HospitalRequest.class);
+        log.info("Split hospital request {} into {} deliveries ({} of {} units planned)",
+                requestId, legs.size(), plan.plannedUnits(), plan.requestedUnits());
+
+        Map<String, Object> result = toResponse(plan);
+        result.put("deliveries", legs);
+        return result;
+    }
+
+    /**
+     * Record a completed leg on its parent request. The request becomes FULFILLED
+     * once every leg has been delivered and the delivered units cover the units
+     * requested; a split that could only be planned in part stays open. Returns
+     * false when the request was not split.
+     */
+    public boolean recordLegCompleted(String requestId, Delivery leg) {
+        int units = leg.getBloodItems() == null ? 0
+                : leg.getBloodItems().stream().mapToInt(BloodInventoryItem::getUnits).sum();
+        HospitalRequest updated = mongoTemplate.findAndModify(
+                new Query(Criteria.where("id").is(requestId).and("legsTotal").exists(true)),
+                new Update().inc("legsCompleted", 1).inc("unitsDelivered", units)
+                        .set("updatedAt", new Date()).inc(VersionedDocument.VERSION_FIELD, 1),
+                FindAndModifyOptions.options().returnNew(true), HospitalRequest.class);
+        if (updated == null) {
+            return false;
+        }
+        if (updated.getLegsCompleted() < updated.getLegsTotal()) {
+            return true;
+        }
+        int delivered = updated.getUnitsDelivered() == null ? 0 : updated.getUnitsDelivered();
+        int requested = updated.getUnitsRequested() == null ? 0 : updated.getUnitsRequested();
+        if (delivered < requested) {
+            log.info("All {} legs of hospital request {} delivered, {} of {} units still outstanding",
+                    updated.getLegsTotal(), requestId, requested - delivered, requested);
+            return true;
+        }
+        if (canBeFulfilled(updated.getStatus())) {
+            Date now = new Date();
+            long fulfilled = mongoTemplate.updateFirst(
+                    new Query(Criteria.where("id").is(requestId).and("status").is(updated.getStatus())),
+                    new Update().set("status", HospitalRequestStatus.FULFILLED.name()).set("updatedAt", now)
+                            .set("statusChangedAt", now).inc(VersionedDocument.VERSION_FIELD, 1),
+                    HospitalRequest.class).getModifiedCount();
+            if (fulfilled > 0) {
+                log.info("All {} legs of hospital request {} delivered, request fulfilled", updated.getLegsTotal(), requestId);
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> toResponse(Plan plan) {
+        List<Map<String, Object>> legs = new ArrayList<>();
+        for (Leg leg : plan.legs()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("bloodBankId", leg.candidate().bank().id());
+            row.put("bloodBankName", leg.candidate().bank().name());
+            row.put("distanceKm", leg.candidate().distanceKm() == null ? null
+                    : Math.round(leg.candidate().distanceKm() * 10) / 10.0);
+            row.put("units", leg.units());
+            legs.add(row);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("legs", legs);
+        response.put("requestedUnits", plan.requestedUnits());
+        response.put("plannedUnits", plan.plannedUnits());
+        response.put("fillRate", plan.requestedUnits() == 0 ? 0
+                : Math.round(1000.0 * plan.plannedUnits() / plan.requestedUnits()) / 1000.0);
+        response.put("unfilled", plan.unfilled());
+        return response;
+    }
+
+    private List<Delivery> buildLegs(HospitalRequest request, Plan plan) {
+        Map<String, BloodBankUser> banks = bloodBankService.getByIds(
+                plan.legs().stream().map(leg -> leg.candidate().bank().id()).collect(Collectors.toSet()));
+        Date now = new Date();
+        List<Delivery> deliveries = new ArrayList<>();
+        for (Leg leg : plan.legs()) {
+            BloodBankUser bank = banks.get(leg.candidate().bank().id());
+            List<BloodInventoryItem> items = new ArrayList<>();
+            leg.units().forEach((type, units) -> items.add(new BloodInventoryItem(type, units)));
+
+            Delivery delivery = new Delivery();
+            delivery.setId(new ObjectId().toHexString());
+            delivery.setRequestId(request.getId());
+            delivery.setHospitalId(request.getHospitalId());
+            delivery.setHospitalName(request.getHospitalName());
+            delivery.setBloodBankId(leg.candidate().bank().id());
+            delivery.setBloodBankName(leg.candidate().bank().name());
+            delivery.setBloodBankAddress(leg.candidate().bank().address());
+            if (bank != null) {
+                delivery.setBloodBankPhone(bank.getPhone());
+                delivery.setBloodBankEmail(bank.getEmail());
+                delivery.setContactInfo(bank.getPhone());
+            }
+            delivery.setBloodItems(items);
+            delivery.setItemsSummary(items.stream()
+                    .map(item -> item.getBloodType() + " (" + item.getUnits() + " units)")
+                    .collect(Collectors.joining(", ")));
+            delivery.setScheduledDate(request.getDateNeeded());
+            delivery.setStatus("PENDING");
+            delivery.setCreatedAt(now);
+            delivery.setUpdatedAt(now);
+            deliveries.add(delivery);
+        }
+        return deliveries;
+    }
+
+    private static boolean canBeFulfilled(String status) {
+        HospitalRequestStatus current = HospitalRequestStatus.fromValue(status);
+        return current != null && current.canTransitionTo(HospitalRequestStatus.FULFILLED);
+    }
+
+    private static int newlyCovered(Candidate candidate, Map<String, Integer> remaining) {
+        int covers = 0;
+        for (Map.Entry<String, Integer> entry : remaining.entrySet()) {
+            covers += Math.min(entry.getValue(), candidate.available().getOrDefault(entry.getKey(), 0));
+        }
+        return covers;
+    }
+
+    private static double cost(Candidate candidate) {
+        return LEG_COST_KM + (candidate.distanceKm() != null ? candidate.distanceKm() : UNKNOWN_DISTANCE_KM);
+    }
+}
@@ -0,0 +1,301 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process bus that streams delivery and hospital request status changes to
+ * Server-Sent Events subscribers, one topic per hospital and per blood bank.
+ * <p>
+ * Every subscriber has a bounded buffer drained by a small sender pool, so a
+ * slow client never blocks the publisher: when its buffer is full it is
+ * disconnected and can reconnect with Last-Event-ID. Each topic keeps its last
+ * REPLAY_SIZE events so a reconnecting client receives what it missed.
+ * Topics without subscribers are dropped once their replay window has expired.
+ */
+@Service
+public class StatusEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusEventBus.class);
+    private static final int REPLAY_SIZE = 256;
+    // Room for a full replay plus live events published while it is being sent
+    private static final int BUFFER_SIZE = REPLAY_SIZE + 100;
+    private static final long TOPIC_IDLE_MS = 10 * 60 * 1000L;
+    private static final int SENDER_THREADS = 4;
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final Object HEARTBEAT = new Object();
+
+    public static final String DELIVERY_STATUS = "delivery-status";
+    public static final String REQUEST_STATUS = "request-status";
+
+    public record StatusEvent(long id, String type, String entityId, String status,
+                              String hospitalId, String bloodBankId, Date at) {
+    }
+
+    private static final class Topic {
+        final Deque<StatusEvent> recent = new ArrayDeque<>();
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        long lastActiveAt = System.currentTimeMillis();
+        // Set under the topic lock when pruned; callers holding a stale reference look it up again
+        boolean removed;
+    }
+
+    private final class Subscriber {
+        final String topic;
+        final SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        volatile boolean closed;
+
+        Subscriber(String topic) {
+            this.topic = topic;
+        }
+
+        void offer(Object item) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(item)) {
+                log.info("Evicting slow event stream subscriber on {}", topic);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Object item;
+                while (!closed && (item = buffer.poll()) != null) {
+                    if (item instanceof StatusEvent event) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(event.id()))
+                                .name(event.type())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    } else {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (Exception e) {
+                log.debug("Event stream subscriber on {} disconnected: {}", topic, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // An item may have arrived after the last poll but before the flag was cleared
+            if (!closed && !buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            remove(this);
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("Could not complete event stream on {}: {}", topic, e.getMessage());
+            }
+        }
+    }
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis());
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "sse-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static String hospitalTopic(String hospitalId) {
+        return "hospital:" + hospitalId;
+    }
+
+    public static String bloodBankTopic(String bloodBankId) {
+        return "bloodbank:" + bloodBankId;
+    }
+
+    /**
+     * Open a stream on a topic. Events newer than lastEventId that are still in
+     * the topic's replay window are sent first.
+     */
+    public SseEmitter subscribe(String topicName, String lastEventId) {
+        Subscriber subscriber = new Subscriber(topicName);
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+
+        long after = parseEventId(lastEventId);
+        Topic topic;
+        // Replay and registration happen under the topic lock so no event is lost or duplicated
+        while (true) {
+            topic = topics.computeIfAbsent(topicName, k -> new Topic());
+            synchronized (topic) {
+                if (topic.removed) {
+                    continue;
+                }
+                if (after >= 0) {
+                    for (StatusEvent event : topic.recent) {
+                        if (event.id() > after) {
+                            subscriber.offer(event);
+                        }
+                    }
+                }
+                topic.subscribers.add(subscriber);
+                topic.lastActiveAt = System.currentTimeMillis();
+                break;
+            }
+        }
+        log.debug("Event stream subscriber added on {} ({} total)", topicName, topic.subscribers.size());
+        return subscriber.emitter;
+    }
+
+    public void publishDeliveryStatus(Delivery delivery) {
+        if (delivery == null) {
+            return;
+        }
+        publish(DELIVERY_STATUS, delivery.getId(), delivery.getStatus(), delivery.getHospitalId(), delivery.getBloodBankId());
+    }
+
+    public void publishRequestStatus(HospitalRequest request) {
+        if (request == null) {
+            return;
+        }
+        publish(REQUEST_STATUS, request.getId(), request.getStatus(), request.getHospitalId(), request.getBloodBankId());
+    }
+
+    private void publish(String type, String entityId, String status, String hospitalId, String bloodBankId) {
+        StatusEvent event = new StatusEvent(sequence.incrementAndGet(), type, entityId, status,
+                hospitalId, bloodBankId, new Date());
+        if (hospitalId != null) {
+            publish(hospitalTopic(hospitalId), event);
+        }
+        if (bloodBankId != null) {
+            publish(bloodBankTopic(bloodBankId), event);
+        }
+    }
+
+    private void publish(String topicName, StatusEvent event) {
+        while (true) {
+            Topic topic = topics.computeIfAbsent(topicName, k -> new Topic());
+            synchronized (topic) {
+                if (topic.removed) {
+                    continue;
+                }
+                topic.recent.addLast(event);
+                if (topic.recent.size() > REPLAY_SIZE) {
+                    topic.recent.removeFirst();
+                }
+                topic.lastActiveAt = System.currentTimeMillis();
+                for (Subscriber subscriber : topic.subscribers) {
+                    subscriber.offer(event);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop topics that have had no subscribers and no events for TOPIC_IDLE_MS.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void pruneTopics() {
+        long cutoff = System.currentTimeMillis() - TOPIC_IDLE_MS;
+        int pruned = 0;
+        for (Map.Entry<String, Topic> entry : topics.entrySet()) {
+            Topic topic = entry.getValue();
+            synchronized (topic) {
+                if (topic.subscribers.isEmpty() && topic.lastActiveAt < cutoff && topics.remove(entry.getKey(), topic)) {
+                    topic.removed = true;
+                    pruned++;
+                }
+            }
+        }
+        if (pruned > 0) {
+            log.debug("Pruned {} idle event topics", pruned);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects dead clients.
+     */
+    @Scheduled(fixedRate = 15000)
+    public void heartbeat() {
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : new ArrayList<>(topic.subscribers)) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int subscribers = 0;
+        for (Topic topic : topics.values()) {
+            subscribers += topic.subscribers.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("topics", topics.size());
+        stats.put("subscribers", subscribers);
+        stats.put("lastEventId", sequence.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Topic topic : topics.values()) {
+            for (Subscriber subscriber : new ArrayList<>(topic.subscribers)) {
+                subscriber.close();
+            }
+        }
+        senders.shutdownNow();
+    }
+
+    private void remove(Subscriber subscriber) {
+        Topic topic = topics.get(subscriber.topic);
+        if (topic != null) {
+            synchronized (topic) {
+                if (topic.subscribers.remove(subscriber)) {
+                    topic.lastActiveAt = System.currentTimeMillis();
+                }
+            }
+        }
+    }
+
+    private static long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
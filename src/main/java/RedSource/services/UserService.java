@@ -1,6 +1,7 @@
 package RedSource.services;
 
 import RedSource.entities.User;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
 import RedSource.repositories.UserRepository;
@@ -28,6 +29,7 @@ public class UserService {
     public static final String ROLE = "Role";
 
     private final UserRepository userRepository;
+    private final PaginationService paginationService;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -63,6 +65,22 @@ public class UserService {
         }
     }
 
+    // Retrieve one keyset page of users, newest first, optionally filtered by account status and role
+    public KeysetPage<User> getPage(String cursor, Integer limit, String accountStatus, String role) {
+        try {
+            KeysetPage<User> page = paginationService.findPage(User.class,
+                    PaginationService.filter("accountStatus", accountStatus, "role", role), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(USERS));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(USERS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     // Retrieve a user by ID
     public User getUserById(String id) {
         try {
@@ -128,6 +146,12 @@ public class UserService {
             user.setRewardPoints(existingUser.getRewardPoints());
             user.setTotalDonations(existingUser.getTotalDonations());
             user.setDonorTier(existingUser.getDonorTier());
+
+            // Eligibility is derived from appointments and only written by DonorEligibilityService
+            user.setLastDonationDate(existingUser.getLastDonationDate());
+            user.setNextEligibleDate(existingUser.getNextEligibleDate());
+            user.setHasActiveBooking(existingUser.getHasActiveBooking());
+            user.setEligibilityVersion(existingUser.getEligibilityVersion());
             
             // Preserve account status if not provided
             if (user.getAccountStatus() == null || user.getAccountStatus().trim().isEmpty()) {
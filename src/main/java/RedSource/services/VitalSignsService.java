@@ -1,6 +1,7 @@
 package RedSource.services;
 
 import RedSource.entities.VitalSigns;
+import RedSource.entities.response.KeysetPage;
 import RedSource.entities.utils.MessageUtils;
 import RedSource.exceptions.ServiceException;
 import RedSource.repositories.VitalSignsRepository;
@@ -22,6 +23,7 @@ public class VitalSignsService {
     public static final String VITAL_SIGN = "Vital Sign";
 
     private final VitalSignsRepository vitalSignsRepository;
+    private final PaginationService paginationService;
 
     public List<VitalSigns> getAll() {
         try {
@@ -35,6 +37,22 @@ public class VitalSignsService {
         }
     }
 
+    // Retrieve one keyset page of vital signs, newest first, optionally filtered by user
+    public KeysetPage<VitalSigns> getPage(String cursor, Integer limit, String userId) {
+        try {
+            KeysetPage<VitalSigns> page = paginationService.findPage(VitalSigns.class,
+                    PaginationService.filter("userId", userId), cursor, limit);
+            log.info(MessageUtils.retrieveSuccess(VITAL_SIGNS));
+            return page;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = MessageUtils.retrieveError(VITAL_SIGNS);
+            log.error(errorMessage, e);
+            throw new ServiceException(errorMessage, e);
+        }
+    }
+
     public VitalSigns getById(String id) {
         try {
             if (Objects.isNull(id)) {
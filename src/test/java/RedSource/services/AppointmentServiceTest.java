@@ -0,0 +1,181 @@
+package RedSource.services;
+
+import RedSource.entities.Appointment;
+import RedSource.entities.AppointmentSlot;
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.repositories.AppointmentRepository;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentServiceTest {
+
+    private static final String SLOT_ID = "bank-1|2030-03-04T01:00:00Z";
+
+    private AppointmentRepository appointmentRepository;
+    private MongoTemplate mongoTemplate;
+    private AppointmentSlotService appointmentSlotService;
+    private DonorEligibilityService donorEligibilityService;
+    private AppointmentService appointmentService;
+
+    @BeforeEach
+    void setUp() {
+        appointmentRepository = mock(AppointmentRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        appointmentSlotService = mock(AppointmentSlotService.class);
+        donorEligibilityService = mock(DonorEligibilityService.class);
+        appointmentService = new AppointmentService(appointmentRepository, mock(PaginationService.class),
+                mock(RewardPointsManagementService.class), mongoTemplate, donorEligibilityService,
+                appointmentSlotService);
+    }
+
+    @Test
+    void concurrentCancelsReleaseTheSlotOnce() {
+        Appointment stored = appointment("Scheduled", SLOT_ID);
+        when(appointmentRepository.findById("apt-1")).thenReturn(Optional.of(stored));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Appointment.class))).thenReturn(appointment("Cancelled", SLOT_ID));
+        // Only the first cancel finds the slot still on the appointment
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Appointment.class)))
+                .thenReturn(stored, (Appointment) null);
+
+        appointmentService.updateStatus("apt-1", "Cancelled");
+        appointmentService.updateStatus("apt-1", "Cancelled");
+
+        verify(appointmentSlotService, times(1)).release(SLOT_ID);
+    }
+
+    @Test
+    void editingUnslottedAppointmentDoesNotBookASlot() {
+        Appointment stored = appointment("Pending", null);
+        when(appointmentRepository.findById("apt-1")).thenReturn(Optional.of(stored));
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Appointment.class))).thenReturn(stored);
+
+        Appointment edited = appointment("Pending", null);
+        edited.setNotes("Bring ID");
+        Appointment updated = appointmentService.update("apt-1", edited);
+
+        assertEquals("Bring ID", updated.getNotes());
+        verify(appointmentSlotService, never()).reserve(anyString(), any(Date.class), any());
+        verify(appointmentSlotService, never()).release(anyString());
+    }
+
+    @Test
+    void movingAppointmentBooksNewSlotAndReleasesOld() {
+        Appointment stored = appointment("Scheduled", SLOT_ID);
+        when(appointmentRepository.findById("apt-1")).thenReturn(Optional.of(stored));
+        when(mongoTemplate.findAndReplace(any(Query.class), any(Appointment.class))).thenReturn(stored);
+        String newSlotId = "bank-1|2030-03-04T02:00:00Z";
+        when(appointmentSlotService.slotIdFor("bank-1", stored.getAppointmentDate(), "10:00 AM")).thenReturn(newSlotId);
+        when(appointmentSlotService.reserve("bank-1", stored.getAppointmentDate(), "10:00 AM"))
+                .thenReturn(AppointmentSlot.builder().id(newSlotId).build());
+
+        Appointment moved = appointment("Scheduled", null);
+        moved.setAppointmentTime("10:00 AM");
+        Appointment updated = appointmentService.update("apt-1", moved);
+
+        assertEquals(newSlotId, updated.getSlotId());
+        verify(appointmentSlotService).release(SLOT_ID);
+    }
+
+    @Test
+    void bulkStatusUpdateDetectsLostRacesAndInvalidTransitions() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        BulkWriteResult written = mock(BulkWriteResult.class);
+        when(written.getModifiedCount()).thenReturn(1);
+        when(bulk.execute()).thenReturn(written);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Appointment.class)).thenReturn(bulk);
+        when(mongoTemplate.find(any(Query.class), eq(Appointment.class))).thenReturn(
+                List.of(withId("a-1", "Pending"), withId("a-2", "Pending"), withId("a-3", "Complete")),
+                // a-2 was cancelled between the read and the bulk write
+                List.of(withId("a-1", "Scheduled"), withId("a-2", "Cancelled")));
+
+        BulkStatusUpdate<Appointment> result = appointmentService.bulkUpdateStatus(List.of("a-1", "a-2", "a-3"), "Scheduled");
+
+        Map<String, String> outcomes = result.getResults().stream()
+                .collect(Collectors.toMap(BulkStatusResult::getId, BulkStatusResult::getOutcome));
+        assertEquals(BulkStatusResult.UPDATED, outcomes.get("a-1"));
+        assertEquals(BulkStatusResult.CONFLICT, outcomes.get("a-2"));
+        assertEquals(BulkStatusResult.INVALID_TRANSITION, outcomes.get("a-3"));
+        assertEquals(List.of("a-1"), result.getUpdated().stream().map(Appointment::getId).toList());
+    }
+
+    @Test
+    void sweepMarksOverdueOpenAppointmentsWithOneRangeUpdate() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("userId"), eq(Appointment.class), eq(String.class)))
+                .thenReturn(List.of("user-1", "user-2"));
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Appointment.class)))
+                .thenReturn(UpdateResult.acknowledged(3, 3L, null));
+        long before = System.currentTimeMillis();
+
+        assertEquals(3, appointmentService.sweepMissedAppointments());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateMulti(query.capture(), update.capture(), eq(Appointment.class));
+        Document filter = query.getValue().getQueryObject();
+        List<?> statuses = (List<?>) ((Document) filter.get("status")).get("$in");
+        assertTrue(statuses.containsAll(List.of("Pending", "Scheduled")));
+        Date cutoff = (Date) ((Document) filter.get("appointmentDate")).get("$lt");
+        assertTrue(cutoff.getTime() <= before - 2 * 60 * 60 * 1000L + 1000);
+        assertEquals(new Document("status", "Missed"), update.getValue().getUpdateObject().get("$set"));
+        verify(donorEligibilityService).refresh("user-1");
+        verify(donorEligibilityService).refresh("user-2");
+        verify(appointmentRepository, never()).findAll();
+    }
+
+    @Test
+    void sweepWithNothingOverdueRefreshesNoDonor() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("userId"), eq(Appointment.class), eq(String.class)))
+                .thenReturn(List.of());
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Appointment.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertEquals(0, appointmentService.sweepMissedAppointments());
+        verify(donorEligibilityService, never()).refresh(anyString());
+    }
+
+    private static Appointment withId(String id, String status) {
+        return Appointment.builder().id(id).status(status).build();
+    }
+
+    private static Appointment appointment(String status, String slotId) {
+        Appointment appointment = Appointment.builder()
+                .id("apt-1")
+                .userId("user-1")
+                .bloodBankId("bank-1")
+                .appointmentDate(Date.from(Instant.parse("2030-03-04T00:00:00Z")))
+                .appointmentTime("9:00 AM")
+                .status(status)
+                .build();
+        appointment.setSlotId(slotId);
+        return appointment;
+    }
+}
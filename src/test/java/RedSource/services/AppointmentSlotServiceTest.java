@@ -0,0 +1,106 @@
+package RedSource.services;
+
+import RedSource.entities.AppointmentSlot;
+import RedSource.exceptions.SlotUnavailableException;
+import RedSource.repositories.AppointmentSlotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AppointmentSlotServiceTest {
+
+    // 2030-03-04 in Asia/Manila (UTC+8)
+    private static final Date DAY = Date.from(Instant.parse("2030-03-04T00:00:00Z"));
+
+    private MongoTemplate mongoTemplate;
+    private AppointmentSlotService appointmentSlotService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        appointmentSlotService = new AppointmentSlotService(mock(AppointmentSlotRepository.class), mongoTemplate);
+        ReflectionTestUtils.setField(appointmentSlotService, "slotMinutes", 60);
+        ReflectionTestUtils.setField(appointmentSlotService, "defaultCapacity", 10);
+        ReflectionTestUtils.setField(appointmentSlotService, "openHour", 8);
+        ReflectionTestUtils.setField(appointmentSlotService, "closeHour", 17);
+        ReflectionTestUtils.setField(appointmentSlotService, "zone", "Asia/Manila");
+    }
+
+    @Test
+    void slotIdUsesAppointmentTimeInBankZone() {
+        assertEquals("bank-1|2030-03-04T01:00:00Z", appointmentSlotService.slotIdFor("bank-1", DAY, "9:30 AM"));
+        assertEquals("bank-1|2030-03-04T06:00:00Z", appointmentSlotService.slotIdFor("bank-1", DAY, "14:00 - 15:00"));
+    }
+
+    @Test
+    void dateOnlyAppointmentIsNotBooked() {
+        assertNull(appointmentSlotService.reserve("bank-1", DAY, null));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(AppointmentSlot.class));
+    }
+
+    @Test
+    void unreadableOrUnslottedTimeIsNotBooked() {
+        assertNull(appointmentSlotService.reserve("bank-1", DAY, "after lunch"));
+        assertNull(appointmentSlotService.reserve("bank-1", DAY, "7:00 PM"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(AppointmentSlot.class));
+    }
+
+    @Test
+    void bookingIncrementsOnlyWhileBelowCapacity() {
+        AppointmentSlot slot = AppointmentSlot.builder().id("bank-1|2030-03-04T01:00:00Z").capacity(10).booked(3).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(AppointmentSlot.class))).thenReturn(slot);
+
+        assertSame(slot, appointmentSlotService.reserve("bank-1", DAY, "9:00 AM"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(AppointmentSlot.class));
+        assertTrue(query.getValue().getQueryObject().containsKey("$and"));
+        assertTrue(update.getValue().getUpdateObject().toJson().contains("\"$inc\": {\"booked\": 1}"));
+    }
+
+    @Test
+    void missingSlotIsCreatedAndBookedOnRetry() {
+        AppointmentSlot slot = AppointmentSlot.builder().id("bank-1|2030-03-04T01:00:00Z").capacity(10).booked(1).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(AppointmentSlot.class))).thenReturn(null, slot);
+
+        assertSame(slot, appointmentSlotService.reserve("bank-1", DAY, "9:00 AM"));
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(AppointmentSlot.class));
+    }
+
+    @Test
+    void fullSlotIsRejected() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(AppointmentSlot.class))).thenReturn(null);
+
+        assertThrows(SlotUnavailableException.class, () -> appointmentSlotService.reserve("bank-1", DAY, "9:00 AM"));
+        verify(mongoTemplate, times(2)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(AppointmentSlot.class));
+    }
+}
@@ -0,0 +1,61 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventory;
+import RedSource.repositories.BloodInventoryRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BloodInventoryServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BloodInventoryService bloodInventoryService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bloodInventoryService = new BloodInventoryService(mock(BloodInventoryRepository.class),
+                mock(PaginationService.class), mock(InventoryIndexService.class),
+                mock(ConsumptionForecastService.class), mock(OptimisticUpdateService.class), mongoTemplate);
+    }
+
+    @Test
+    void emptiedLotIsMarkedUnavailableWithVersionBump() {
+        when(mongoTemplate.find(any(Query.class), eq(BloodInventory.class))).thenReturn(List.of(lot(3, 5L)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(BloodInventory.class))).thenReturn(lot(0, 6L));
+
+        assertEquals(3, bloodInventoryService.issueUnits("b-1", "A+", 3));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(BloodInventory.class));
+        assertEquals(0, query.getValue().getQueryObject().get("quantity"));
+        Document changes = update.getValue().getUpdateObject();
+        assertEquals("Unavailable", ((Document) changes.get("$set")).get("status"));
+        assertEquals(1, ((Document) changes.get("$inc")).get("version"));
+    }
+
+    private static BloodInventory lot(int quantity, Long version) {
+        BloodInventory lot = new BloodInventory();
+        lot.setId("lot-1");
+        lot.setQuantity(quantity);
+        lot.setStatus("Available");
+        lot.setVersion(version);
+        return lot;
+    }
+}
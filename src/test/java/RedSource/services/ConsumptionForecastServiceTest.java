@@ -0,0 +1,81 @@
+package RedSource.services;
+
+import RedSource.entities.ConsumptionForecast;
+import RedSource.repositories.ConsumptionForecastRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsumptionForecastServiceTest {
+
+    private ConsumptionForecastRepository consumptionForecastRepository;
+    private InventoryIndexService inventoryIndexService;
+    private ConsumptionForecastService consumptionForecastService;
+
+    @BeforeEach
+    void setUp() {
+        consumptionForecastRepository = mock(ConsumptionForecastRepository.class);
+        inventoryIndexService = mock(InventoryIndexService.class);
+        consumptionForecastService = new ConsumptionForecastService(consumptionForecastRepository, inventoryIndexService);
+    }
+
+    @Test
+    void firstDayProjectsTodaysIssues() {
+        when(inventoryIndexService.getUnits("bank-1", "O+")).thenReturn(16);
+
+        consumptionForecastService.recordIssued("bank-1", "O+", 3);
+        consumptionForecastService.recordIssued("bank-1", "O+", 5);
+
+        Map<String, Object> forecast = consumptionForecastService.getForecast("bank-1", "O+");
+        assertEquals(8.0, forecast.get("dailyConsumption"));
+        assertEquals(2.0, forecast.get("daysOfCover"));
+        verify(consumptionForecastRepository, times(2)).save(any(ConsumptionForecast.class));
+        verify(consumptionForecastRepository, times(1)).findByBloodBankId("bank-1");
+    }
+
+    @Test
+    void storedDaysAreFoldedIntoTheAverageWithEmptyDaysAsZero() {
+        long today = LocalDate.now().toEpochDay();
+        when(consumptionForecastRepository.findByBloodBankId("bank-1")).thenReturn(List.of(ConsumptionForecast.builder()
+                .id("bank-1:A+").bloodBankId("bank-1").bloodType("A+")
+                .currentDay(today - 2).unitsToday(10).build()));
+        when(inventoryIndexService.getUnits("bank-1", "A+")).thenReturn(14);
+
+        Map<String, Object> forecast = consumptionForecastService.getForecast("bank-1", "A+");
+
+        // 10 units two days ago, then one day without issues: 10 * (1 - 0.3)
+        assertEquals(7.0, forecast.get("dailyConsumption"));
+        assertEquals(2.0, forecast.get("daysOfCover"));
+    }
+
+    @Test
+    void withoutConsumptionNoStockOutIsProjected() {
+        when(inventoryIndexService.getUnits("bank-1", "B-")).thenReturn(5);
+
+        Map<String, Object> forecast = consumptionForecastService.getForecast("bank-1", "B-");
+
+        assertEquals(0.0, forecast.get("dailyConsumption"));
+        assertNull(forecast.get("daysOfCover"));
+        assertNull(forecast.get("projectedStockOutDate"));
+    }
+
+    @Test
+    void invalidIssuesAreIgnored() {
+        consumptionForecastService.recordIssued(null, "O+", 2);
+        consumptionForecastService.recordIssued("bank-1", "O+", 0);
+
+        verify(consumptionForecastRepository, never()).save(any(ConsumptionForecast.class));
+    }
+}
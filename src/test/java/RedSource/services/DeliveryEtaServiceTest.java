@@ -0,0 +1,127 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.DeliveryLaneEstimate;
+import RedSource.repositories.DeliveryLaneEstimateRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryEtaServiceTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private DeliveryLaneEstimateRepository laneEstimateRepository;
+    private MongoTemplate mongoTemplate;
+    private DeliveryEtaService deliveryEtaService;
+
+    @BeforeEach
+    void setUp() {
+        laneEstimateRepository = mock(DeliveryLaneEstimateRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        when(laneEstimateRepository.findAll()).thenReturn(List.of());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(DeliveryLaneEstimate.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        deliveryEtaService = new DeliveryEtaService(laneEstimateRepository, mongoTemplate);
+    }
+
+    @Test
+    void quantilesStayWithinBucketError() {
+        for (int i = 1; i <= 100; i++) {
+            deliveryEtaService.recordCompletion(delivery("d-" + i, "bank-1", "h-1", i * 2));
+        }
+
+        Map<String, Object> estimate = deliveryEtaService.estimate("bank-1", "h-1");
+
+        assertEquals("lane", estimate.get("scope"));
+        assertEquals(100L, ((Number) estimate.get("samples")).longValue());
+        assertWithin(100, (Long) estimate.get("p50Minutes"));
+        assertWithin(180, (Long) estimate.get("p90Minutes"));
+    }
+
+    @Test
+    void laneFallsBackToBankWithTooFewSamples() {
+        deliveryEtaService.recordCompletion(delivery("d-1", "bank-1", "h-1", 30));
+        for (int i = 0; i < 5; i++) {
+            deliveryEtaService.recordCompletion(delivery("d-x" + i, "bank-1", "h-2", 90));
+        }
+
+        assertEquals("bloodBank", deliveryEtaService.estimate("bank-1", "h-1").get("scope"));
+    }
+
+    @Test
+    void rebuildKeepsCompletionsRecordedWhileStreaming() {
+        Delivery historic = delivery("d-1", "bank-1", "h-1", 60);
+        Delivery duringRebuild = delivery("d-2", "bank-1", "h-1", 60);
+        when(mongoTemplate.stream(any(Query.class), eq(Delivery.class))).thenReturn(Stream.of(historic)
+                .peek(d -> {
+                    deliveryEtaService.recordCompletion(duringRebuild);
+                    // Already streamed, must not be counted twice
+                    deliveryEtaService.recordCompletion(historic);
+                }));
+
+        Map<String, Object> result = deliveryEtaService.rebuild();
+
+        assertEquals(2L, result.get("usedDeliveries"));
+        assertEquals(2L, ((Number) deliveryEtaService.estimate("bank-1", null).get("samples")).longValue());
+        verify(laneEstimateRepository, never()).deleteAll();
+        verify(mongoTemplate).remove(any(Query.class), eq(DeliveryLaneEstimate.class));
+    }
+
+    @Test
+    void recordingIncrementsTheStoredCounts() {
+        deliveryEtaService.recordCompletion(delivery("d-1", "bank-1", "h-1", 60));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), update.capture(), eq(DeliveryLaneEstimate.class));
+        Document inc = (Document) update.getValue().getUpdateObject().get("$inc");
+        assertEquals(1, inc.get("samples"));
+        assertTrue(inc.keySet().stream().anyMatch(key -> key.startsWith("bucketCounts.")));
+        verify(laneEstimateRepository, never()).save(any(DeliveryLaneEstimate.class));
+    }
+
+    @Test
+    void firstRecordingCreatesTheSketch() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(DeliveryLaneEstimate.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        deliveryEtaService.recordCompletion(delivery("d-1", "bank-1", null, 60));
+
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(DeliveryLaneEstimate.class));
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), any(Update.class), eq(DeliveryLaneEstimate.class));
+    }
+
+    private static void assertWithin(long expected, Long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.1, "expected about " + expected + " but was " + actual);
+    }
+
+    private static Delivery delivery(String id, String bloodBankId, String hospitalId, int minutes) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setBloodBankId(bloodBankId);
+        delivery.setHospitalId(hospitalId);
+        delivery.setScheduledDate(new Date(0));
+        delivery.setDeliveredDate(new Date(minutes * MINUTE));
+        return delivery;
+    }
+}
@@ -0,0 +1,134 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryLinkServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private DeliveryLinkService deliveryLinkService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class)).thenReturn(bulk);
+        deliveryLinkService = new DeliveryLinkService(mongoTemplate);
+    }
+
+    @Test
+    void requestsAreIndexedWhenTheyAreTheSmallerSide() {
+        when(mongoTemplate.count(any(Query.class), eq(Delivery.class))).thenReturn(3L);
+        when(mongoTemplate.estimatedCount(HospitalRequest.class)).thenReturn(2L);
+        when(mongoTemplate.stream(any(Query.class), eq(HospitalRequest.class))).thenReturn(
+                Stream.of(request("r-1", "General"), request("r-2", "General")));
+        when(mongoTemplate.stream(any(Query.class), eq(Delivery.class))).thenReturn(
+                Stream.of(delivery("d-1", "General"), delivery("d-2", "Other"), delivery("d-3", "General")));
+        when(bulk.execute()).thenReturn(modified(2));
+
+        Map<String, Object> result = deliveryLinkService.linkUnlinkedDeliveries();
+
+        assertEquals("requests", result.get("indexedSide"));
+        assertEquals(3L, result.get("scanned"));
+        assertEquals(2L, result.get("linkedDeliveries"));
+        assertEquals(Map.of("d-1", "r-1", "d-3", "r-1"), links(2));
+    }
+
+    @Test
+    void deliveriesAreIndexedWhenTheyAreTheSmallerSide() {
+        when(mongoTemplate.count(any(Query.class), eq(Delivery.class))).thenReturn(1L);
+        when(mongoTemplate.estimatedCount(HospitalRequest.class)).thenReturn(3L);
+        when(mongoTemplate.stream(any(Query.class), eq(Delivery.class))).thenReturn(
+                Stream.of(delivery("d-1", "General")));
+        when(mongoTemplate.stream(any(Query.class), eq(HospitalRequest.class))).thenReturn(
+                Stream.of(request("r-1", "Other"), request("r-2", "General"), request("r-3", "General")));
+        when(bulk.execute()).thenReturn(modified(1));
+
+        Map<String, Object> result = deliveryLinkService.linkUnlinkedDeliveries();
+
+        assertEquals("deliveries", result.get("indexedSide"));
+        assertEquals(1, result.get("batches"));
+        assertEquals(Map.of("d-1", "r-2"), links(1));
+    }
+
+    @Test
+    void backfillFillsOwnerIdsFromTheLinkedRequest() {
+        Delivery withoutBank = delivery("d-1", null);
+        withoutBank.setRequestId("r-1");
+        Delivery withBank = delivery("d-2", null);
+        withBank.setRequestId("r-1");
+        withBank.setBloodBankId("bank-9");
+        Delivery orphan = delivery("d-3", null);
+        orphan.setRequestId("r-2");
+        when(mongoTemplate.stream(any(Query.class), eq(Delivery.class))).thenReturn(
+                Stream.of(withoutBank, withBank, orphan));
+        when(mongoTemplate.find(any(Query.class), eq(HospitalRequest.class))).thenReturn(List.of(
+                request("r-1", "General"), HospitalRequest.builder().id("r-2").build()));
+        when(bulk.execute()).thenReturn(modified(2));
+
+        Map<String, Object> result = deliveryLinkService.backfillOwnerIds();
+
+        assertEquals(3L, result.get("scanned"));
+        assertEquals(2L, result.get("linkedDeliveries"));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(queries.capture(), updates.capture());
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(HospitalRequest.class));
+        Document first = (Document) updates.getAllValues().get(0).getUpdateObject().get("$set");
+        Document second = (Document) updates.getAllValues().get(1).getUpdateObject().get("$set");
+        assertEquals(new Document("hospitalId", "h-General").append("bloodBankId", "bank-1"), first);
+        // An existing blood bank id is kept
+        assertEquals(new Document("hospitalId", "h-General"), second);
+    }
+
+    private Map<String, Object> links(int count) {
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(count)).updateOne(queries.capture(), updates.capture());
+        Map<String, Object> links = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Document set = (Document) updates.getAllValues().get(i).getUpdateObject().get("$set");
+            links.put((String) queries.getAllValues().get(i).getQueryObject().get("id"), set.get("requestId"));
+        }
+        return links;
+    }
+
+    private static BulkWriteResult modified(int count) {
+        return BulkWriteResult.acknowledged(0, count, 0, count, List.of(), List.of());
+    }
+
+    private static HospitalRequest request(String id, String hospitalName) {
+        return HospitalRequest.builder().id(id).hospitalName(hospitalName).hospitalId("h-" + hospitalName)
+                .bloodBankId("bank-1").build();
+    }
+
+    private static Delivery delivery(String id, String hospitalName) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setHospitalName(hospitalName);
+        return delivery;
+    }
+}
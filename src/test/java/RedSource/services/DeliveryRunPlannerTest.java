@@ -0,0 +1,139 @@
+package RedSource.services;
+
+import RedSource.entities.DTO.DeliveryRunRequest;
+import RedSource.entities.Delivery;
+import RedSource.entities.Hospital;
+import RedSource.repositories.HospitalRepository;
+import RedSource.services.BloodBankLocationService.BankLocation;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryRunPlannerTest {
+
+    private MongoTemplate mongoTemplate;
+    private DeliveryRunPlanner deliveryRunPlanner;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        HospitalRepository hospitalRepository = mock(HospitalRepository.class);
+        BloodBankLocationService bloodBankLocationService = mock(BloodBankLocationService.class);
+        when(bloodBankLocationService.getAll()).thenReturn(List.of(
+                new BankLocation("bank-1", "Central Bank", "Manila", 14.600, 120.980)));
+        when(hospitalRepository.findAllById(anyIterable())).thenReturn(List.of(
+                hospital("h-1", 14.601, 120.985), hospital("h-2", 14.605, 120.990), hospital("h-3", 16.400, 120.600)));
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of(
+                delivery("d-1", "h-1"), delivery("d-2", "h-1"), delivery("d-3", "h-2"),
+                delivery("d-4", "h-3"), delivery("d-5", null)));
+        deliveryRunPlanner = new DeliveryRunPlanner(mongoTemplate, hospitalRepository, bloodBankLocationService);
+    }
+
+    @Test
+    void nearbyHospitalsShareARunAndDistantOnesStartANewOne() {
+        DeliveryRunPlanner.Plan plan = deliveryRunPlanner.plan(request(null));
+
+        assertEquals(5, plan.deliveries());
+        assertEquals(2, plan.runs().size());
+        DeliveryRunPlanner.Run nearby = plan.runs().stream()
+                .filter(run -> run.stops().size() == 2).findFirst().orElseThrow();
+        Map<String, List<String>> deliveriesByHospital = nearby.stops().stream()
+                .collect(Collectors.toMap(DeliveryRunPlanner.Stop::hospitalId, DeliveryRunPlanner.Stop::deliveryIds));
+        assertEquals(Map.of("h-1", List.of("d-1", "d-2"), "h-2", List.of("d-3")), deliveriesByHospital);
+        assertEquals(List.of("d-5"), plan.unplanned().get(0).deliveryIds());
+    }
+
+    @Test
+    void runIsClosedAtTheStopLimit() {
+        DeliveryRunRequest request = request(null);
+        request.setMaxStops(1);
+
+        assertEquals(3, deliveryRunPlanner.plan(request).runs().size());
+    }
+
+    @Test
+    void applyAssignsDriversToPendingDeliveriesOnly() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class)).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(0, 4, 0, 4, List.of(), List.of()));
+
+        Map<String, Object> result = deliveryRunPlanner.apply(request(List.of(driver("Ana"), driver("Ben"))));
+
+        assertEquals(4L, result.get("assigned"));
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(4)).updateOne(queries.capture(), updates.capture());
+        Map<Object, Object> driverByDelivery = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            Document query = queries.getAllValues().get(i).getQueryObject();
+            assertEquals("PENDING", query.get("status"));
+            driverByDelivery.put(query.get("id"),
+                    ((Document) updates.getAllValues().get(i).getUpdateObject().get("$set")).get("driverName"));
+        }
+        // Each run gets one driver
+        assertEquals(driverByDelivery.get("d-1"), driverByDelivery.get("d-3"));
+        assertNotEquals(driverByDelivery.get("d-1"), driverByDelivery.get("d-4"));
+    }
+
+    @Test
+    void applyRequiresDrivers() {
+        assertThrows(IllegalArgumentException.class, () -> deliveryRunPlanner.apply(request(List.of())));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Delivery.class));
+    }
+
+    @Test
+    void geohashMatchesTheReferenceEncoding() {
+        assertEquals("u4pruydqqvj", DeliveryRunPlanner.geohash(57.64911, 10.40744, 11));
+    }
+
+    private static DeliveryRunRequest request(List<DeliveryRunRequest.Driver> drivers) {
+        DeliveryRunRequest request = new DeliveryRunRequest();
+        request.setBloodBankId("bank-1");
+        request.setDrivers(drivers);
+        return request;
+    }
+
+    private static DeliveryRunRequest.Driver driver(String name) {
+        DeliveryRunRequest.Driver driver = new DeliveryRunRequest.Driver();
+        driver.setDriverName(name);
+        return driver;
+    }
+
+    private static Hospital hospital(String id, double lat, double lng) {
+        Hospital hospital = new Hospital();
+        hospital.setId(id);
+        hospital.setHospitalName("Hospital " + id);
+        hospital.setCoordinates(new Hospital.Coordinates(lat, lng));
+        return hospital;
+    }
+
+    private static Delivery delivery(String id, String hospitalId) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setHospitalId(hospitalId);
+        return delivery;
+    }
+}
@@ -0,0 +1,115 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.TrackingEvent;
+import RedSource.repositories.DeliveryRepository;
+import RedSource.repositories.HospitalRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryServiceTest {
+
+    private DeliveryRepository deliveryRepository;
+    private HospitalRequestService hospitalRequestService;
+    private MongoTemplate mongoTemplate;
+    private DeliveryService deliveryService;
+
+    @BeforeEach
+    void setUp() {
+        deliveryRepository = mock(DeliveryRepository.class);
+        hospitalRequestService = mock(HospitalRequestService.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        when(deliveryRepository.save(any(Delivery.class))).thenAnswer(call -> call.getArgument(0));
+        deliveryService = new DeliveryService(deliveryRepository, mock(PaginationService.class), hospitalRequestService,
+                mock(BloodBankService.class), mock(HospitalRepository.class), mock(OptimisticUpdateService.class),
+                mock(DeliveryTrackingService.class), mock(DeliveryEtaService.class), mongoTemplate);
+    }
+
+    @Test
+    void newDeliveryStartsPendingWithoutHistory() {
+        when(hospitalRequestService.getById("r-1")).thenReturn(
+                HospitalRequest.builder().id("r-1").status("APPROVED").hospitalId("h-1").build());
+        Delivery delivery = new Delivery();
+        delivery.setId("existing-delivery");
+        delivery.setRequestId("r-1");
+        delivery.setStatus("COMPLETE");
+        delivery.setDeliveredDate(new Date());
+        List<TrackingEvent> history = new ArrayList<>();
+        history.add(new TrackingEvent());
+        delivery.setTrackingHistory(history);
+
+        Delivery saved = deliveryService.save(delivery);
+
+        assertNull(saved.getId());
+        assertEquals("PENDING", saved.getStatus());
+        assertTrue(saved.getTrackingHistory().isEmpty());
+        assertNull(saved.getDeliveredDate());
+    }
+
+    @Test
+    void bloodTypeSearchMatchesItemBloodTypes() {
+        when(deliveryRepository.findAllByStatus(eq("IN TRANSIT"), any(TextCriteria.class), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of(delivery("d-1")));
+
+        List<Delivery> results = deliveryService.searchDeliveries("a+", "in_transit", 10);
+
+        assertEquals(List.of("d-1"), results.stream().map(Delivery::getId).toList());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Delivery.class));
+        Document filter = query.getValue().getQueryObject();
+        assertEquals("IN TRANSIT", filter.get("status"));
+        assertEquals("A+", filter.get("bloodItems.bloodType"));
+        assertEquals(10, query.getValue().getLimit());
+    }
+
+    @Test
+    void textHitsComeFirstAndAreNotRepeated() {
+        when(deliveryRepository.findAllBy(any(TextCriteria.class), any(Pageable.class)))
+                .thenReturn(List.of(delivery("d-1"), delivery("d-2")));
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class)))
+                .thenReturn(List.of(delivery("d-2"), delivery("d-3")));
+
+        List<Delivery> results = deliveryService.searchDeliveries("O-", "all", 10);
+
+        assertEquals(List.of("d-1", "d-2", "d-3"), results.stream().map(Delivery::getId).toList());
+    }
+
+    @Test
+    void nameSearchOnlyUsesTheTextIndex() {
+        when(deliveryRepository.findAllBy(any(TextCriteria.class), any(Pageable.class)))
+                .thenReturn(List.of(delivery("d-1")));
+
+        List<Delivery> results = deliveryService.searchDeliveries("Manila", null, 10);
+
+        assertEquals(List.of("d-1"), results.stream().map(Delivery::getId).toList());
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Delivery.class));
+    }
+
+    private static Delivery delivery(String id) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        return delivery;
+    }
+}
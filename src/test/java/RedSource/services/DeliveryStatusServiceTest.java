@@ -0,0 +1,139 @@
+package RedSource.services;
+
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.exceptions.InvalidStatusTransitionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryStatusServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private DeliveryTrackingService deliveryTrackingService;
+    private DeliveryStatusService deliveryStatusService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        deliveryTrackingService = mock(DeliveryTrackingService.class);
+        when(deliveryTrackingService.withEvent(any(Update.class), any())).thenAnswer(call -> call.getArgument(0));
+        deliveryStatusService = new DeliveryStatusService(mongoTemplate, mock(BloodInventoryService.class),
+                mock(SplitFulfillmentService.class), mock(InventoryIndexService.class),
+                mock(ConsumptionForecastService.class), mock(DeliveryEtaService.class),
+                mock(RequestTriageService.class), mock(RequestEventService.class), deliveryTrackingService);
+        ReflectionTestUtils.setField(deliveryStatusService, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void completingDeliveryOfRejectedRequestLeavesItRejected() {
+        completes(delivery("d-1", "IN TRANSIT", 1L));
+        when(mongoTemplate.findById("r-1", HospitalRequest.class)).thenReturn(request("REJECTED"));
+
+        DeliveryStatusService.Transition transition = deliveryStatusService.transition("d-1", "COMPLETE");
+
+        assertEquals("COMPLETE", transition.delivery().getStatus());
+        assertNull(transition.request());
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(HospitalRequest.class));
+    }
+
+    @Test
+    void completingDeliveryFulfilsRequestInItsCurrentStatus() {
+        completes(delivery("d-1", "IN TRANSIT", 1L));
+        when(mongoTemplate.findById("r-1", HospitalRequest.class)).thenReturn(request("APPROVED"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(request("FULFILLED"));
+
+        DeliveryStatusService.Transition transition = deliveryStatusService.transition("d-1", "COMPLETE");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class));
+        assertEquals("APPROVED", query.getValue().getQueryObject().get("status"));
+        assertEquals("FULFILLED", transition.request().getStatus());
+    }
+
+    @Test
+    void deliveryChangedOnEveryAttemptIsReportedAsConflict() {
+        when(mongoTemplate.findById("d-1", Delivery.class)).thenReturn(delivery("d-1", "PENDING", 1L));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(null);
+
+        InvalidStatusTransitionException e = assertThrows(InvalidStatusTransitionException.class,
+                () -> deliveryStatusService.transition("d-1", "PROCESSING"));
+
+        assertNull(e.getCurrentStatus());
+        verify(mongoTemplate, times(3)).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Delivery.class));
+    }
+
+    @Test
+    void bulkTransitionReportsOutcomePerDelivery() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Delivery.class)).thenReturn(bulk);
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(
+                List.of(delivery("d-1", "PENDING", 1L), delivery("d-2", "COMPLETE", 4L),
+                        delivery("d-3", "CANCELLED", 2L), delivery("d-4", "PENDING", 3L)),
+                // d-1 applied; d-4 was moved by someone else before the bulk ran
+                List.of(delivery("d-1", "CANCELLED", 2L), delivery("d-4", "PROCESSING", 4L)));
+
+        BulkStatusUpdate<DeliveryStatusService.Transition> result = deliveryStatusService.bulkTransition(
+                List.of("d-1", "d-2", "d-3", "d-4", "missing"), "CANCELLED", null);
+
+        Map<String, String> outcomes = result.getResults().stream()
+                .collect(Collectors.toMap(BulkStatusResult::getId, BulkStatusResult::getOutcome));
+        assertEquals(BulkStatusResult.UPDATED, outcomes.get("d-1"));
+        assertEquals(BulkStatusResult.INVALID_TRANSITION, outcomes.get("d-2"));
+        assertEquals(BulkStatusResult.UNCHANGED, outcomes.get("d-3"));
+        assertEquals(BulkStatusResult.CONFLICT, outcomes.get("d-4"));
+        assertEquals(BulkStatusResult.NOT_FOUND, outcomes.get("missing"));
+        assertEquals(List.of("d-1"), result.getUpdated().stream().map(t -> t.delivery().getId()).toList());
+    }
+
+    private void completes(Delivery delivery) {
+        when(mongoTemplate.findById(delivery.getId(), Delivery.class)).thenReturn(delivery);
+        Delivery completed = delivery(delivery.getId(), "COMPLETE", delivery.getVersion() + 1);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(completed);
+    }
+
+    private static Delivery delivery(String id, String status, Long version) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setStatus(status);
+        delivery.setRequestId("r-1");
+        delivery.setVersion(version);
+        return delivery;
+    }
+
+    private static HospitalRequest request(String status) {
+        return HospitalRequest.builder().id("r-1").status(status).hospitalId("h-1").build();
+    }
+}
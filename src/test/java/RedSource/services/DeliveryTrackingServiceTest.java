@@ -0,0 +1,106 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.DeliveryTrackingEvent;
+import RedSource.entities.TrackingEvent;
+import RedSource.exceptions.ServiceException;
+import RedSource.repositories.DeliveryTrackingEventRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeliveryTrackingServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private DeliveryTrackingEventRepository trackingEventRepository;
+    private DeliveryTrackingService deliveryTrackingService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        trackingEventRepository = mock(DeliveryTrackingEventRepository.class);
+        deliveryTrackingService = new DeliveryTrackingService(mongoTemplate, trackingEventRepository);
+        ReflectionTestUtils.setField(deliveryTrackingService, "maxEmbeddedEvents", 50);
+        ReflectionTestUtils.setField(deliveryTrackingService, "overflowEnabled", true);
+    }
+
+    @Test
+    void appendIsOneCappedPushAndAnOverflowInsert() {
+        Delivery delivery = new Delivery();
+        delivery.setId("d-1");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(delivery);
+
+        deliveryTrackingService.appendStatus("d-1", "IN TRANSIT", "Left the bank");
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+                eq(Delivery.class));
+        Document applied = update.getValue().getUpdateObject();
+        String push = applied.get("$push", Document.class).get("trackingHistory").toString();
+        assertTrue(push.contains("$slice") && push.contains("-50"));
+        assertEquals(1, applied.get("$inc", Document.class).get("version"));
+        verify(trackingEventRepository).insert(any(DeliveryTrackingEvent.class));
+    }
+
+    @Test
+    void appendToMissingDeliveryFailsWithoutOverflow() {
+        assertThrows(ServiceException.class,
+                () -> deliveryTrackingService.appendStatus("missing", "IN TRANSIT", null));
+        verify(trackingEventRepository, never()).insert(any(DeliveryTrackingEvent.class));
+    }
+
+    @Test
+    void overflowIsSkippedWhenDisabled() {
+        ReflectionTestUtils.setField(deliveryTrackingService, "overflowEnabled", false);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(new Delivery());
+
+        deliveryTrackingService.appendStatus("d-1", "IN TRANSIT", null);
+
+        verify(trackingEventRepository, never()).insert(any(DeliveryTrackingEvent.class));
+    }
+
+    @Test
+    void historyKeepsEmbeddedEventsOlderThanTheOverflow() {
+        Delivery delivery = new Delivery();
+        delivery.setTrackingHistory(new ArrayList<>(List.of(
+                event(1000L, "PENDING"), event(2000L, "PROCESSING"), event(3000L, "IN TRANSIT"))));
+        when(mongoTemplate.findOne(any(Query.class), eq(Delivery.class))).thenReturn(delivery);
+        when(trackingEventRepository.findByDeliveryIdOrderByTimestampAsc("d-1")).thenReturn(List.of(
+                DeliveryTrackingEvent.builder().deliveryId("d-1").timestamp(new Date(2000L)).status("PROCESSING").build(),
+                DeliveryTrackingEvent.builder().deliveryId("d-1").timestamp(new Date(3000L)).status("IN TRANSIT").build()));
+
+        List<TrackingEvent> history = deliveryTrackingService.getHistory("d-1");
+
+        assertEquals(List.of("PENDING", "PROCESSING", "IN TRANSIT"),
+                history.stream().map(TrackingEvent::getStatus).toList());
+    }
+
+    private static TrackingEvent event(long timestamp, String status) {
+        TrackingEvent event = new TrackingEvent();
+        event.setTimestamp(new Date(timestamp));
+        event.setStatus(status);
+        return event;
+    }
+}
@@ -0,0 +1,106 @@
+package RedSource.services;
+
+import RedSource.entities.Appointment;
+import RedSource.entities.User;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DonorEligibilityServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private DonorEligibilityService donorEligibilityService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        donorEligibilityService = new DonorEligibilityService(mongoTemplate);
+        when(mongoTemplate.find(any(Query.class), eq(Appointment.class))).thenReturn(List.of(
+                Appointment.builder().status("Complete").appointmentDate(new Date(1_700_000_000_000L)).build()));
+    }
+
+    @Test
+    void refreshThatLosesToAConcurrentOneStartsOver() {
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user(3L), user(4L));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null), UpdateResult.acknowledged(1, 1L, null));
+
+        DonorEligibilityService.Eligibility eligibility = donorEligibilityService.refresh("u-1");
+
+        assertNotNull(eligibility.nextEligibleDate());
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(guard.capture(), any(Update.class), eq(User.class));
+        assertEquals(3L, guard.getAllValues().get(0).getQueryObject().get("eligibilityVersion"));
+        assertEquals(4L, guard.getAllValues().get(1).getQueryObject().get("eligibilityVersion"));
+    }
+
+    @Test
+    void donorWithoutMaterializedEligibilityIsRefreshedOnRead() {
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user(null));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        DonorEligibilityService.Eligibility eligibility = donorEligibilityService.get("u-1");
+
+        assertEquals(new Date(1_700_000_000_000L), eligibility.lastDonationDate());
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(User.class));
+    }
+
+    @Test
+    void bookingIsAppliedAsOneUpdateWithoutReadingAppointments() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        donorEligibilityService.onSaved(Appointment.builder().id("apt-1").userId("u-1").status("Scheduled")
+                .appointmentDate(new Date(1_800_000_000_000L)).build());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(User.class));
+        Document applied = update.getValue().getUpdateObject();
+        assertNotNull(((Document) applied.get("$max")).get("nextEligibleDate"));
+        assertEquals(true, ((Document) applied.get("$set")).get("hasActiveBooking"));
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Appointment.class));
+    }
+
+    @Test
+    void cancellationRecomputesTheDonor() {
+        when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user(2L));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(User.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        Appointment cancelled = Appointment.builder().id("apt-1").userId("u-1").status("Cancelled")
+                .appointmentDate(new Date(1_800_000_000_000L)).build();
+
+        donorEligibilityService.onStatusChanged(cancelled, "Scheduled");
+
+        verify(mongoTemplate).find(any(Query.class), eq(Appointment.class));
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(guard.capture(), any(Update.class), eq(User.class));
+        assertTrue(guard.getValue().getQueryObject().containsKey("eligibilityVersion"));
+    }
+
+    private static User user(Long eligibilityVersion) {
+        User user = new User();
+        user.setId("u-1");
+        user.setEligibilityVersion(eligibilityVersion);
+        return user;
+    }
+}
@@ -0,0 +1,94 @@
+package RedSource.services;
+
+import RedSource.entities.Fulfillment;
+import RedSource.entities.HospitalRequest;
+import RedSource.repositories.FulfillmentRepository;
+import RedSource.repositories.HospitalRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FulfillmentStatsServiceTest {
+
+    private FulfillmentRepository fulfillmentRepository;
+    private HospitalRequestRepository hospitalRequestRepository;
+    private FulfillmentStatsService fulfillmentStatsService;
+
+    @BeforeEach
+    void setUp() {
+        fulfillmentRepository = mock(FulfillmentRepository.class);
+        hospitalRequestRepository = mock(HospitalRequestRepository.class);
+        fulfillmentStatsService = new FulfillmentStatsService(fulfillmentRepository, hospitalRequestRepository);
+        ReflectionTestUtils.setField(fulfillmentStatsService, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void statsAreComputedOncePerKey() {
+        fulfillmentStatsService.getDailyUnits("bank-1", 7);
+        fulfillmentStatsService.getDailyUnits("bank-1", 7);
+        fulfillmentStatsService.getDailyUnits("bank-1", 30);
+        fulfillmentStatsService.getFillRates(null);
+        fulfillmentStatsService.getFillRates(null);
+
+        verify(fulfillmentRepository, times(2)).findDailyUnitsByBloodBankId(eq("bank-1"), any(Date.class));
+        verify(hospitalRequestRepository, times(1)).findFillRates();
+    }
+
+    @Test
+    void fulfillmentWriteEvictsOnlyItsBankAndHospital() {
+        when(hospitalRequestRepository.findById("r-1"))
+                .thenReturn(Optional.of(HospitalRequest.builder().id("r-1").hospitalId("h-1").build()));
+        warm();
+        Fulfillment fulfillment = new Fulfillment();
+        fulfillment.setBloodBankId("bank-1");
+        fulfillment.setHospitalRequestId("r-1");
+
+        fulfillmentStatsService.onFulfillmentChanged(null, fulfillment);
+        warm();
+
+        verify(fulfillmentRepository, times(2)).findDailyUnitsByBloodBankId(eq("bank-1"), any(Date.class));
+        verify(fulfillmentRepository, times(1)).findDailyUnitsByBloodBankId(eq("bank-2"), any(Date.class));
+        verify(fulfillmentRepository, times(2)).findDailyUnits(any(Date.class));
+        verify(hospitalRequestRepository, times(2)).findFillRateByHospitalId("h-1");
+        verify(hospitalRequestRepository, times(1)).findFillRateByHospitalId("h-2");
+    }
+
+    @Test
+    void resultComputedAcrossAWriteIsNotCached() {
+        when(hospitalRequestRepository.findFillRateByHospitalId("h-1")).thenAnswer(call -> {
+            fulfillmentStatsService.onRequestChanged("h-1");
+            return List.of();
+        });
+
+        fulfillmentStatsService.getFillRates("h-1");
+        fulfillmentStatsService.getFillRates("h-1");
+
+        verify(hospitalRequestRepository, times(2)).findFillRateByHospitalId("h-1");
+    }
+
+    @Test
+    void windowIsBounded() {
+        assertThrows(IllegalArgumentException.class, () -> fulfillmentStatsService.getDailyUnits("bank-1", 0));
+        assertThrows(IllegalArgumentException.class, () -> fulfillmentStatsService.getDailyUnits("bank-1", 367));
+    }
+
+    private void warm() {
+        fulfillmentStatsService.getDailyUnits("bank-1", 7);
+        fulfillmentStatsService.getDailyUnits("bank-2", 7);
+        fulfillmentStatsService.getDailyUnits(null, 7);
+        fulfillmentStatsService.getFillRates("h-1");
+        fulfillmentStatsService.getFillRates("h-2");
+    }
+}
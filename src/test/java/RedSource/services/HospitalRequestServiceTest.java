@@ -0,0 +1,115 @@
+package RedSource.services;
+
+import RedSource.entities.DTO.BulkStatusResult;
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.response.BulkStatusUpdate;
+import RedSource.exceptions.InvalidStatusTransitionException;
+import RedSource.repositories.HospitalRepository;
+import RedSource.repositories.HospitalRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HospitalRequestServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private HospitalRequestRepository hospitalRequestRepository;
+    private BulkOperations bulk;
+    private HospitalRequestService hospitalRequestService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, HospitalRequest.class)).thenReturn(bulk);
+        hospitalRequestRepository = mock(HospitalRequestRepository.class);
+        hospitalRequestService = new HospitalRequestService(hospitalRequestRepository,
+                mock(PaginationService.class), mock(BloodBankService.class), mock(HospitalRepository.class),
+                mock(OptimisticUpdateService.class), mock(FulfillmentStatsService.class),
+                mock(RequestTriageService.class), mock(RequestEventService.class), mongoTemplate);
+    }
+
+    @Test
+    void bulkApproveReportsOutcomePerRequest() {
+        HospitalRequest pending = request("r-1", "PENDING", 3L);
+        HospitalRequest rejected = request("r-2", "REJECTED", 1L);
+        HospitalRequest approved = request("r-3", "APPROVED", 2L);
+        HospitalRequest raced = request("r-4", "PENDING", 5L);
+        when(mongoTemplate.find(any(Query.class), eq(HospitalRequest.class))).thenReturn(
+                List.of(pending, rejected, approved, raced),
+                // r-1 applied; r-4 was approved by someone else before the bulk ran
+                List.of(request("r-1", "APPROVED", 4L), request("r-4", "APPROVED", 7L)));
+
+        BulkStatusUpdate<HospitalRequest> result = hospitalRequestService.bulkUpdateStatus(
+                List.of("r-1", "r-2", "r-3", "r-4", "missing"), "APPROVED");
+
+        Map<String, String> outcomes = result.getResults().stream()
+                .collect(Collectors.toMap(BulkStatusResult::getId, BulkStatusResult::getOutcome));
+        assertEquals(BulkStatusResult.UPDATED, outcomes.get("r-1"));
+        assertEquals(BulkStatusResult.INVALID_TRANSITION, outcomes.get("r-2"));
+        assertEquals(BulkStatusResult.UNCHANGED, outcomes.get("r-3"));
+        assertEquals(BulkStatusResult.CONFLICT, outcomes.get("r-4"));
+        assertEquals(BulkStatusResult.NOT_FOUND, outcomes.get("missing"));
+        assertEquals(List.of("r-1", "r-2", "r-3", "r-4", "missing"),
+                result.getResults().stream().map(BulkStatusResult::getId).toList());
+        assertEquals(List.of("r-1"), result.getUpdated().stream().map(HospitalRequest::getId).toList());
+    }
+
+    @Test
+    void bulkFulfilIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> hospitalRequestService.bulkUpdateStatus(List.of("r-1"), "FULFILLED"));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(HospitalRequest.class));
+    }
+
+    @Test
+    void singleStatusUpdateIsConditionalOnTheStatusRead() {
+        when(hospitalRequestRepository.findById("r-1")).thenReturn(Optional.of(request("r-1", "PENDING", 3L)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(request("r-1", "APPROVED", 4L));
+
+        HospitalRequest updated = hospitalRequestService.updateStatus("r-1", "approved");
+
+        assertEquals("APPROVED", updated.getStatus());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class));
+        assertEquals("PENDING", query.getValue().getQueryObject().get("status"));
+    }
+
+    @Test
+    void singleStatusUpdateRejectsFulfilAndInvalidTransitions() {
+        when(hospitalRequestRepository.findById("r-2")).thenReturn(Optional.of(request("r-2", "REJECTED", 1L)));
+
+        assertThrows(IllegalArgumentException.class, () -> hospitalRequestService.updateStatus("r-2", "FULFILLED"));
+        assertThrows(IllegalArgumentException.class, () -> hospitalRequestService.updateStatus("r-2", "SHIPPED"));
+        assertThrows(InvalidStatusTransitionException.class, () -> hospitalRequestService.updateStatus("r-2", "APPROVED"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class));
+    }
+
+    private static HospitalRequest request(String id, String status, Long version) {
+        HospitalRequest request = HospitalRequest.builder().id(id).status(status).hospitalId("h-1").build();
+        request.setVersion(version);
+        return request;
+    }
+}
@@ -0,0 +1,52 @@
+package RedSource.services;
+
+import RedSource.repositories.BloodBankUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryHeatmapServiceTest {
+
+    private InventoryIndexService inventoryIndexService;
+    private InventoryHeatmapService inventoryHeatmapService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryIndexService = mock(InventoryIndexService.class);
+        when(inventoryIndexService.getVersion()).thenReturn(7L);
+        inventoryHeatmapService = new InventoryHeatmapService(inventoryIndexService, mock(BloodBankUserRepository.class));
+    }
+
+    @Test
+    void currentTagIsNotModified() {
+        String eTag = inventoryHeatmapService.currentETag();
+
+        assertTrue(inventoryHeatmapService.isNotModified(eTag));
+        assertTrue(inventoryHeatmapService.isNotModified("W/" + eTag));
+        assertTrue(inventoryHeatmapService.isNotModified("\"other\", " + eTag));
+        assertTrue(inventoryHeatmapService.isNotModified("*"));
+    }
+
+    @Test
+    void changedInventoryIsModified() {
+        String eTag = inventoryHeatmapService.currentETag();
+        when(inventoryIndexService.getVersion()).thenReturn(8L);
+
+        assertFalse(inventoryHeatmapService.isNotModified(eTag));
+        assertFalse(inventoryHeatmapService.isNotModified(null));
+    }
+
+    @Test
+    void tagsOfAnotherInstanceDoNotMatch() {
+        InventoryHeatmapService restarted = new InventoryHeatmapService(inventoryIndexService, mock(BloodBankUserRepository.class));
+
+        assertNotEquals(inventoryHeatmapService.currentETag(), restarted.currentETag());
+        assertFalse(restarted.isNotModified(inventoryHeatmapService.currentETag()));
+    }
+}
@@ -0,0 +1,83 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventory;
+import RedSource.repositories.BloodInventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventoryIndexServiceTest {
+
+    private InventoryIndexService inventoryIndexService;
+    private final List<String> notifications = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        inventoryIndexService = new InventoryIndexService(mock(BloodInventoryRepository.class));
+        inventoryIndexService.rebuild();
+        inventoryIndexService.addListener((bank, type, units) -> notifications.add(bank + "/" + type + "=" + units));
+    }
+
+    @Test
+    void quantityEditNotifiesOnceWithFinalCount() {
+        inventoryIndexService.recordChange(null, inventory("bank-1", "A+", 10));
+        notifications.clear();
+
+        inventoryIndexService.recordChange(inventory("bank-1", "A+", 10), inventory("bank-1", "A+", 12));
+
+        assertEquals(List.of("bank-1/A+=12"), notifications);
+        assertEquals(12, inventoryIndexService.getUnits("bank-1", "A+"));
+    }
+
+    @Test
+    void unchangedUnitsDoNotNotify() {
+        inventoryIndexService.recordChange(null, inventory("bank-1", "O-", 5));
+        notifications.clear();
+
+        inventoryIndexService.recordChange(inventory("bank-1", "O-", 5), inventory("bank-1", "O-", 5));
+
+        assertEquals(List.of(), notifications);
+    }
+
+    @Test
+    void typeChangeMovesUnitsBetweenKeys() {
+        inventoryIndexService.recordChange(null, inventory("bank-1", "A+", 10));
+        notifications.clear();
+
+        inventoryIndexService.recordChange(inventory("bank-1", "A+", 10), inventory("bank-1", "B+", 10));
+
+        assertEquals(List.of("bank-1/A+=0", "bank-1/B+=10"), notifications);
+        assertEquals(0, inventoryIndexService.getUnits("bank-1", "A+"));
+        assertEquals(10, inventoryIndexService.getUnits("bank-1", "B+"));
+    }
+
+    @Test
+    void deltasDuringRebuildAreKept() {
+        BloodInventoryRepository repository = mock(BloodInventoryRepository.class);
+        InventoryIndexService index = new InventoryIndexService(repository);
+        when(repository.findAll()).thenAnswer(call -> {
+            // A unit is issued while the collection is being read
+            index.applyDelta("bank-1", "A+", -1);
+            return List.of(inventory("bank-1", "A+", 10));
+        });
+
+        index.rebuild();
+
+        assertEquals(9, index.getUnits("bank-1", "A+"));
+    }
+
+    private static BloodInventory inventory(String bloodBankId, String bloodType, int quantity) {
+        BloodInventory inventory = new BloodInventory();
+        inventory.setBloodBankId(bloodBankId);
+        inventory.setBloodTypeId(bloodType);
+        inventory.setQuantity(quantity);
+        inventory.setStatus("Available");
+        return inventory;
+    }
+}
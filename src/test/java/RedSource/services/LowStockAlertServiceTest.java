@@ -0,0 +1,77 @@
+package RedSource.services;
+
+import RedSource.entities.LowStockAlert;
+import RedSource.entities.LowStockThreshold;
+import RedSource.repositories.LowStockAlertRepository;
+import RedSource.repositories.LowStockThresholdRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LowStockAlertServiceTest {
+
+    private InventoryIndexService inventoryIndexService;
+    private LowStockAlertRepository lowStockAlertRepository;
+    private MongoTemplate mongoTemplate;
+    private LowStockAlertService lowStockAlertService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryIndexService = mock(InventoryIndexService.class);
+        when(inventoryIndexService.getUnits("b-1", "O-")).thenReturn(2);
+        lowStockAlertRepository = mock(LowStockAlertRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        lowStockAlertService = new LowStockAlertService(inventoryIndexService,
+                mock(LowStockThresholdRepository.class), lowStockAlertRepository, mongoTemplate);
+        lowStockAlertService.setThreshold("b-1", "O-", 5, 10);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedDispatchIsRetriedWithTheSameAlert() {
+        when(lowStockAlertRepository.saveAll(anyList())).thenThrow(new IllegalStateException("network")).thenReturn(List.of());
+
+        lowStockAlertService.dispatch();
+        lowStockAlertService.dispatch();
+        lowStockAlertService.dispatch();
+
+        ArgumentCaptor<List<LowStockAlert>> saved = ArgumentCaptor.forClass(List.class);
+        verify(lowStockAlertRepository, times(2)).saveAll(saved.capture());
+        LowStockAlert first = saved.getAllValues().get(0).get(0);
+        assertNotNull(first.getId());
+        assertEquals(first.getId(), saved.getAllValues().get(1).get(0).getId());
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(LowStockThreshold.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void staleCountsDoNotChangeTheAlertState() {
+        // A restock listener running late must not clear the alert once stock is low again
+        lowStockAlertService.evaluate("b-1", "O-", 12);
+
+        when(inventoryIndexService.getUnits("b-1", "O-")).thenReturn(12);
+        // A late listener of an earlier issue must not keep it raised once restocked
+        lowStockAlertService.evaluate("b-1", "O-", 3);
+        lowStockAlertService.dispatch();
+
+        ArgumentCaptor<List<LowStockAlert>> saved = ArgumentCaptor.forClass(List.class);
+        verify(lowStockAlertRepository).saveAll(saved.capture());
+        assertEquals(List.of(LowStockAlert.LOW_STOCK, LowStockAlert.RESTORED),
+                saved.getValue().stream().map(LowStockAlert::getType).toList());
+    }
+}
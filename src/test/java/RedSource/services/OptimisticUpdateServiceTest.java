@@ -0,0 +1,111 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.exceptions.ServiceException;
+import RedSource.exceptions.VersionConflictException;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OptimisticUpdateServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private OptimisticUpdateService optimisticUpdateService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        optimisticUpdateService = new OptimisticUpdateService(mongoTemplate);
+    }
+
+    @Test
+    void updateAppliesChangesOnTheExpectedVersion() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(delivery("Driver A", "PENDING", 2L));
+
+        OptimisticUpdateService.VersionedUpdate<Delivery> result =
+                optimisticUpdateService.update("d-1", changes("Driver B"), 2L, Delivery.class);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class),
+                eq(Delivery.class));
+        assertEquals(2L, query.getValue().getQueryObject().get("version"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals("Driver B", set.get("driver_name"));
+        assertEquals(1, ((Document) update.getValue().getUpdateObject().get("$inc")).get("version"));
+        assertEquals("Driver A", result.previous().getDriverName());
+        assertEquals("Driver B", result.current().getDriverName());
+        assertEquals("PENDING", result.current().getStatus());
+        assertEquals(3L, result.current().getVersion());
+    }
+
+    @Test
+    void staleVersionIsAConflictCarryingTheCurrentVersion() {
+        when(mongoTemplate.findOne(any(Query.class), eq(Delivery.class))).thenReturn(delivery(null, null, 5L));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> optimisticUpdateService.update("d-1", changes("Driver B"), 2L, Delivery.class));
+
+        assertEquals(5L, e.getCurrentVersion());
+    }
+
+    @Test
+    void updateLatestIsOneWriteWithoutAVersionCheck() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class))).thenReturn(delivery("Driver A", "PENDING", 2L));
+
+        OptimisticUpdateService.VersionedUpdate<Delivery> result =
+                optimisticUpdateService.updateLatest("d-1", changes("Driver B"), Delivery.class);
+
+        assertEquals(3L, result.current().getVersion());
+        assertEquals("Driver B", result.current().getDriverName());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Delivery.class));
+        assertFalse(query.getValue().getQueryObject().containsKey("version"));
+        verify(mongoTemplate, never()).findOne(any(Query.class), eq(Delivery.class));
+    }
+
+    @Test
+    void updateLatestOfAMissingDocumentFails() {
+        assertThrows(ServiceException.class,
+                () -> optimisticUpdateService.updateLatest("d-1", changes("Driver B"), Delivery.class));
+    }
+
+    private static Delivery changes(String driverName) {
+        Delivery changes = new Delivery();
+        changes.setDriverName(driverName);
+        return changes;
+    }
+
+    private static Delivery delivery(String driverName, String status, Long version) {
+        Delivery delivery = new Delivery();
+        delivery.setId("d-1");
+        delivery.setDriverName(driverName);
+        delivery.setStatus(status);
+        delivery.setVersion(version);
+        return delivery;
+    }
+}
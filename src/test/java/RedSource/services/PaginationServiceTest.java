@@ -0,0 +1,133 @@
+package RedSource.services;
+
+import RedSource.entities.Delivery;
+import RedSource.entities.response.KeysetPage;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaginationServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private PaginationService paginationService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        paginationService = new PaginationService(mongoTemplate);
+    }
+
+    @Test
+    void fullPageReturnsCursorOfItsLastRow() {
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of(
+                delivery("d-3", 3000L), delivery("d-2", 2000L), delivery("d-1", 1000L)));
+
+        KeysetPage<Delivery> page = paginationService.findPage(Delivery.class, null, null, 2);
+
+        assertEquals(List.of("d-3", "d-2"), page.getItems().stream().map(Delivery::getId).toList());
+        assertEquals("2000|d-2", decode(page.getNextCursor()));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Delivery.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("createdAt", -1).append("id", -1), query.getValue().getSortObject());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of(delivery("d-1", 1000L)));
+
+        KeysetPage<Delivery> page = paginationService.findPage(Delivery.class, null, null, 2);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void nextPageStartsStrictlyAfterTheCursor() {
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of());
+
+        paginationService.findPage(Delivery.class, PaginationService.filter("status", "PENDING"),
+                encode("2000|d-2"), 2);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Delivery.class));
+        String filter = query.getValue().getQueryObject().toString();
+        assertTrue(filter.contains("status=PENDING"));
+        assertTrue(filter.contains("createdAt=Document{{$lt=" + new Date(2000L)));
+        assertTrue(filter.contains("id=Document{{$lt=d-2}}"));
+    }
+
+    @Test
+    void hospitalPagesAreOrderedAndContinuedOnScheduledDate() {
+        Delivery later = delivery("d-3", 1000L);
+        later.setScheduledDate(new Date(6000L));
+        Delivery earlier = delivery("d-2", 2000L);
+        earlier.setScheduledDate(new Date(5000L));
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of(later, earlier));
+
+        KeysetPage<Delivery> page = paginationService.findPage(Delivery.class,
+                PaginationService.filter("hospitalId", "h-1", "status", null), null, 1, "scheduledDate");
+
+        assertEquals("6000|d-3", decode(page.getNextCursor()));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Delivery.class));
+        assertEquals(new Document("scheduledDate", -1).append("id", -1), query.getValue().getSortObject());
+        assertTrue(query.getValue().getQueryObject().toString().contains("hospitalId=h-1"));
+    }
+
+    @Test
+    void undecodableCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> paginationService.findPage(Delivery.class, null, "not a cursor!", 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> paginationService.findPage(Delivery.class, null, encode("abc|d-1"), 2));
+    }
+
+    @Test
+    void limitIsClamped() {
+        when(mongoTemplate.find(any(Query.class), eq(Delivery.class))).thenReturn(List.of());
+
+        assertEquals(PaginationService.DEFAULT_LIMIT, paginationService.findPage(Delivery.class, null, null, null).getLimit());
+        assertEquals(1, paginationService.findPage(Delivery.class, null, null, 0).getLimit());
+        assertEquals(PaginationService.MAX_LIMIT, paginationService.findPage(Delivery.class, null, null, 10_000).getLimit());
+    }
+
+    private static Delivery delivery(String id, long createdAt) {
+        Delivery delivery = new Delivery();
+        delivery.setId(id);
+        delivery.setCreatedAt(new Date(createdAt));
+        return delivery;
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,137 @@
+package RedSource.services;
+
+import RedSource.entities.HospitalRequest;
+import RedSource.entities.RequestDwellCounter;
+import RedSource.entities.RequestEvent;
+import RedSource.repositories.RequestDwellCounterRepository;
+import RedSource.repositories.RequestEventRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestEventServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations eventBulk;
+    private BulkOperations counterBulk;
+    private RequestEventService requestEventService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        eventBulk = mock(BulkOperations.class);
+        counterBulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RequestEvent.class)).thenReturn(eventBulk);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RequestDwellCounter.class)).thenReturn(counterBulk);
+        requestEventService = new RequestEventService(mock(RequestEventRepository.class),
+                mock(RequestDwellCounterRepository.class), mongoTemplate);
+        requestEventService.record(request("PENDING"), request("APPROVED"), RequestEventService.SOURCE_API);
+    }
+
+    @Test
+    void failedEventInsertIsRetriedBeforeCountersAreWritten() {
+        when(eventBulk.execute()).thenThrow(new IllegalStateException("network")).thenReturn(null);
+
+        requestEventService.dispatch();
+        verify(counterBulk, never()).execute();
+
+        requestEventService.dispatch();
+        verify(eventBulk, times(2)).insert(anyList());
+        verify(counterBulk).execute();
+    }
+
+    @Test
+    void failedCounterWriteIsRetriedWithoutReinsertingEvents() {
+        when(counterBulk.execute()).thenThrow(new IllegalStateException("network")).thenReturn(null);
+
+        requestEventService.dispatch();
+        requestEventService.dispatch();
+        requestEventService.dispatch();
+
+        verify(eventBulk).insert(anyList());
+        verify(counterBulk, times(2)).execute();
+    }
+
+    @Test
+    void eventsAreDroppedAfterRepeatedFailures() {
+        when(eventBulk.execute()).thenThrow(new IllegalStateException("down"));
+
+        for (int i = 0; i < 7; i++) {
+            requestEventService.dispatch();
+        }
+
+        verify(eventBulk, times(5)).insert(anyList());
+    }
+
+    @Test
+    void counterRetryOnlyResendsFailedCountersWithTheSameBatchId() {
+        // Counters of bank-1 and of all banks; the first upsert applied, the second did not
+        when(counterBulk.execute()).thenThrow(bulkFailure(new BulkWriteError(91, "shutdown", new BsonDocument(), 1)))
+                .thenReturn(null);
+
+        requestEventService.dispatch();
+        requestEventService.dispatch();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(counterBulk, times(3)).upsert(queries.capture(), any(Update.class));
+        List<Query> upserts = queries.getAllValues();
+        assertEquals(upserts.get(1).getQueryObject().get("id"), upserts.get(2).getQueryObject().get("id"));
+        assertEquals(upserts.get(0).getQueryObject().get("appliedBatches"), upserts.get(2).getQueryObject().get("appliedBatches"));
+    }
+
+    @Test
+    void skippedCounterIsNotRetriedWhenItListsTheBatch() {
+        when(counterBulk.execute()).thenThrow(bulkFailure(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        RequestDwellCounter applied = RequestDwellCounter.builder().id("bank-1|PENDING|" + today()).build();
+        when(mongoTemplate.find(any(Query.class), eq(RequestDwellCounter.class))).thenReturn(List.of(applied));
+
+        requestEventService.dispatch();
+        requestEventService.dispatch();
+
+        verify(counterBulk, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(counterBulk).execute();
+    }
+
+    private static BulkOperationException bulkFailure(BulkWriteError error) {
+        return new BulkOperationException("bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of()));
+    }
+
+    private static String today() {
+        return LocalDate.now(ZoneOffset.UTC).toString();
+    }
+
+    private static HospitalRequest request(String status) {
+        HospitalRequest request = HospitalRequest.builder().id("r-1").status(status).hospitalId("h-1")
+                .bloodBankId("bank-1").build();
+        request.setCreatedAt(new Date(System.currentTimeMillis() - 3_600_000));
+        request.setStatusChangedAt(new Date(System.currentTimeMillis() - 600_000));
+        return request;
+    }
+}
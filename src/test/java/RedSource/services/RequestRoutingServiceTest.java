@@ -0,0 +1,84 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.Hospital;
+import RedSource.repositories.HospitalRepository;
+import RedSource.services.BloodBankLocationService.BankLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestRoutingServiceTest {
+
+    private static final BankLocation NEAR = new BankLocation("bank-near", "Near", null, 14.601, 120.981);
+    private static final BankLocation MID = new BankLocation("bank-mid", "Mid", null, 14.650, 121.030);
+    private static final BankLocation FAR = new BankLocation("bank-far", "Far", null, 16.400, 120.600);
+
+    private InventoryIndexService inventoryIndexService;
+    private BloodBankLocationService bloodBankLocationService;
+    private RequestRoutingService requestRoutingService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryIndexService = mock(InventoryIndexService.class);
+        bloodBankLocationService = mock(BloodBankLocationService.class);
+        HospitalRepository hospitalRepository = mock(HospitalRepository.class);
+        Hospital hospital = new Hospital();
+        hospital.setId("h-1");
+        hospital.setCoordinates(new Hospital.Coordinates(14.600, 120.980));
+        when(hospitalRepository.findById("h-1")).thenReturn(Optional.of(hospital));
+        requestRoutingService = new RequestRoutingService(inventoryIndexService, bloodBankLocationService, hospitalRepository);
+    }
+
+    @Test
+    void fullCoverageOutranksACloserPartialBank() {
+        when(bloodBankLocationService.findWithin(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of(NEAR, MID));
+        when(inventoryIndexService.getUnits("bank-near", "O+")).thenReturn(2);
+        when(inventoryIndexService.getUnits("bank-mid", "O+")).thenReturn(10);
+
+        List<Map<String, Object>> ranked = requestRoutingService.rank("h-1", items("O+", 4), null);
+
+        assertEquals(List.of("bank-mid", "bank-near"), ranked.stream().map(row -> row.get("bloodBankId")).toList());
+        assertTrue((Boolean) ranked.get(0).get("fullyCovers"));
+        assertEquals(0.5, ranked.get(1).get("fillRate"));
+        // A bank covering everything was found in the first radius
+        verify(bloodBankLocationService, times(1)).findWithin(anyDouble(), anyDouble(), anyDouble());
+        verify(bloodBankLocationService, never()).getAll();
+    }
+
+    @Test
+    void searchWidensToEveryBankWhenNobodyNearbyCovers() {
+        when(bloodBankLocationService.findWithin(anyDouble(), anyDouble(), anyDouble())).thenReturn(List.of(NEAR));
+        when(bloodBankLocationService.getAll()).thenReturn(List.of(NEAR, FAR));
+        when(inventoryIndexService.getUnits("bank-far", "A-")).thenReturn(1);
+
+        List<Map<String, Object>> ranked = requestRoutingService.rank("h-1", items("A-", 1), null);
+
+        // Banks without stock for the request are not suggested
+        assertEquals(List.of("bank-far"), ranked.stream().map(row -> row.get("bloodBankId")).toList());
+        verify(bloodBankLocationService, times(5)).findWithin(anyDouble(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void itemsNeedABloodTypeAndPositiveUnits() {
+        assertThrows(IllegalArgumentException.class, () -> requestRoutingService.rank("h-1", List.of(), null));
+        assertThrows(IllegalArgumentException.class, () -> requestRoutingService.rank("h-1", items("O+", 0), null));
+    }
+
+    private static List<BloodInventoryItem> items(String bloodType, int units) {
+        return List.of(new BloodInventoryItem(bloodType, units));
+    }
+}
@@ -0,0 +1,68 @@
+package RedSource.services;
+
+import RedSource.entities.Hospital;
+import RedSource.entities.HospitalRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestTriageServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private RequestTriageService requestTriageService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(Hospital.class))).thenReturn(List.of());
+        requestTriageService = new RequestTriageService(mongoTemplate);
+        ReflectionTestUtils.setField(requestTriageService, "reloadMs", 300_000L);
+    }
+
+    @Test
+    void writesDuringLoadAreReplayedOverTheSnapshot() {
+        when(mongoTemplate.find(any(Query.class), eq(HospitalRequest.class))).thenAnswer(call -> {
+            // Written after the query read the collection, notified before the queue is published
+            requestTriageService.onRequestChanged(request("r-3", "b-1", "PENDING"));
+            requestTriageService.onRequestChanged(request("r-2", "b-1", "APPROVED"));
+            requestTriageService.onRequestRemoved("r-1");
+            return List.of(request("r-1", "b-1", "PENDING"), request("r-2", "b-1", "PENDING"));
+        });
+
+        List<String> queued = requestTriageService.getQueue("b-1", null, 10).getItems().stream()
+                .map(RequestTriageService.TriageEntry::requestId).toList();
+
+        assertEquals(List.of("r-3"), queued);
+    }
+
+    @Test
+    void writesAfterLoadGoStraightToTheQueue() {
+        when(mongoTemplate.find(any(Query.class), eq(HospitalRequest.class)))
+                .thenReturn(List.of(request("r-1", "b-1", "PENDING")));
+        assertEquals(1, requestTriageService.size("b-1"));
+
+        requestTriageService.onRequestChanged(request("r-2", "b-1", "PENDING"));
+        requestTriageService.onRequestChanged(request("r-1", "b-1", "FULFILLED"));
+
+        assertEquals(List.of("r-2"), requestTriageService.getQueue("b-1", null, 10).getItems().stream()
+                .map(RequestTriageService.TriageEntry::requestId).toList());
+    }
+
+    private static HospitalRequest request(String id, String bloodBankId, String status) {
+        HospitalRequest request = HospitalRequest.builder().id(id).status(status).hospitalId("h-1")
+                .bloodBankId(bloodBankId).build();
+        request.setDateNeeded(new Date(1_800_000_000_000L));
+        return request;
+    }
+}
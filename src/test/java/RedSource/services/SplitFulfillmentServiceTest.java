@@ -0,0 +1,133 @@
+package RedSource.services;
+
+import RedSource.entities.BloodInventoryItem;
+import RedSource.entities.Delivery;
+import RedSource.entities.HospitalRequest;
+import RedSource.exceptions.ServiceException;
+import RedSource.repositories.DeliveryRepository;
+import RedSource.services.BloodBankLocationService.BankLocation;
+import RedSource.services.RequestRoutingService.Candidate;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SplitFulfillmentServiceTest {
+
+    private RequestRoutingService requestRoutingService;
+    private HospitalRequestService hospitalRequestService;
+    private DeliveryRepository deliveryRepository;
+    private MongoTemplate mongoTemplate;
+    private SplitFulfillmentService splitFulfillmentService;
+
+    @BeforeEach
+    void setUp() {
+        requestRoutingService = mock(RequestRoutingService.class);
+        hospitalRequestService = mock(HospitalRequestService.class);
+        deliveryRepository = mock(DeliveryRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(HospitalRequest.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        splitFulfillmentService = new SplitFulfillmentService(requestRoutingService, hospitalRequestService,
+                mock(BloodBankService.class), deliveryRepository, mongoTemplate);
+    }
+
+    @Test
+    void finalRequestCannotBeSplit() {
+        when(hospitalRequestService.getById("r-1")).thenReturn(request("r-1", "REJECTED"));
+
+        assertThrows(IllegalArgumentException.class, () -> splitFulfillmentService.split("r-1"));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(HospitalRequest.class));
+    }
+
+    @Test
+    void failedLegInsertRemovesWrittenLegsAndReleasesClaim() {
+        HospitalRequest request = request("r-1", "APPROVED");
+        when(hospitalRequestService.getById("r-1")).thenReturn(request);
+        when(requestRoutingService.findCandidates(any(), any())).thenReturn(List.of(
+                new Candidate(new BankLocation("b-1", "Bank 1", "Addr", null, null), 4.0, Map.of("A+", 3), 3, 5),
+                new Candidate(new BankLocation("b-2", "Bank 2", "Addr", null, null), 9.0, Map.of("A+", 2), 2, 5)));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(request);
+        when(deliveryRepository.saveAll(anyList())).thenThrow(new IllegalStateException("write failed"));
+
+        assertThrows(ServiceException.class, () -> splitFulfillmentService.split("r-1"));
+
+        ArgumentCaptor<Query> removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(removed.capture(), eq(Delivery.class));
+        Document ids = (Document) removed.getValue().getQueryObject().get("id");
+        assertEquals(2, ((List<?>) ids.get("$in")).size());
+        ArgumentCaptor<Update> rollback = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), rollback.capture(), eq(HospitalRequest.class));
+        assertTrue(rollback.getValue().getUpdateObject().containsKey("$unset"));
+    }
+
+    @Test
+    void lastLegShortOfRequestedUnitsDoesNotFulfil() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(progress("PENDING", 2, 2, 4, 6));
+
+        assertTrue(splitFulfillmentService.recordLegCompleted("r-1", leg(2)));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(HospitalRequest.class));
+    }
+
+    @Test
+    void lastLegCoveringRequestedUnitsFulfils() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(progress("APPROVED", 2, 2, 6, 6));
+
+        assertTrue(splitFulfillmentService.recordLegCompleted("r-1", leg(3)));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(HospitalRequest.class));
+        assertEquals("APPROVED", query.getValue().getQueryObject().get("status"));
+        assertEquals("FULFILLED", ((Document) update.getValue().getUpdateObject().get("$set")).get("status"));
+    }
+
+    @Test
+    void rejectedRequestIsNotFulfilledByItsLastLeg() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(HospitalRequest.class))).thenReturn(progress("REJECTED", 1, 1, 5, 5));
+
+        assertTrue(splitFulfillmentService.recordLegCompleted("r-1", leg(5)));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(HospitalRequest.class));
+    }
+
+    private static HospitalRequest request(String id, String status) {
+        return HospitalRequest.builder().id(id).status(status).hospitalId("h-1")
+                .bloodItems(List.of(new BloodInventoryItem("A+", 5))).build();
+    }
+
+    private static HospitalRequest progress(String status, int legsCompleted, int legsTotal,
+                                            int unitsDelivered, int unitsRequested) {
+        return HospitalRequest.builder().id("r-1").status(status).legsCompleted(legsCompleted).legsTotal(legsTotal)
+                .unitsDelivered(unitsDelivered).unitsRequested(unitsRequested).build();
+    }
+
+    private static Delivery leg(int units) {
+        Delivery delivery = new Delivery();
+        delivery.setBloodItems(List.of(new BloodInventoryItem("A+", units)));
+        return delivery;
+    }
+}
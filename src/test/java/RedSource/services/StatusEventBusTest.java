@@ -0,0 +1,38 @@
+package RedSource.services;
+
+import RedSource.entities.HospitalRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatusEventBusTest {
+
+    private final StatusEventBus statusEventBus = new StatusEventBus();
+
+    @AfterEach
+    void tearDown() {
+        statusEventBus.shutdown();
+    }
+
+    @Test
+    void fullReplayDoesNotEvictReconnectingSubscriber() {
+        for (int i = 0; i < 300; i++) {
+            statusEventBus.publishRequestStatus(HospitalRequest.builder()
+                    .id("r-" + i).status("PENDING").hospitalId("h-1").build());
+        }
+
+        statusEventBus.subscribe(StatusEventBus.hospitalTopic("h-1"), "0");
+
+        assertEquals(1, statusEventBus.getStats().get("subscribers"));
+    }
+
+    @Test
+    void activeTopicsAreNotPruned() {
+        statusEventBus.publishRequestStatus(HospitalRequest.builder().id("r-1").status("PENDING").hospitalId("h-1").build());
+
+        statusEventBus.pruneTopics();
+
+        assertEquals(1, statusEventBus.getStats().get("topics"));
+    }
+}